@@ -1,7 +1,10 @@
 
 package it.unisa.c02.rently.rently_application;
 
+import it.unisa.c02.rently.rently_application.security.BloomFilter;
 import it.unisa.c02.rently.rently_application.security.JwtProvider;
+import it.unisa.c02.rently.rently_application.security.PrincipalCache;
+import it.unisa.c02.rently.rently_application.security.UtentePrincipal;
 import it.unisa.c02.rently.rently_application.data.dto.UtenteDTO;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
@@ -18,6 +21,9 @@ import java.util.concurrent.TimeUnit;
  *  - verifyJwt: verifica della firma e decodifica del token
  *  - JSON parse: parsing della claim "user" come ObjectNode
  *  - convertValue: conversione ObjectNode -> UtenteDTO
+ *  - claim compatte: verifica e lettura di id utente e versione, senza parsing JSON aggiuntivo
+ *  - PrincipalCache: lettura del principal già autenticato per lo stesso token
+ *  - BloomFilter: controllo di revoca di un token non revocato, che non richiede accessi al database
  *
  * Non dipende dal DAO o da HttpServletRequest/FilterChain.
  */
@@ -40,13 +46,17 @@ public class AuthorizationFilterBenchmark {
 
     private ObjectMapper mapper;
     private String token;
+    private String compactToken;
+    private PrincipalCache cache;
+    private BloomFilter revoked;
+    private String jti;
 
     @Setup(Level.Trial)
     public void setup() {
         mapper = new ObjectMapper();
 
         // Inizializza JwtProvider "come fa Spring" senza dipendere da Environment
-        JwtProvider.secret = fixedSecret ? "bench-secret-123" : UUID.randomUUID().toString();
+        JwtProvider.configura("1", fixedSecret ? "bench-secret-123" : UUID.randomUUID().toString(), List.of());
         JwtProvider.headerParam = "Authorization";
         JwtProvider.prefix = "Bearer ";
 
@@ -68,6 +78,17 @@ public class AuthorizationFilterBenchmark {
         final Map<String, Object> claims = new HashMap<>();
         claims.put("user", userJson);
         token = JwtProvider.createJwt("subject", claims);
+        compactToken = JwtProvider.createJwt(randomEmail(emailLen), 123L);
+
+        cache = new PrincipalCache(10000, 300000);
+        cache.put(token, new UtentePrincipal(123L, randomEmail(emailLen)), JwtProvider.verifyJwt(token).getExpiresAt());
+
+        // Filtro con 100000 token revocati, come la lista delle revoche a regime
+        revoked = new BloomFilter(100000, 0.01);
+        for (int i = 0; i < 100000; i++) {
+            revoked.aggiungi(UUID.randomUUID().toString());
+        }
+        jti = JwtProvider.verifyJwt(token).getId();
     }
 
     // Verifica solo la firma + decodifica
@@ -103,6 +124,28 @@ public class AuthorizationFilterBenchmark {
         }
     }
 
+    // Verifica + lettura delle claim compatte, come nel percorso veloce del filtro
+    @Benchmark
+    public void verify_compact_claims(final Blackhole bh) {
+        final DecodedJWT decoded = JwtProvider.verifyJwt(compactToken);
+        if (!decoded.getClaim(JwtProvider.CLAIM_VERSIONE).isNull()) {
+            bh.consume(decoded.getClaim(JwtProvider.CLAIM_ID_UTENTE).asLong());
+            bh.consume(decoded.getSubject());
+        }
+    }
+
+    // Percorso del filtro per un token già visto: solo hash del token e lookup in cache
+    @Benchmark
+    public void cached_principal(final Blackhole bh) {
+        bh.consume(cache.get(token));
+    }
+
+    // Controllo di revoca sul percorso del filtro per un token non revocato
+    @Benchmark
+    public void revocation_check_not_revoked(final Blackhole bh) {
+        bh.consume(revoked.contiene(jti));
+    }
+
     // ---- utils ----
     private static String randomEmail(final int len) {
         final StringBuilder sb = new StringBuilder(len + 12);
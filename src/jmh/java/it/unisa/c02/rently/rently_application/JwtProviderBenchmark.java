@@ -2,6 +2,8 @@
 package it.unisa.c02.rently.rently_application;
 
 import it.unisa.c02.rently.rently_application.security.JwtProvider;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -14,8 +16,12 @@ import java.util.concurrent.TimeUnit;
  * Microbenchmark per misurare:
  *  - createJwt(subject, claims): costo di costruzione e firma del token
  *  - verifyJwt(jwt): costo di verifica/signature check
+ *  - verifica con algoritmo e verificatore ricostruiti a ogni chiamata (comportamento precedente al keyring)
+ *    e verifica dopo una rotazione della chiave di firma
  *
- * Nota: non dipende da Spring. Inizializziamo manualmente i campi statici di JwtProvider.
+ * Per confrontare le allocazioni eseguire con "-prof gc".
+ *
+ * Nota: non dipende da Spring. Inizializziamo manualmente il keyring di JwtProvider.
  */
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.MICROSECONDS) // JWT ha costi nell'ordine dei µs
@@ -55,6 +61,9 @@ public class JwtProviderBenchmark {
     // token pre-generati per il benchmark di verify
     private List<String> tokensForVerify;
 
+    // token firmati prima della rotazione della chiave
+    private List<String> tokensAfterRotation;
+
     @Setup(Level.Trial)
     public void setupTrial() {
         // Inizializza i campi statici usati da JwtProvider, simulando Spring Environment
@@ -62,7 +71,7 @@ public class JwtProviderBenchmark {
         headerParam = "Authorization";
         prefix = "Bearer ";
 
-        JwtProvider.secret = secret;
+        JwtProvider.configura("1", secret, List.of());
         JwtProvider.headerParam = headerParam;
         JwtProvider.prefix = prefix;
 
@@ -84,21 +93,25 @@ public class JwtProviderBenchmark {
             final Map<String, Object> c = (i % 2 == 0) ? claims : slightVariantClaims(claims, i, claimValueLen);
             // Se fixedSecret=false, cambiamo anche il secret per stressare il verify (non consigliato normalmente)
             if (!fixedSecret) {
-                JwtProvider.secret = "secret-" + i;
+                JwtProvider.configura("1", "secret-" + i, List.of());
             }
             final String t = JwtProvider.createJwt(subject, c);
             tokensForVerify.add(t);
         }
 
         // Ripristina il secret principale
-        JwtProvider.secret = secret;
+        JwtProvider.configura("1", secret, List.of());
+
+        // Token firmati con la chiave "1", da verificare dopo la rotazione alla chiave "2"
+        tokensAfterRotation = new ArrayList<>(tokensForVerify);
     }
 
     @Setup(Level.Iteration)
     public void setupIteration() {
         // Se fixedSecret=false, cambia il secret a ogni iterazione per simulare variazione
         if (!fixedSecret) {
-            JwtProvider.secret = UUID.randomUUID().toString();
+            secret = UUID.randomUUID().toString();
+            JwtProvider.configura("1", secret, List.of());
         }
     }
 
@@ -129,6 +142,37 @@ public class JwtProviderBenchmark {
         bh.consume(jwt);
     }
 
+    /** Verifica ricostruendo algoritmo e verificatore a ogni chiamata, come prima del keyring */
+    @Benchmark
+    public void verifyJwt_rebuildVerifier(final Blackhole bh) {
+        final String token = tokensForVerify.get((int) (System.nanoTime() % tokensForVerify.size()));
+        final DecodedJWT jwt = JWT.require(Algorithm.HMAC256(secret)).build().verify(token);
+        bh.consume(jwt);
+    }
+
+    /** Keyring ruotato: firma con la chiave "2", la chiave "1" resta accettata in verifica */
+    @State(Scope.Thread)
+    public static class Rotation {
+
+        @Setup(Level.Iteration)
+        public void rotate(final JwtProviderBenchmark bench) {
+            JwtProvider.configura("2", "rotated-" + bench.secret,
+                    List.of(new JwtProvider.ChiaveVerifica("1", bench.secret, null)));
+        }
+
+        @TearDown(Level.Iteration)
+        public void restore(final JwtProviderBenchmark bench) {
+            JwtProvider.configura("1", bench.secret, List.of());
+        }
+    }
+
+    /** Verifica token firmati con la chiave precedente, dopo la rotazione della chiave di firma */
+    @Benchmark
+    public void verifyJwt_afterRotation(final Rotation rotation, final Blackhole bh) {
+        final String token = tokensAfterRotation.get((int) (System.nanoTime() % tokensAfterRotation.size()));
+        bh.consume(JwtProvider.verifyJwt(token));
+    }
+
     /** Verifica un token appena creato (include costo di creazione + verifica) */
     @Benchmark
     public void createThenVerifyJwt(final Blackhole bh) {
@@ -1,6 +1,8 @@
 
 package it.unisa.c02.rently.rently_application;
 
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordService;
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordServiceImpl;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -10,6 +12,17 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HexFormat;
 
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+/**
+ * Microbenchmark della codifica delle password:
+ *  - SHA-256 a singolo passaggio (formato precedente), in tempo medio per chiamata
+ *  - hash adattivi (BCrypt, PBKDF2) in throughput: con @Threads(1) il risultato è il throughput per core,
+ *    con @Threads(Threads.MAX) va diviso per il numero di processori per confrontarlo con il precedente
+ *  - verifica tramite PasswordService, per misurare il costo del pool dedicato rispetto alla chiamata diretta
+ */
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.NANOSECONDS)
 @Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
@@ -78,6 +91,76 @@ public class PswCoderBenchmark {
         bh.consume(out);
     }
 
+    // ---- Hash adattivi ----
+
+    @State(Scope.Benchmark)
+    public static class Adaptive {
+
+        @Param({"bcrypt", "pbkdf2"})
+        public String algorithm;
+
+        @Param({"10"})
+        public int bcryptCost;
+
+        public PasswordEncoder encoder;
+        public String pwd;
+        public String encoded;
+        public PasswordService service;
+
+        @Setup(Level.Trial)
+        public void init() {
+            // Il costo degli hash adattivi non dipende dalla lunghezza: password fissa di 16 caratteri
+            pwd = "abcdefghijklmnop";
+            encoder = "bcrypt".equals(algorithm)
+                    ? new BCryptPasswordEncoder(bcryptCost)
+                    : Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8();
+            encoded = encoder.encode(pwd);
+            // Coda ampia: qui interessa il costo del passaggio sul pool, non il rifiuto per saturazione
+            service = new PasswordServiceImpl(encoder, 0, 1024, 60000);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            ((PasswordServiceImpl) service).chiudi();
+        }
+    }
+
+    /** Codifica adattiva su un solo thread: throughput per core */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(1)
+    public void adaptive_encode_perCore(final Adaptive adaptive, final Blackhole bh) {
+        bh.consume(adaptive.encoder.encode(adaptive.pwd));
+    }
+
+    /** Verifica adattiva su un solo thread: throughput per core */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(1)
+    public void adaptive_matches_perCore(final Adaptive adaptive, final Blackhole bh) {
+        bh.consume(adaptive.encoder.matches(adaptive.pwd, adaptive.encoded));
+    }
+
+    /** Verifica adattiva su tutti i processori: dividere per il numero di core */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public void adaptive_matches_allCores(final Adaptive adaptive, final Blackhole bh) {
+        bh.consume(adaptive.encoder.matches(adaptive.pwd, adaptive.encoded));
+    }
+
+    /** Verifica tramite il pool dedicato di PasswordService, con tutti i processori come chiamanti */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public void service_verifica_allCores(final Adaptive adaptive, final Blackhole bh) {
+        bh.consume(adaptive.service.verifica(adaptive.pwd, adaptive.encoded));
+    }
+
     // ---- helper identico alla tua implementazione ----
     private static String manualHex(final byte[] hash) {
         final StringBuilder hexString = new StringBuilder(2 * hash.length);
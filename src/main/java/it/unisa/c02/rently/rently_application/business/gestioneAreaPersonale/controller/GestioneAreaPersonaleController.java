@@ -1,6 +1,7 @@
 package it.unisa.c02.rently.rently_application.business.gestioneAreaPersonale.controller;
 import it.unisa.c02.rently.rently_application.business.gestioneAreaPersonale.service.GestioneAreaPersonaleService;
-import it.unisa.c02.rently.rently_application.commons.psw.PswCoder;
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.GestioneAutenticazioneService;
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordService;
 import it.unisa.c02.rently.rently_application.commons.services.regexService.RegexTester;
 import it.unisa.c02.rently.rently_application.commons.services.responseService.ResponseService;
 import it.unisa.c02.rently.rently_application.data.dto.ResponseDTO;
@@ -44,6 +45,16 @@ public class GestioneAreaPersonaleController {
      */
     private final GestioneAreaPersonaleService areaPersonaleService;
 
+    /**
+     * Service per la codifica delle password.
+     */
+    private final PasswordService passwordService;
+
+    /**
+     * Service per la revoca delle sessioni dopo la modifica della password.
+     */
+    private final GestioneAutenticazioneService autenticazioneService;
+
     /**
      * Ottiene il profilo dell'utente specificato dall'ID.
      *
@@ -98,9 +109,9 @@ public class GestioneAreaPersonaleController {
         Utente item = areaPersonaleService.getDatiPrivati(data.getId());
 
         try {
-            if (!data.getNuovaPassword().isEmpty() && !data.getConfermaNuovaPassword().isEmpty()) {
-                final PswCoder coder = new PswCoder();
-                item.setPassword(coder.codificaPassword(data.getNuovaPassword()));
+            final boolean passwordModificata = !data.getNuovaPassword().isEmpty() && !data.getConfermaNuovaPassword().isEmpty();
+            if (passwordModificata) {
+                item.setPassword(passwordService.codifica(data.getNuovaPassword()));
             }
 
             item.setNome(data.getNome());
@@ -111,6 +122,10 @@ public class GestioneAreaPersonaleController {
 
             item = areaPersonaleService.updateUtente(item);
 
+            // Con la nuova password le sessioni aperte, anche quella corrente, devono essere riautenticate
+            if (passwordModificata) {
+                autenticazioneService.revocaSessioni(item.getId());
+            }
 
         } catch (final Exception ex) {
             return responseService.InternalError();
@@ -1,8 +1,10 @@
 package it.unisa.c02.rently.rently_application.business.gestioneAreaPersonale.service;
 
 
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.FiltroCredenziali;
 import it.unisa.c02.rently.rently_application.data.dao.GestioneAreaPersonaleDAO;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
+import it.unisa.c02.rently.rently_application.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -21,12 +23,25 @@ public class GestioneAreaPersonaleServiceImpl implements GestioneAreaPersonaleSe
      */
     private final GestioneAreaPersonaleDAO gestioneAreaPersonaleDAO;
 
+    /**
+     * Cache dei principal autenticati, invalidata quando i dati di un utente vengono modificati.
+     */
+    private final PrincipalCache principalCache;
+
+    /**
+     * Filtri degli username e delle email già registrati, aggiornati quando un utente li modifica.
+     */
+    private final FiltroCredenziali filtroCredenziali;
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Utente updateUtente(final Utente utente) {
-        return gestioneAreaPersonaleDAO.save(utente);
+        final Utente salvato = gestioneAreaPersonaleDAO.save(utente);
+        principalCache.invalida(salvato.getId());
+        filtroCredenziali.aggiungi(salvato);
+        return salvato;
     }
 
     /**
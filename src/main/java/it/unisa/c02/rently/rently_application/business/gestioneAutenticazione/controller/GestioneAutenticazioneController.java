@@ -1,22 +1,27 @@
 package it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.GestioneAutenticazioneService;
-import it.unisa.c02.rently.rently_application.commons.psw.PswCoder;
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.LimiteDisponibilita;
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordService;
 import it.unisa.c02.rently.rently_application.commons.services.regexService.RegexTester;
 import it.unisa.c02.rently.rently_application.commons.services.responseService.ResponseService;
+import it.unisa.c02.rently.rently_application.data.dto.RefreshTokenDTO;
 import it.unisa.c02.rently.rently_application.data.dto.ResponseDTO;
 import it.unisa.c02.rently.rently_application.data.dto.UtenteDTO;
 import it.unisa.c02.rently.rently_application.data.dto.UtenteLoginDTO;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
 import it.unisa.c02.rently.rently_application.security.JwtProvider;
+import it.unisa.c02.rently.rently_application.security.UtentePrincipal;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 
@@ -52,6 +57,16 @@ public class GestioneAutenticazioneController {
      */
     private final GestioneAutenticazioneService autenticazioneService;
 
+    /**
+     * Service per la codifica delle password.
+     */
+    private final PasswordService passwordService;
+
+    /**
+     * Limite alle verifiche di disponibilità di ogni client.
+     */
+    private final LimiteDisponibilita limiteDisponibilita;
+
     /**
      * Restituisce l'utente associato all'indirizzo email e alla password specificati nell'UtenteDTO passato come parametro.
      *
@@ -65,19 +80,9 @@ public class GestioneAutenticazioneController {
         response.message = "Login fallito";
 
         try {
-            final String oPassword = new PswCoder().codificaPassword(data.getPassword());
-            final Utente utente = autenticazioneService.login(data.getEmail(), oPassword);
+            final Utente utente = autenticazioneService.login(data.getEmail(), data.getPassword());
             if (utente != null) {
-
-                final UtenteDTO item = new UtenteDTO().convertFromModel(utente);
-
-                final ObjectNode userNode = new ObjectMapper().convertValue(item, ObjectNode.class);
-                userNode.remove("password");
-                final Map claimMap = new HashMap<>(0);
-                claimMap.put("user", userNode);
-                item.setToken(JwtProvider.createJwt(item.getEmail(), claimMap));
-
-                return responseService.Ok(item);
+                return responseService.Ok(creaSessione(utente));
             } else {
                 return responseService.InternalError(response);
             }
@@ -118,7 +123,7 @@ public class GestioneAutenticazioneController {
             final Utente utente = new Utente();
             utente.setUsername(data.getUsername());
             utente.setEmail(data.getEmail());
-            utente.setPassword( new PswCoder().codificaPassword(data.getPassword()));
+            utente.setPassword(passwordService.codifica(data.getPassword()));
             utente.setNome(data.getNome());
             utente.setCognome(data.getCognome());
 
@@ -142,19 +147,111 @@ public class GestioneAutenticazioneController {
                 return responseService.InternalError(response);
             }
 
-            final UtenteDTO item = new UtenteDTO().convertFromModel(utente);
+            return responseService.Ok(creaSessione(utente));
+        } catch (final DataIntegrityViolationException ex)
+        {
+            // Username o email registrati nel frattempo da un'altra richiesta
+            response.message = "Username o email già esistente!";
+            return responseService.BadRequest(response);
+        } catch (final Exception ex)
+        {
+            return responseService.InternalError(response);
+        }
 
-            final ObjectNode userNode = new ObjectMapper().convertValue(item, ObjectNode.class);
-            userNode.remove("password");
-            final Map claimMap = new HashMap<>(0);
-            claimMap.put("user", userNode);
-            item.setToken(JwtProvider.createJwt(item.getEmail(), claimMap));
+    }
 
-            return responseService.Ok(item);
+    /**
+     * Verifica se uno username e un'email sono disponibili per la registrazione.
+     * Ogni verifica si risolve in memoria se il valore non è registrato, altrimenti con al più una query.
+     * Il numero di verifiche di ogni client è limitato, per impedire l'enumerazione degli utenti registrati.
+     *
+     * @param username Username da verificare, facoltativo.
+     * @param email Email da verificare, facoltativa.
+     * @param request Richiesta HTTP, da cui si ricava l'indirizzo del client.
+     * @return ResponseEntity contenente, per ogni valore specificato, true se è disponibile, in formato JSON.
+     */
+    @GetMapping("/disponibilita")
+    public ResponseEntity<String> disponibilita(@RequestParam(required = false) final String username,
+                                                @RequestParam(required = false) final String email,
+                                                final HttpServletRequest request) {
+        if (!limiteDisponibilita.consenti(request.getRemoteAddr())) {
+            final ResponseDTO response = new ResponseDTO();
+            response.message = "Troppe richieste, riprovare più tardi";
+            return responseService.TooManyRequests(response);
+        }
+        try {
+            final Map<String, Boolean> disponibilita = new LinkedHashMap<>();
+            if (username != null && !username.isBlank()) {
+                disponibilita.put("username", !autenticazioneService.checkUsername(username));
+            }
+            if (email != null && !email.isBlank()) {
+                disponibilita.put("email", !autenticazioneService.checkEmail(email));
+            }
+            return responseService.Ok(disponibilita);
+        } catch (final Exception ex)
+        {
+            return responseService.InternalError();
+        }
+    }
+
+    /**
+     * Rinnova la sessione di un utente: il refresh token ricevuto viene revocato e ne vengono emessi
+     * uno nuovo e un nuovo token di accesso.
+     *
+     * @param data RefreshTokenDTO contenente il refresh token ricevuto all'accesso o all'ultimo rinnovo.
+     * @return ResponseEntity contenente l'Utente con i nuovi token o un messaggio di errore in formato JSON.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<String> refresh(@RequestBody final RefreshTokenDTO data) {
+
+        final ResponseDTO response = new ResponseDTO();
+        response.message = "Sessione scaduta";
+
+        try {
+            final Utente utente = autenticazioneService.usaRefreshToken(data.getRefreshToken());
+            if (utente == null) {
+                return responseService.InternalError(response);
+            }
+            return responseService.Ok(creaSessione(utente));
         } catch (final Exception ex)
         {
             return responseService.InternalError(response);
         }
+    }
+
+    /**
+     * Chiude la sessione dell'utente autenticato, revocando il token di accesso usato per la richiesta
+     * e il refresh token, se specificato.
+     *
+     * @param principal Utente autenticato.
+     * @param data RefreshTokenDTO contenente il refresh token della sessione, facoltativo.
+     * @return ResponseEntity vuota o un messaggio di errore in formato JSON.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(@AuthenticationPrincipal final UtentePrincipal principal,
+                                         @RequestBody(required = false) final RefreshTokenDTO data) {
+        try {
+            autenticazioneService.logout(principal != null ? principal.idToken() : null,
+                    data != null ? data.getRefreshToken() : null);
+            return responseService.Ok();
+        } catch (final Exception ex)
+        {
+            return responseService.InternalError();
+        }
+    }
+
+    /**
+     * Crea il DTO restituito all'accesso, con un nuovo token di accesso e un nuovo refresh token.
+     *
+     * @param utente Utente che ha effettuato l'accesso.
+     * @return UtenteDTO contenente i dati dell'utente e i token della sessione.
+     */
+    private UtenteDTO creaSessione(final Utente utente) {
+
+        final UtenteDTO item = new UtenteDTO().convertFromModel(utente);
+        item.setToken(JwtProvider.createJwt(item.getEmail(), item.getId()));
+        item.setRefreshToken(autenticazioneService.creaRefreshToken(utente));
 
+        return item;
     }
 }
@@ -0,0 +1,210 @@
+package it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import it.unisa.c02.rently.rently_application.security.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Filtri di Bloom degli username e delle email già registrati.
+ * Un controllo di disponibilità si risolve in memoria quando il filtro esclude il valore, e interroga il database
+ * con una sola query solo quando il valore potrebbe essere già registrato.
+ * Gli utenti registrati o modificati su questo nodo vengono aggiunti subito ai filtri; quelli registrati su altri nodi
+ * vengono inclusi alla ricostruzione periodica, e nel frattempo i vincoli di unicità della tabella restano la garanzia finale.
+ * I filtri contengono una chiave più grossolana della collation della tabella degli utenti: due valori uguali per la
+ * collation hanno sempre la stessa chiave, mentre le chiavi uguali di valori diversi costano al più una query in più.
+ */
+@Service
+public class FiltroCredenziali {
+
+    /**
+     * Numero massimo di utenti letti con una singola query durante la ricostruzione.
+     */
+    private static final int DIMENSIONE_BLOCCO = 5000;
+
+    /**
+     * Istanza di GestioneAutenticazioneDAO utilizzata per l'accesso ai dati degli utenti.
+     */
+    private final GestioneAutenticazioneDAO autenticazioneDAO;
+
+    /**
+     * Numero minimo di valori per cui sono dimensionati i filtri.
+     */
+    private final int capacita;
+
+    /**
+     * Probabilità di falsi positivi dei filtri alla capacità prevista.
+     */
+    private final double probabilitaFalsiPositivi;
+
+    /**
+     * Filtro degli username registrati, null finché non viene caricato.
+     */
+    private volatile BloomFilter username;
+
+    /**
+     * Filtro delle email registrate, null finché non viene caricato.
+     */
+    private volatile BloomFilter email;
+
+    /**
+     * Username aggiunti da questo nodo dall'inizio dell'ultima ricostruzione.
+     */
+    private final Set<String> usernameAggiunti = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Email aggiunte da questo nodo dall'inizio dell'ultima ricostruzione.
+     */
+    private final Set<String> emailAggiunte = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Costruttore del servizio.
+     *
+     * @param autenticazioneDAO DAO degli utenti.
+     * @param capacita Numero minimo di valori per cui sono dimensionati i filtri.
+     * @param probabilitaFalsiPositivi Probabilità di falsi positivi dei filtri.
+     */
+    public FiltroCredenziali(final GestioneAutenticazioneDAO autenticazioneDAO,
+                             @Value("${utenti.disponibilita.capacita:100000}") final int capacita,
+                             @Value("${utenti.disponibilita.probabilita-falsi-positivi:0.01}") final double probabilitaFalsiPositivi) {
+        this.autenticazioneDAO = autenticazioneDAO;
+        this.capacita = capacita;
+        this.probabilitaFalsiPositivi = probabilitaFalsiPositivi;
+    }
+
+    /**
+     * Verifica se uno username è già registrato.
+     *
+     * @param valore Username da verificare.
+     * @return true se lo username è già registrato, altrimenti false.
+     */
+    public boolean isUsernameRegistrato(final String valore) {
+        final BloomFilter filtro = this.username;
+        if (filtro != null && !filtro.contiene(normalizza(valore))) {
+            return false;
+        }
+        return autenticazioneDAO.existsByUsername(valore);
+    }
+
+    /**
+     * Verifica se un'email è già registrata.
+     *
+     * @param valore Email da verificare.
+     * @return true se l'email è già registrata, altrimenti false.
+     */
+    public boolean isEmailRegistrata(final String valore) {
+        final BloomFilter filtro = this.email;
+        if (filtro != null && !filtro.contiene(normalizza(valore))) {
+            return false;
+        }
+        return autenticazioneDAO.existsByEmail(valore);
+    }
+
+    /**
+     * Aggiunge ai filtri lo username e l'email di un utente registrato o modificato.
+     *
+     * @param utente Utente salvato.
+     */
+    public void aggiungi(final Utente utente) {
+        if (utente.getUsername() != null) {
+            final String valore = normalizza(utente.getUsername());
+            usernameAggiunti.add(valore);
+            final BloomFilter filtro = this.username;
+            if (filtro != null) {
+                filtro.aggiungi(valore);
+            }
+        }
+        if (utente.getEmail() != null) {
+            final String valore = normalizza(utente.getEmail());
+            emailAggiunte.add(valore);
+            final BloomFilter filtro = this.email;
+            if (filtro != null) {
+                filtro.aggiungi(valore);
+            }
+        }
+    }
+
+    /**
+     * Ricostruisce i filtri leggendo a blocchi username ed email di tutti gli utenti.
+     * Fino al primo caricamento ogni controllo viene eseguito sul database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${utenti.disponibilita.intervallo-ricostruzione:600000}",
+            fixedDelayString = "${utenti.disponibilita.intervallo-ricostruzione:600000}")
+    public synchronized void ricostruisci() {
+        try {
+            usernameAggiunti.clear();
+            emailAggiunte.clear();
+            final int dimensione = (int) Math.min(Integer.MAX_VALUE, Math.max(capacita, 2 * autenticazioneDAO.count()));
+            final BloomFilter nuoviUsername = new BloomFilter(dimensione, probabilitaFalsiPositivi);
+            final BloomFilter nuoveEmail = new BloomFilter(dimensione, probabilitaFalsiPositivi);
+
+            long dopo = 0;
+            List<Object[]> blocco;
+            do {
+                blocco = autenticazioneDAO.findCredenzialiDopo(dopo, PageRequest.of(0, DIMENSIONE_BLOCCO));
+                for (final Object[] credenziali : blocco) {
+                    dopo = (Long) credenziali[0];
+                    nuoviUsername.aggiungi(normalizza((String) credenziali[1]));
+                    nuoveEmail.aggiungi(normalizza((String) credenziali[2]));
+                }
+            } while (blocco.size() == DIMENSIONE_BLOCCO);
+
+            this.username = nuoviUsername;
+            this.email = nuoveEmail;
+            // Gli utenti salvati su questo nodo durante la lettura potrebbero essere stati aggiunti solo ai filtri precedenti
+            usernameAggiunti.forEach(nuoviUsername::aggiungi);
+            emailAggiunte.forEach(nuoveEmail::aggiungi);
+        } catch (final Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Calcola la chiave di un valore nei filtri. La chiave è uguale per i valori uguali nelle collation case e accent
+     * insensitive di MySQL (utf8mb4_0900_ai_ci, utf8mb4_unicode_ci e utf8mb4_general_ci): minuscolo, senza accenti,
+     * con legature e forme di compatibilità scomposte, senza caratteri ignorati e spazi finali, e con le s ripetute
+     * ridotte a una, perché "ß" vale "ss" in alcune collation e "s" in altre.
+     *
+     * @param valore Valore da normalizzare.
+     * @return la chiave del valore.
+     */
+    public static String normalizza(final String valore) {
+        if (valore == null) {
+            return "";
+        }
+        final String base = Normalizer.normalize(valore.toLowerCase(Locale.ROOT), Normalizer.Form.NFKD)
+                .replaceAll("[\\p{M}\\p{Cf}\\p{Cc}]", "")
+                .stripTrailing();
+        final StringBuilder chiave = new StringBuilder(base.length());
+        for (int i = 0; i < base.length(); i++) {
+            switch (base.charAt(i)) {
+                case 'ß' -> chiave.append('s');
+                case 'æ' -> chiave.append("ae");
+                case 'œ' -> chiave.append("oe");
+                case 'ø' -> chiave.append('o');
+                case 'đ', 'ð' -> chiave.append('d');
+                case 'ł' -> chiave.append('l');
+                case 'ı' -> chiave.append('i');
+                case 'þ' -> chiave.append("th");
+                default -> chiave.append(base.charAt(i));
+            }
+            final int lunghezza = chiave.length();
+            if (lunghezza >= 2 && chiave.charAt(lunghezza - 1) == 's' && chiave.charAt(lunghezza - 2) == 's') {
+                chiave.setLength(lunghezza - 1);
+            }
+        }
+        return chiave.toString();
+    }
+}
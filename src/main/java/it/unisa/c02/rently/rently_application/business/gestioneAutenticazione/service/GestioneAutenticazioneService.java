@@ -11,6 +11,7 @@ public interface GestioneAutenticazioneService {
 
     /**
      * Verifica l'esistenza di un utente nel sistema tramite indirizzo email.
+     * Il database viene interrogato, con una sola query, solo se l'email potrebbe essere già registrata.
      *
      * @param email Indirizzo email dell'utente da verificare.
      * @return true se esiste un utente con l'indirizzo email specificato, altrimenti false.
@@ -19,6 +20,7 @@ public interface GestioneAutenticazioneService {
 
     /**
      * Verifica l'esistenza di un utente nel sistema tramite username.
+     * Il database viene interrogato, con una sola query, solo se lo username potrebbe essere già registrato.
      *
      * @param username Username dell'utente da verificare.
      * @return true se esiste un utente con il nome utente specificato, altrimenti false.
@@ -34,10 +36,46 @@ public interface GestioneAutenticazioneService {
 
     /**
      * Restituisce l'utente associato all'indirizzo email e alla password specificati.
+     * Se la password salvata è codificata con un algoritmo o un costo non più correnti, viene ricodificata
+     * in background senza ritardare l'accesso.
      *
      * @param email Indirizzo email dell'utente.
-     * @param password Password dell'utente.
-     * @return Utente associato all'indirizzo email e alla password.
+     * @param password Password in chiaro dell'utente.
+     * @return Utente associato all'indirizzo email e alla password, null se le credenziali non sono valide.
      */
     Utente login(final String email, final String password);
+
+    /**
+     * Crea un nuovo refresh token per l'utente specificato.
+     *
+     * @param utente Utente a cui appartiene il token.
+     * @return il refresh token, da consegnare al client; ne viene salvato solo l'hash.
+     */
+    String creaRefreshToken(final Utente utente);
+
+    /**
+     * Usa un refresh token per rinnovare la sessione di un utente. Il token viene revocato e non può essere riusato:
+     * la presentazione di un token già usato revoca tutti i refresh token dell'utente, perché indica che
+     * il token potrebbe essere stato sottratto.
+     *
+     * @param refreshToken Refresh token ricevuto dal client.
+     * @return Utente a cui appartiene il token, null se il token non è valido, è scaduto o è già stato usato.
+     */
+    Utente usaRefreshToken(final String refreshToken);
+
+    /**
+     * Chiude la sessione di un utente, revocando il token di accesso e il refresh token.
+     *
+     * @param idToken Identificativo del token di accesso (claim "jti"), può essere null.
+     * @param refreshToken Refresh token della sessione, può essere null.
+     */
+    void logout(final String idToken, final String refreshToken);
+
+    /**
+     * Termina tutte le sessioni di un utente, ad esempio dopo la modifica della password:
+     * vengono revocati i refresh token e i token di accesso già emessi.
+     *
+     * @param idUtente ID dell'utente.
+     */
+    void revocaSessioni(final long idUtente);
 }
@@ -1,11 +1,30 @@
 package it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service;
 
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordService;
 import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneRefreshTokenDAO;
+import it.unisa.c02.rently.rently_application.data.model.RefreshToken;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
+import it.unisa.c02.rently.rently_application.security.JwtProvider;
+import it.unisa.c02.rently.rently_application.security.PrincipalCache;
+import it.unisa.c02.rently.rently_application.security.TokenRevocationList;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Implementazione del servizio di gestione dell'autenticazione.
@@ -15,18 +34,110 @@ import java.security.NoSuchAlgorithmException;
 @RequiredArgsConstructor
 public class GestioneAutenticazioneServiceImpl implements GestioneAutenticazioneService {
 
+    /**
+     * Generatore dei refresh token.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     /**
      * Istanza di GestioneAutenticazioneDAO utilizzata per l'accesso ai dati degli utenti.
      */
     private final GestioneAutenticazioneDAO autenticazioneDAO;
 
+    /**
+     * Servizio per la codifica e la verifica delle password.
+     */
+    private final PasswordService passwordService;
+
+    /**
+     * Istanza di GestioneRefreshTokenDAO utilizzata per l'accesso ai refresh token.
+     */
+    private final GestioneRefreshTokenDAO refreshTokenDAO;
+
+    /**
+     * Filtri degli username e delle email già registrati.
+     */
+    private final FiltroCredenziali filtroCredenziali;
+
+    /**
+     * Lista dei token di accesso revocati.
+     */
+    private final TokenRevocationList revocationList;
+
+    /**
+     * Cache dei principal autenticati, da cui viene rimosso il token di accesso al logout.
+     */
+    private final PrincipalCache principalCache;
+
+    /**
+     * Durata di un refresh token, in millisecondi.
+     */
+    @Value("${security.token.durata-refresh:2592000000}")
+    private long durataRefresh;
+
+    /**
+     * Lunghezza massima delle password codificate accettata dalla colonna del database; le codifiche più lunghe
+     * non vengono salvate dalla ricodifica in background.
+     */
+    private volatile int lunghezzaPassword = Utente.LUNGHEZZA_PASSWORD;
+
+    /**
+     * Allarga all'avvio la colonna delle password degli schemi creati prima dell'introduzione degli hash adattivi,
+     * le cui codifiche superano i 64 caratteri. Se la colonna non può essere allargata la ricodifica viene sospesa.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verificaColonnaPassword() {
+        final Long lunghezza = autenticazioneDAO.lunghezzaColonnaPassword();
+        if (lunghezza == null || lunghezza >= Utente.LUNGHEZZA_PASSWORD) {
+            return;
+        }
+        try {
+            autenticazioneDAO.allargaColonnaPassword();
+        } catch (final DataAccessException ex) {
+            lunghezzaPassword = lunghezza.intValue();
+        }
+    }
+
 
     /**
      * {@inheritDoc}
      */
     @Override
     public Utente login(final String email, final String password) {
-        return autenticazioneDAO.findByEmailAndPassword(email, password);
+        final Utente utente = autenticazioneDAO.findByEmail(email);
+        if (!passwordService.verifica(password, utente != null ? utente.getPassword() : null)) {
+            return null;
+        }
+        if (passwordService.richiedeAggiornamento(utente.getPassword())) {
+            aggiornaPassword(utente, password);
+        }
+        return utente;
+    }
+
+    /**
+     * Ricodifica in background la password di un utente con l'algoritmo e il costo correnti.
+     * Se il pool di codifica è saturo l'aggiornamento viene rimandato al prossimo accesso.
+     *
+     * @param utente Utente che ha effettuato l'accesso.
+     * @param password Password in chiaro verificata.
+     */
+    private void aggiornaPassword(final Utente utente, final String password) {
+        final long id = utente.getId();
+        final String attuale = utente.getPassword();
+        try {
+            passwordService.codificaAsync(password)
+                    .thenAccept((final var nuova) -> {
+                        if (nuova.length() <= lunghezzaPassword) {
+                            autenticazioneDAO.aggiornaPassword(id, attuale, nuova);
+                        }
+                    })
+                    .exceptionally((final var ex) -> {
+                        ex.printStackTrace();
+                        return null;
+                    });
+        } catch (final RejectedExecutionException ex) {
+            // La password resta nel formato precedente e verrà aggiornata al prossimo accesso
+        }
     }
 
     /**
@@ -34,7 +145,7 @@ public class GestioneAutenticazioneServiceImpl implements GestioneAutenticazione
      */
     @Override
     public boolean checkEmail(final String email) {
-        return autenticazioneDAO.existsByEmail(email);
+        return filtroCredenziali.isEmailRegistrata(email);
     }
 
     /**
@@ -42,7 +153,7 @@ public class GestioneAutenticazioneServiceImpl implements GestioneAutenticazione
      */
     @Override
     public boolean checkUsername(final String username) {
-        return autenticazioneDAO.existsByUsername(username);
+        return filtroCredenziali.isUsernameRegistrato(username);
     }
 
     /**
@@ -53,6 +164,84 @@ public class GestioneAutenticazioneServiceImpl implements GestioneAutenticazione
         if (!checkEmail(utente.getEmail()) && !checkUsername(utente.getUsername())) {
             utente.setPassword(utente.getPassword());
             autenticazioneDAO.save(utente);
+            filtroCredenziali.aggiungi(utente);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String creaRefreshToken(final Utente utente) {
+        final byte[] casuali = new byte[32];
+        RANDOM.nextBytes(casuali);
+        final String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(casuali);
+        refreshTokenDAO.save(new RefreshToken(hash(refreshToken), utente.getId(),
+                new Timestamp(System.currentTimeMillis() + durataRefresh)));
+        return refreshToken;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
+    public Utente usaRefreshToken(final String refreshToken) {
+        if (refreshToken == null) {
+            return null;
+        }
+        final RefreshToken token = refreshTokenDAO.findByHash(hash(refreshToken));
+        if (token == null || token.getScadenza().getTime() <= System.currentTimeMillis()) {
+            return null;
+        }
+        if (refreshTokenDAO.revoca(token.getId()) == 0) {
+            // Un refresh token già usato è stato copiato: vengono chiuse tutte le sessioni dell'utente
+            revocaSessioni(token.getIdUtente());
+            return null;
+        }
+        return autenticazioneDAO.findById(token.getIdUtente()).orElse(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
+    public void logout(final String idToken, final String refreshToken) {
+        if (refreshToken != null) {
+            final RefreshToken token = refreshTokenDAO.findByHash(hash(refreshToken));
+            if (token != null) {
+                refreshTokenDAO.revoca(token.getId());
+            }
+        }
+        // La scadenza esatta del token di accesso non è nota qui: la revoca viene conservata per la durata massima
+        revocationList.revoca(idToken, Instant.now().plus(JwtProvider.durataAccesso));
+        principalCache.invalidaToken(idToken);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
+    public void revocaSessioni(final long idUtente) {
+        refreshTokenDAO.revocaTutti(idUtente);
+        revocationList.revocaUtente(idUtente);
+        principalCache.invalida(idUtente);
+    }
+
+    /**
+     * Calcola l'hash SHA-256 di un refresh token, in esadecimale.
+     *
+     * @param refreshToken Refresh token.
+     * @return l'hash del token.
+     */
+    private static String hash(final String refreshToken) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(refreshToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
         }
     }
 }
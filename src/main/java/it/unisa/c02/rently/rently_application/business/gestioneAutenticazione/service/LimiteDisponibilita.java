@@ -0,0 +1,82 @@
+package it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite al numero di verifiche di disponibilità di username ed email per indirizzo del client, a finestre fisse.
+ * La verifica è pubblica e risponde in memoria: senza un limite consentirebbe di enumerare rapidamente
+ * gli username e le email registrati.
+ */
+@Service
+public class LimiteDisponibilita {
+
+    /**
+     * Numero massimo di verifiche consentite a un indirizzo in una finestra.
+     */
+    private final int richiestePerFinestra;
+
+    /**
+     * Durata di una finestra, in millisecondi.
+     */
+    private final long durataFinestra;
+
+    /**
+     * Finestra corrente di ogni indirizzo.
+     */
+    private final Map<String, Finestra> finestre = new ConcurrentHashMap<>();
+
+    /**
+     * Costruttore del servizio.
+     *
+     * @param richiestePerFinestra Numero massimo di verifiche consentite a un indirizzo in una finestra.
+     * @param durataFinestra Durata di una finestra, in millisecondi.
+     */
+    public LimiteDisponibilita(@Value("${utenti.disponibilita.richieste-per-finestra:30}") final int richiestePerFinestra,
+                               @Value("${utenti.disponibilita.durata-finestra:60000}") final long durataFinestra) {
+        this.richiestePerFinestra = richiestePerFinestra;
+        this.durataFinestra = durataFinestra;
+    }
+
+    /**
+     * Registra una verifica di un indirizzo e indica se rientra nel limite.
+     *
+     * @param indirizzo Indirizzo del client.
+     * @return true se la verifica è consentita, false se l'indirizzo ha superato il limite nella finestra corrente.
+     */
+    public boolean consenti(final String indirizzo) {
+        final long adesso = System.currentTimeMillis();
+        final Finestra finestra = finestre.compute(indirizzo, (final var chiave, final var attuale) ->
+                attuale == null || adesso - attuale.inizio >= durataFinestra ? new Finestra(adesso) : attuale);
+        return finestra.richieste.incrementAndGet() <= richiestePerFinestra;
+    }
+
+    /**
+     * Elimina le finestre concluse, per non conservare gli indirizzi che non inviano più richieste.
+     */
+    @Scheduled(initialDelayString = "${utenti.disponibilita.durata-finestra:60000}",
+            fixedDelayString = "${utenti.disponibilita.durata-finestra:60000}")
+    public void pulisci() {
+        final long adesso = System.currentTimeMillis();
+        finestre.values().removeIf((final var finestra) -> adesso - finestra.inizio >= durataFinestra);
+    }
+
+    /**
+     * Verifiche di un indirizzo nella finestra iniziata all'istante specificato.
+     */
+    private static final class Finestra {
+
+        private final long inizio;
+
+        private final AtomicInteger richieste = new AtomicInteger();
+
+        private Finestra(final long inizio) {
+            this.inizio = inizio;
+        }
+    }
+}
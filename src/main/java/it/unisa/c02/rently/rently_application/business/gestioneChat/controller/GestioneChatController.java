@@ -1,21 +1,30 @@
 package it.unisa.c02.rently.rently_application.business.gestioneChat.controller;
 
 import it.unisa.c02.rently.rently_application.business.gestioneAreaPersonale.service.GestioneAreaPersonaleService;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ChatNotificheService;
 import it.unisa.c02.rently.rently_application.business.gestioneChat.service.GestioneChatService;
 import it.unisa.c02.rently.rently_application.commons.services.regexService.RegexTester;
 import it.unisa.c02.rently.rently_application.commons.services.responseService.ResponseService;
+import it.unisa.c02.rently.rently_application.data.dto.ConversazioneDTO;
 import it.unisa.c02.rently.rently_application.data.dto.MessaggioDTO;
 import it.unisa.c02.rently.rently_application.data.dto.ResponseDTO;
+import it.unisa.c02.rently.rently_application.data.model.Conversazione;
 import it.unisa.c02.rently.rently_application.data.model.Messaggio;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
+import it.unisa.c02.rently.rently_application.security.JwtProvider;
+import it.unisa.c02.rently.rently_application.security.UtentePrincipal;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
@@ -41,6 +50,11 @@ import java.util.List;
         })
 public class GestioneChatController {
 
+        /**
+         * Numero massimo di messaggi restituiti in una pagina.
+         */
+        private static final int LIMITE_MASSIMO = 100;
+
         /**
          * Service per effettuare le operazioni di persistenza.
          */
@@ -56,6 +70,12 @@ public class GestioneChatController {
          */
         private final GestioneChatService chatService;
 
+        /**
+         * Service per la consegna in tempo reale dei messaggi.
+         */
+        private final ChatNotificheService chatNotificheService;
+
+
 
         /**
          * Endpoint per aggiungere un messaggio.
@@ -88,7 +108,12 @@ public class GestioneChatController {
                 messaggio.setOrarioInvio(Timestamp.valueOf(messaggioDTO.getOrarioInvio()));
 
                 if(messaggio.getDestinatario()!= null && messaggio.getMittente()!= null){
-                        messaggio = chatService.addMessaggio(messaggio);
+                        try {
+                                messaggio = chatService.addMessaggio(messaggio);
+                        } catch (final RejectedExecutionException ex) {
+                                message.message = "Il messaggio non è stato inviato, riprovare più tardi";
+                                return responseService.InternalError(message);
+                        }
                         final MessaggioDTO messaggioItem = new MessaggioDTO().convertFromModel(messaggio);
 
                         return responseService.Ok(messaggioItem);
@@ -100,16 +125,33 @@ public class GestioneChatController {
         /**
          * Endpoint per visualizzare una chat tra due utenti.
          *
+         * Se viene specificato 'dopo' vengono restituiti solo i messaggi successivi a quello indicato, dal meno recente.
+         * Altrimenti, se viene specificato 'limite', viene restituita una sola pagina con gli ultimi messaggi
+         * o con quelli precedenti a 'prima'.
+         *
          * @param messaggioDTO contiene gli id degli utenti di cui visualizzare la chat.
+         * @param dopo id dell'ultimo messaggio già ricevuto.
+         * @param prima id del messaggio meno recente già ricevuto.
+         * @param limite numero massimo di messaggi da restituire; se assente, senza 'dopo', vengono restituiti tutti i messaggi.
          * @return ResponseEntity contenente l'esito dell'operazione.
          */
         @PostMapping("/visualizza-chat")
-        public ResponseEntity<String> getChat (@RequestBody final MessaggioDTO messaggioDTO){
+        public ResponseEntity<String> getChat (@RequestBody final MessaggioDTO messaggioDTO,
+                                               @RequestParam(required = false) final Long dopo,
+                                               @RequestParam(required = false) final Long prima,
+                                               @RequestParam(required = false) final Integer limite){
 
                 final Utente dest = areaPersonaleService.getDatiPrivati(messaggioDTO.getDestinatario());
                 final Utente mitt = areaPersonaleService.getDatiPrivati(messaggioDTO.getMittente());
 
-                final List<Messaggio> chat = chatService.getChat(dest, mitt);
+                final List<Messaggio> chat;
+                if (dopo != null) {
+                        chat = chatService.getChatDopo(dest, mitt, dopo, normalizzaLimite(limite != null ? limite : LIMITE_MASSIMO));
+                } else if (limite != null) {
+                        chat = chatService.getChatPrima(dest, mitt, prima, normalizzaLimite(limite));
+                } else {
+                        chat = chatService.getChat(dest, mitt);
+                }
                 if(chat != null) {
                         final List<MessaggioDTO> list = new ArrayList<>();
                         for (final Messaggio m : chat) {
@@ -121,4 +163,125 @@ public class GestioneChatController {
                         return responseService.InternalError();
         }
 
+        /**
+         * Endpoint per cercare tra i messaggi inviati e ricevuti da un utente quelli che contengono
+         * tutte le parole del testo specificato, dal più recente.
+         *
+         * @param principal utente autenticato che esegue la ricerca.
+         * @param testo parole da cercare.
+         * @param limite numero massimo di messaggi da restituire.
+         * @return ResponseEntity contenente la lista dei messaggi trovati nel formato JSON.
+         */
+        @GetMapping("/cerca")
+        public ResponseEntity<String> cercaMessaggi(@AuthenticationPrincipal final UtentePrincipal principal,
+                                                    @RequestParam final String testo,
+                                                    @RequestParam(defaultValue = "20") final int limite) {
+
+                final Utente utente = areaPersonaleService.getDatiPrivati(principal.id());
+                if (utente == null) {
+                        return responseService.InternalError();
+                }
+
+                final List<MessaggioDTO> list = new ArrayList<>();
+                for (final Messaggio m : chatService.cercaMessaggi(utente, testo, normalizzaLimite(limite))) {
+                        list.add(new MessaggioDTO().convertFromModel(m));
+                }
+                return responseService.Ok(list);
+        }
+
+        /**
+         * Endpoint per visualizzare le conversazioni di un utente, dalla più recente, con l'anteprima
+         * dell'ultimo messaggio e il numero di messaggi non letti.
+         *
+         * @param utente utente autenticato di cui visualizzare le conversazioni.
+         * @param limite numero massimo di conversazioni da restituire.
+         * @return ResponseEntity contenente la lista delle conversazioni nel formato JSON.
+         */
+        @GetMapping("/conversazioni")
+        public ResponseEntity<String> getConversazioni(@AuthenticationPrincipal final UtentePrincipal utente,
+                                                       @RequestParam(defaultValue = "50") final int limite) {
+
+                final List<ConversazioneDTO> list = new ArrayList<>();
+                for (final Conversazione c : chatService.getConversazioni(utente.id(), normalizzaLimite(limite))) {
+                        list.add(new ConversazioneDTO().convertFromModel(c));
+                }
+                return responseService.Ok(list);
+        }
+
+        /**
+         * Endpoint per visualizzare il riepilogo della conversazione di un utente con un altro utente,
+         * con l'ultimo messaggio letto da ciascuno dei due partecipanti.
+         *
+         * @param utente utente autenticato a cui appartiene il riepilogo.
+         * @param idAltroUtente id dell'altro partecipante alla conversazione.
+         * @return ResponseEntity contenente il riepilogo della conversazione nel formato JSON.
+         */
+        @GetMapping("/conversazione")
+        public ResponseEntity<String> getConversazione(@AuthenticationPrincipal final UtentePrincipal utente,
+                                                       @RequestParam final long idAltroUtente) {
+
+                return chatService.getConversazione(utente.id(), idAltroUtente)
+                        .map((final var c) -> responseService.Ok(new ConversazioneDTO().convertFromModel(c)))
+                        .orElseGet(responseService::InternalError);
+        }
+
+        /**
+         * Endpoint per segnare come letti i messaggi ricevuti da un utente in una conversazione.
+         * La lettura viene salvata in modo asincrono e notificata all'altro partecipante tramite lo stream della chat.
+         *
+         * @param utente utente autenticato che ha letto i messaggi.
+         * @param idAltroUtente id dell'altro partecipante alla conversazione.
+         * @param idMessaggio id dell'ultimo messaggio letto; se assente vengono considerati letti tutti i messaggi.
+         * @return ResponseEntity contenente l'esito dell'operazione.
+         */
+        @PostMapping("/segna-letta")
+        public ResponseEntity<String> segnaLetta(@AuthenticationPrincipal final UtentePrincipal utente,
+                                                 @RequestParam final long idAltroUtente,
+                                                 @RequestParam(required = false) final Long idMessaggio) {
+
+                chatService.segnaLetta(utente.id(), idAltroUtente, idMessaggio);
+                return responseService.Ok();
+        }
+
+        /**
+         * Endpoint per ricevere in tempo reale i nuovi messaggi dell'utente autenticato tramite Server-Sent Events.
+         * Ogni messaggio è inviato come evento 'messaggio' con id pari all'id del messaggio.
+         * Poiché EventSource non consente di impostare header, lo stream può essere aperto anche con il parametro 'ticket',
+         * ottenuto dall'endpoint '/stream/ticket'; a ogni riconnessione il client deve richiedere un nuovo ticket.
+         *
+         * @param utente utente autenticato tramite il token o il ticket.
+         * @return SseEmitter su cui vengono inviati i nuovi messaggi.
+         */
+        @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public SseEmitter stream(@AuthenticationPrincipal final UtentePrincipal utente) {
+
+                return chatNotificheService.registra(utente.id());
+        }
+
+        /**
+         * Endpoint per ottenere il ticket di breve durata con cui aprire lo stream della chat senza passare
+         * il token di accesso nell'URL.
+         *
+         * @param utente utente autenticato tramite il token.
+         * @return ResponseEntity contenente il ticket nel formato JSON.
+         */
+        @PostMapping("/stream/ticket")
+        public ResponseEntity<String> ticketStream(@AuthenticationPrincipal final UtentePrincipal utente) {
+
+                final HashMap<String, Object> ticket = new HashMap<>();
+                ticket.put("ticket", JwtProvider.createTicketStream(utente.email(), utente.id(), utente.idToken()));
+                ticket.put("durata", JwtProvider.durataTicketStream.toMillis());
+                return responseService.Ok(ticket);
+        }
+
+        /**
+         * Riporta il numero di messaggi richiesti per pagina nell'intervallo [1, LIMITE_MASSIMO].
+         *
+         * @param limite numero di messaggi richiesti.
+         * @return numero di messaggi della pagina.
+         */
+        private int normalizzaLimite(final int limite) {
+                return Math.max(1, Math.min(limite, LIMITE_MASSIMO));
+        }
+
 }
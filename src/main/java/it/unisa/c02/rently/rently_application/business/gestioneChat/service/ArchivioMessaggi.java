@@ -0,0 +1,253 @@
+package it.unisa.c02.rently.rently_application.business.gestioneChat.service;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneArchivioMessaggiDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import it.unisa.c02.rently.rently_application.data.model.SegmentoArchivioMessaggi;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archivio dei messaggi meno recenti delle conversazioni.
+ * I messaggi archiviati vengono rimossi dalla tabella dei messaggi e salvati compressi in segmenti
+ * di ID consecutivi; per ogni conversazione viene archiviato solo un prefisso dei messaggi, così che
+ * tutti i messaggi archiviati abbiano ID minore dei messaggi ancora presenti nella tabella e la
+ * paginazione possa proseguire nell'archivio quando la tabella non contiene più messaggi precedenti.
+ */
+@Service
+@RequiredArgsConstructor
+public class ArchivioMessaggi {
+
+    /**
+     * Versione del formato di serializzazione dei segmenti.
+     */
+    private static final byte VERSIONE_FORMATO = 1;
+
+    /**
+     * Numero di segmenti letti con una singola query.
+     */
+    private static final int SEGMENTI_PER_LETTURA = 4;
+
+    /**
+     * Istanza di GestioneChatDAO utilizzata per l'accesso ai messaggi da archiviare.
+     */
+    private final GestioneChatDAO gestioneChatDAO;
+
+    /**
+     * Istanza di GestioneArchivioMessaggiDAO utilizzata per l'accesso ai segmenti dell'archivio.
+     */
+    private final GestioneArchivioMessaggiDAO archivioDAO;
+
+    /**
+     * Archivia un blocco dei messaggi meno recenti di una conversazione in un nuovo segmento
+     * e li rimuove dalla tabella dei messaggi, nella stessa transazione.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param limiteId ID fino al quale archiviare i messaggi, escluso.
+     * @param dimensione Numero massimo di messaggi del segmento.
+     * @return Numero di messaggi archiviati.
+     */
+    @Transactional
+    public int archiviaBlocco(final long idUtenteMinore, final long idUtenteMaggiore, final long limiteId, final int dimensione) {
+
+        final List<Messaggio> blocco = gestioneChatDAO.findBloccoDaArchiviare(idUtenteMinore, idUtenteMaggiore, limiteId, PageRequest.of(0, dimensione));
+        if (blocco.isEmpty()) {
+            return 0;
+        }
+
+        final SegmentoArchivioMessaggi segmento = new SegmentoArchivioMessaggi();
+        segmento.setIdUtenteMinore(idUtenteMinore);
+        segmento.setIdUtenteMaggiore(idUtenteMaggiore);
+        segmento.setPrimoId(blocco.get(0).getId());
+        segmento.setUltimoId(blocco.get(blocco.size() - 1).getId());
+        segmento.setNumero(blocco.size());
+        segmento.setContenuto(comprimi(blocco));
+        archivioDAO.save(segmento);
+
+        final List<Long> ids = new ArrayList<>(blocco.size());
+        for (final Messaggio messaggio : blocco) {
+            ids.add(messaggio.getId());
+        }
+        gestioneChatDAO.deleteAllByIdInBatch(ids);
+        return blocco.size();
+    }
+
+    /**
+     * Legge dall'archivio i messaggi di una conversazione successivi a quello specificato.
+     *
+     * @param id1 uno degli utenti della conversazione.
+     * @param id2 l'altro utente della conversazione.
+     * @param dopo ID dopo il quale leggere i messaggi.
+     * @param limite numero massimo di messaggi da restituire.
+     * @return Lista dei messaggi archiviati, dal meno recente.
+     */
+    public List<Messaggio> leggiDopo(final Utente id1, final Utente id2, final long dopo, final int limite) {
+
+        final long minore = Math.min(id1.getId(), id2.getId());
+        final long maggiore = Math.max(id1.getId(), id2.getId());
+        final List<Messaggio> messaggi = new ArrayList<>();
+
+        long cursore = dopo;
+        List<SegmentoArchivioMessaggi> segmenti;
+        do {
+            segmenti = archivioDAO.findByIdUtenteMinoreAndIdUtenteMaggioreAndUltimoIdGreaterThanOrderByUltimoIdAsc(
+                    minore, maggiore, cursore, PageRequest.of(0, SEGMENTI_PER_LETTURA));
+            for (final SegmentoArchivioMessaggi segmento : segmenti) {
+                for (final Messaggio messaggio : decomprimi(segmento.getContenuto(), id1, id2)) {
+                    if (messaggio.getId() > dopo) {
+                        messaggi.add(messaggio);
+                        if (messaggi.size() == limite) {
+                            return messaggi;
+                        }
+                    }
+                }
+                cursore = segmento.getUltimoId();
+            }
+        } while (segmenti.size() == SEGMENTI_PER_LETTURA);
+        return messaggi;
+    }
+
+    /**
+     * Legge dall'archivio i messaggi di una conversazione precedenti a quello specificato.
+     *
+     * @param id1 uno degli utenti della conversazione.
+     * @param id2 l'altro utente della conversazione.
+     * @param prima ID prima del quale leggere i messaggi.
+     * @param limite numero massimo di messaggi da restituire.
+     * @return Lista dei messaggi archiviati, dal più recente.
+     */
+    public List<Messaggio> leggiPrima(final Utente id1, final Utente id2, final long prima, final int limite) {
+
+        final long minore = Math.min(id1.getId(), id2.getId());
+        final long maggiore = Math.max(id1.getId(), id2.getId());
+        final List<Messaggio> messaggi = new ArrayList<>();
+
+        long cursore = prima;
+        List<SegmentoArchivioMessaggi> segmenti;
+        do {
+            segmenti = archivioDAO.findByIdUtenteMinoreAndIdUtenteMaggioreAndPrimoIdLessThanOrderByPrimoIdDesc(
+                    minore, maggiore, cursore, PageRequest.of(0, SEGMENTI_PER_LETTURA));
+            for (final SegmentoArchivioMessaggi segmento : segmenti) {
+                final List<Messaggio> contenuto = decomprimi(segmento.getContenuto(), id1, id2);
+                for (int i = contenuto.size() - 1; i >= 0; i--) {
+                    if (contenuto.get(i).getId() < prima) {
+                        messaggi.add(contenuto.get(i));
+                        if (messaggi.size() == limite) {
+                            return messaggi;
+                        }
+                    }
+                }
+                cursore = segmento.getPrimoId();
+            }
+        } while (segmenti.size() == SEGMENTI_PER_LETTURA);
+        return messaggi;
+    }
+
+    /**
+     * Legge dall'archivio un singolo messaggio di una conversazione.
+     *
+     * @param id1 uno degli utenti della conversazione.
+     * @param id2 l'altro utente della conversazione.
+     * @param id ID del messaggio.
+     * @return Il messaggio archiviato, se presente.
+     */
+    public Optional<Messaggio> leggi(final Utente id1, final Utente id2, final long id) {
+
+        return archivioDAO.findFirstByIdUtenteMinoreAndIdUtenteMaggioreAndPrimoIdLessThanEqualOrderByPrimoIdDesc(
+                        Math.min(id1.getId(), id2.getId()), Math.max(id1.getId(), id2.getId()), id)
+                .filter((final var segmento) -> segmento.getUltimoId() >= id)
+                .flatMap((final var segmento) -> decomprimi(segmento.getContenuto(), id1, id2).stream()
+                        .filter((final var messaggio) -> messaggio.getId() == id)
+                        .findFirst());
+    }
+
+    /**
+     * Serializza e comprime un blocco di messaggi.
+     *
+     * @param blocco messaggi da comprimere, in ordine di ID.
+     * @return contenuto compresso del segmento.
+     */
+    private static byte[] comprimi(final List<Messaggio> blocco) {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeByte(VERSIONE_FORMATO);
+            out.writeInt(blocco.size());
+            for (final Messaggio messaggio : blocco) {
+                out.writeLong(messaggio.getId());
+                out.writeLong(messaggio.getOrarioInvio().getTime());
+                out.writeLong(messaggio.getMittente() != null ? messaggio.getMittente().getId() : 0);
+                out.writeLong(messaggio.getDestinatario() != null ? messaggio.getDestinatario().getId() : 0);
+                out.writeUTF(messaggio.getDescrizione());
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decomprime il contenuto di un segmento, associando i messaggi agli utenti della conversazione.
+     * Un utente che non corrisponde a nessuno dei due, perché eliminato, viene lasciato a null come nei messaggi non archiviati.
+     *
+     * @param contenuto contenuto compresso del segmento.
+     * @param id1 uno degli utenti della conversazione.
+     * @param id2 l'altro utente della conversazione.
+     * @return Lista dei messaggi del segmento, in ordine di ID.
+     */
+    private static List<Messaggio> decomprimi(final byte[] contenuto, final Utente id1, final Utente id2) {
+
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(contenuto)))) {
+            final byte versione = in.readByte();
+            if (versione != VERSIONE_FORMATO) {
+                throw new IllegalStateException("Formato del segmento non supportato: " + versione);
+            }
+            final int numero = in.readInt();
+            final List<Messaggio> messaggi = new ArrayList<>(numero);
+            for (int i = 0; i < numero; i++) {
+                final long id = in.readLong();
+                final Timestamp orarioInvio = new Timestamp(in.readLong());
+                final Utente mittente = utente(in.readLong(), id1, id2);
+                final Utente destinatario = utente(in.readLong(), id1, id2);
+                final Messaggio messaggio = new Messaggio(in.readUTF(), orarioInvio, mittente, destinatario);
+                messaggio.setId(id);
+                messaggi.add(messaggio);
+            }
+            return messaggi;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Restituisce l'utente della conversazione con l'ID specificato.
+     *
+     * @param id ID dell'utente.
+     * @param id1 uno degli utenti della conversazione.
+     * @param id2 l'altro utente della conversazione.
+     * @return L'utente con l'ID specificato, null se non è nessuno dei due.
+     */
+    private static Utente utente(final long id, final Utente id1, final Utente id2) {
+        if (id1.getId() == id) {
+            return id1;
+        }
+        return id2.getId() == id ? id2 : null;
+    }
+}
@@ -0,0 +1,38 @@
+package it.unisa.c02.rently.rently_application.business.gestioneChat.service;
+
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Questa interfaccia definisce le specifiche per la consegna in tempo reale dei messaggi
+ * agli utenti connessi allo stream della chat.
+ */
+public interface ChatNotificheService {
+
+    /**
+     * Registra una nuova connessione allo stream della chat per un utente.
+     *
+     * @param idUtente id dell'utente autenticato che apre lo stream.
+     * @return SseEmitter su cui verranno inviati i nuovi messaggi dell'utente.
+     */
+    SseEmitter registra(final long idUtente);
+
+    /**
+     * Invia un messaggio appena salvato alle connessioni aperte del destinatario e del mittente.
+     * Se nessuno dei due è connesso a questo nodo il messaggio non viene inviato e verrà letto tramite le API della chat.
+     * L'invio è asincrono: il metodo ritorna senza attendere la scrittura sulle connessioni.
+     *
+     * @param messaggio messaggio da inviare.
+     */
+    void notifica(final Messaggio messaggio);
+
+    /**
+     * Invia alle connessioni aperte di un utente l'avanzamento dei messaggi letti dall'altro partecipante
+     * di una conversazione, per l'indicazione dei messaggi visualizzati.
+     *
+     * @param idUtente id dell'utente da notificare.
+     * @param idLettore id dell'utente che ha letto i messaggi.
+     * @param idUltimoLetto id dell'ultimo messaggio letto.
+     */
+    void notificaLettura(final long idUtente, final long idLettore, final long idUltimoLetto);
+}
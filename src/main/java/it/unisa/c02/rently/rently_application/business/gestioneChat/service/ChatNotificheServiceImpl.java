@@ -0,0 +1,228 @@
+package it.unisa.c02.rently.rently_application.business.gestioneChat.service;
+
+import it.unisa.c02.rently.rently_application.data.dto.MessaggioDTO;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Implementazione del servizio di consegna in tempo reale dei messaggi tramite Server-Sent Events.
+ * Le connessioni aperte sono mantenute in memoria per utente: l'invio di un messaggio non richiede
+ * ulteriori accessi al database e le conversazioni inattive non generano traffico verso di esso.
+ * Le connessioni sono locali al nodo; i client che si riconnettono recuperano i messaggi persi tramite le API della chat.
+ * L'invio avviene su thread dedicati, così che una connessione lenta non rallenti la richiesta che ha salvato il messaggio:
+ * ogni utente è assegnato sempre allo stesso thread, in modo che i suoi eventi restino in ordine.
+ */
+@Service
+public class ChatNotificheServiceImpl implements ChatNotificheService {
+
+    /**
+     * Nome dell'evento inviato per ogni nuovo messaggio.
+     */
+    private static final String EVENTO_MESSAGGIO = "messaggio";
+
+    /**
+     * Nome dell'evento inviato quando l'altro partecipante di una conversazione legge i messaggi.
+     */
+    private static final String EVENTO_LETTURA = "lettura";
+
+    /**
+     * Connessioni aperte indicizzate per id dell'utente.
+     */
+    private final Map<Long, List<SseEmitter>> connessioni = new ConcurrentHashMap<>();
+
+    /**
+     * Durata massima di una connessione, in millisecondi, dopo la quale il client deve riconnettersi.
+     */
+    @Value("${chat.stream.timeout:1800000}")
+    private long timeout;
+
+    /**
+     * Numero massimo di connessioni contemporanee per utente; oltre questo limite viene chiusa la più vecchia.
+     */
+    @Value("${chat.stream.connessioni-massime:5}")
+    private int connessioniMassime;
+
+    /**
+     * Thread di invio; gli eventi di un utente sono inviati sempre dallo stesso thread.
+     */
+    private final ThreadPoolExecutor[] executors;
+
+    /**
+     * Costruttore del servizio.
+     *
+     * @param thread Numero di thread di invio.
+     * @param capacitaCoda Numero massimo di eventi in attesa per ogni thread; oltre questo limite gli eventi vengono scartati
+     *                     e i client li recuperano tramite le API della chat.
+     */
+    public ChatNotificheServiceImpl(@Value("${chat.stream.thread-invio:2}") final int thread,
+                                    @Value("${chat.stream.capacita-coda:10000}") final int capacitaCoda) {
+        this.executors = new ThreadPoolExecutor[Math.max(1, thread)];
+        for (int i = 0; i < executors.length; i++) {
+            final String nome = "chat-stream-" + i;
+            executors[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacitaCoda), (final var runnable) -> {
+                        final Thread t = new Thread(runnable, nome);
+                        t.setDaemon(true);
+                        return t;
+                    }, new ThreadPoolExecutor.DiscardPolicy());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SseEmitter registra(final long idUtente) {
+
+        final SseEmitter emitter = new SseEmitter(timeout);
+        emitter.onCompletion(() -> rimuovi(idUtente, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError((final var ex) -> rimuovi(idUtente, emitter));
+
+        final List<SseEmitter> utente = connessioni.compute(idUtente, (final var id, final var emitters) -> {
+            final List<SseEmitter> lista = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            lista.add(emitter);
+            return lista;
+        });
+
+        for (final SseEmitter vecchio : utente) {
+            if (utente.size() <= connessioniMassime) {
+                break;
+            }
+            if (utente.remove(vecchio)) {
+                vecchio.complete();
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifica(final Messaggio messaggio) {
+
+        if (connessioni.isEmpty() || messaggio.getMittente() == null || messaggio.getDestinatario() == null) {
+            return;
+        }
+
+        final MessaggioDTO dto = new MessaggioDTO().convertFromModel(messaggio);
+        final Supplier<SseEmitter.SseEventBuilder> evento = () -> SseEmitter.event()
+                .name(EVENTO_MESSAGGIO)
+                .id(String.valueOf(messaggio.getId()))
+                .data(dto, MediaType.APPLICATION_JSON);
+        invia(messaggio.getDestinatario().getId(), evento);
+        if (messaggio.getMittente().getId() != messaggio.getDestinatario().getId()) {
+            invia(messaggio.getMittente().getId(), evento);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notificaLettura(final long idUtente, final long idLettore, final long idUltimoLetto) {
+
+        if (connessioni.isEmpty()) {
+            return;
+        }
+
+        final Map<String, Long> lettura = Map.of("idUtente", idLettore, "idUltimoLetto", idUltimoLetto);
+        invia(idUtente, () -> SseEmitter.event()
+                .name(EVENTO_LETTURA)
+                .data(lettura, MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Invia periodicamente un commento su tutte le connessioni aperte, così che proxy e load balancer
+     * non le chiudano per inattività e le connessioni interrotte vengano individuate e rimosse.
+     */
+    @Scheduled(fixedDelayString = "${chat.stream.intervallo-heartbeat:25000}")
+    public void heartbeat() {
+
+        connessioni.forEach((final var idUtente, final var emitters) -> {
+            for (final SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (final IOException | IllegalStateException ex) {
+                    rimuovi(idUtente, emitter);
+                }
+            }
+        });
+    }
+
+    /**
+     * Arresta i thread di invio alla chiusura dell'applicazione.
+     */
+    @PreDestroy
+    public void chiudi() {
+        for (final ThreadPoolExecutor executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Accoda l'invio di un evento a tutte le connessioni aperte di un utente sul thread assegnato all'utente.
+     *
+     * @param idUtente id dell'utente a cui inviare l'evento.
+     * @param evento funzione che costruisce l'evento, invocata per ogni connessione.
+     */
+    private void invia(final long idUtente, final Supplier<SseEmitter.SseEventBuilder> evento) {
+
+        if (!connessioni.containsKey(idUtente)) {
+            return;
+        }
+        executors[Math.floorMod(Long.hashCode(idUtente), executors.length)].execute(() -> inviaOra(idUtente, evento));
+    }
+
+    /**
+     * Invia un evento a tutte le connessioni aperte di un utente; le connessioni chiuse vengono rimosse.
+     *
+     * @param idUtente id dell'utente a cui inviare l'evento.
+     * @param evento funzione che costruisce l'evento, invocata per ogni connessione.
+     */
+    private void inviaOra(final long idUtente, final Supplier<SseEmitter.SseEventBuilder> evento) {
+
+        final List<SseEmitter> emitters = connessioni.get(idUtente);
+        if (emitters == null) {
+            return;
+        }
+
+        for (final SseEmitter emitter : emitters) {
+            try {
+                emitter.send(evento.get());
+            } catch (final IOException | IllegalStateException ex) {
+                rimuovi(idUtente, emitter);
+            }
+        }
+    }
+
+    /**
+     * Rimuove una connessione chiusa; l'utente viene rimosso quando non ha più connessioni aperte.
+     *
+     * @param idUtente id dell'utente a cui appartiene la connessione.
+     * @param emitter connessione da rimuovere.
+     */
+    private void rimuovi(final long idUtente, final SseEmitter emitter) {
+
+        connessioni.computeIfPresent(idUtente, (final var id, final var emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
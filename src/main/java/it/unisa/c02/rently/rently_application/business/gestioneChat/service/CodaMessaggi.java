@@ -0,0 +1,339 @@
+package it.unisa.c02.rently.rently_application.business.gestioneChat.service;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneConversazioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Conversazione;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coda di scrittura dei messaggi della chat.
+ * I messaggi accodati vengono raccolti per pochi millisecondi da un thread dedicato e salvati in gruppo,
+ * con un unico batch JDBC e un unico commit, così che durante i picchi di traffico il costo del commit
+ * venga condiviso tra più messaggi. Ogni richiesta riceve comunque il proprio esito.
+ * Il thread di scrittura è unico e salva i messaggi nell'ordine di arrivo, per cui l'ordine dei messaggi
+ * di ogni conversazione è preservato. I messaggi il cui esito è già stato completato, ad esempio perché
+ * il chiamante ha smesso di attendere, vengono scartati senza essere salvati.
+ */
+@Service
+public class CodaMessaggi {
+
+    /**
+     * Richiesta di salvataggio di un messaggio, con l'esito da completare dopo il commit.
+     *
+     * @param messaggio Messaggio da salvare.
+     * @param esito Esito del salvataggio.
+     */
+    private record Richiesta(Messaggio messaggio, CompletableFuture<Messaggio> esito) {
+    }
+
+    /**
+     * Riepilogo di conversazione da aggiornare al termine di un gruppo.
+     *
+     * @param idUtente ID dell'utente a cui appartiene il riepilogo.
+     * @param idAltroUtente ID dell'altro partecipante.
+     */
+    private record Partecipanti(long idUtente, long idAltroUtente) {
+    }
+
+    /**
+     * Ordine in cui vengono aggiornati i riepiloghi, uguale per tutti i gruppi così che
+     * transazioni concorrenti di nodi diversi non si blocchino a vicenda.
+     */
+    private static final Comparator<Partecipanti> ORDINE_PARTECIPANTI =
+            Comparator.comparingLong(Partecipanti::idUtente).thenComparingLong(Partecipanti::idAltroUtente);
+
+    /**
+     * Intervallo, in millisecondi, con cui il thread di scrittura inattivo verifica se la coda è stata arrestata.
+     */
+    private static final long INTERVALLO_CONTROLLO_MS = 100;
+
+    /**
+     * Tempo massimo, in millisecondi, di attesa del salvataggio dei messaggi in coda all'arresto.
+     */
+    private static final long ATTESA_ARRESTO_MS = 10000;
+
+    /**
+     * Istanza di GestioneChatDAO utilizzata per il salvataggio dei messaggi.
+     */
+    private final GestioneChatDAO gestioneChatDAO;
+
+    /**
+     * Istanza di GestioneConversazioneDAO utilizzata per l'aggiornamento dei riepiloghi delle conversazioni.
+     */
+    private final GestioneConversazioneDAO conversazioneDAO;
+
+    /**
+     * Servizio per la consegna in tempo reale dei messaggi salvati.
+     */
+    private final ChatNotificheService chatNotificheService;
+
+    /**
+     * Indice di ricerca aggiornato con i termini dei messaggi salvati.
+     */
+    private final IndiceRicercaMessaggi indiceRicerca;
+
+    /**
+     * Template per il salvataggio di ogni gruppo in una propria transazione.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Tempo di raccolta di un gruppo, in nanosecondi, a partire dal primo messaggio.
+     */
+    private final long finestraNanos;
+
+    /**
+     * Numero massimo di messaggi salvati in un gruppo.
+     */
+    private final int dimensioneGruppo;
+
+    /**
+     * Messaggi in attesa di essere salvati.
+     */
+    private final BlockingQueue<Richiesta> coda;
+
+    /**
+     * Thread dedicato al salvataggio dei gruppi.
+     */
+    private final Thread scrittore = new Thread(this::esegui, "chat-coda-messaggi");
+
+    /**
+     * Indica se la coda accetta nuovi messaggi; all'arresto il thread di scrittura salva quelli già accodati e termina.
+     */
+    private volatile boolean attiva = true;
+
+    /**
+     * Costruttore della coda.
+     *
+     * @param gestioneChatDAO DAO dei messaggi.
+     * @param conversazioneDAO DAO dei riepiloghi delle conversazioni.
+     * @param chatNotificheService Servizio per la consegna in tempo reale dei messaggi.
+     * @param indiceRicerca Indice di ricerca dei messaggi.
+     * @param transactionManager Gestore delle transazioni.
+     * @param finestraMs Tempo di raccolta di un gruppo, in millisecondi.
+     * @param dimensioneGruppo Numero massimo di messaggi salvati in un gruppo.
+     * @param capacita Numero massimo di messaggi in attesa, oltre il quale i nuovi messaggi vengono rifiutati.
+     */
+    public CodaMessaggi(final GestioneChatDAO gestioneChatDAO,
+                        final GestioneConversazioneDAO conversazioneDAO,
+                        final ChatNotificheService chatNotificheService,
+                        final IndiceRicercaMessaggi indiceRicerca,
+                        final PlatformTransactionManager transactionManager,
+                        @Value("${chat.scrittura.finestra-ms:2}") final long finestraMs,
+                        @Value("${chat.scrittura.dimensione-gruppo:100}") final int dimensioneGruppo,
+                        @Value("${chat.scrittura.capacita:10000}") final int capacita) {
+        this.gestioneChatDAO = gestioneChatDAO;
+        this.conversazioneDAO = conversazioneDAO;
+        this.chatNotificheService = chatNotificheService;
+        this.indiceRicerca = indiceRicerca;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.finestraNanos = TimeUnit.MILLISECONDS.toNanos(finestraMs);
+        this.dimensioneGruppo = dimensioneGruppo;
+        this.coda = new ArrayBlockingQueue<>(capacita);
+        this.scrittore.setDaemon(true);
+    }
+
+    /**
+     * Avvia il thread di scrittura.
+     */
+    @PostConstruct
+    public void avvia() {
+        scrittore.start();
+    }
+
+    /**
+     * Arresta la coda: i nuovi messaggi vengono rifiutati e quelli già accodati vengono salvati prima che il thread
+     * di scrittura termini. I messaggi non salvati entro ATTESA_ARRESTO_MS vengono rifiutati.
+     */
+    @PreDestroy
+    public void arresta() {
+        attiva = false;
+        try {
+            scrittore.join(ATTESA_ARRESTO_MS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        scrittore.interrupt();
+        final List<Richiesta> rimaste = new ArrayList<>();
+        coda.drainTo(rimaste);
+        rifiuta(rimaste);
+    }
+
+    /**
+     * Accoda un messaggio per il salvataggio.
+     *
+     * @param messaggio Messaggio da salvare, con mittente e destinatario valorizzati.
+     * @return Esito del salvataggio, completato con il messaggio salvato dopo il commit del gruppo.
+     */
+    public CompletableFuture<Messaggio> accoda(final Messaggio messaggio) {
+        final Richiesta richiesta = new Richiesta(messaggio, new CompletableFuture<>());
+        if (!attiva || !scrittore.isAlive() || !coda.offer(richiesta)) {
+            richiesta.esito().completeExceptionally(new RejectedExecutionException("Coda dei messaggi non disponibile"));
+        }
+        return richiesta.esito();
+    }
+
+    /**
+     * Ciclo del thread di scrittura: attende il primo messaggio, raccoglie quelli che arrivano entro la finestra
+     * e salva il gruppo. Dopo l'arresto continua finché la coda non è vuota.
+     */
+    private void esegui() {
+        final List<Richiesta> gruppo = new ArrayList<>();
+        try {
+            while (attiva || !coda.isEmpty()) {
+                final Richiesta prima = coda.poll(INTERVALLO_CONTROLLO_MS, TimeUnit.MILLISECONDS);
+                if (prima == null) {
+                    continue;
+                }
+                aggiungi(gruppo, prima);
+                final long scadenza = System.nanoTime() + finestraNanos;
+                while (gruppo.size() < dimensioneGruppo) {
+                    final Richiesta richiesta = coda.poll(Math.max(0, scadenza - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (richiesta == null) {
+                        break;
+                    }
+                    aggiungi(gruppo, richiesta);
+                }
+                if (!gruppo.isEmpty()) {
+                    salva(gruppo);
+                    gruppo.clear();
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            coda.drainTo(gruppo);
+            rifiuta(gruppo);
+        }
+    }
+
+    /**
+     * Aggiunge una richiesta al gruppo, a meno che il suo esito non sia già stato completato.
+     *
+     * @param gruppo Gruppo in formazione.
+     * @param richiesta Richiesta presa dalla coda.
+     */
+    private static void aggiungi(final List<Richiesta> gruppo, final Richiesta richiesta) {
+        if (!richiesta.esito().isDone()) {
+            gruppo.add(richiesta);
+        }
+    }
+
+    /**
+     * Rifiuta le richieste non salvate all'arresto della coda.
+     *
+     * @param richieste Richieste da rifiutare.
+     */
+    private static void rifiuta(final Iterable<Richiesta> richieste) {
+        for (final Richiesta richiesta : richieste) {
+            richiesta.esito().completeExceptionally(new RejectedExecutionException("Coda dei messaggi arrestata"));
+        }
+    }
+
+    /**
+     * Salva un gruppo di messaggi in un'unica transazione e, dopo il commit, completa le richieste
+     * e invia i messaggi agli utenti connessi.
+     * Se il salvataggio del gruppo fallisce, i messaggi vengono salvati singolarmente così che un messaggio
+     * non valido non causi il fallimento degli altri.
+     *
+     * @param gruppo Richieste da salvare, nell'ordine di arrivo.
+     */
+    private void salva(final List<Richiesta> gruppo) {
+        try {
+            final List<Messaggio> salvati = transactionTemplate.execute((final var status) -> persisti(gruppo));
+            for (int i = 0; i < gruppo.size(); i++) {
+                completa(gruppo.get(i), salvati.get(i));
+            }
+        } catch (final RuntimeException ex) {
+            if (gruppo.size() == 1) {
+                gruppo.get(0).esito().completeExceptionally(ex);
+                return;
+            }
+            for (final Richiesta richiesta : gruppo) {
+                richiesta.messaggio().setId(0);
+                salva(List.of(richiesta));
+            }
+        }
+    }
+
+    /**
+     * Salva i messaggi di un gruppo con un unico batch, ne indicizza i termini e aggiorna una sola volta il riepilogo
+     * di ogni conversazione coinvolta, con l'ultimo messaggio del gruppo e il totale dei messaggi non letti.
+     *
+     * @param gruppo Richieste da salvare.
+     * @return Messaggi salvati, nello stesso ordine delle richieste.
+     */
+    private List<Messaggio> persisti(final List<Richiesta> gruppo) {
+        final List<Messaggio> messaggi = new ArrayList<>(gruppo.size());
+        for (final Richiesta richiesta : gruppo) {
+            messaggi.add(richiesta.messaggio());
+        }
+        final List<Messaggio> salvati = gestioneChatDAO.saveAll(messaggi);
+        indiceRicerca.indicizza(salvati);
+
+        final Map<Partecipanti, Messaggio> ultimi = new TreeMap<>(ORDINE_PARTECIPANTI);
+        final Map<Partecipanti, Long> nonLetti = new TreeMap<>(ORDINE_PARTECIPANTI);
+        for (final Messaggio messaggio : salvati) {
+            final long idMittente = messaggio.getMittente().getId();
+            final long idDestinatario = messaggio.getDestinatario().getId();
+            final Partecipanti mittente = new Partecipanti(idMittente, idDestinatario);
+            ultimi.put(mittente, messaggio);
+            nonLetti.merge(mittente, 0L, Long::sum);
+            if (idMittente != idDestinatario) {
+                final Partecipanti destinatario = new Partecipanti(idDestinatario, idMittente);
+                ultimi.put(destinatario, messaggio);
+                nonLetti.merge(destinatario, 1L, Long::sum);
+            }
+        }
+
+        ultimi.forEach((final var partecipanti, final var ultimo) -> conversazioneDAO.registraMessaggio(
+                partecipanti.idUtente(), partecipanti.idAltroUtente(), ultimo.getId(), ultimo.getMittente().getId(),
+                anteprima(ultimo.getDescrizione()), ultimo.getOrarioInvio(), nonLetti.get(partecipanti)));
+
+        return salvati;
+    }
+
+    /**
+     * Completa una richiesta con il messaggio salvato e lo invia agli utenti connessi.
+     *
+     * @param richiesta Richiesta da completare.
+     * @param salvato Messaggio salvato.
+     */
+    private void completa(final Richiesta richiesta, final Messaggio salvato) {
+        richiesta.esito().complete(salvato);
+        try {
+            chatNotificheService.notifica(salvato);
+        } catch (final RuntimeException ex) {
+            // Il messaggio è salvato: i client che non lo ricevono sullo stream lo recuperano tramite le API della chat
+        }
+    }
+
+    /**
+     * Restituisce l'anteprima del testo di un messaggio.
+     *
+     * @param descrizione Testo del messaggio.
+     * @return Inizio del testo, di lunghezza al più Conversazione.LUNGHEZZA_ANTEPRIMA.
+     */
+    private static String anteprima(final String descrizione) {
+        return descrizione.length() > Conversazione.LUNGHEZZA_ANTEPRIMA
+                ? descrizione.substring(0, Conversazione.LUNGHEZZA_ANTEPRIMA)
+                : descrizione;
+    }
+}
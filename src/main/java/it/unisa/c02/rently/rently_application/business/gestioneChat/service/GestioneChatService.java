@@ -1,9 +1,11 @@
 package it.unisa.c02.rently.rently_application.business.gestioneChat.service;
 
+import it.unisa.c02.rently.rently_application.data.model.Conversazione;
 import it.unisa.c02.rently.rently_application.data.model.Messaggio;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Questa interfaccia definisce le specifiche per i servizi dedicati alla gestione della chat.
@@ -11,7 +13,12 @@ import java.util.List;
 public interface GestioneChatService {
 
     /**
-     * Aggiunge un messaggio sulla piattaforma.
+     * Aggiunge un messaggio sulla piattaforma, aggiorna i riepiloghi della conversazione dei due utenti
+     * e, dopo il salvataggio, lo invia agli utenti della chat connessi allo stream.
+     * Il messaggio viene salvato insieme agli altri messaggi ricevuti nello stesso intervallo, in un'unica
+     * transazione; il metodo termina dopo il commit.
+     * Se la coda di scrittura è piena, arrestata o non salva il messaggio entro il tempo massimo di attesa,
+     * viene lanciata una RejectedExecutionException; un messaggio scaduto prima di essere preso in carico non viene salvato.
      *
      * @param messaggio messaggio da aggiungere.
      * @return Messaggio aggiunto.
@@ -26,4 +33,67 @@ public interface GestioneChatService {
      * @return Lista di tutti i messaggi associati a due utenti.
      */
     List<Messaggio> getChat(final Utente id1, final Utente id2);
+
+    /**
+     * Restituisce i messaggi tra due utenti successivi a quello specificato, così che il client
+     * scarichi solo i messaggi che non ha ancora ricevuto.
+     *
+     * @param id1 uno degli utenti a cui appartiene la chat.
+     * @param id2 l'altro utente a cui appartiene la chat.
+     * @param dopo id dell'ultimo messaggio già ricevuto dal client.
+     * @param limite numero massimo di messaggi da restituire.
+     * @return Lista dei messaggi successivi, dal meno recente.
+     */
+    List<Messaggio> getChatDopo(final Utente id1, final Utente id2, final long dopo, final int limite);
+
+    /**
+     * Restituisce una pagina di messaggi tra due utenti, i più recenti o quelli precedenti al messaggio specificato,
+     * così che il client carichi i messaggi meno recenti solo quando necessario.
+     *
+     * @param id1 uno degli utenti a cui appartiene la chat.
+     * @param id2 l'altro utente a cui appartiene la chat.
+     * @param prima id del messaggio meno recente già ricevuto dal client; se null vengono restituiti gli ultimi messaggi.
+     * @param limite numero massimo di messaggi da restituire.
+     * @return Lista dei messaggi della pagina, dal meno recente.
+     */
+    List<Messaggio> getChatPrima(final Utente id1, final Utente id2, final Long prima, final int limite);
+
+    /**
+     * Restituisce i riepiloghi delle conversazioni di un utente, dalla conversazione con il messaggio più recente.
+     *
+     * @param idUtente id dell'utente.
+     * @param limite numero massimo di conversazioni da restituire.
+     * @return Lista dei riepiloghi delle conversazioni dell'utente.
+     */
+    List<Conversazione> getConversazioni(final long idUtente, final int limite);
+
+    /**
+     * Restituisce il riepilogo della conversazione di un utente con un altro utente, con lo stato di lettura
+     * dei messaggi di entrambi i partecipanti.
+     *
+     * @param idUtente id dell'utente a cui appartiene il riepilogo.
+     * @param idAltroUtente id dell'altro partecipante alla conversazione.
+     * @return Il riepilogo della conversazione, se presente.
+     */
+    Optional<Conversazione> getConversazione(final long idUtente, final long idAltroUtente);
+
+    /**
+     * Registra la lettura da parte di un utente dei messaggi di una conversazione fino al messaggio specificato.
+     * Le letture vengono salvate e notificate all'altro partecipante in modo asincrono, a gruppi.
+     *
+     * @param idUtente id dell'utente che ha letto i messaggi.
+     * @param idAltroUtente id dell'altro partecipante alla conversazione.
+     * @param idMessaggio id dell'ultimo messaggio letto; se null vengono considerati letti tutti i messaggi.
+     */
+    void segnaLetta(final long idUtente, final long idAltroUtente, final Long idMessaggio);
+
+    /**
+     * Cerca tra i messaggi inviati e ricevuti da un utente quelli che contengono tutte le parole del testo specificato.
+     *
+     * @param utente utente che esegue la ricerca.
+     * @param testo parole da cercare.
+     * @param limite numero massimo di messaggi da restituire.
+     * @return Lista dei messaggi trovati, dal più recente.
+     */
+    List<Messaggio> cercaMessaggi(final Utente utente, final String testo, final int limite);
 }
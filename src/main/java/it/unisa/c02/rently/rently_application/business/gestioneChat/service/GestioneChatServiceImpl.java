@@ -1,12 +1,27 @@
 package it.unisa.c02.rently.rently_application.business.gestioneChat.service;
 
 import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneConversazioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Conversazione;
 import it.unisa.c02.rently.rently_application.data.model.Messaggio;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * Implementazione del servizio di gestione della chat.
  * Questa classe fornisce implementazioni concrete per i metodi dichiarati nell'interfaccia GestioneChatService.
@@ -15,18 +30,116 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GestioneChatServiceImpl implements GestioneChatService {
 
+    /**
+     * Numero massimo di messaggi aggiornati in una singola transazione durante l'inizializzazione.
+     */
+    private static final int DIMENSIONE_BLOCCO = 5000;
+
     /**
      * L'istanza di GestioneChatDAO utilizzata per l'accesso ai dati dei messaggi.
      *
      */
     private final GestioneChatDAO gestioneChatDAO;
 
+    /**
+     * L'istanza di GestioneConversazioneDAO utilizzata per l'accesso ai riepiloghi delle conversazioni.
+     */
+    private final GestioneConversazioneDAO conversazioneDAO;
+
+    /**
+     * Coda di scrittura che salva i messaggi in gruppi.
+     */
+    private final CodaMessaggi codaMessaggi;
+
+    /**
+     * Archivio dei messaggi meno recenti, letto quando la tabella dei messaggi non contiene la parte richiesta della chat.
+     */
+    private final ArchivioMessaggi archivioMessaggi;
+
+    /**
+     * Indice per la ricerca testuale nei messaggi.
+     */
+    private final IndiceRicercaMessaggi indiceRicerca;
+
+    /**
+     * Ricevute di lettura, raccolte in memoria e salvate a gruppi.
+     */
+    private final RicevuteLettura ricevuteLettura;
+
+    /**
+     * Tempo massimo, in millisecondi, di attesa del salvataggio di un messaggio.
+     */
+    @Value("${chat.scrittura.attesa-massima:5000}")
+    private long attesaMassima;
+
+    /**
+     * Completa al primo avvio successivo alla loro introduzione i dati derivati dai messaggi già salvati:
+     * la chiave della conversazione di ogni messaggio, calcolata a blocchi, e i riepiloghi delle conversazioni.
+     * Elimina inoltre l'indice su mittente e destinatario, non più usato dalle letture della chat.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inizializzaConversazioni() {
+        int aggiornati;
+        do {
+            aggiornati = gestioneChatDAO.impostaChiaviConversazione(DIMENSIONE_BLOCCO);
+        } while (aggiornati == DIMENSIONE_BLOCCO);
+        if (gestioneChatDAO.contaColonneIndiceMittenteDestinatario() > 0) {
+            try {
+                gestioneChatDAO.eliminaIndiceMittenteDestinatario();
+            } catch (final DataAccessException ex) {
+                // L'indice resta se MySQL lo usa per la chiave esterna sul mittente, o se un altro nodo lo ha già eliminato
+            }
+        }
+        if (conversazioneDAO.count() == 0 && gestioneChatDAO.count() > 0) {
+            conversazioneDAO.ricostruisci();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Messaggio addMessaggio(final Messaggio messaggio) {
-        return gestioneChatDAO.save(messaggio);
+        try {
+            return codaMessaggi.accoda(messaggio).orTimeout(attesaMassima, TimeUnit.MILLISECONDS).join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof TimeoutException) {
+                throw new RejectedExecutionException("Message write timed out", ex.getCause());
+            }
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Conversazione> getConversazioni(final long idUtente, final int limite) {
+        return conversazioneDAO.findByIdUtenteOrderByIdUltimoMessaggioDesc(idUtente, PageRequest.of(0, limite));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void segnaLetta(final long idUtente, final long idAltroUtente, final Long idMessaggio) {
+        if (idMessaggio != null) {
+            ricevuteLettura.registra(idUtente, idAltroUtente, idMessaggio);
+            return;
+        }
+        conversazioneDAO.findByIdUtenteAndIdAltroUtente(idUtente, idAltroUtente).ifPresent((final var conversazione) ->
+                ricevuteLettura.registra(idUtente, idAltroUtente, conversazione.getIdUltimoMessaggio()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Conversazione> getConversazione(final long idUtente, final long idAltroUtente) {
+        return conversazioneDAO.findByIdUtenteAndIdAltroUtente(idUtente, idAltroUtente);
     }
 
     /**
@@ -34,6 +147,63 @@ public class GestioneChatServiceImpl implements GestioneChatService {
      */
     @Override
     public List<Messaggio> getChat(final Utente id1, final Utente id2) {
-        return gestioneChatDAO.getChat(id1, id2);
+        if (id1 == null || id2 == null) {
+            return new ArrayList<>();
+        }
+        final List<Messaggio> chat = archivioMessaggi.leggiDopo(id1, id2, 0, Integer.MAX_VALUE);
+        chat.addAll(gestioneChatDAO.getChat(Math.min(id1.getId(), id2.getId()), Math.max(id1.getId(), id2.getId())));
+        return chat;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Messaggio> getChatDopo(final Utente id1, final Utente id2, final long dopo, final int limite) {
+        if (id1 == null || id2 == null) {
+            return new ArrayList<>();
+        }
+        final List<Messaggio> pagina = archivioMessaggi.leggiDopo(id1, id2, dopo, limite);
+        if (pagina.size() < limite) {
+            final long ultimo = pagina.isEmpty() ? dopo : pagina.get(pagina.size() - 1).getId();
+            pagina.addAll(gestioneChatDAO.getChatDopo(Math.min(id1.getId(), id2.getId()), Math.max(id1.getId(), id2.getId()),
+                    ultimo, PageRequest.of(0, limite - pagina.size())));
+        }
+        return pagina;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Messaggio> getChatPrima(final Utente id1, final Utente id2, final Long prima, final int limite) {
+        if (id1 == null || id2 == null) {
+            return new ArrayList<>();
+        }
+        final long minore = Math.min(id1.getId(), id2.getId());
+        final long maggiore = Math.max(id1.getId(), id2.getId());
+        final List<Messaggio> pagina = new ArrayList<>(prima == null
+                ? gestioneChatDAO.getChatUltimi(minore, maggiore, PageRequest.of(0, limite))
+                : gestioneChatDAO.getChatPrima(minore, maggiore, prima, PageRequest.of(0, limite)));
+        if (pagina.size() < limite) {
+            // La tabella non contiene altri messaggi precedenti: la pagina prosegue nell'archivio
+            final long limiteId = pagina.isEmpty()
+                    ? (prima != null ? prima : Long.MAX_VALUE)
+                    : pagina.get(pagina.size() - 1).getId();
+            pagina.addAll(archivioMessaggi.leggiPrima(id1, id2, limiteId, limite - pagina.size()));
+        }
+        Collections.reverse(pagina);
+        return pagina;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Messaggio> cercaMessaggi(final Utente utente, final String testo, final int limite) {
+        if (utente == null) {
+            return new ArrayList<>();
+        }
+        return indiceRicerca.cerca(utente, testo, limite);
     }
 }
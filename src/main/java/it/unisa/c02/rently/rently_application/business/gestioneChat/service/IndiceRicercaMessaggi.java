@@ -0,0 +1,183 @@
+package it.unisa.c02.rently.rently_application.business.gestioneChat.service;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneTermineMessaggioDAO;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import it.unisa.c02.rently.rently_application.data.model.TermineMessaggio;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Indice invertito per la ricerca testuale nei messaggi della chat.
+ * Per ogni utente l'indice associa ogni termine ai messaggi inviati o ricevuti che lo contengono,
+ * così che una ricerca legga solo le occorrenze dei termini cercati nell'indice dell'utente.
+ */
+@Service
+@RequiredArgsConstructor
+public class IndiceRicercaMessaggi {
+
+    /**
+     * Numero massimo di termini considerati in una ricerca.
+     */
+    private static final int TERMINI_MASSIMI = 10;
+
+    /**
+     * Lunghezza minima di un termine indicizzato.
+     */
+    private static final int LUNGHEZZA_MINIMA = 2;
+
+    /**
+     * Separatori tra i termini di un testo.
+     */
+    private static final Pattern SEPARATORI = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Segni diacritici rimossi dopo la normalizzazione del testo.
+     */
+    private static final Pattern DIACRITICI = Pattern.compile("\\p{M}+");
+
+    /**
+     * Istanza di GestioneTermineMessaggioDAO utilizzata per l'accesso all'indice.
+     */
+    private final GestioneTermineMessaggioDAO termineDAO;
+
+    /**
+     * Istanza di GestioneChatDAO utilizzata per il recupero dei messaggi trovati.
+     */
+    private final GestioneChatDAO gestioneChatDAO;
+
+    /**
+     * Archivio da cui recuperare i messaggi trovati non più presenti nella tabella dei messaggi.
+     */
+    private final ArchivioMessaggi archivioMessaggi;
+
+    /**
+     * Aggiunge all'indice del mittente e del destinatario i termini dei messaggi specificati.
+     * Deve essere eseguito nella stessa transazione in cui i messaggi vengono salvati.
+     *
+     * @param messaggi messaggi salvati da indicizzare.
+     */
+    public void indicizza(final List<Messaggio> messaggi) {
+
+        final List<TermineMessaggio> occorrenze = new ArrayList<>();
+        for (final Messaggio messaggio : messaggi) {
+            if (messaggio.getMittente() == null || messaggio.getDestinatario() == null) {
+                continue;
+            }
+            final long idMittente = messaggio.getMittente().getId();
+            final long idDestinatario = messaggio.getDestinatario().getId();
+            for (final String termine : termini(messaggio.getDescrizione())) {
+                occorrenze.add(new TermineMessaggio(idMittente, termine, messaggio.getId(), idDestinatario));
+                if (idMittente != idDestinatario) {
+                    occorrenze.add(new TermineMessaggio(idDestinatario, termine, messaggio.getId(), idMittente));
+                }
+            }
+        }
+        termineDAO.saveAll(occorrenze);
+    }
+
+    /**
+     * Indicizza i messaggi specificati che non hanno ancora occorrenze nell'indice, perché salvati prima della
+     * sua introduzione; i messaggi già indicizzati al salvataggio vengono ignorati.
+     *
+     * @param messaggi messaggi da indicizzare.
+     * @return Numero di messaggi indicizzati.
+     */
+    @Transactional
+    public int indicizzaMancanti(final List<Messaggio> messaggi) {
+
+        final List<Long> ids = new ArrayList<>(messaggi.size());
+        for (final Messaggio messaggio : messaggi) {
+            ids.add(messaggio.getId());
+        }
+        final Set<Long> indicizzati = new HashSet<>(termineDAO.findIdMessaggiIndicizzati(ids));
+
+        final List<Messaggio> mancanti = new ArrayList<>();
+        for (final Messaggio messaggio : messaggi) {
+            if (!indicizzati.contains(messaggio.getId())) {
+                mancanti.add(messaggio);
+            }
+        }
+        indicizza(mancanti);
+        return mancanti.size();
+    }
+
+    /**
+     * Cerca i messaggi di un utente che contengono tutti i termini del testo specificato.
+     *
+     * @param utente utente che esegue la ricerca.
+     * @param testo testo da cercare.
+     * @param limite numero massimo di messaggi da restituire.
+     * @return Lista dei messaggi trovati, dal più recente.
+     */
+    public List<Messaggio> cerca(final Utente utente, final String testo, final int limite) {
+
+        final List<String> termini = new ArrayList<>(termini(testo));
+        if (termini.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (termini.size() > TERMINI_MASSIMI) {
+            termini.subList(TERMINI_MASSIMI, termini.size()).clear();
+        }
+
+        final List<Object[]> risultati = termineDAO.cerca(utente.getId(), termini, termini.size(), limite);
+        final List<Long> ids = new ArrayList<>(risultati.size());
+        for (final Object[] risultato : risultati) {
+            ids.add(((Number) risultato[0]).longValue());
+        }
+
+        final Map<Long, Messaggio> presenti = new HashMap<>();
+        for (final Messaggio messaggio : gestioneChatDAO.findAllById(ids)) {
+            presenti.put(messaggio.getId(), messaggio);
+        }
+
+        final List<Messaggio> messaggi = new ArrayList<>(risultati.size());
+        for (final Object[] risultato : risultati) {
+            final long id = ((Number) risultato[0]).longValue();
+            final Messaggio presente = presenti.get(id);
+            if (presente != null) {
+                messaggi.add(presente);
+                continue;
+            }
+            final Utente altro = new Utente();
+            altro.setId(((Number) risultato[1]).longValue());
+            archivioMessaggi.leggi(utente, altro, id).ifPresent(messaggi::add);
+        }
+        return messaggi;
+    }
+
+    /**
+     * Estrae i termini indicizzabili di un testo: il testo viene portato in minuscolo, privato degli accenti
+     * e diviso sui caratteri diversi da lettere e cifre.
+     *
+     * @param testo testo da cui estrarre i termini.
+     * @return Insieme dei termini distinti, nell'ordine in cui compaiono.
+     */
+    public static Set<String> termini(final String testo) {
+
+        final Set<String> termini = new LinkedHashSet<>();
+        if (testo == null) {
+            return termini;
+        }
+        final String normalizzato = DIACRITICI.matcher(Normalizer.normalize(testo.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)).replaceAll("");
+        for (final String termine : SEPARATORI.split(normalizzato)) {
+            if (termine.length() >= LUNGHEZZA_MINIMA && termine.length() <= TermineMessaggio.LUNGHEZZA_MASSIMA) {
+                termini.add(termine);
+            }
+        }
+        return termini;
+    }
+}
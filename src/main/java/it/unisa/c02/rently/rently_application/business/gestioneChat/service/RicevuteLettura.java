@@ -0,0 +1,136 @@
+package it.unisa.c02.rently.rently_application.business.gestioneChat.service;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneConversazioneDAO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ricevute di lettura dei messaggi della chat.
+ * Per ogni utente e conversazione viene memorizzato solo l'ID dell'ultimo messaggio letto: le letture
+ * ricevute vengono raccolte in memoria, mantenendo per ogni conversazione solo l'ID più alto,
+ * e salvate periodicamente in un'unica transazione, così che la visualizzazione dei messaggi
+ * non generi una scrittura per ogni messaggio letto.
+ */
+@Service
+public class RicevuteLettura {
+
+    /**
+     * Conversazione di un utente di cui è stata registrata una lettura.
+     *
+     * @param idUtente ID dell'utente che ha letto i messaggi.
+     * @param idAltroUtente ID dell'altro partecipante alla conversazione.
+     */
+    private record Lettura(long idUtente, long idAltroUtente) {
+    }
+
+    /**
+     * Ordine in cui vengono salvate le letture, uguale per tutti i salvataggi così che
+     * transazioni concorrenti di nodi diversi non si blocchino a vicenda.
+     */
+    private static final Comparator<Map.Entry<Lettura, Long>> ORDINE_LETTURE = Comparator
+            .comparingLong((final Map.Entry<Lettura, Long> e) -> Math.min(e.getKey().idUtente(), e.getKey().idAltroUtente()))
+            .thenComparingLong((final Map.Entry<Lettura, Long> e) -> Math.max(e.getKey().idUtente(), e.getKey().idAltroUtente()))
+            .thenComparingLong((final Map.Entry<Lettura, Long> e) -> e.getKey().idUtente());
+
+    /**
+     * Istanza di GestioneConversazioneDAO utilizzata per il salvataggio delle letture nei riepiloghi delle conversazioni.
+     */
+    private final GestioneConversazioneDAO conversazioneDAO;
+
+    /**
+     * Servizio per la notifica delle letture agli utenti connessi.
+     */
+    private final ChatNotificheService chatNotificheService;
+
+    /**
+     * Template per il salvataggio delle letture raccolte in un'unica transazione.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Letture in attesa di essere salvate, con l'ID più alto letto per ogni conversazione.
+     */
+    private final Map<Lettura, Long> inAttesa = new ConcurrentHashMap<>();
+
+    /**
+     * Costruttore del servizio.
+     *
+     * @param conversazioneDAO DAO dei riepiloghi delle conversazioni.
+     * @param chatNotificheService Servizio per la consegna in tempo reale degli eventi della chat.
+     * @param transactionManager Gestore delle transazioni.
+     */
+    public RicevuteLettura(final GestioneConversazioneDAO conversazioneDAO,
+                           final ChatNotificheService chatNotificheService,
+                           final PlatformTransactionManager transactionManager) {
+        this.conversazioneDAO = conversazioneDAO;
+        this.chatNotificheService = chatNotificheService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Registra la lettura dei messaggi di una conversazione fino al messaggio specificato.
+     *
+     * @param idUtente ID dell'utente che ha letto i messaggi.
+     * @param idAltroUtente ID dell'altro partecipante alla conversazione.
+     * @param idMessaggio ID dell'ultimo messaggio letto.
+     */
+    public void registra(final long idUtente, final long idAltroUtente, final long idMessaggio) {
+        inAttesa.merge(new Lettura(idUtente, idAltroUtente), idMessaggio, Math::max);
+    }
+
+    /**
+     * Salva le letture raccolte e le notifica agli altri partecipanti delle conversazioni.
+     * Se il salvataggio fallisce le letture vengono reinserite, così da essere salvate al tentativo successivo.
+     */
+    @Scheduled(fixedDelayString = "${chat.letture.intervallo-salvataggio:1000}")
+    public void salva() {
+
+        if (inAttesa.isEmpty()) {
+            return;
+        }
+
+        final List<Map.Entry<Lettura, Long>> letture = new ArrayList<>();
+        for (final Lettura lettura : inAttesa.keySet()) {
+            final Long idMessaggio = inAttesa.remove(lettura);
+            if (idMessaggio != null) {
+                letture.add(Map.entry(lettura, idMessaggio));
+            }
+        }
+        letture.sort(ORDINE_LETTURE);
+
+        try {
+            transactionTemplate.executeWithoutResult((final var status) -> {
+                for (final Map.Entry<Lettura, Long> lettura : letture) {
+                    conversazioneDAO.segnaLetto(lettura.getKey().idUtente(), lettura.getKey().idAltroUtente(), lettura.getValue());
+                    conversazioneDAO.segnaLettoDaAltro(lettura.getKey().idUtente(), lettura.getKey().idAltroUtente(), lettura.getValue());
+                }
+            });
+        } catch (final RuntimeException ex) {
+            for (final Map.Entry<Lettura, Long> lettura : letture) {
+                inAttesa.merge(lettura.getKey(), lettura.getValue(), Math::max);
+            }
+            throw ex;
+        }
+
+        for (final Map.Entry<Lettura, Long> lettura : letture) {
+            chatNotificheService.notificaLettura(lettura.getKey().idAltroUtente(), lettura.getKey().idUtente(), lettura.getValue());
+        }
+    }
+
+    /**
+     * Salva le letture ancora in attesa all'arresto dell'applicazione.
+     */
+    @PreDestroy
+    public void arresta() {
+        salva();
+    }
+}
@@ -6,6 +6,8 @@ import it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service.
 import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.GestioneValutazioneService;
 import it.unisa.c02.rently.rently_application.commons.services.responseService.ResponseService;
 import it.unisa.c02.rently.rently_application.data.dto.NoleggioDTO;
+import it.unisa.c02.rently.rently_application.data.dto.RiepilogoMensileDTO;
+import it.unisa.c02.rently.rently_application.data.dto.ValutazioniPresentiDTO;
 import it.unisa.c02.rently.rently_application.data.model.Annuncio;
 import it.unisa.c02.rently.rently_application.data.model.Noleggio;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
@@ -14,8 +16,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Questa classe gestisce le richieste relative ai noleggi attraverso i servizi forniti da GestioneAreaPersonaleService,
@@ -65,33 +71,45 @@ public class GestioneNoleggioController {
      */
     private final GestioneValutazioneService valutazioneService;
 
+    /**
+     * Numero massimo di elementi restituiti in una pagina.
+     */
+    private static final int LIMITE_MASSIMO = 100;
+
+    /**
+     * Numero massimo di mesi restituiti nei riepiloghi mensili.
+     */
+    private static final int MESI_MASSIMI = 36;
+
 
     /**
      * Restituisce tutti i noleggi, eccetto le richieste, effettuati da un noleggiante passato come parametro.
      *
+     * Se viene specificato 'limite' viene restituita una sola pagina, a partire dal cursore (dataRichiesta, idNoleggio).
+     *
      * @param idUtente ID del noleggiante di cui si vogliono ricevere i noleggi.
+     * @param limite numero massimo di noleggi da restituire; se assente vengono restituiti tutti i noleggi.
+     * @param dataRichiesta data di richiesta dell'ultimo noleggio della pagina precedente.
+     * @param idNoleggio ID dell'ultimo noleggio della pagina precedente.
      * @return ResponseEntity contenente la lista dei noleggi del noleggiante o un messaggio di errore in formato JSON.
      */
     @GetMapping("/noleggiante")
-    public ResponseEntity<String> getNoleggiByNoleggiante(@RequestParam final long idUtente) {
+    public ResponseEntity<String> getNoleggiByNoleggiante(@RequestParam final long idUtente,
+                                                   @RequestParam(required = false) final Integer limite,
+                                                   @RequestParam(required = false) final String dataRichiesta,
+                                                   @RequestParam(required = false) final Long idNoleggio) {
+
+        if (!isDataValida(dataRichiesta)) {
+            return responseService.BadRequest("Formato della data non valido!");
+        }
 
         final Utente noleggiante = areaPersonaleService.getDatiPrivati(idUtente);
 
         if(noleggiante!=null){
-            final List<Noleggio> noleggi = noleggioService.getNoleggiByNoleggiante(noleggiante);
-            final List<NoleggioDTO> list = new ArrayList<>();
-            for (final Noleggio n: noleggi) {
-                final NoleggioDTO item = new NoleggioDTO().convertFromModel(n);
-                item.setValutazioneAlNoleggiatore(valutazioneService.valutazioneNoleggiatoreIsPresent(n));
-                item.setValutazioneAnnuncio(valutazioneService.valutazioneAnnuncioIsPresent(n));
-                item.setValutazioneAlNoleggiante(valutazioneService.valutazioneNoleggianteIsPresent(n));
-                if(item.isValutazioneAlNoleggiante() && item.isValutazioneAlNoleggiatore() && item.isValutazioneAnnuncio()){
-
-                    item.setStato("CONCLUSOCONVALUTAZIONE");
-                }
-
-                list.add(item);
-            }
+            final List<Noleggio> noleggi = limite == null
+                    ? noleggioService.getNoleggiByNoleggiante(noleggiante)
+                    : noleggioService.getNoleggiByNoleggiante(noleggiante, toDate(dataRichiesta), idNoleggio, normalizzaLimite(limite));
+            final List<NoleggioDTO> list = convertNoleggiConValutazioni(noleggi);
             return responseService.Ok(list);
         }
         else
@@ -101,28 +119,31 @@ public class GestioneNoleggioController {
     /**
      * Restituisce tutti i noleggi, eccetto le richieste, effettuati da un noleggiatore passato come parametro.
      *
+     * Se viene specificato 'limite' viene restituita una sola pagina, a partire dal cursore (dataRichiesta, idNoleggio).
+     *
      * @param idUtente ID del noleggiatore di cui si vogliono ricevere i noleggi.
+     * @param limite numero massimo di noleggi da restituire; se assente vengono restituiti tutti i noleggi.
+     * @param dataRichiesta data di richiesta dell'ultimo noleggio della pagina precedente.
+     * @param idNoleggio ID dell'ultimo noleggio della pagina precedente.
      * @return ResponseEntity contenente la lista dei noleggi del noleggiatore o un messaggio di errore in formato JSON.
      */
     @GetMapping("/noleggiatore")
-    public ResponseEntity<String> getNoleggiByNoleggiatore(@RequestParam final long idUtente) {
+    public ResponseEntity<String> getNoleggiByNoleggiatore(@RequestParam final long idUtente,
+                                                   @RequestParam(required = false) final Integer limite,
+                                                   @RequestParam(required = false) final String dataRichiesta,
+                                                   @RequestParam(required = false) final Long idNoleggio) {
+
+        if (!isDataValida(dataRichiesta)) {
+            return responseService.BadRequest("Formato della data non valido!");
+        }
 
         final Utente noleggiatore = areaPersonaleService.getDatiPrivati(idUtente);
 
         if(noleggiatore!=null){
-            final List<Noleggio> noleggi = noleggioService.getNoleggiByNoleggiatore(noleggiatore);
-            final List<NoleggioDTO> list = new ArrayList<>();
-            for (final Noleggio n: noleggi) {
-                final NoleggioDTO item = new NoleggioDTO().convertFromModel(n);
-                item.setValutazioneAlNoleggiatore(valutazioneService.valutazioneNoleggiatoreIsPresent(n));
-                item.setValutazioneAnnuncio(valutazioneService.valutazioneAnnuncioIsPresent(n));
-                item.setValutazioneAlNoleggiante(valutazioneService.valutazioneNoleggianteIsPresent(n));
-                if(item.isValutazioneAlNoleggiante() && item.isValutazioneAlNoleggiatore() && item.isValutazioneAnnuncio()){
-
-                    item.setStato("CONCLUSOCONVALUTAZIONE");
-                }
-                list.add(item);
-            }
+            final List<Noleggio> noleggi = limite == null
+                    ? noleggioService.getNoleggiByNoleggiatore(noleggiatore)
+                    : noleggioService.getNoleggiByNoleggiatore(noleggiatore, toDate(dataRichiesta), idNoleggio, normalizzaLimite(limite));
+            final List<NoleggioDTO> list = convertNoleggiConValutazioni(noleggi);
             return responseService.Ok(list);
         }
         else
@@ -132,16 +153,30 @@ public class GestioneNoleggioController {
     /**
      * Restituisce tutte le richieste, anche in stato RIFIUTATA e ACCETTATA, effettuate da un noleggiante passato come parametro.
      *
+     * Se viene specificato 'limite' viene restituita una sola pagina, a partire dal cursore (dataRichiesta, idNoleggio).
+     *
      * @param idUtente ID del noleggiante di cui si vogliono ricevere le richieste.
+     * @param limite numero massimo di richieste da restituire; se assente vengono restituite tutte le richieste.
+     * @param dataRichiesta data di richiesta dell'ultima richiesta della pagina precedente.
+     * @param idNoleggio ID dell'ultima richiesta della pagina precedente.
      * @return ResponseEntity contenente la lista delle richieste del noleggiante o un messaggio di errore in formato JSON.
      */
     @GetMapping("/richieste/noleggiante")
-    public ResponseEntity<String> getRichiesteByNoleggiante(@RequestParam final long idUtente) {
+    public ResponseEntity<String> getRichiesteByNoleggiante(@RequestParam final long idUtente,
+                                                   @RequestParam(required = false) final Integer limite,
+                                                   @RequestParam(required = false) final String dataRichiesta,
+                                                   @RequestParam(required = false) final Long idNoleggio) {
+
+        if (!isDataValida(dataRichiesta)) {
+            return responseService.BadRequest("Formato della data non valido!");
+        }
 
         final Utente noleggiante = areaPersonaleService.getDatiPrivati(idUtente);
 
         if(noleggiante!=null){
-            final List<Noleggio> noleggi = noleggioService.getRichiesteByNoleggiante(noleggiante);
+            final List<Noleggio> noleggi = limite == null
+                    ? noleggioService.getRichiesteByNoleggiante(noleggiante)
+                    : noleggioService.getRichiesteByNoleggiante(noleggiante, toDate(dataRichiesta), idNoleggio, normalizzaLimite(limite));
             final List<NoleggioDTO> list = new ArrayList<>();
             for (final Noleggio n: noleggi) {
                 final NoleggioDTO item = new NoleggioDTO().convertFromModel(n);
@@ -156,16 +191,30 @@ public class GestioneNoleggioController {
     /**
      * Restituisce tutte le richieste, anche in stato RIFIUTATA e ACCETTATA, effettuate da un noleggiatore passato come parametro.
      *
+     * Se viene specificato 'limite' viene restituita una sola pagina, a partire dal cursore (dataRichiesta, idNoleggio).
+     *
      * @param idUtente ID del noleggiatore di cui si vogliono ricevere le richieste.
+     * @param limite numero massimo di richieste da restituire; se assente vengono restituite tutte le richieste.
+     * @param dataRichiesta data di richiesta dell'ultima richiesta della pagina precedente.
+     * @param idNoleggio ID dell'ultima richiesta della pagina precedente.
      * @return ResponseEntity contenente la lista delle richieste del noleggiatore o un messaggio di errore in formato JSON.
      */
     @GetMapping("/richieste/noleggiatore")
-    public ResponseEntity<String> getRichiesteByNoleggiatore(@RequestParam final long idUtente) {
+    public ResponseEntity<String> getRichiesteByNoleggiatore(@RequestParam final long idUtente,
+                                                   @RequestParam(required = false) final Integer limite,
+                                                   @RequestParam(required = false) final String dataRichiesta,
+                                                   @RequestParam(required = false) final Long idNoleggio) {
+
+        if (!isDataValida(dataRichiesta)) {
+            return responseService.BadRequest("Formato della data non valido!");
+        }
 
         final Utente noleggiatore = areaPersonaleService.getDatiPrivati(idUtente);
 
         if(noleggiatore!=null){
-            final List<Noleggio> noleggi = noleggioService.getRichiesteByNoleggiatore(noleggiatore);
+            final List<Noleggio> noleggi = limite == null
+                    ? noleggioService.getRichiesteByNoleggiatore(noleggiatore)
+                    : noleggioService.getRichiesteByNoleggiatore(noleggiatore, toDate(dataRichiesta), idNoleggio, normalizzaLimite(limite));
             final List<NoleggioDTO> list = new ArrayList<>();
             for (final Noleggio n: noleggi) {
                 final NoleggioDTO item = new NoleggioDTO().convertFromModel(n);
@@ -280,4 +329,108 @@ public class GestioneNoleggioController {
             return responseService.InternalError();
 
     }
+
+    /**
+     * Restituisce i riepiloghi mensili dei guadagni e dell'occupazione degli annunci di un utente.
+     *
+     * @param idUtente ID dell'utente proprietario degli annunci.
+     * @param da primo mese nel formato yyyy-mm; se assente, l'undicesimo mese precedente a 'a'.
+     * @param a ultimo mese nel formato yyyy-mm; se assente, il mese corrente.
+     * @return ResponseEntity contenente la lista dei riepiloghi mensili o un messaggio di errore in formato JSON.
+     */
+    @GetMapping("/riepilogo-mensile")
+    public ResponseEntity<String> getRiepiloghiMensili(@RequestParam final long idUtente,
+                                                       @RequestParam(required = false) final String da,
+                                                       @RequestParam(required = false) final String a) {
+        try {
+            final Utente utente = areaPersonaleService.getDatiPrivati(idUtente);
+            if (utente == null) {
+                return responseService.InternalError();
+            }
+
+            final YearMonth fine = a == null ? YearMonth.now() : YearMonth.parse(a);
+            YearMonth inizio = da == null ? fine.minusMonths(11) : YearMonth.parse(da);
+            if (inizio.isAfter(fine)) {
+                return responseService.InternalError();
+            }
+            if (inizio.isBefore(fine.minusMonths(MESI_MASSIMI - 1))) {
+                inizio = fine.minusMonths(MESI_MASSIMI - 1);
+            }
+
+            final List<RiepilogoMensileDTO> list = noleggioService.getRiepiloghiMensili(utente, inizio, fine);
+            return responseService.Ok(list);
+        }
+        catch (final Exception ex) {
+            return responseService.InternalError();
+        }
+    }
+
+    /**
+     * Converte una lista di noleggi in NoleggioDTO, indicando per ciascuno le valutazioni già presenti.
+     * Le valutazioni vengono recuperate per tutti i noleggi insieme, con un numero costante di query.
+     *
+     * @param noleggi Lista dei noleggi da convertire.
+     * @return Lista dei NoleggioDTO con le valutazioni presenti.
+     */
+    private List<NoleggioDTO> convertNoleggiConValutazioni(final List<Noleggio> noleggi) {
+
+        final List<Long> ids = new ArrayList<>(noleggi.size());
+        for (final Noleggio n: noleggi) {
+            ids.add(n.getId());
+        }
+        final Map<Long, ValutazioniPresentiDTO> presenti = valutazioneService.valutazioniPresentiByNoleggi(ids);
+
+        final List<NoleggioDTO> list = new ArrayList<>(noleggi.size());
+        for (final Noleggio n: noleggi) {
+            final NoleggioDTO item = new NoleggioDTO().convertFromModel(n);
+            final ValutazioniPresentiDTO valutazioni = presenti.getOrDefault(n.getId(), new ValutazioniPresentiDTO());
+            item.setValutazioneAlNoleggiatore(valutazioni.isValutazioneAlNoleggiatore());
+            item.setValutazioneAnnuncio(valutazioni.isValutazioneAnnuncio());
+            item.setValutazioneAlNoleggiante(valutazioni.isValutazioneAlNoleggiante());
+            if(item.isValutazioneAlNoleggiante() && item.isValutazioneAlNoleggiatore() && item.isValutazioneAnnuncio()){
+
+                item.setStato("CONCLUSOCONVALUTAZIONE");
+            }
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * Riporta il numero di elementi richiesti per pagina nell'intervallo [1, LIMITE_MASSIMO].
+     *
+     * @param limite numero di elementi richiesti.
+     * @return numero di elementi della pagina.
+     */
+    private int normalizzaLimite(final int limite) {
+        return Math.max(1, Math.min(limite, LIMITE_MASSIMO));
+    }
+
+    /**
+     * Verifica che la data del cursore di paginazione, se specificata, sia nel formato yyyy-mm-dd.
+     *
+     * @param data data del cursore, eventualmente null.
+     * @return true se la data è assente o valida, altrimenti false.
+     */
+    private boolean isDataValida(final String data) {
+        if (data == null) {
+            return true;
+        }
+        try {
+            LocalDate.parse(data);
+            return true;
+        } catch (final DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Converte la data del cursore di paginazione, già verificata con 'isDataValida'.
+     *
+     * @param data data nel formato yyyy-mm-dd, eventualmente null.
+     * @return la data convertita, null se non specificata.
+     */
+    private Date toDate(final String data) {
+        return data == null ? null : Date.valueOf(LocalDate.parse(data));
+    }
 }
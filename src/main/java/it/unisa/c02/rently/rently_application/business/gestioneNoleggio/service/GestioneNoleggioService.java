@@ -1,10 +1,12 @@
 package it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service;
 
+import it.unisa.c02.rently.rently_application.data.dto.RiepilogoMensileDTO;
 import it.unisa.c02.rently.rently_application.data.model.Annuncio;
 import it.unisa.c02.rently.rently_application.data.model.Noleggio;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
 
 import java.sql.Date;
+import java.time.YearMonth;
 import java.util.List;
 
 /**
@@ -44,6 +46,54 @@ public interface GestioneNoleggioService {
      */
     List<Noleggio> getRichiesteByNoleggiatore(final Utente noleggiatore);
 
+    /**
+     * Restituisce una pagina dei noleggi, eccetto le richieste, effettuati da un noleggiante,
+     * ordinati dal più recente per data di richiesta e ID.
+     *
+     * @param noleggiante l'Utente che rappresenta il noleggiante.
+     * @param dataRichiesta data di richiesta dell'ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param id ID dell'ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param limite numero massimo di elementi della pagina.
+     * @return lista di al più 'limite' noleggi successivi al cursore.
+     */
+    List<Noleggio> getNoleggiByNoleggiante(final Utente noleggiante, final Date dataRichiesta, final Long id, final int limite);
+
+    /**
+     * Restituisce una pagina dei noleggi, eccetto le richieste, effettuati da un noleggiatore,
+     * ordinati dal più recente per data di richiesta e ID.
+     *
+     * @param noleggiatore l'Utente che rappresenta il noleggiatore.
+     * @param dataRichiesta data di richiesta dell'ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param id ID dell'ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param limite numero massimo di elementi della pagina.
+     * @return lista di al più 'limite' noleggi successivi al cursore.
+     */
+    List<Noleggio> getNoleggiByNoleggiatore(final Utente noleggiatore, final Date dataRichiesta, final Long id, final int limite);
+
+    /**
+     * Restituisce una pagina delle richieste, anche in stato RIFIUTATA e ACCETTATA, effettuate da un noleggiante,
+     * ordinate dalla più recente per data di richiesta e ID.
+     *
+     * @param noleggiante l'Utente che rappresenta il noleggiante.
+     * @param dataRichiesta data di richiesta dell'ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param id ID dell'ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param limite numero massimo di elementi della pagina.
+     * @return lista di al più 'limite' richieste successive al cursore.
+     */
+    List<Noleggio> getRichiesteByNoleggiante(final Utente noleggiante, final Date dataRichiesta, final Long id, final int limite);
+
+    /**
+     * Restituisce una pagina delle richieste, anche in stato RIFIUTATA e ACCETTATA, effettuate da un noleggiatore,
+     * ordinate dalla più recente per data di richiesta e ID.
+     *
+     * @param noleggiatore l'Utente che rappresenta il noleggiatore.
+     * @param dataRichiesta data di richiesta dell'ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param id ID dell'ultimo elemento della pagina precedente, null per la prima pagina.
+     * @param limite numero massimo di elementi della pagina.
+     * @return lista di al più 'limite' richieste successive al cursore.
+     */
+    List<Noleggio> getRichiesteByNoleggiatore(final Utente noleggiatore, final Date dataRichiesta, final Long id, final int limite);
+
     /**
      * Aggiunge un nuovo Noleggio alla piattaforma.
      *
@@ -78,12 +128,14 @@ public interface GestioneNoleggioService {
     List<Noleggio> checkDisponibilita(final Annuncio annuncio, final Date inizio, final Date fine);
 
     /**
-     * Restituisce tutti i noleggi in stato 'RICHIESTA' e 'RIFIUTATA'.
+     * Elimina un blocco di noleggi in stato 'RICHIESTA' e 'RIFIUTATA' la cui data di richiesta
+     * è precedente o uguale alla soglia specificata.
      *
-     *
-     * @return Noleggio con stato modificato.
+     * @param soglia Data di richiesta massima dei noleggi da eliminare.
+     * @param dimensioneBlocco Numero massimo di noleggi da eliminare.
+     * @return Numero di noleggi eliminati.
      */
-    List<Noleggio> findRichieste ();
+    int deleteRichiesteScadute(final Date soglia, final int dimensioneBlocco);
 
     /**
      * Restituisce i dati del noleggio identificato dal suo ID.
@@ -100,4 +152,15 @@ public interface GestioneNoleggioService {
      * @return Lista di noleggi in corso che dovrebbero essere conclusi.
      */
     List<Noleggio> checkFineNoleggio(final Date dateNow);
+
+    /**
+     * Restituisce i riepiloghi mensili dei guadagni e dell'occupazione degli annunci di un utente.
+     * I riepiloghi sono mantenuti in modo incrementale, quindi il costo è proporzionale al numero di mesi richiesti.
+     *
+     * @param utente l'Utente proprietario degli annunci.
+     * @param da primo mese dell'intervallo.
+     * @param a ultimo mese dell'intervallo.
+     * @return lista dei riepiloghi, ordinati per annuncio e mese; i mesi senza noleggi non sono presenti.
+     */
+    List<RiepilogoMensileDTO> getRiepiloghiMensili(final Utente utente, final YearMonth da, final YearMonth a);
 }
@@ -1,28 +1,71 @@
 package it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service;
 
+import it.unisa.c02.rently.rently_application.commons.services.eventoService.NoleggioEventoService;
 import it.unisa.c02.rently.rently_application.data.dao.GestioneNoleggioDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneRiepilogoMensileDAO;
+import it.unisa.c02.rently.rently_application.data.dto.RiepilogoMensileDTO;
 import it.unisa.c02.rently.rently_application.data.model.Annuncio;
 import it.unisa.c02.rently.rently_application.data.model.Noleggio;
+import it.unisa.c02.rently.rently_application.data.model.RiepilogoMensile;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Date;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementazione del servizio di gestione dei noleggi.
  * Questa classe fornisce implementazioni concrete per i metodi dichiarati nell'interfaccia GestioneNoleggioService.
+ * Ogni creazione, modifica o eliminazione di un noleggio viene registrata nel log degli eventi
+ * nella stessa transazione in cui viene salvata.
  */
 @Service
 @RequiredArgsConstructor
 public class GestioneNoleggioServiceImpl implements GestioneNoleggioService {
 
+    /**
+     * Stati di un noleggio che rappresentano una richiesta.
+     */
+    private static final Set<Noleggio.EnumStato> STATI_RICHIESTA = Collections.unmodifiableSet(
+            EnumSet.of(Noleggio.EnumStato.RICHIESTA, Noleggio.EnumStato.ACCETTATA, Noleggio.EnumStato.RIFIUTATA));
+
+    /**
+     * Stati di un noleggio effettivo, cioè non più una richiesta.
+     */
+    private static final Set<Noleggio.EnumStato> STATI_NOLEGGIO = Collections.unmodifiableSet(
+            EnumSet.complementOf(EnumSet.copyOf(STATI_RICHIESTA)));
+
+    /**
+     * Stati di un noleggio che occupano l'annuncio e ne determinano il guadagno.
+     */
+    private static final Set<Noleggio.EnumStato> STATI_OCCUPANTI = Collections.unmodifiableSet(
+            EnumSet.complementOf(EnumSet.of(Noleggio.EnumStato.RICHIESTA, Noleggio.EnumStato.RIFIUTATA)));
+
     /**
      * Istanza di GestioneNoleggioDAO utilizzata per l'accesso ai dati dei noleggi.
      */
     private final GestioneNoleggioDAO noleggioDAO;
 
+    /**
+     * Servizio per la registrazione delle transizioni nel log degli eventi dei noleggi.
+     */
+    private final NoleggioEventoService eventoService;
+
+    /**
+     * Istanza di GestioneRiepilogoMensileDAO utilizzata per l'accesso ai riepiloghi mensili.
+     */
+    private final GestioneRiepilogoMensileDAO riepilogoDAO;
+
     /**
      * {@inheritDoc}
      */
@@ -59,15 +102,64 @@ public class GestioneNoleggioServiceImpl implements GestioneNoleggioService {
      * {@inheritDoc}
      */
     @Override
+    public List<Noleggio> getNoleggiByNoleggiante(final Utente noleggiante, final Date dataRichiesta, final Long id, final int limite) {
+        if (dataRichiesta == null || id == null) {
+            return noleggioDAO.findPaginaByNoleggiante(noleggiante, STATI_NOLEGGIO, PageRequest.of(0, limite));
+        }
+        return noleggioDAO.findPaginaByNoleggianteDopo(noleggiante, STATI_NOLEGGIO, dataRichiesta, id, PageRequest.of(0, limite));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Noleggio> getNoleggiByNoleggiatore(final Utente noleggiatore, final Date dataRichiesta, final Long id, final int limite) {
+        if (dataRichiesta == null || id == null) {
+            return noleggioDAO.findPaginaByNoleggiatore(noleggiatore, STATI_NOLEGGIO, PageRequest.of(0, limite));
+        }
+        return noleggioDAO.findPaginaByNoleggiatoreDopo(noleggiatore, STATI_NOLEGGIO, dataRichiesta, id, PageRequest.of(0, limite));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Noleggio> getRichiesteByNoleggiante(final Utente noleggiante, final Date dataRichiesta, final Long id, final int limite) {
+        if (dataRichiesta == null || id == null) {
+            return noleggioDAO.findPaginaByNoleggiante(noleggiante, STATI_RICHIESTA, PageRequest.of(0, limite));
+        }
+        return noleggioDAO.findPaginaByNoleggianteDopo(noleggiante, STATI_RICHIESTA, dataRichiesta, id, PageRequest.of(0, limite));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Noleggio> getRichiesteByNoleggiatore(final Utente noleggiatore, final Date dataRichiesta, final Long id, final int limite) {
+        if (dataRichiesta == null || id == null) {
+            return noleggioDAO.findPaginaByNoleggiatore(noleggiatore, STATI_RICHIESTA, PageRequest.of(0, limite));
+        }
+        return noleggioDAO.findPaginaByNoleggiatoreDopo(noleggiatore, STATI_RICHIESTA, dataRichiesta, id, PageRequest.of(0, limite));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
     public Noleggio addNoleggio(final Noleggio noleggio) {
-        return noleggioDAO.save(noleggio);
+        final Noleggio salvato = noleggioDAO.save(noleggio);
+        eventoService.registra(null, salvato);
+        return salvato;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
+    @Transactional
     public void deleteNoleggio(final Noleggio noleggio) {
+        eventoService.registraEliminazioni(List.of(noleggio.getId()));
         noleggioDAO.deleteById(noleggio.getId());
 
     }
@@ -76,8 +168,12 @@ public class GestioneNoleggioServiceImpl implements GestioneNoleggioService {
      * {@inheritDoc}
      */
     @Override
+    @Transactional
     public Noleggio updateStatoNoleggio(final Noleggio noleggio) {
-        return noleggioDAO.save(noleggio);
+        final Noleggio.Istantanea precedente = noleggio.getCaricato();
+        final Noleggio salvato = noleggioDAO.save(noleggio);
+        eventoService.registra(precedente, salvato);
+        return salvato;
     }
 
 
@@ -110,9 +206,50 @@ public class GestioneNoleggioServiceImpl implements GestioneNoleggioService {
      * {@inheritDoc}
      */
     @Override
-    public List<Noleggio> findRichieste() {
+    @Transactional
+    public int deleteRichiesteScadute(final Date soglia, final int dimensioneBlocco) {
+
+        final List<Long> ids = noleggioDAO.findIdRichiesteScadute(
+                EnumSet.of(Noleggio.EnumStato.RICHIESTA, Noleggio.EnumStato.RIFIUTATA),
+                soglia,
+                PageRequest.of(0, dimensioneBlocco));
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        eventoService.registraEliminazioni(ids);
+        return noleggioDAO.deleteByIdIn(ids);
+    }
 
-        return noleggioDAO.findRichieste();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RiepilogoMensileDTO> getRiepiloghiMensili(final Utente utente, final YearMonth da, final YearMonth a) {
+
+        final Map<String, RiepilogoMensileDTO> riepiloghi = new LinkedHashMap<>();
+        for (final RiepilogoMensile item : riepilogoDAO.findByUtenteAndMesi(utente, RiepilogoMensileProiezione.mese(da), RiepilogoMensileProiezione.mese(a))) {
+            final YearMonth mese = YearMonth.of(item.getMese() / 100, item.getMese() % 100);
+            final RiepilogoMensileDTO dto = riepiloghi.computeIfAbsent(item.getIdAnnuncio() + "-" + mese, (final var k) -> {
+                final RiepilogoMensileDTO nuovo = new RiepilogoMensileDTO();
+                nuovo.setIdAnnuncio(item.getIdAnnuncio());
+                nuovo.setMese(mese.toString());
+                nuovo.setGiorniMese(mese.lengthOfMonth());
+                return nuovo;
+            });
+
+            if (item.getNumero() != 0) {
+                dto.getNoleggiPerStato().put(item.getStato().name(), item.getNumero());
+            }
+            if (STATI_OCCUPANTI.contains(item.getStato())) {
+                dto.setRicavo(dto.getRicavo().add(item.getRicavo()));
+                dto.setGiorniOccupati(dto.getGiorniOccupati() + item.getGiorni());
+            }
+        }
+
+        riepiloghi.values().forEach((final var dto) ->
+                dto.setOccupazione(Math.min(100.0, dto.getGiorniOccupati() * 100.0 / dto.getGiorniMese())));
+        return new ArrayList<>(riepiloghi.values());
     }
 
 }
@@ -0,0 +1,175 @@
+package it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service;
+
+import it.unisa.c02.rently.rently_application.commons.services.eventoService.NoleggioProiezione;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneNoleggioDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneNoleggioEventoDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneRiepilogoMensileDAO;
+import it.unisa.c02.rently.rently_application.data.model.Noleggio;
+import it.unisa.c02.rently.rently_application.data.model.NoleggioEvento;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proiezione del log degli eventi dei noleggi che mantiene i riepiloghi mensili per annuncio.
+ * Ogni evento sottrae il contributo dei valori precedenti del noleggio e somma quello dei valori nuovi.
+ * Il noleggio viene contato nel mese di inizio, mentre giorni e prezzo totale vengono ripartiti
+ * sui mesi coperti dal periodo di noleggio, estremi inclusi.
+ */
+@Component
+@RequiredArgsConstructor
+public class RiepilogoMensileProiezione implements NoleggioProiezione {
+
+    /**
+     * Istanza di GestioneRiepilogoMensileDAO utilizzata per l'accesso ai riepiloghi.
+     */
+    private final GestioneRiepilogoMensileDAO riepilogoDAO;
+
+    /**
+     * Istanza di GestioneNoleggioDAO utilizzata per la ricostruzione dei riepiloghi.
+     */
+    private final GestioneNoleggioDAO noleggioDAO;
+
+    /**
+     * Istanza di GestioneNoleggioEventoDAO utilizzata per la ricostruzione dei riepiloghi.
+     */
+    private final GestioneNoleggioEventoDAO eventoDAO;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNome() {
+        return "riepilogoMensile";
+    }
+
+    /**
+     * {@inheritDoc}
+     * Le variazioni del blocco vengono raggruppate per annuncio, mese e stato prima di essere scritte.
+     */
+    @Override
+    public void applica(final List<NoleggioEvento> eventi) {
+        final Map<Chiave, Variazione> variazioni = new HashMap<>();
+        for (final NoleggioEvento evento : eventi) {
+            accumula(variazioni, evento.getPrecedente(), -1);
+            accumula(variazioni, evento.getNuovo(), 1);
+        }
+        scrivi(variazioni);
+    }
+
+    /**
+     * {@inheritDoc}
+     * I riepiloghi vengono ricostruiti dai noleggi attuali, che riflettono tutti gli eventi registrati fino a quel momento.
+     */
+    @Override
+    public long inizializza() {
+        final long ultimoEvento = eventoDAO.findUltimoId();
+
+        riepilogoDAO.deleteAllInBatch();
+        final Map<Chiave, Variazione> variazioni = new HashMap<>();
+        for (final Object[] riga : noleggioDAO.findValoriRiepilogo()) {
+            accumula(variazioni, new Noleggio.Istantanea(
+                    (Noleggio.EnumStato) riga[1],
+                    (BigDecimal) riga[2],
+                    (Date) riga[3],
+                    (Date) riga[4],
+                    (Long) riga[0]), 1);
+        }
+        scrivi(variazioni);
+
+        return ultimoEvento;
+    }
+
+    /**
+     * Somma alle variazioni il contributo di un noleggio, moltiplicato per il segno specificato.
+     *
+     * @param variazioni Variazioni raggruppate per annuncio, mese e stato.
+     * @param noleggio Valori del noleggio, null se assenti.
+     * @param segno 1 per aggiungere il contributo, -1 per sottrarlo.
+     */
+    private void accumula(final Map<Chiave, Variazione> variazioni, final Noleggio.Istantanea noleggio, final int segno) {
+        if (noleggio == null || noleggio.idAnnuncio() == null || noleggio.stato() == null
+                || noleggio.dataInizio() == null || noleggio.dataFine() == null) {
+            return;
+        }
+
+        final LocalDate inizio = noleggio.dataInizio().toLocalDate();
+        final LocalDate fine = noleggio.dataFine().toLocalDate();
+        final long giorniTotali = Math.max(ChronoUnit.DAYS.between(inizio, fine) + 1, 1);
+        final BigDecimal prezzo = noleggio.prezzoTotale() != null ? noleggio.prezzoTotale() : BigDecimal.ZERO;
+
+        variazioni.computeIfAbsent(new Chiave(noleggio.idAnnuncio(), mese(YearMonth.from(inizio)), noleggio.stato()), (final var k) -> new Variazione())
+                .numero += segno;
+
+        BigDecimal ripartito = BigDecimal.ZERO;
+        YearMonth corrente = YearMonth.from(inizio);
+        final YearMonth ultimo = YearMonth.from(fine);
+        while (!corrente.isAfter(ultimo)) {
+            final LocalDate da = corrente.equals(YearMonth.from(inizio)) ? inizio : corrente.atDay(1);
+            final LocalDate a = corrente.equals(ultimo) ? fine : corrente.atEndOfMonth();
+            final long giorni = Math.max(ChronoUnit.DAYS.between(da, a) + 1, 0);
+
+            final BigDecimal ricavo = corrente.equals(ultimo)
+                    ? prezzo.subtract(ripartito)
+                    : prezzo.multiply(BigDecimal.valueOf(giorni)).divide(BigDecimal.valueOf(giorniTotali), 2, RoundingMode.HALF_UP);
+            ripartito = ripartito.add(ricavo);
+
+            final Variazione variazione = variazioni.computeIfAbsent(new Chiave(noleggio.idAnnuncio(), mese(corrente), noleggio.stato()), (final var k) -> new Variazione());
+            variazione.giorni += segno * giorni;
+            variazione.ricavo = variazione.ricavo.add(ricavo.multiply(BigDecimal.valueOf(segno)));
+
+            corrente = corrente.plusMonths(1);
+        }
+    }
+
+    /**
+     * Scrive le variazioni non nulle sui riepiloghi.
+     *
+     * @param variazioni Variazioni raggruppate per annuncio, mese e stato.
+     */
+    private void scrivi(final Map<Chiave, Variazione> variazioni) {
+        variazioni.forEach((final var chiave, final var variazione) -> {
+            if (variazione.numero != 0 || variazione.giorni != 0 || variazione.ricavo.signum() != 0) {
+                riepilogoDAO.incrementa(chiave.idAnnuncio(), chiave.mese(), chiave.stato().name(),
+                        variazione.numero, variazione.giorni, variazione.ricavo);
+            }
+        });
+    }
+
+    /**
+     * Converte un mese nel formato aaaamm utilizzato dai riepiloghi.
+     *
+     * @param mese Mese da convertire.
+     * @return Mese nel formato aaaamm.
+     */
+    static int mese(final YearMonth mese) {
+        return mese.getYear() * 100 + mese.getMonthValue();
+    }
+
+    /**
+     * Chiave di un riepilogo.
+     * @param idAnnuncio ID dell'annuncio.
+     * @param mese Mese nel formato aaaamm.
+     * @param stato Stato dei noleggi.
+     */
+    private record Chiave(long idAnnuncio, int mese, Noleggio.EnumStato stato) {
+    }
+
+    /**
+     * Variazione da sommare a un riepilogo.
+     */
+    private static final class Variazione {
+        private long numero;
+        private long giorni;
+        private BigDecimal ricavo = BigDecimal.ZERO;
+    }
+}
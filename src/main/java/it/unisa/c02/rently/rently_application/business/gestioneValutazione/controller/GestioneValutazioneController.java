@@ -2,9 +2,12 @@ package it.unisa.c02.rently.rently_application.business.gestioneValutazione.cont
 import it.unisa.c02.rently.rently_application.business.gestioneAnnuncio.service.GestioneAnnuncioService;
 import it.unisa.c02.rently.rently_application.business.gestioneAreaPersonale.service.GestioneAreaPersonaleService;
 import it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service.GestioneNoleggioService;
+import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.ClassificaAnnunciService;
 import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.GestioneValutazioneService;
 import it.unisa.c02.rently.rently_application.commons.services.regexService.RegexTester;
 import it.unisa.c02.rently.rently_application.commons.services.responseService.ResponseService;
+import it.unisa.c02.rently.rently_application.data.dto.ClassificaAnnuncioDTO;
+import it.unisa.c02.rently.rently_application.data.dto.MediaValutazioniDTO;
 import it.unisa.c02.rently.rently_application.data.dto.ResponseDTO;
 import it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO;
 import it.unisa.c02.rently.rently_application.data.model.Annuncio;
@@ -66,6 +69,21 @@ public class GestioneValutazioneController {
      */
     private final GestioneNoleggioService noleggioService;
 
+    /**
+     * Service per la classifica degli annunci meglio valutati.
+     */
+    private final ClassificaAnnunciService classificaService;
+
+    /**
+     * Numero massimo di utenti o annunci di cui è possibile richiedere le medie con una singola richiesta.
+     */
+    private static final int LIMITE_MEDIE = 100;
+
+    /**
+     * Numero massimo di valutazioni restituite in una pagina.
+     */
+    private static final int LIMITE_MASSIMO = 100;
+
     /**
      * Endpoint per aggiungere una valutazione di un utente.
      *
@@ -110,11 +128,23 @@ public class GestioneValutazioneController {
     /**
      * Endpoint per visualizzare le valutazioni di un utente.
      *
+     * Se viene specificato 'limite' viene restituita una sola pagina, dalla valutazione più recente
+     * o da quella precedente a 'idValutazione'.
+     *
      * @param valutato Identificativo dell'utente valutato.
+     * @param limite numero massimo di valutazioni da restituire; se assente vengono restituite tutte le valutazioni.
+     * @param idValutazione ID dell'ultima valutazione della pagina precedente.
      * @return ResponseEntity contenente la lista delle valutazioni dell'utente nel formato JSON.
      */
     @GetMapping("/visualizza-valutazioni-utente")
-    public ResponseEntity<String> visualizzaValutazioniUtente(@RequestParam final long valutato){
+    public ResponseEntity<String> visualizzaValutazioniUtente(@RequestParam final long valutato,
+                                                              @RequestParam(required = false) final Integer limite,
+                                                              @RequestParam(required = false) final Long idValutazione){
+
+        if(limite != null){
+            final List<ValutazioneDTO> list = valutazioneService.findPaginaByUtente(valutato, idValutazione, normalizzaLimite(limite));
+            return responseService.Ok(list);
+        }
 
         final Utente utente = areaPersonaleService.getDatiPrivati(valutato);
         if(utente!= null){
@@ -148,6 +178,40 @@ public class GestioneValutazioneController {
             return responseService.InternalError();
     }
 
+    /**
+     * Endpoint per visualizzare la distribuzione dei voti da 0 a 10 delle valutazioni di un utente.
+     *
+     * @param valutato Identificativo dell'utente valutato.
+     * @return ResponseEntity contenente il numero di valutazioni per ciascun voto nel formato JSON.
+     */
+    @GetMapping("/visualizza-istogramma-valutazioni-utente")
+    public ResponseEntity<String> visualizzaIstogrammaValutazioniUtente(@RequestParam final long valutato){
+
+        final Utente utente = areaPersonaleService.getDatiPrivati(valutato);
+        if(utente!= null){
+            final int[] istogramma = valutazioneService.istogrammaValutazioniByUtente(utente.getId());
+            return responseService.Ok(istogramma);
+        }
+        else
+            return responseService.InternalError();
+    }
+
+    /**
+     * Endpoint per visualizzare media e numero delle valutazioni di più utenti con una singola richiesta.
+     *
+     * @param ids Identificativi degli utenti valutati, al più LIMITE_MEDIE.
+     * @return ResponseEntity contenente la lista delle medie nel formato JSON, nell'ordine degli ID richiesti.
+     */
+    @GetMapping("/visualizza-medie-valutazioni-utenti")
+    public ResponseEntity<String> visualizzaMedieValutazioniUtenti(@RequestParam final List<Long> ids){
+
+        if(ids.size() > LIMITE_MEDIE){
+            return responseService.InternalError();
+        }
+        final List<MediaValutazioniDTO> list = valutazioneService.medieValutazioniByUtenti(ids);
+        return responseService.Ok(list);
+    }
+
     /**
      * Endpoint per aggiungere una valutazione di un annuncio.
      *
@@ -191,11 +255,23 @@ public class GestioneValutazioneController {
     /**
      * Endpoint per visualizzare le valutazioni di un annuncio.
      *
+     * Se viene specificato 'limite' viene restituita una sola pagina, dalla valutazione più recente
+     * o da quella precedente a 'idValutazione'.
+     *
      * @param id Identificativo dell'annuncio.
+     * @param limite numero massimo di valutazioni da restituire; se assente vengono restituite tutte le valutazioni.
+     * @param idValutazione ID dell'ultima valutazione della pagina precedente.
      * @return ResponseEntity contenente la lista delle valutazioni dell'annuncio nel formato JSON.
      */
     @GetMapping("/visualizza-valutazioni-annuncio")
-    public ResponseEntity<String> visualizzaValutazioniAnnuncio(@RequestParam final long id){
+    public ResponseEntity<String> visualizzaValutazioniAnnuncio(@RequestParam final long id,
+                                                                @RequestParam(required = false) final Integer limite,
+                                                                @RequestParam(required = false) final Long idValutazione){
+
+        if(limite != null){
+            final List<ValutazioneDTO> list = valutazioneService.findPaginaByAnnuncio(id, idValutazione, normalizzaLimite(limite));
+            return responseService.Ok(list);
+        }
 
         final Annuncio annuncio = annuncioService.getAnnuncio(id).orElse(null);
 
@@ -229,4 +305,68 @@ public class GestioneValutazioneController {
         else
             return responseService.InternalError();
     }
+
+    /**
+     * Endpoint per visualizzare la distribuzione dei voti da 0 a 10 delle valutazioni di un annuncio.
+     *
+     * @param id Identificativo dell'annuncio.
+     * @return ResponseEntity contenente il numero di valutazioni per ciascun voto nel formato JSON.
+     */
+    @GetMapping("/visualizza-istogramma-valutazioni-annuncio")
+    public ResponseEntity<String> visualizzaIstogrammaValutazioniAnnuncio(@RequestParam final long id){
+
+        final Annuncio annuncio = annuncioService.getAnnuncio(id).orElse(null);
+        if(annuncio!= null){
+            final int[] istogramma = valutazioneService.istogrammaValutazioniByAnnuncio(annuncio.getId());
+            return responseService.Ok(istogramma);
+        }
+        else
+            return responseService.InternalError();
+    }
+
+    /**
+     * Endpoint per visualizzare media e numero delle valutazioni di più annunci con una singola richiesta.
+     *
+     * @param ids Identificativi degli annunci, al più LIMITE_MEDIE.
+     * @return ResponseEntity contenente la lista delle medie nel formato JSON, nell'ordine degli ID richiesti.
+     */
+    @GetMapping("/visualizza-medie-valutazioni-annunci")
+    public ResponseEntity<String> visualizzaMedieValutazioniAnnunci(@RequestParam final List<Long> ids){
+
+        if(ids.size() > LIMITE_MEDIE){
+            return responseService.InternalError();
+        }
+        final List<MediaValutazioniDTO> list = valutazioneService.medieValutazioniByAnnunci(ids);
+        return responseService.Ok(list);
+    }
+
+    /**
+     * Endpoint per visualizzare gli annunci meglio valutati, ordinati per media bayesiana dei voti.
+     *
+     * @param categoria categoria degli annunci; se assente vengono considerate tutte le categorie.
+     * @param limite numero massimo di annunci da restituire.
+     * @return ResponseEntity contenente la classifica degli annunci nel formato JSON.
+     */
+    @GetMapping("/annunci-migliori")
+    public ResponseEntity<String> visualizzaAnnunciMigliori(@RequestParam(required = false) final String categoria,
+                                                            @RequestParam(defaultValue = "10") final int limite){
+        try {
+            final Annuncio.EnumCategoria filtro = categoria == null ? null : Annuncio.EnumCategoria.valueOf(categoria);
+            final List<ClassificaAnnuncioDTO> list = classificaService.getMigliori(filtro, normalizzaLimite(limite));
+            return responseService.Ok(list);
+        }
+        catch (final IllegalArgumentException ex) {
+            return responseService.InternalError();
+        }
+    }
+
+    /**
+     * Riporta il numero di elementi richiesti per pagina nell'intervallo [1, LIMITE_MASSIMO].
+     *
+     * @param limite numero di elementi richiesti.
+     * @return numero di elementi della pagina.
+     */
+    private int normalizzaLimite(final int limite) {
+        return Math.max(1, Math.min(limite, LIMITE_MASSIMO));
+    }
 }
@@ -0,0 +1,34 @@
+package it.unisa.c02.rently.rently_application.business.gestioneValutazione.service;
+
+import it.unisa.c02.rently.rently_application.data.dto.ClassificaAnnuncioDTO;
+import it.unisa.c02.rently.rently_application.data.model.Annuncio;
+
+import java.util.List;
+
+/**
+ * Questa interfaccia definisce le specifiche per il servizio che mantiene la classifica degli annunci meglio valutati.
+ */
+public interface ClassificaAnnunciService {
+
+    /**
+     * Restituisce gli annunci meglio valutati, ordinati per punteggio decrescente.
+     *
+     * @param categoria Categoria degli annunci, null per considerare tutte le categorie.
+     * @param limite Numero massimo di annunci da restituire.
+     * @return Lista degli annunci meglio valutati.
+     */
+    List<ClassificaAnnuncioDTO> getMigliori(final Annuncio.EnumCategoria categoria, final int limite);
+
+    /**
+     * Aggiorna la posizione di un annuncio nella classifica a partire dal suo aggregato delle valutazioni.
+     *
+     * @param idAnnuncio ID dell'annuncio.
+     * @param categoria Categoria dell'annuncio.
+     */
+    void aggiorna(final long idAnnuncio, final Annuncio.EnumCategoria categoria);
+
+    /**
+     * Ricostruisce la classifica da tutti gli aggregati delle valutazioni, ricalcolando la media globale dei voti.
+     */
+    void ricostruisci();
+}
@@ -0,0 +1,240 @@
+package it.unisa.c02.rently.rently_application.business.gestioneValutazione.service;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAggregatoValutazioniAnnuncioDAO;
+import it.unisa.c02.rently.rently_application.data.dto.ClassificaAnnuncioDTO;
+import it.unisa.c02.rently.rently_application.data.model.AggregatoValutazioniAnnuncio;
+import it.unisa.c02.rently.rently_application.data.model.Annuncio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Implementazione del servizio che mantiene la classifica degli annunci meglio valutati.
+ * Gli annunci sono ordinati per media bayesiana dei voti: (C * m + somma) / (C + numero), dove m è la media globale
+ * dei voti e C il peso attribuito a essa, così che pochi voti alti non superino molti voti di poco inferiori.
+ * La classifica è mantenuta in memoria in insiemi ordinati, globali e per categoria: ogni valutazione aggiorna
+ * la posizione del proprio annuncio, mentre una ricostruzione periodica ricalcola la media globale
+ * e raccoglie le valutazioni registrate da altri nodi.
+ * Gli annunci aggiornati durante una ricostruzione vengono riletti prima di sostituire la classifica,
+ * così che la nuova classifica non contenga valori precedenti all'aggiornamento.
+ */
+@Service
+public class ClassificaAnnunciServiceImpl implements ClassificaAnnunciService {
+
+    /**
+     * Ordinamento della classifica: punteggio decrescente e, a parità di punteggio, ID crescente.
+     */
+    private static final Comparator<Voce> ORDINE = Comparator.comparingDouble(Voce::punteggio).reversed()
+            .thenComparingLong(Voce::idAnnuncio);
+
+    /**
+     * Media dei voti utilizzata prima della prima ricostruzione.
+     */
+    private static final double MEDIA_INIZIALE = 5.0;
+
+    /**
+     * Istanza di GestioneAggregatoValutazioniAnnuncioDAO utilizzata per l'accesso agli aggregati degli annunci.
+     */
+    private final GestioneAggregatoValutazioniAnnuncioDAO aggregatoDAO;
+
+    /**
+     * Peso attribuito alla media globale, espresso come numero di valutazioni fittizie.
+     */
+    private final double pesoPrior;
+
+    /**
+     * Classifica corrente, sostituita a ogni ricostruzione.
+     */
+    private volatile Classifica classifica = new Classifica(MEDIA_INIZIALE);
+
+    /**
+     * Annunci aggiornati durante la ricostruzione in corso, con la loro categoria; null se non è in corso una ricostruzione.
+     * Accessibile solo sotto il lock del servizio.
+     */
+    private Map<Long, Annuncio.EnumCategoria> aggiornatiInRicostruzione;
+
+    /**
+     * Lock che impedisce l'esecuzione di più ricostruzioni contemporanee.
+     */
+    private final Object ricostruzione = new Object();
+
+    /**
+     * Costruttore del servizio.
+     *
+     * @param aggregatoDAO DAO degli aggregati delle valutazioni degli annunci.
+     * @param pesoPrior Peso attribuito alla media globale.
+     */
+    public ClassificaAnnunciServiceImpl(final GestioneAggregatoValutazioniAnnuncioDAO aggregatoDAO,
+                                        @Value("${valutazione.classifica.peso-prior:10}") final double pesoPrior) {
+        this.aggregatoDAO = aggregatoDAO;
+        this.pesoPrior = pesoPrior;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ClassificaAnnuncioDTO> getMigliori(final Annuncio.EnumCategoria categoria, final int limite) {
+        final Classifica corrente = classifica;
+        final NavigableSet<Voce> voci = categoria == null
+                ? corrente.tutte
+                : corrente.perCategoria.getOrDefault(categoria, Collections.emptyNavigableSet());
+
+        return voci.stream()
+                .limit(limite)
+                .map((final var v) -> new ClassificaAnnuncioDTO(v.idAnnuncio(),
+                        v.categoria() != null ? v.categoria().name() : null,
+                        v.punteggio(),
+                        v.numero() == 0 ? 0 : (double) v.somma() / v.numero(),
+                        v.numero()))
+                .toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void aggiorna(final long idAnnuncio, final Annuncio.EnumCategoria categoria) {
+        synchronized (this) {
+            applica(classifica, idAnnuncio, categoria);
+            if (aggiornatiInRicostruzione != null) {
+                aggiornatiInRicostruzione.put(idAnnuncio, categoria);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${valutazione.classifica.intervallo-ricostruzione:600000}")
+    public void ricostruisci() {
+        synchronized (ricostruzione) {
+            try {
+                synchronized (this) {
+                    aggiornatiInRicostruzione = new HashMap<>();
+                }
+                ricostruisciClassifica();
+            } catch (final Exception ex) {
+                ex.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    aggiornatiInRicostruzione = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Costruisce una nuova classifica da tutti gli aggregati e la sostituisce a quella corrente,
+     * dopo aver riletto gli annunci aggiornati nel frattempo.
+     */
+    private void ricostruisciClassifica() {
+        final List<Object[]> righe = aggregatoDAO.findClassifica();
+
+        long somma = 0;
+        long numero = 0;
+        for (final Object[] riga : righe) {
+            somma += ((Number) riga[1]).longValue();
+            numero += ((Number) riga[2]).longValue();
+        }
+
+        final Classifica nuova = new Classifica(numero == 0 ? MEDIA_INIZIALE : (double) somma / numero);
+        for (final Object[] riga : righe) {
+            nuova.inserisci((Long) riga[0], (Annuncio.EnumCategoria) riga[3],
+                    ((Number) riga[1]).longValue(), ((Number) riga[2]).longValue());
+        }
+
+        synchronized (this) {
+            aggiornatiInRicostruzione.forEach((final var idAnnuncio, final var categoria) -> applica(nuova, idAnnuncio, categoria));
+            classifica = nuova;
+        }
+    }
+
+    /**
+     * Aggiorna la posizione di un annuncio in una classifica rileggendone l'aggregato.
+     * Va invocato sotto il lock del servizio, così che letture e modifiche di aggiornamenti concorrenti
+     * dello stesso annuncio non vengano applicate in ordine inverso.
+     *
+     * @param destinazione Classifica da aggiornare.
+     * @param idAnnuncio ID dell'annuncio.
+     * @param categoria Categoria dell'annuncio.
+     */
+    private void applica(final Classifica destinazione, final long idAnnuncio, final Annuncio.EnumCategoria categoria) {
+        final Optional<AggregatoValutazioniAnnuncio> aggregato = aggregatoDAO.findById(idAnnuncio);
+        destinazione.rimuovi(idAnnuncio);
+        aggregato.filter((final var a) -> a.getNumero() > 0)
+                .ifPresent((final var a) -> destinazione.inserisci(idAnnuncio, categoria, a.getSomma(), a.getNumero()));
+    }
+
+    /**
+     * Posizione di un annuncio nella classifica.
+     * @param idAnnuncio ID dell'annuncio.
+     * @param categoria Categoria dell'annuncio.
+     * @param somma Somma dei voti.
+     * @param numero Numero di valutazioni.
+     * @param punteggio Media bayesiana dei voti.
+     */
+    private record Voce(long idAnnuncio, Annuncio.EnumCategoria categoria, long somma, long numero, double punteggio) {
+    }
+
+    /**
+     * Insiemi ordinati della classifica, calcolati con una stessa media globale.
+     * Le letture sono concorrenti, le modifiche vengono eseguite sotto il lock del servizio.
+     */
+    private final class Classifica {
+
+        /**
+         * Media globale dei voti.
+         */
+        private final double mediaPrior;
+
+        /**
+         * Voci della classifica per ID dell'annuncio.
+         */
+        private final Map<Long, Voce> voci = new ConcurrentHashMap<>();
+
+        /**
+         * Voci di tutte le categorie, in ordine di classifica.
+         */
+        private final NavigableSet<Voce> tutte = new ConcurrentSkipListSet<>(ORDINE);
+
+        /**
+         * Voci di ogni categoria, in ordine di classifica.
+         */
+        private final Map<Annuncio.EnumCategoria, NavigableSet<Voce>> perCategoria = new ConcurrentHashMap<>();
+
+        private Classifica(final double mediaPrior) {
+            this.mediaPrior = mediaPrior;
+        }
+
+        private void inserisci(final long idAnnuncio, final Annuncio.EnumCategoria categoria, final long somma, final long numero) {
+            final Voce voce = new Voce(idAnnuncio, categoria, somma, numero, (pesoPrior * mediaPrior + somma) / (pesoPrior + numero));
+            voci.put(idAnnuncio, voce);
+            tutte.add(voce);
+            if (categoria != null) {
+                perCategoria.computeIfAbsent(categoria, (final var c) -> new ConcurrentSkipListSet<>(ORDINE)).add(voce);
+            }
+        }
+
+        private void rimuovi(final long idAnnuncio) {
+            final Voce voce = voci.remove(idAnnuncio);
+            if (voce != null) {
+                tutte.remove(voce);
+                if (voce.categoria() != null) {
+                    perCategoria.get(voce.categoria()).remove(voce);
+                }
+            }
+        }
+    }
+}
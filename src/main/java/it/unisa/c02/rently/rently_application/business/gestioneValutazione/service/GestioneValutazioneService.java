@@ -1,8 +1,13 @@
 package it.unisa.c02.rently.rently_application.business.gestioneValutazione.service;
 
+import it.unisa.c02.rently.rently_application.data.dto.MediaValutazioniDTO;
+import it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO;
+import it.unisa.c02.rently.rently_application.data.dto.ValutazioniPresentiDTO;
 import it.unisa.c02.rently.rently_application.data.model.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Questa interfaccia definisce le specifiche per i servizi dedicati alla gestione della valutazione.
@@ -33,13 +38,39 @@ public interface GestioneValutazioneService {
     List<ValutazioneUtente> findAllByUtente(final Utente valutato);
 
     /**
-     * Calcola la media delle valutazioni associate a un utente specifico.
+     * Restituisce una pagina delle valutazioni associate a un utente, dalla più recente.
+     *
+     * @param idValutato ID dell'utente valutato.
+     * @param prima ID dell'ultima valutazione della pagina precedente, null per la prima pagina.
+     * @param limite numero massimo di valutazioni da restituire.
+     * @return Lista delle valutazioni della pagina.
+     */
+    List<ValutazioneDTO> findPaginaByUtente(final long idValutato, final Long prima, final int limite);
+
+    /**
+     * Restituisce la media delle valutazioni associate a un utente specifico.
      *
      * @param valutato Utente specifico.
-     * @return Media delle valutazioni dell'utente specificato.
+     * @return Media delle valutazioni dell'utente specificato, 0 se non ci sono valutazioni.
      */
     double mediaValutazioniUtenteByUtente(final Utente valutato);
 
+    /**
+     * Restituisce media e numero delle valutazioni di più utenti con al più due query.
+     *
+     * @param idUtenti Identificativi degli utenti.
+     * @return Lista con media e numero delle valutazioni di ogni utente, nell'ordine degli ID specificati.
+     */
+    List<MediaValutazioniDTO> medieValutazioniByUtenti(final Collection<Long> idUtenti);
+
+    /**
+     * Restituisce la distribuzione dei voti delle valutazioni associate a un utente specifico.
+     *
+     * @param idUtente ID dell'utente valutato.
+     * @return Array di 11 elementi in cui l'elemento i-esimo è il numero di valutazioni con voto i.
+     */
+    int[] istogrammaValutazioniByUtente(final long idUtente);
+
     /**
      * Aggiunge una valutazione dell'oggetto sulla piattaforma.
      *
@@ -64,13 +95,39 @@ public interface GestioneValutazioneService {
     List<ValutazioneOggetto> findAllByAnnuncio(final Annuncio annuncio);
 
     /**
-     * Calcola la media delle valutazioni associate a un annuncio specifico.
+     * Restituisce una pagina delle valutazioni associate a un annuncio, dalla più recente.
+     *
+     * @param idAnnuncio ID dell'annuncio.
+     * @param prima ID dell'ultima valutazione della pagina precedente, null per la prima pagina.
+     * @param limite numero massimo di valutazioni da restituire.
+     * @return Lista delle valutazioni della pagina.
+     */
+    List<ValutazioneDTO> findPaginaByAnnuncio(final long idAnnuncio, final Long prima, final int limite);
+
+    /**
+     * Restituisce la media delle valutazioni associate a un annuncio specifico.
      *
      * @param annuncio Annuncio specifico.
-     * @return Media delle valutazioni dell'annuncio specificato.
+     * @return Media delle valutazioni dell'annuncio specificato, 0 se non ci sono valutazioni.
      */
     double mediaValutazioniOggettoByAnnuncio(final Annuncio annuncio);
 
+    /**
+     * Restituisce media e numero delle valutazioni di più annunci con al più due query.
+     *
+     * @param idAnnunci Identificativi degli annunci.
+     * @return Lista con media e numero delle valutazioni di ogni annuncio, nell'ordine degli ID specificati.
+     */
+    List<MediaValutazioniDTO> medieValutazioniByAnnunci(final Collection<Long> idAnnunci);
+
+    /**
+     * Restituisce la distribuzione dei voti delle valutazioni associate a un annuncio specifico.
+     *
+     * @param idAnnuncio ID dell'annuncio valutato.
+     * @return Array di 11 elementi in cui l'elemento i-esimo è il numero di valutazioni con voto i.
+     */
+    int[] istogrammaValutazioniByAnnuncio(final long idAnnuncio);
+
     /**
      * Verifica se esiste una valutazione associata al noleggiante in un noleggio specifico.
      *
@@ -94,4 +151,13 @@ public interface GestioneValutazioneService {
      * @return true se esiste una valutazione associata all'annuncio, altrimenti false.
      */
     boolean valutazioneAnnuncioIsPresent(final Noleggio n);
+
+    /**
+     * Verifica, per un insieme di noleggi, quali valutazioni sono già presenti, con un numero di query
+     * indipendente dal numero di noleggi.
+     *
+     * @param idNoleggi Identificativi dei noleggi.
+     * @return Mappa che associa a ogni ID di noleggio le valutazioni presenti.
+     */
+    Map<Long, ValutazioniPresentiDTO> valutazioniPresentiByNoleggi(final Collection<Long> idNoleggi);
 }
@@ -1,17 +1,38 @@
 package it.unisa.c02.rently.rently_application.business.gestioneValutazione.service;
 
 
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAggregatoValutazioniAnnuncioDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAggregatoValutazioniUtenteDAO;
 import it.unisa.c02.rently.rently_application.data.dao.GestioneValutazioneOggettoDAO;
 import it.unisa.c02.rently.rently_application.data.dao.GestioneValutazioneUtenteDAO;
+import it.unisa.c02.rently.rently_application.data.dto.MediaValutazioniDTO;
+import it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO;
+import it.unisa.c02.rently.rently_application.data.dto.ValutazioniPresentiDTO;
 import it.unisa.c02.rently.rently_application.data.model.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Implementazione del servizio di gestione della valutazione.
  * Questa classe fornisce implementazioni concrete per i metodi dichiarati nell'interfaccia GestioneValutazioneService.
+ * Somma e numero dei voti di ogni utente e annuncio vengono aggiornati nella stessa transazione
+ * in cui una valutazione viene aggiunta o eliminata. L'aggiunta crea l'aggregato mancante con lo stesso aggiornamento
+ * atomico, così che due prime valutazioni concorrenti non lo creino entrambe; gli aggregati di utenti e annunci
+ * valutati prima della loro introduzione vengono allineati dalla verifica periodica.
+ * Le letture non modificano il database: per un aggregato mancante i valori vengono calcolati dalle valutazioni.
  */
 @Service
 @RequiredArgsConstructor
@@ -27,20 +48,45 @@ public class GestioneValutazioneServiceImpl implements GestioneValutazioneServic
      */
     private final GestioneValutazioneOggettoDAO valutazioneOggettoDAO;
 
+    /**
+     * L'istanza di GestioneAggregatoValutazioniUtenteDAO utilizzata per l'accesso agli aggregati delle valutazioni di utenti.
+     */
+    private final GestioneAggregatoValutazioniUtenteDAO aggregatoUtenteDAO;
+
+    /**
+     * L'istanza di GestioneAggregatoValutazioniAnnuncioDAO utilizzata per l'accesso agli aggregati delle valutazioni di oggetti.
+     */
+    private final GestioneAggregatoValutazioniAnnuncioDAO aggregatoAnnuncioDAO;
+
+    /**
+     * Servizio che mantiene la classifica degli annunci meglio valutati.
+     */
+    private final ClassificaAnnunciService classificaService;
+
     /**
      * {@inheritDoc}
      */
     @Override
+    @Transactional
     public ValutazioneUtente addValutazioneUtente (final ValutazioneUtente valutazione){
-        return valutazioneUtenteDAO.save(valutazione);
+        final ValutazioneUtente salvata = valutazioneUtenteDAO.save(valutazione);
+        final long idValutato = salvata.getValutato().getId();
+        aggregatoUtenteDAO.aggiungiVoto(idValutato, IstogrammaVoti.limita(salvata.getVoto()));
+        return salvata;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
+    @Transactional
     public void deleteValutazioneUtente(final ValutazioneUtente valutazione) {
-        valutazioneUtenteDAO.deleteById(valutazione.getId());
+        valutazioneUtenteDAO.findById(valutazione.getId()).ifPresent((final var presente) -> {
+            valutazioneUtenteDAO.delete(presente);
+            if (presente.getValutato() != null) {
+                aggregatoUtenteDAO.rimuoviVoto(presente.getValutato().getId(), IstogrammaVoti.limita(presente.getVoto()));
+            }
+        });
     }
 
     /**
@@ -51,28 +97,80 @@ public class GestioneValutazioneServiceImpl implements GestioneValutazioneServic
         return valutazioneUtenteDAO.findByValutato(valutato);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ValutazioneDTO> findPaginaByUtente(final long idValutato, final Long prima, final int limite) {
+        if (prima == null) {
+            return valutazioneUtenteDAO.findPaginaByValutato(idValutato, PageRequest.of(0, limite));
+        }
+        return valutazioneUtenteDAO.findPaginaByValutatoPrima(idValutato, prima, PageRequest.of(0, limite));
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public double mediaValutazioniUtenteByUtente(final Utente valutato) {
-        return valutazioneUtenteDAO.mediaValutazioniUtenteById(valutato.getId());
+        return aggregatoUtenteDAO.findById(valutato.getId())
+                .map(AggregatoValutazioniUtente::getMedia)
+                .orElseGet(() -> media(valutazioneUtenteDAO.sommeVoti(List.of(valutato.getId()))));
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
+    public int[] istogrammaValutazioniByUtente(final long idUtente) {
+        return aggregatoUtenteDAO.findById(idUtente)
+                .map((final var a) -> a.getIstogramma().toArray())
+                .orElseGet(() -> istogramma(valutazioneUtenteDAO.distribuzioneVoti(idUtente)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Per gli utenti senza aggregato media e numero vengono calcolati dalle valutazioni con un'unica query.
+     */
+    @Override
+    public List<MediaValutazioniDTO> medieValutazioniByUtenti(final Collection<Long> idUtenti) {
+
+        final Map<Long, MediaValutazioniDTO> medie = new HashMap<>(idUtenti.size() * 2);
+        if (!idUtenti.isEmpty()) {
+            for (final AggregatoValutazioniUtente a : aggregatoUtenteDAO.findAllById(idUtenti)) {
+                medie.put(a.getIdUtente(), new MediaValutazioniDTO(a.getIdUtente(), a.getMedia(), a.getNumero()));
+            }
+            completa(idUtenti, medie, valutazioneUtenteDAO::sommeVoti);
+        }
+        return ordina(idUtenti, medie);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional
     public ValutazioneOggetto addValutazioneOggetto(final ValutazioneOggetto valutazione) {
-        return valutazioneOggettoDAO.save(valutazione);
+        final ValutazioneOggetto salvata = valutazioneOggettoDAO.save(valutazione);
+        final long idAnnuncio = salvata.getAnnuncio().getId();
+        aggregatoAnnuncioDAO.aggiungiVoto(idAnnuncio, IstogrammaVoti.limita(salvata.getVoto()));
+        aggiornaClassificaDopoCommit(salvata.getAnnuncio());
+        return salvata;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
+    @Transactional
     public void deleteValutazioneOggetto(final ValutazioneOggetto valutazione) {
-        valutazioneOggettoDAO.deleteById(valutazione.getId());
+        valutazioneOggettoDAO.findById(valutazione.getId()).ifPresent((final var presente) -> {
+            valutazioneOggettoDAO.delete(presente);
+            if (presente.getAnnuncio() != null) {
+                aggregatoAnnuncioDAO.rimuoviVoto(presente.getAnnuncio().getId(), IstogrammaVoti.limita(presente.getVoto()));
+                aggiornaClassificaDopoCommit(presente.getAnnuncio());
+            }
+        });
     }
 
     /**
@@ -83,12 +181,52 @@ public class GestioneValutazioneServiceImpl implements GestioneValutazioneServic
         return valutazioneOggettoDAO.findByAnnuncio(annuncio);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ValutazioneDTO> findPaginaByAnnuncio(final long idAnnuncio, final Long prima, final int limite) {
+        if (prima == null) {
+            return valutazioneOggettoDAO.findPaginaByAnnuncio(idAnnuncio, PageRequest.of(0, limite));
+        }
+        return valutazioneOggettoDAO.findPaginaByAnnuncioPrima(idAnnuncio, prima, PageRequest.of(0, limite));
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public double mediaValutazioniOggettoByAnnuncio(final Annuncio annuncio) {
-        return valutazioneOggettoDAO.mediaValutazioniOggettoById(annuncio.getId());
+        return aggregatoAnnuncioDAO.findById(annuncio.getId())
+                .map(AggregatoValutazioniAnnuncio::getMedia)
+                .orElseGet(() -> media(valutazioneOggettoDAO.sommeVoti(List.of(annuncio.getId()))));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] istogrammaValutazioniByAnnuncio(final long idAnnuncio) {
+        return aggregatoAnnuncioDAO.findById(idAnnuncio)
+                .map((final var a) -> a.getIstogramma().toArray())
+                .orElseGet(() -> istogramma(valutazioneOggettoDAO.distribuzioneVoti(idAnnuncio)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Per gli annunci senza aggregato media e numero vengono calcolati dalle valutazioni con un'unica query.
+     */
+    @Override
+    public List<MediaValutazioniDTO> medieValutazioniByAnnunci(final Collection<Long> idAnnunci) {
+
+        final Map<Long, MediaValutazioniDTO> medie = new HashMap<>(idAnnunci.size() * 2);
+        if (!idAnnunci.isEmpty()) {
+            for (final AggregatoValutazioniAnnuncio a : aggregatoAnnuncioDAO.findAllById(idAnnunci)) {
+                medie.put(a.getIdAnnuncio(), new MediaValutazioniDTO(a.getIdAnnuncio(), a.getMedia(), a.getNumero()));
+            }
+            completa(idAnnunci, medie, valutazioneOggettoDAO::sommeVoti);
+        }
+        return ordina(idAnnunci, medie);
     }
 
     /**
@@ -120,4 +258,114 @@ public class GestioneValutazioneServiceImpl implements GestioneValutazioneServic
         final ValutazioneOggetto valutazione = valutazioneOggettoDAO.valutazioneAnnuncioIsPresent(n.getId());
         return valutazione != null;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Long, ValutazioniPresentiDTO> valutazioniPresentiByNoleggi(final Collection<Long> idNoleggi) {
+
+        final Map<Long, ValutazioniPresentiDTO> presenti = new HashMap<>(idNoleggi.size() * 2);
+        if (idNoleggi.isEmpty()) {
+            return presenti;
+        }
+        for (final Long id : idNoleggi) {
+            presenti.put(id, new ValutazioniPresentiDTO());
+        }
+
+        for (final Object[] riga : valutazioneUtenteDAO.valutazioniPresentiByNoleggi(idNoleggi)) {
+            final ValutazioniPresentiDTO item = presenti.get((Long) riga[0]);
+            if (Boolean.TRUE.equals(riga[1])) {
+                item.setValutazioneAlNoleggiante(true);
+            } else {
+                item.setValutazioneAlNoleggiatore(true);
+            }
+        }
+
+        for (final Long id : valutazioneOggettoDAO.valutazioniAnnuncioPresentiByNoleggi(idNoleggi)) {
+            presenti.get(id).setValutazioneAnnuncio(true);
+        }
+
+        return presenti;
+    }
+
+    /**
+     * Aggiunge alle medie quelle degli ID senza aggregato, calcolate dalle valutazioni.
+     *
+     * @param ids Identificativi richiesti.
+     * @param medie Medie trovate negli aggregati, per ID.
+     * @param sommeVoti Funzione che calcola le righe (ID, somma, numero) degli ID specificati.
+     */
+    private static void completa(final Collection<Long> ids, final Map<Long, MediaValutazioniDTO> medie,
+                                 final Function<Collection<Long>, List<Object[]>> sommeVoti) {
+        final Set<Long> mancanti = new LinkedHashSet<>(ids);
+        mancanti.removeAll(medie.keySet());
+        if (mancanti.isEmpty()) {
+            return;
+        }
+        for (final Object[] riga : sommeVoti.apply(mancanti)) {
+            final long id = (Long) riga[0];
+            medie.put(id, new MediaValutazioniDTO(id, media(List.<Object[]>of(riga)), ((Number) riga[2]).longValue()));
+        }
+    }
+
+    /**
+     * Ordina le medie secondo gli ID richiesti, eliminando i duplicati.
+     *
+     * @param ids Identificativi richiesti.
+     * @param medie Medie trovate, per ID.
+     * @return Lista delle medie nell'ordine degli ID, con media e numero pari a 0 per gli ID senza valutazioni.
+     */
+    private List<MediaValutazioniDTO> ordina(final Collection<Long> ids, final Map<Long, MediaValutazioniDTO> medie) {
+        final List<MediaValutazioniDTO> list = new ArrayList<>(ids.size());
+        for (final Long id : new LinkedHashSet<>(ids)) {
+            list.add(medie.getOrDefault(id, new MediaValutazioniDTO(id, 0, 0)));
+        }
+        return list;
+    }
+
+    /**
+     * Calcola la media dei voti dalle somme calcolate sulle valutazioni, per un aggregato non ancora creato.
+     * L'aggregato viene creato alla successiva valutazione o dalla verifica periodica degli aggregati.
+     *
+     * @param somme Righe (ID, somma dei voti, numero di valutazioni), al più una.
+     * @return Media dei voti, 0 se non ci sono valutazioni.
+     */
+    private static double media(final List<Object[]> somme) {
+        if (somme.isEmpty()) {
+            return 0;
+        }
+        final long numero = ((Number) somme.get(0)[2]).longValue();
+        return numero == 0 ? 0 : ((Number) somme.get(0)[1]).doubleValue() / numero;
+    }
+
+    /**
+     * Costruisce la distribuzione dei voti calcolata sulle valutazioni, per un aggregato non ancora creato.
+     *
+     * @param distribuzione Righe (voto, numero di valutazioni con quel voto).
+     * @return Numero di valutazioni per ogni voto da 0 a VOTO_MASSIMO.
+     */
+    private static int[] istogramma(final List<Object[]> distribuzione) {
+        final int[] istogramma = new int[IstogrammaVoti.VOTO_MASSIMO + 1];
+        for (final Object[] riga : distribuzione) {
+            istogramma[IstogrammaVoti.limita(((Number) riga[0]).intValue())] += ((Number) riga[1]).intValue();
+        }
+        return istogramma;
+    }
+
+    /**
+     * Aggiorna la posizione di un annuncio nella classifica al commit della transazione corrente.
+     *
+     * @param annuncio Annuncio di cui è cambiato l'aggregato delle valutazioni.
+     */
+    private void aggiornaClassificaDopoCommit(final Annuncio annuncio) {
+        final long idAnnuncio = annuncio.getId();
+        final Annuncio.EnumCategoria categoria = annuncio.getCategoria();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                classificaService.aggiorna(idAnnuncio, categoria);
+            }
+        });
+    }
 }
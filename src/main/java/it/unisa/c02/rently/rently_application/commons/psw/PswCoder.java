@@ -1,5 +1,6 @@
 package it.unisa.c02.rently.rently_application.commons.psw;
 
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
@@ -9,9 +10,11 @@ import java.security.MessageDigest;
 /**
  * Implementazione del servizio di codfica della password attraverso l'algoritmo di hashing SHA-256.
  * Questa classe fornisce servizi a più sottosistemi.
+ * Le nuove password vengono codificate da PasswordService; questo formato resta in uso solo per verificare
+ * le password salvate in precedenza, che vengono ricodificate al primo accesso.
  */
 @Component
-public class PswCoder {
+public class PswCoder implements PasswordEncoder {
 
 
     /**
@@ -36,6 +39,38 @@ public class PswCoder {
     }
 
 
+    /**
+     * Codifica una password nel formato SHA-256, come codificaPassword.
+     *
+     * @param rawPassword password da codificare
+     * @return la password codificata in esadecimale
+     */
+    @Override
+    public String encode(final CharSequence rawPassword) {
+        try {
+            return codificaPassword(rawPassword.toString());
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Verifica una password rispetto alla sua codifica SHA-256, con un confronto a tempo costante.
+     *
+     * @param rawPassword password da verificare
+     * @param encodedPassword password codificata salvata
+     * @return true se la password corrisponde, altrimenti false
+     */
+    @Override
+    public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(encode(rawPassword).getBytes(StandardCharsets.US_ASCII),
+                encodedPassword.getBytes(StandardCharsets.US_ASCII));
+    }
+
+
     /**
      * Converte un array di byte in una stringa in esadecimale.
      *
@@ -0,0 +1,194 @@
+package it.unisa.c02.rently.rently_application.commons.services.chatService;
+
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ArchivioMessaggi;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.IndiceRicercaMessaggi;
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneOffsetProiezioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import it.unisa.c02.rently.rently_application.data.model.OffsetProiezione;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Servizio di manutenzione dei messaggi della chat.
+ * Periodicamente sposta nell'archivio compresso i messaggi più vecchi della soglia configurata,
+ * così che la tabella dei messaggi e i suoi indici contengano solo le conversazioni recenti,
+ * e indicizza per la ricerca i messaggi salvati prima dell'introduzione dell'indice.
+ * Ogni job viene eseguito solo dal nodo che ne acquisisce il lease.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatService {
+
+    /**
+     * Durata massima del lease del job, oltre la quale un altro nodo può subentrare.
+     */
+    private static final Duration DURATA_MASSIMA_LEASE = Duration.ofMinutes(30);
+
+    /**
+     * Numero massimo di conversazioni recuperate con una singola query.
+     */
+    private static final int CONVERSAZIONI_PER_BLOCCO = 100;
+
+    /**
+     * Nome dell'offset che memorizza l'ID dell'ultimo messaggio indicizzato dal job di indicizzazione.
+     */
+    private static final String OFFSET_INDICE = "indiceRicercaChat";
+
+    /**
+     * Valore dell'offset che indica che tutti i messaggi precedenti all'introduzione dell'indice sono stati indicizzati.
+     */
+    private static final long INDICE_COMPLETATO = Long.MAX_VALUE;
+
+    /**
+     * Istanza di GestioneChatDAO utilizzata per la ricerca dei messaggi da archiviare e da indicizzare.
+     */
+    private final GestioneChatDAO gestioneChatDAO;
+
+    /**
+     * Istanza di GestioneOffsetProiezioneDAO utilizzata per memorizzare l'avanzamento dell'indicizzazione.
+     */
+    private final GestioneOffsetProiezioneDAO offsetDAO;
+
+    /**
+     * Indice di ricerca dei messaggi.
+     */
+    private final IndiceRicercaMessaggi indiceRicerca;
+
+    /**
+     * Archivio in cui vengono spostati i messaggi.
+     */
+    private final ArchivioMessaggi archivioMessaggi;
+
+    /**
+     * Servizio per la gestione dei lease dei job schedulati.
+     */
+    private final LeaseService leaseService;
+
+    /**
+     * Numero di giorni dopo i quali un messaggio viene archiviato.
+     */
+    @Value("${chat.archivio.giorni:365}")
+    private int giorniArchiviazione;
+
+    /**
+     * Numero massimo di messaggi di un segmento dell'archivio.
+     */
+    @Value("${chat.archivio.dimensione-segmento:500}")
+    private int dimensioneSegmento;
+
+    /**
+     * Numero massimo di messaggi indicizzati in una singola transazione.
+     */
+    @Value("${chat.ricerca.dimensione-blocco:500}")
+    private int dimensioneBloccoIndice;
+
+    /**
+     * Funzione che indicizza a blocchi i messaggi salvati prima dell'introduzione dell'indice di ricerca.
+     * I messaggi salvati successivamente vengono indicizzati al salvataggio; ogni blocco indicizza solo i messaggi
+     * che non hanno ancora occorrenze, per cui quelli già indicizzati al salvataggio non vengono riscritti.
+     * Quando non restano messaggi da indicizzare il job viene segnato come completato.
+     */
+    @Scheduled(initialDelayString = "${chat.ricerca.ritardo-iniziale:60000}", fixedDelayString = "${chat.ricerca.intervallo:600000}")
+    public void indicizzaMessaggi() {
+
+        if (offsetDAO.findById(OFFSET_INDICE).map(OffsetProiezione::getValore).orElse(0L) == INDICE_COMPLETATO) {
+            return;
+        }
+
+        final Optional<Lease> lease = leaseService.acquisisci("indicizzaMessaggi", DURATA_MASSIMA_LEASE);
+        if (lease.isEmpty()) {
+            return;
+        }
+
+        try {
+            long dopo = offsetDAO.findById(OFFSET_INDICE).map(OffsetProiezione::getValore).orElseGet(() -> {
+                offsetDAO.inserisci(OFFSET_INDICE, 0);
+                return 0L;
+            });
+
+            List<Messaggio> blocco;
+            do {
+                blocco = gestioneChatDAO.findByIdGreaterThanOrderByIdAsc(dopo, PageRequest.of(0, dimensioneBloccoIndice));
+                if (!blocco.isEmpty()) {
+                    final List<Messaggio> daIndicizzare = blocco;
+                    final long ultimo = blocco.get(blocco.size() - 1).getId();
+                    if (!leaseService.esegui(lease.get(), () -> {
+                        indiceRicerca.indicizzaMancanti(daIndicizzare);
+                        offsetDAO.imposta(OFFSET_INDICE, ultimo);
+                    })) {
+                        return;
+                    }
+                    dopo = ultimo;
+                }
+            } while (blocco.size() == dimensioneBloccoIndice);
+            leaseService.esegui(lease.get(), () -> offsetDAO.imposta(OFFSET_INDICE, INDICE_COMPLETATO));
+
+        } catch (final Exception ex)
+        {
+            ex.printStackTrace();
+        } finally {
+            leaseService.rilascia(lease.get(), Duration.ofMinutes(5));
+        }
+    }
+
+    /**
+     * Funzione che archivia, per ogni conversazione, i messaggi inviati prima della soglia di archiviazione.
+     * Di ogni conversazione vengono archiviati solo i messaggi con ID minore del primo messaggio recente,
+     * così che l'archivio contenga sempre un prefisso della conversazione.
+     */
+    @Scheduled(initialDelayString = "${chat.archivio.ritardo-iniziale:120000}", fixedDelayString = "${chat.archivio.intervallo:86400000}")
+    public void archiviaMessaggi() {
+
+        final Optional<Lease> lease = leaseService.acquisisci("archiviaMessaggi", DURATA_MASSIMA_LEASE);
+        if (lease.isEmpty()) {
+            return;
+        }
+
+        try {
+            final Timestamp soglia = Timestamp.from(Instant.now().minus(Duration.ofDays(giorniArchiviazione)));
+
+            long minore = 0;
+            long maggiore = 0;
+            List<Object[]> conversazioni;
+            do {
+                conversazioni = gestioneChatDAO.findConversazioniDaArchiviare(soglia, minore, maggiore, PageRequest.of(0, CONVERSAZIONI_PER_BLOCCO));
+                for (final Object[] conversazione : conversazioni) {
+                    minore = (Long) conversazione[0];
+                    maggiore = (Long) conversazione[1];
+
+                    final Long primoRecente = gestioneChatDAO.findPrimoIdDa(minore, maggiore, soglia);
+                    final long limiteId = primoRecente != null ? primoRecente : Long.MAX_VALUE;
+                    final long idMinore = minore;
+                    final long idMaggiore = maggiore;
+                    int archiviati = dimensioneSegmento;
+                    while (archiviati == dimensioneSegmento) {
+                        final Optional<Integer> blocco = leaseService.esegui(lease.get(),
+                                () -> archivioMessaggi.archiviaBlocco(idMinore, idMaggiore, limiteId, dimensioneSegmento));
+                        if (blocco.isEmpty()) {
+                            return;
+                        }
+                        archiviati = blocco.get();
+                    }
+                }
+            } while (conversazioni.size() == CONVERSAZIONI_PER_BLOCCO);
+
+        } catch (final Exception ex)
+        {
+            ex.printStackTrace();
+        } finally {
+            leaseService.rilascia(lease.get(), Duration.ofHours(1));
+        }
+    }
+}
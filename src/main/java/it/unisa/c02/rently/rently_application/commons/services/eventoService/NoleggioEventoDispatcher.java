@@ -0,0 +1,372 @@
+package it.unisa.c02.rently.rently_application.commons.services.eventoService;
+
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneLacunaProiezioneDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneNoleggioEventoDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneOffsetProiezioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import it.unisa.c02.rently.rently_application.data.model.NoleggioEvento;
+import it.unisa.c02.rently.rently_application.data.model.OffsetProiezione;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dispatcher in-process che alimenta le proiezioni registrate con gli eventi del log dei noleggi.
+ * Gli eventi vengono letti dal database a blocchi a partire dall'offset memorizzato per ciascuna proiezione,
+ * su un thread dedicato, così che la registrazione delle transizioni non attenda l'aggiornamento delle proiezioni.
+ * Poiché gli offset sono persistenti, dopo un riavvio ogni proiezione riprende dall'ultimo evento applicato.
+ */
+@Service
+public class NoleggioEventoDispatcher {
+
+    /**
+     * Durata massima del lease dell'inizializzazione di una proiezione, oltre la quale un altro nodo può subentrare.
+     */
+    private static final Duration DURATA_MASSIMA_INIZIALIZZAZIONE = Duration.ofMinutes(30);
+
+    /**
+     * Istanza di GestioneNoleggioEventoDAO utilizzata per la lettura del log degli eventi.
+     */
+    private final GestioneNoleggioEventoDAO eventoDAO;
+
+    /**
+     * Istanza di GestioneOffsetProiezioneDAO utilizzata per l'accesso agli offset delle proiezioni.
+     */
+    private final GestioneOffsetProiezioneDAO offsetDAO;
+
+    /**
+     * Istanza di GestioneLacunaProiezioneDAO utilizzata per l'accesso alle lacune superate dalle proiezioni.
+     */
+    private final GestioneLacunaProiezioneDAO lacunaDAO;
+
+    /**
+     * Proiezioni registrate come bean.
+     */
+    private final ObjectProvider<NoleggioProiezione> proiezioni;
+
+    /**
+     * Servizio per la gestione del lease dell'inizializzazione delle proiezioni.
+     */
+    private final LeaseService leaseService;
+
+    /**
+     * Template per l'esecuzione di ogni blocco in una propria transazione.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Numero massimo di eventi applicati a una proiezione in una singola transazione.
+     */
+    private final int dimensioneBlocco;
+
+    /**
+     * Tempo entro il quale un evento con ID non contiguo al precedente viene considerato non ancora visibile,
+     * perché la transazione che ha ottenuto l'ID mancante potrebbe non aver ancora eseguito il commit.
+     * Trascorso questo tempo l'elaborazione prosegue oltre la lacuna, i cui ID vengono memorizzati accanto all'offset
+     * e ricontrollati a ogni elaborazione.
+     */
+    private final long attesaLacuna;
+
+    /**
+     * Tempo per cui gli ID di una lacuna superata vengono ricontrollati, dopo il quale vengono considerati
+     * appartenenti a una transazione annullata.
+     */
+    private final long durataLacune;
+
+    /**
+     * Thread dedicato all'elaborazione degli eventi.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor((final var r) -> {
+        final Thread thread = new Thread(r, "noleggio-evento-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Indica se un'elaborazione è già in attesa di esecuzione, così che più notifiche ravvicinate
+     * vengano raggruppate in un'unica lettura del log.
+     */
+    private final AtomicBoolean inAttesa = new AtomicBoolean();
+
+    /**
+     * Costruttore del dispatcher.
+     *
+     * @param eventoDAO DAO del log degli eventi.
+     * @param offsetDAO DAO degli offset delle proiezioni.
+     * @param lacunaDAO DAO delle lacune superate dalle proiezioni.
+     * @param proiezioni Proiezioni registrate come bean.
+     * @param leaseService Servizio per la gestione dei lease.
+     * @param transactionManager Gestore delle transazioni.
+     * @param dimensioneBlocco Numero massimo di eventi applicati in una singola transazione.
+     * @param attesaLacuna Tempo di attesa della chiusura di una lacuna negli ID, in millisecondi.
+     * @param durataLacune Tempo per cui gli ID di una lacuna superata vengono ricontrollati, in millisecondi.
+     */
+    public NoleggioEventoDispatcher(final GestioneNoleggioEventoDAO eventoDAO,
+                                    final GestioneOffsetProiezioneDAO offsetDAO,
+                                    final GestioneLacunaProiezioneDAO lacunaDAO,
+                                    final ObjectProvider<NoleggioProiezione> proiezioni,
+                                    final LeaseService leaseService,
+                                    final PlatformTransactionManager transactionManager,
+                                    @Value("${noleggio.eventi.dimensione-blocco:200}") final int dimensioneBlocco,
+                                    @Value("${noleggio.eventi.attesa-lacuna:5000}") final long attesaLacuna,
+                                    @Value("${noleggio.eventi.durata-lacune:3600000}") final long durataLacune) {
+        this.eventoDAO = eventoDAO;
+        this.offsetDAO = offsetDAO;
+        this.lacunaDAO = lacunaDAO;
+        this.proiezioni = proiezioni;
+        this.leaseService = leaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dimensioneBlocco = dimensioneBlocco;
+        this.attesaLacuna = attesaLacuna;
+        this.durataLacune = durataLacune;
+    }
+
+    /**
+     * Richiede l'elaborazione asincrona dei nuovi eventi.
+     */
+    public void notifica() {
+        if (!inAttesa.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                inAttesa.set(false);
+                elabora();
+            });
+        } catch (final RejectedExecutionException ex) {
+            inAttesa.set(false);
+        }
+    }
+
+    /**
+     * Riprende l'elaborazione all'avvio dell'applicazione, a partire dagli offset memorizzati.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void avvia() {
+        notifica();
+    }
+
+    /**
+     * Elabora periodicamente il log, per raccogliere gli eventi registrati da altri nodi
+     * e quelli rimandati in attesa della chiusura di una lacuna.
+     */
+    @Scheduled(fixedDelayString = "${noleggio.eventi.intervallo-verifica:5000}")
+    public void verifica() {
+        notifica();
+    }
+
+    /**
+     * Ricostruisce lo stato di una proiezione e ne reimposta l'offset, così che gli eventi successivi vengano riapplicati.
+     * Lo stato viene ricostruito con 'inizializza' nella stessa transazione in cui vengono reimpostati l'offset
+     * e le lacune, detenendo il lease dell'inizializzazione: riportare indietro il solo offset farebbe sommare
+     * due volte gli eventi già applicati.
+     *
+     * @param nome Nome della proiezione.
+     * @return true se la proiezione è stata ricostruita, false se non esiste o se il lease è detenuto da un altro nodo.
+     */
+    public boolean replay(final String nome) {
+        final Optional<NoleggioProiezione> proiezione = proiezioni.orderedStream()
+                .filter((final var p) -> nome.equals(p.getNome()))
+                .findFirst();
+        if (proiezione.isEmpty()) {
+            return false;
+        }
+        final Optional<Lease> lease = leaseService.acquisisci("inizializza-" + nome, DURATA_MASSIMA_INIZIALIZZAZIONE);
+        if (lease.isEmpty()) {
+            return false;
+        }
+
+        final boolean ricostruita;
+        try {
+            ricostruita = leaseService.esegui(lease.get(), () -> {
+                lacunaDAO.eliminaTutte(nome);
+                final long valore = proiezione.get().inizializza();
+                if (offsetDAO.imposta(nome, valore) == 0) {
+                    offsetDAO.inserisci(nome, valore);
+                }
+            });
+        } catch (final DataIntegrityViolationException ex) {
+            // L'offset è stato creato nel frattempo dall'inizializzazione di un altro nodo, che ha già ricostruito lo stato
+            return false;
+        } finally {
+            leaseService.rilascia(lease.get(), Duration.ZERO);
+        }
+        notifica();
+        return ricostruita;
+    }
+
+    /**
+     * Arresta il thread di elaborazione.
+     */
+    @PreDestroy
+    public void arresta() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Applica a ogni proiezione registrata tutti gli eventi disponibili.
+     * Un errore in una proiezione non blocca le altre: il blocco fallito viene riproposto alla successiva elaborazione.
+     */
+    private void elabora() {
+        proiezioni.orderedStream().forEach((final var proiezione) -> {
+            try {
+                recuperaLacune(proiezione);
+                while (elaboraBlocco(proiezione)) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                }
+            } catch (final Exception ex) {
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Applica a una proiezione il blocco di eventi successivo al suo offset.
+     *
+     * @param proiezione Proiezione da aggiornare.
+     * @return true se il blocco era completo e potrebbero esserci altri eventi da applicare, altrimenti false.
+     */
+    private boolean elaboraBlocco(final NoleggioProiezione proiezione) {
+        final String nome = proiezione.getNome();
+        final Optional<Long> letto = offsetDAO.findById(nome)
+                .map(OffsetProiezione::getValore)
+                .or(() -> inizializza(proiezione));
+        if (letto.isEmpty()) {
+            return false;
+        }
+        final long offset = letto.get();
+
+        final List<NoleggioEvento> letti = eventoDAO.findByIdGreaterThanOrderByIdAsc(offset, PageRequest.of(0, dimensioneBlocco));
+        final List<Long> saltati = new ArrayList<>();
+        final List<NoleggioEvento> eventi = troncaAllaLacuna(offset, letti, saltati);
+        if (eventi.isEmpty()) {
+            return false;
+        }
+
+        final long nuovoOffset = eventi.get(eventi.size() - 1).getId();
+        final Boolean applicato = transactionTemplate.execute((final var status) -> {
+            if (offsetDAO.avanza(nome, offset, nuovoOffset) == 0) {
+                return false;
+            }
+            final Timestamp adesso = new Timestamp(System.currentTimeMillis());
+            saltati.forEach((final var id) -> lacunaDAO.registra(nome, id, adesso));
+            proiezione.applica(eventi);
+            return true;
+        });
+
+        return Boolean.TRUE.equals(applicato) && eventi.size() == letti.size() && letti.size() == dimensioneBlocco;
+    }
+
+    /**
+     * Applica a una proiezione gli eventi delle lacune superate che sono diventati visibili,
+     * ed elimina le lacune più vecchie di 'durataLacune'.
+     * Ogni evento viene applicato solo se la sua lacuna viene chiusa nella stessa transazione,
+     * così che un evento recuperato contemporaneamente da più nodi venga applicato una sola volta.
+     * Gli eventi vengono applicati dopo quelli con ID maggiore, quindi fuori ordine.
+     *
+     * @param proiezione Proiezione da aggiornare.
+     */
+    private void recuperaLacune(final NoleggioProiezione proiezione) {
+        final String nome = proiezione.getNome();
+        lacunaDAO.eliminaScadute(nome, new Timestamp(System.currentTimeMillis() - durataLacune));
+        final List<Long> ids = lacunaDAO.findIdEventi(nome);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        final List<NoleggioEvento> visibili = eventoDAO.findByIdInOrderByIdAsc(ids);
+        if (visibili.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult((final var status) -> {
+            final List<NoleggioEvento> tardivi = visibili.stream()
+                    .filter((final var evento) -> lacunaDAO.chiudi(nome, evento.getId()) == 1)
+                    .toList();
+            if (!tardivi.isEmpty()) {
+                proiezione.applica(tardivi);
+            }
+        });
+    }
+
+    /**
+     * Restituisce gli eventi che precedono la prima lacuna recente negli ID.
+     * Gli ID sono assegnati all'inserimento ma gli eventi diventano visibili al commit,
+     * quindi un ID mancante può appartenere a una transazione ancora in corso.
+     * Gli ID delle lacune più vecchie di 'attesaLacuna', che vengono superate, sono aggiunti a 'saltati'.
+     *
+     * @param offset ID dell'ultimo evento già applicato.
+     * @param eventi Eventi letti, in ordine di ID.
+     * @param saltati Lista a cui aggiungere gli ID delle lacune superate.
+     * @return Eventi applicabili senza rischio di saltare eventi non ancora visibili.
+     */
+    private List<NoleggioEvento> troncaAllaLacuna(final long offset, final List<NoleggioEvento> eventi, final List<Long> saltati) {
+        final long limite = System.currentTimeMillis() - attesaLacuna;
+        long precedente = offset;
+        for (int i = 0; i < eventi.size(); i++) {
+            final NoleggioEvento evento = eventi.get(i);
+            if (evento.getId() != precedente + 1) {
+                if (evento.getIstante().getTime() > limite) {
+                    return eventi.subList(0, i);
+                }
+                for (long id = precedente + 1; id < evento.getId(); id++) {
+                    saltati.add(id);
+                }
+            }
+            precedente = evento.getId();
+        }
+        return eventi;
+    }
+
+    /**
+     * Inizializza una proiezione e ne crea l'offset nella stessa transazione, detenendo il lease dell'inizializzazione,
+     * così che una sola istanza del backend alla volta ricostruisca lo stato della proiezione.
+     * Se il lease è detenuto da un altro nodo l'inizializzazione viene rimandata alla successiva elaborazione.
+     *
+     * @param proiezione Proiezione da inizializzare.
+     * @return Optional contenente l'offset memorizzato per la proiezione, vuoto se l'inizializzazione è stata rimandata.
+     */
+    private Optional<Long> inizializza(final NoleggioProiezione proiezione) {
+        final String nome = proiezione.getNome();
+        final Optional<Lease> lease = leaseService.acquisisci("inizializza-" + nome, DURATA_MASSIMA_INIZIALIZZAZIONE);
+        if (lease.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            final Optional<Long> esistente = offsetDAO.findById(nome).map(OffsetProiezione::getValore);
+            if (esistente.isPresent()) {
+                return esistente;
+            }
+            return leaseService.esegui(lease.get(), () -> {
+                final long valore = proiezione.inizializza();
+                offsetDAO.inserisci(nome, valore);
+                return valore;
+            });
+        } catch (final DataIntegrityViolationException ex) {
+            return offsetDAO.findById(nome).map(OffsetProiezione::getValore);
+        } finally {
+            leaseService.rilascia(lease.get(), Duration.ZERO);
+        }
+    }
+}
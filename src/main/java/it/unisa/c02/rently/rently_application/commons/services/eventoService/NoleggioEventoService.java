@@ -0,0 +1,28 @@
+package it.unisa.c02.rently.rently_application.commons.services.eventoService;
+
+import it.unisa.c02.rently.rently_application.data.model.Noleggio;
+
+import java.util.Collection;
+
+/**
+ * Interfaccia per la registrazione delle transizioni dei noleggi nel log degli eventi.
+ * I metodi devono essere invocati all'interno della transazione che esegue la transizione,
+ * così che l'evento venga registrato se e solo se la transizione viene salvata.
+ */
+public interface NoleggioEventoService {
+
+    /**
+     * Registra la creazione o la modifica di un noleggio.
+     *
+     * @param precedente Valori del noleggio prima della transizione, null per la creazione.
+     * @param noleggio Noleggio salvato.
+     */
+    void registra(Noleggio.Istantanea precedente, Noleggio noleggio);
+
+    /**
+     * Registra l'eliminazione dei noleggi specificati. Deve essere invocato prima dell'eliminazione.
+     *
+     * @param ids ID dei noleggi da eliminare.
+     */
+    void registraEliminazioni(Collection<Long> ids);
+}
@@ -0,0 +1,84 @@
+package it.unisa.c02.rently.rently_application.commons.services.eventoService;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneNoleggioEventoDAO;
+import it.unisa.c02.rently.rently_application.data.model.Noleggio;
+import it.unisa.c02.rently.rently_application.data.model.NoleggioEvento;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Implementazione del servizio di registrazione delle transizioni dei noleggi nel log degli eventi.
+ * Dopo il commit della transazione il dispatcher viene notificato, così che le proiezioni ricevano i nuovi eventi.
+ */
+@Service
+@RequiredArgsConstructor
+public class NoleggioEventoServiceImpl implements NoleggioEventoService {
+
+    /**
+     * Istanza di GestioneNoleggioEventoDAO utilizzata per l'accesso al log degli eventi.
+     */
+    private final GestioneNoleggioEventoDAO eventoDAO;
+
+    /**
+     * Dispatcher degli eventi alle proiezioni.
+     */
+    private final NoleggioEventoDispatcher dispatcher;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registra(final Noleggio.Istantanea precedente, final Noleggio noleggio) {
+        final Noleggio.Istantanea nuovo = new Noleggio.Istantanea(
+                noleggio.getStato(),
+                noleggio.getPrezzoTotale(),
+                noleggio.getDataInizio(),
+                noleggio.getDataFine(),
+                noleggio.getAnnuncio() != null ? noleggio.getAnnuncio().getId() : null);
+
+        if (nuovo.equals(precedente)) {
+            return;
+        }
+
+        eventoDAO.save(new NoleggioEvento(noleggio.getId(), precedente, nuovo, new Timestamp(System.currentTimeMillis())));
+        notificaDopoCommit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registraEliminazioni(final Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        final Timestamp istante = new Timestamp(System.currentTimeMillis());
+        final List<NoleggioEvento> eventi = eventoDAO.creaEventiEliminazione(ids);
+        eventi.forEach((final var evento) -> evento.setIstante(istante));
+        eventoDAO.saveAll(eventi);
+        notificaDopoCommit();
+    }
+
+    /**
+     * Notifica il dispatcher al commit della transazione corrente.
+     */
+    private void notificaDopoCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.notifica();
+            }
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package it.unisa.c02.rently.rently_application.commons.services.eventoService;
+
+import it.unisa.c02.rently.rently_application.data.model.NoleggioEvento;
+
+import java.util.List;
+
+/**
+ * Interfaccia di una proiezione alimentata dal log degli eventi dei noleggi, come contatori, cache o indici.
+ * Le implementazioni registrate come bean ricevono gli eventi in blocchi, in ordine di ID, da NoleggioEventoDispatcher.
+ */
+public interface NoleggioProiezione {
+
+    /**
+     * Restituisce il nome univoco della proiezione, con cui viene memorizzato il suo offset nel log.
+     * Le proiezioni mantenute in memoria devono includere nel nome l'identificativo del nodo,
+     * così che ogni istanza del backend elabori il log per conto proprio.
+     *
+     * @return Nome della proiezione.
+     */
+    String getNome();
+
+    /**
+     * Applica un blocco di eventi alla proiezione.
+     * Il metodo viene eseguito nella stessa transazione in cui viene avanzato l'offset della proiezione:
+     * le modifiche su database sono applicate se e solo se l'offset viene avanzato.
+     * Un'eccezione annulla la transazione e il blocco viene riproposto alla successiva elaborazione.
+     * Gli eventi di una transazione il cui commit è avvenuto dopo l'attesa delle lacune vengono applicati
+     * in un blocco successivo, dopo eventi con ID maggiore: l'effetto di un blocco non deve dipendere dall'ordine.
+     *
+     * @param eventi Eventi da applicare, in ordine di ID.
+     */
+    void applica(List<NoleggioEvento> eventi);
+
+    /**
+     * Inizializza la proiezione alla sua prima elaborazione, quando non ha ancora un offset memorizzato,
+     * e la ricostruisce durante un replay: lo stato eventualmente presente deve essere scartato.
+     * Il metodo viene eseguito da un solo nodo alla volta, che detiene il lease dell'inizializzazione,
+     * nella stessa transazione in cui viene creato o reimpostato l'offset: una proiezione che ricostruisce
+     * il proprio stato dai dati attuali può restituire l'ID dell'ultimo evento già riflesso in tali dati.
+     *
+     * @return Offset da cui iniziare l'elaborazione del log.
+     */
+    default long inizializza() {
+        return 0;
+    }
+}
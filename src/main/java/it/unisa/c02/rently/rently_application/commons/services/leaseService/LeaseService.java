@@ -0,0 +1,76 @@
+package it.unisa.c02.rently.rently_application.commons.services.leaseService;
+
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Questa interfaccia definisce le specifiche per i servizi dedicati alla gestione dei lease dei job schedulati.
+ * Un lease garantisce che, in presenza di più istanze del backend sulla stessa base di dati,
+ * un job schedulato venga eseguito da un solo nodo per intervallo.
+ */
+public interface LeaseService {
+
+    /**
+     * Tenta di acquisire il lease di un job. Se il nodo che lo detiene si arresta senza rilasciarlo,
+     * il lease scade dopo 'durataMassima' e può essere acquisito da un altro nodo.
+     *
+     * @param nome Nome del job.
+     * @param durataMassima Durata massima per cui il lease viene detenuto.
+     * @return Optional contenente il lease acquisito, vuoto se il lease è detenuto da un altro nodo.
+     */
+    Optional<Lease> acquisisci(final String nome, final Duration durataMassima);
+
+    /**
+     * Verifica che il lease sia ancora detenuto da questo nodo con lo stesso token di fencing.
+     * La verifica non protegge le scritture successive: un blocco di scritture va eseguito con 'esegui'.
+     *
+     * @param lease Lease ottenuto dall'acquisizione.
+     * @return true se il lease è ancora valido, altrimenti false.
+     */
+    boolean isValido(final Lease lease);
+
+    /**
+     * Esegue un blocco di scritture del job in una transazione che blocca la riga del lease,
+     * dopo aver verificato che sia ancora detenuto da questo nodo con lo stesso token di fencing.
+     * Finché la transazione non termina nessun altro nodo può acquisire il lease, per cui le scritture
+     * di un nodo che ha perso il lease non vengono mai eseguite dopo quelle del nuovo proprietario.
+     *
+     * @param lease Lease ottenuto dall'acquisizione.
+     * @param scritture Blocco di scritture da eseguire; non deve restituire null.
+     * @return Optional contenente il risultato del blocco, vuoto se il lease non è più valido.
+     */
+    <T> Optional<T> esegui(final Lease lease, final Supplier<T> scritture);
+
+    /**
+     * Esegue un blocco di scritture del job con le stesse garanzie di 'esegui(Lease, Supplier)'.
+     *
+     * @param lease Lease ottenuto dall'acquisizione.
+     * @param scritture Blocco di scritture da eseguire.
+     * @return true se il blocco è stato eseguito, false se il lease non è più valido.
+     */
+    default boolean esegui(final Lease lease, final Runnable scritture) {
+        return esegui(lease, () -> {
+            scritture.run();
+            return Boolean.TRUE;
+        }).isPresent();
+    }
+
+    /**
+     * Rilascia il lease di un job. Il lease resta comunque detenuto fino a 'durataMinima' dall'acquisizione,
+     * così che gli altri nodi non rieseguano il job nello stesso intervallo.
+     *
+     * @param lease Lease ottenuto dall'acquisizione.
+     * @param durataMinima Durata minima per cui il lease viene detenuto.
+     */
+    void rilascia(final Lease lease, final Duration durataMinima);
+
+    /**
+     * Restituisce l'identificativo di questo nodo.
+     *
+     * @return Identificativo del nodo.
+     */
+    String getNodo();
+}
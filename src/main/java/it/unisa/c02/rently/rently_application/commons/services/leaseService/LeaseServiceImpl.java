@@ -0,0 +1,134 @@
+package it.unisa.c02.rently.rently_application.commons.services.leaseService;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneLeaseDAO;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Implementazione del servizio di gestione dei lease dei job schedulati.
+ * Questa classe fornisce implementazioni concrete per i metodi dichiarati nell'interfaccia LeaseService.
+ * Le scadenze sono calcolate con l'orologio del nodo: le durate dei lease devono quindi essere
+ * molto maggiori dello scarto tra gli orologi dei nodi.
+ */
+@Service
+public class LeaseServiceImpl implements LeaseService {
+
+    /**
+     * Istanza di GestioneLeaseDAO utilizzata per l'accesso ai dati dei lease.
+     */
+    private final GestioneLeaseDAO leaseDAO;
+
+    /**
+     * Identificativo univoco di questo nodo.
+     */
+    private final String nodo;
+
+    /**
+     * Template per l'esecuzione dei blocchi di scritture dei job.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Costruttore del servizio.
+     * @param leaseDAO DAO per l'accesso ai dati dei lease.
+     * @param transactionManager Gestore delle transazioni.
+     * @param nodo Identificativo del nodo; se vuoto viene generato a partire dall'hostname.
+     */
+    public LeaseServiceImpl(final GestioneLeaseDAO leaseDAO,
+                            final PlatformTransactionManager transactionManager,
+                            @Value("${scheduler.lease.nodo:}") final String nodo) {
+        this.leaseDAO = leaseDAO;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.nodo = nodo.isBlank() ? generaNodo() : nodo;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Lease> acquisisci(final String nome, final Duration durataMassima) {
+
+        final long adesso = System.currentTimeMillis();
+        final Timestamp inizio = new Timestamp(adesso);
+        final Timestamp scadenza = new Timestamp(adesso + durataMassima.toMillis());
+
+        if (leaseDAO.acquisisci(nome, nodo, inizio, scadenza) == 0) {
+            if (leaseDAO.existsById(nome)) {
+                return Optional.empty();
+            }
+            try {
+                leaseDAO.inserisci(nome, nodo, inizio, scadenza);
+            } catch (final DataIntegrityViolationException ex) {
+                return Optional.empty();
+            }
+        }
+
+        return leaseDAO.findById(nome).filter((final var lease) -> nodo.equals(lease.getProprietario()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isValido(final Lease lease) {
+        return leaseDAO.isValido(lease.getNome(), nodo, lease.getToken(), new Timestamp(System.currentTimeMillis()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Optional<T> esegui(final Lease lease, final Supplier<T> scritture) {
+        return Optional.ofNullable(transactionTemplate.execute((final var status) -> {
+            if (leaseDAO.blocca(lease.getNome(), nodo, lease.getToken(), new Timestamp(System.currentTimeMillis())).isEmpty()) {
+                return null;
+            }
+            return scritture.get();
+        }));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rilascia(final Lease lease, final Duration durataMinima) {
+        final long scadenza = Math.max(System.currentTimeMillis(), lease.getAcquisito().getTime() + durataMinima.toMillis());
+        leaseDAO.rilascia(lease.getNome(), nodo, lease.getToken(), new Timestamp(scadenza));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNodo() {
+        return nodo;
+    }
+
+    /**
+     * Genera un identificativo del nodo composto dall'hostname e da un suffisso casuale,
+     * così che due istanze sulla stessa macchina abbiano identificativi diversi.
+     *
+     * @return Identificativo del nodo.
+     */
+    private static String generaNodo() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (final UnknownHostException ex) {
+            host = "nodo";
+        }
+        return host + "-" + UUID.randomUUID();
+    }
+}
@@ -1,29 +1,58 @@
 package it.unisa.c02.rently.rently_application.commons.services.noleggioService;
 
 import it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service.GestioneNoleggioService;
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
 import it.unisa.c02.rently.rently_application.data.model.Noleggio;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Optional;
 
 
 /**
  * Implementazione del servizio di eliminazione o cambio di stato di un nolegggio.
+ * Ogni job viene eseguito solo dal nodo che ne acquisisce il lease, così che con più istanze del backend
+ * ciascun job venga eseguito una sola volta per intervallo.
  *
  */
 @Service
 @RequiredArgsConstructor
 public class NoleggioService {
 
+    /**
+     * Durata massima del lease di un job, oltre la quale un altro nodo può subentrare.
+     */
+    private static final Duration DURATA_MASSIMA_LEASE = Duration.ofMinutes(10);
+
     /**
      * Istanza di GestioneNoleggioDAO utilizzata per l'accesso ai dati dei noleggi.
      */
     private final GestioneNoleggioService noleggioService;
 
+    /**
+     * Servizio per la gestione dei lease dei job schedulati.
+     */
+    private final LeaseService leaseService;
+
+    /**
+     * Numero di giorni dopo i quali una richiesta di noleggio non gestita viene eliminata.
+     */
+    @Value("${noleggio.richieste.giorni-scadenza:7}")
+    private int giorniScadenza;
+
+    /**
+     * Numero massimo di richieste eliminate in una singola transazione.
+     */
+    @Value("${noleggio.richieste.dimensione-blocco:500}")
+    private int dimensioneBlocco;
+
 
     /**
      * Funzione che aggiorna lo stato di un noleggio da 'IN_CORSO' a 'FINE' qunado la
@@ -31,48 +60,64 @@ public class NoleggioService {
      */
     @Scheduled(fixedDelay = 30000)
     public void updateFineNoleggio() throws InterruptedException {
+
+        final Optional<Lease> lease = leaseService.acquisisci("updateFineNoleggio", DURATA_MASSIMA_LEASE);
+        if (lease.isEmpty()) {
+            return;
+        }
+
         try {
             final java.sql.Date date = new java.sql.Date(Calendar.getInstance().getTime().getTime());
             final List<Noleggio> list = noleggioService.checkFineNoleggio(date);
 
-            for(final Noleggio item:list) {
-                item.setStato(Noleggio.EnumStato.FINE);
-                noleggioService.updateStatoNoleggio(item);
+            if (!list.isEmpty()) {
+                leaseService.esegui(lease.get(), () -> {
+                    for(final Noleggio item:list) {
+                        item.setStato(Noleggio.EnumStato.FINE);
+                        noleggioService.updateStatoNoleggio(item);
+                    }
+                });
             }
         } catch (final Exception ex)
         {
             ex.printStackTrace();
+        } finally {
+            leaseService.rilascia(lease.get(), Duration.ofSeconds(25));
         }
     }
 
     /**
      * Funzione che elimina tutti i noleggi in stato 'RICHIESTA' e 'RIFIUTATA' dopo che è passata una settimana
-     * dalla data della richiesta di noleggio
+     * dalla data della richiesta di noleggio.
+     * L'eliminazione avviene a blocchi di al più 'dimensioneBlocco' noleggi, ciascuno nella propria transazione,
+     * finché non restano più richieste scadute o il lease del job non è più valido.
      */
     @Scheduled(fixedDelay = 100000)
     public void checkRichiestaNoleggio() throws InterruptedException {
-        try {
 
-            final List<Noleggio> list = noleggioService.findRichieste();
-            final java.sql.Date today = new java.sql.Date(Calendar.getInstance().getTime().getTime());
-
-            for(final Noleggio item:list) {
-
-                final Calendar cal = Calendar.getInstance();
-                cal.setTime(item.getDataRichiesta());
-                cal.add(Calendar.DATE, 7);
-                final java.sql.Date dataRichiestaModifica = new java.sql.Date(cal.getTime().getTime());
+        final Optional<Lease> lease = leaseService.acquisisci("checkRichiestaNoleggio", DURATA_MASSIMA_LEASE);
+        if (lease.isEmpty()) {
+            return;
+        }
 
-                if(dataRichiestaModifica.toString().equals(today.toString())){
+        try {
 
-                    noleggioService.deleteNoleggio(item);
+            final Calendar cal = Calendar.getInstance();
+            cal.add(Calendar.DATE, -giorniScadenza);
+            final java.sql.Date soglia = new java.sql.Date(cal.getTime().getTime());
 
-                }
+            int eliminati = dimensioneBlocco;
+            while (eliminati == dimensioneBlocco) {
+                eliminati = leaseService.esegui(lease.get(), () -> noleggioService.deleteRichiesteScadute(soglia, dimensioneBlocco))
+                        .orElse(0);
             }
+
         } catch (final Exception ex)
         {
             ex.printStackTrace();
+        } finally {
+            leaseService.rilascia(lease.get(), Duration.ofSeconds(90));
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package it.unisa.c02.rently.rently_application.commons.services.passwordService;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Questa interfaccia definisce le specifiche per i servizi dedicati alla codifica e alla verifica delle password.
+ * Le password vengono codificate con un algoritmo di hashing lento e configurabile; il calcolo avviene su un pool
+ * di thread dedicato e limitato, così che un picco di accessi non occupi i thread che servono le richieste HTTP.
+ * Quando il pool è saturo le richieste vengono rifiutate con una RejectedExecutionException.
+ */
+public interface PasswordService {
+
+    /**
+     * Codifica una password con l'algoritmo e il costo correnti, attendendo il risultato.
+     *
+     * @param password Password in chiaro.
+     * @return la password codificata, con il prefisso dell'algoritmo utilizzato.
+     */
+    String codifica(final String password);
+
+    /**
+     * Codifica una password con l'algoritmo e il costo correnti, senza attendere il risultato.
+     *
+     * @param password Password in chiaro.
+     * @return CompletableFuture completato con la password codificata.
+     */
+    CompletableFuture<String> codificaAsync(final String password);
+
+    /**
+     * Verifica una password rispetto alla sua codifica salvata, attendendo il risultato.
+     * Se la codifica è null viene comunque eseguita una verifica fittizia, così che il tempo di risposta
+     * non riveli l'esistenza dell'utente.
+     *
+     * @param password Password in chiaro.
+     * @param codifica Password codificata salvata, anche nel formato SHA-256 precedente.
+     * @return true se la password corrisponde, altrimenti false.
+     */
+    boolean verifica(final String password, final String codifica);
+
+    /**
+     * Indica se una password codificata va ricalcolata perché prodotta da un algoritmo diverso da quello corrente
+     * o con un costo inferiore.
+     *
+     * @param codifica Password codificata salvata.
+     * @return true se la codifica va aggiornata, altrimenti false.
+     */
+    boolean richiedeAggiornamento(final String codifica);
+}
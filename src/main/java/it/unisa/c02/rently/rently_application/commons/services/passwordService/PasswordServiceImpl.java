@@ -0,0 +1,138 @@
+package it.unisa.c02.rently.rently_application.commons.services.passwordService;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementazione del servizio di codifica e verifica delle password.
+ * Il calcolo degli hash avviene su un pool di thread dedicato, con un numero fisso di thread e una coda limitata:
+ * oltre la capacità della coda le richieste vengono rifiutate subito invece di accumularsi.
+ */
+@Service
+public class PasswordServiceImpl implements PasswordService {
+
+    /**
+     * Encoder delle password, con l'algoritmo corrente per le nuove codifiche.
+     */
+    private final PasswordEncoder passwordEncoder;
+
+    /**
+     * Pool di thread dedicato al calcolo degli hash.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Tempo massimo, in millisecondi, di attesa del risultato di una codifica o di una verifica.
+     */
+    private final long attesaMassima;
+
+    /**
+     * Codifica fittizia usata per le verifiche di utenti inesistenti.
+     */
+    private final String codificaFittizia;
+
+    /**
+     * Costruttore del servizio.
+     *
+     * @param passwordEncoder Encoder delle password.
+     * @param thread Numero di thread del pool; se non positivo viene usato il numero di processori.
+     * @param capacitaCoda Numero massimo di richieste in attesa di un thread.
+     * @param attesaMassima Tempo massimo di attesa del risultato, in millisecondi.
+     */
+    public PasswordServiceImpl(final PasswordEncoder passwordEncoder,
+                               @Value("${password.hash.thread:0}") final int thread,
+                               @Value("${password.hash.capacita-coda:64}") final int capacitaCoda,
+                               @Value("${password.hash.attesa-massima:5000}") final long attesaMassima) {
+        this.passwordEncoder = passwordEncoder;
+        this.attesaMassima = attesaMassima;
+
+        final int numeroThread = thread > 0 ? thread : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger contatore = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(numeroThread, numeroThread, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacitaCoda), (final var runnable) -> {
+                    final Thread t = new Thread(runnable, "password-hash-" + contatore.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.codificaFittizia = passwordEncoder.encode("password-fittizia");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String codifica(final String password) {
+        return attendi(codificaAsync(password));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<String> codificaAsync(final String password) {
+        return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(password), executor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean verifica(final String password, final String codifica) {
+        if (password == null) {
+            return false;
+        }
+        if (codifica == null) {
+            attendi(CompletableFuture.supplyAsync(() -> passwordEncoder.matches(password, codificaFittizia), executor));
+            return false;
+        }
+        return attendi(CompletableFuture.supplyAsync(() -> passwordEncoder.matches(password, codifica), executor));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean richiedeAggiornamento(final String codifica) {
+        return codifica != null && passwordEncoder.upgradeEncoding(codifica);
+    }
+
+    /**
+     * Arresta il pool di thread alla chiusura dell'applicazione.
+     */
+    @PreDestroy
+    public void chiudi() {
+        executor.shutdown();
+    }
+
+    /**
+     * Attende il risultato di un calcolo sul pool dedicato, per al più 'attesaMassima' millisecondi.
+     *
+     * @param risultato Calcolo in corso.
+     * @return il risultato del calcolo.
+     */
+    private <T> T attendi(final CompletableFuture<T> risultato) {
+        try {
+            return risultato.orTimeout(attesaMassima, TimeUnit.MILLISECONDS).join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof TimeoutException) {
+                throw new RejectedExecutionException("Password hashing timed out", ex.getCause());
+            }
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw ex;
+        }
+    }
+}
@@ -37,5 +37,19 @@ public interface ResponseService {
      */
      ResponseEntity<String> InternalError();
 
+    /**
+     * Restituisce un ResponseEntity con status BAD_REQUEST contenente la stringa JSON di data.
+     *
+     * @param data l'oggetto che si vuole trasfomare in JSON e restituire.
+     * @return l'EntityResponse con status BAD_REQUEST contente il JSON di data.
+     */
+     ResponseEntity<String> BadRequest(final Object data);
 
+    /**
+     * Restituisce un ResponseEntity con status TOO_MANY_REQUESTS contenente la stringa JSON di data.
+     *
+     * @param data l'oggetto che si vuole trasfomare in JSON e restituire.
+     * @return l'EntityResponse con status TOO_MANY_REQUESTS contente il JSON di data.
+     */
+     ResponseEntity<String> TooManyRequests(final Object data);
 }
@@ -59,4 +59,34 @@ public class ResponseServiceImpl implements ResponseService {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("");
     }
 
-}
\ No newline at end of file
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseEntity<String> BadRequest(final Object data) {
+        String json = "";
+        try {
+            json = new JsonHelper().getJsonFromObject(data);
+        }
+        catch (final Exception ex)
+        {
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(json);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseEntity<String> TooManyRequests(final Object data) {
+        String json = "";
+        try {
+            json = new JsonHelper().getJsonFromObject(data);
+        }
+        catch (final Exception ex)
+        {
+        }
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(json);
+    }
+
+}
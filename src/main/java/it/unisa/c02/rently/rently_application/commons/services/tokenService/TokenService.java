@@ -0,0 +1,67 @@
+package it.unisa.c02.rently.rently_application.commons.services.tokenService;
+
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneRefreshTokenDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneTokenRevocatoDAO;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Servizio di manutenzione dei token di autenticazione.
+ * Periodicamente elimina i refresh token scaduti e le revoche dei token di accesso ormai scaduti,
+ * che non servono più a rifiutare alcuna richiesta.
+ * Il job viene eseguito solo dal nodo che ne acquisisce il lease.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenService {
+
+    /**
+     * Durata massima del lease del job, oltre la quale un altro nodo può subentrare.
+     */
+    private static final Duration DURATA_MASSIMA_LEASE = Duration.ofMinutes(10);
+
+    /**
+     * Istanza di GestioneRefreshTokenDAO utilizzata per l'eliminazione dei refresh token scaduti.
+     */
+    private final GestioneRefreshTokenDAO refreshTokenDAO;
+
+    /**
+     * Istanza di GestioneTokenRevocatoDAO utilizzata per l'eliminazione delle revoche scadute.
+     */
+    private final GestioneTokenRevocatoDAO tokenRevocatoDAO;
+
+    /**
+     * Servizio per la gestione dei lease dei job schedulati.
+     */
+    private final LeaseService leaseService;
+
+    /**
+     * Funzione che elimina i refresh token e le revoche dei token di accesso scaduti.
+     */
+    @Scheduled(initialDelayString = "${security.token.ritardo-pulizia:300000}", fixedDelayString = "${security.token.intervallo-pulizia:3600000}")
+    public void eliminaScaduti() {
+
+        final Optional<Lease> lease = leaseService.acquisisci("eliminaTokenScaduti", DURATA_MASSIMA_LEASE);
+        if (lease.isEmpty()) {
+            return;
+        }
+
+        try {
+            final Timestamp adesso = new Timestamp(System.currentTimeMillis());
+            leaseService.esegui(lease.get(), () -> refreshTokenDAO.deleteScaduti(adesso));
+            leaseService.esegui(lease.get(), () -> tokenRevocatoDAO.deleteScaduti(adesso));
+        } catch (final Exception ex)
+        {
+            ex.printStackTrace();
+        } finally {
+            leaseService.rilascia(lease.get(), Duration.ofMinutes(30));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package it.unisa.c02.rently.rently_application.commons.services.valutazioneService;
+
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAggregatoValutazioniAnnuncioDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAggregatoValutazioniUtenteDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneValutazioneOggettoDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneValutazioneUtenteDAO;
+import it.unisa.c02.rently.rently_application.data.model.AggregatoValutazioniAnnuncio;
+import it.unisa.c02.rently.rently_application.data.model.AggregatoValutazioniUtente;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Servizio di verifica degli aggregati delle valutazioni di utenti e annunci.
+ * Periodicamente confronta somma e numero dei voti memorizzati con quelli calcolati dalle valutazioni,
+ * verifica che la distribuzione dei voti sia coerente con il numero e ricalcola gli aggregati che differiscono, ad esempio a causa di eliminazioni in cascata eseguite dal database.
+ * Il job viene eseguito solo dal nodo che ne acquisisce il lease.
+ */
+@Service
+@RequiredArgsConstructor
+public class ValutazioneService {
+
+    /**
+     * Durata massima del lease del job, oltre la quale un altro nodo può subentrare.
+     */
+    private static final Duration DURATA_MASSIMA_LEASE = Duration.ofMinutes(30);
+
+    /**
+     * Istanza di GestioneValutazioneUtenteDAO utilizzata per il calcolo dei voti degli utenti.
+     */
+    private final GestioneValutazioneUtenteDAO valutazioneUtenteDAO;
+
+    /**
+     * Istanza di GestioneValutazioneOggettoDAO utilizzata per il calcolo dei voti degli annunci.
+     */
+    private final GestioneValutazioneOggettoDAO valutazioneOggettoDAO;
+
+    /**
+     * Istanza di GestioneAggregatoValutazioniUtenteDAO utilizzata per l'accesso agli aggregati degli utenti.
+     */
+    private final GestioneAggregatoValutazioniUtenteDAO aggregatoUtenteDAO;
+
+    /**
+     * Istanza di GestioneAggregatoValutazioniAnnuncioDAO utilizzata per l'accesso agli aggregati degli annunci.
+     */
+    private final GestioneAggregatoValutazioniAnnuncioDAO aggregatoAnnuncioDAO;
+
+    /**
+     * Servizio per la gestione dei lease dei job schedulati.
+     */
+    private final LeaseService leaseService;
+
+    /**
+     * Numero massimo di utenti o annunci verificati con una singola query.
+     */
+    @Value("${valutazione.aggregati.dimensione-blocco:500}")
+    private int dimensioneBlocco;
+
+    /**
+     * Funzione che verifica gli aggregati delle valutazioni di utenti e annunci e ricalcola quelli non allineati.
+     */
+    @Scheduled(initialDelayString = "${valutazione.aggregati.ritardo-iniziale:60000}", fixedDelayString = "${valutazione.aggregati.intervallo-verifica:3600000}")
+    public void verificaAggregati() {
+
+        final Optional<Lease> lease = leaseService.acquisisci("verificaAggregatiValutazioni", DURATA_MASSIMA_LEASE);
+        if (lease.isEmpty()) {
+            return;
+        }
+
+        try {
+            verifica(lease.get(),
+                    (final var dopo) -> valutazioneUtenteDAO.idValutatiDopo(dopo, PageRequest.of(0, dimensioneBlocco)),
+                    valutazioneUtenteDAO::sommeVoti,
+                    (final var ids) -> {
+                        final Map<Long, long[]> aggregati = new HashMap<>();
+                        for (final AggregatoValutazioniUtente a : aggregatoUtenteDAO.findAllById(ids)) {
+                            aggregati.put(a.getIdUtente(), new long[]{a.getSomma(), a.getNumero(), a.getIstogramma().getTotale()});
+                        }
+                        return aggregati;
+                    },
+                    aggregatoUtenteDAO::ricalcola);
+            leaseService.esegui(lease.get(), () -> aggregatoUtenteDAO.findIdOrfani().forEach(aggregatoUtenteDAO::ricalcola));
+
+            verifica(lease.get(),
+                    (final var dopo) -> valutazioneOggettoDAO.idAnnunciValutatiDopo(dopo, PageRequest.of(0, dimensioneBlocco)),
+                    valutazioneOggettoDAO::sommeVoti,
+                    (final var ids) -> {
+                        final Map<Long, long[]> aggregati = new HashMap<>();
+                        for (final AggregatoValutazioniAnnuncio a : aggregatoAnnuncioDAO.findAllById(ids)) {
+                            aggregati.put(a.getIdAnnuncio(), new long[]{a.getSomma(), a.getNumero(), a.getIstogramma().getTotale()});
+                        }
+                        return aggregati;
+                    },
+                    aggregatoAnnuncioDAO::ricalcola);
+            leaseService.esegui(lease.get(), () -> aggregatoAnnuncioDAO.findIdOrfani().forEach(aggregatoAnnuncioDAO::ricalcola));
+
+        } catch (final Exception ex)
+        {
+            ex.printStackTrace();
+        } finally {
+            leaseService.rilascia(lease.get(), Duration.ofMinutes(5));
+        }
+    }
+
+    /**
+     * Confronta a blocchi le somme dei voti calcolate dalle valutazioni con gli aggregati memorizzati.
+     * Ogni blocco legge prima gli ID successivi al precedente e poi le somme dei soli ID letti,
+     * così che il costo complessivo della verifica sia lineare nel numero delle valutazioni.
+     *
+     * @param lease Lease del job, con cui vengono eseguiti i ricalcoli di ogni blocco.
+     * @param idsDopo Funzione che recupera gli ID valutati successivi a un ID.
+     * @param sommeVoti Funzione che calcola le righe (ID, somma, numero) degli ID specificati.
+     * @param aggregati Funzione che recupera somma, numero e totale della distribuzione memorizzati per gli ID specificati.
+     * @param ricalcola Funzione che ricalcola l'aggregato di un ID.
+     */
+    private void verifica(final Lease lease,
+                          final Function<Long, List<Long>> idsDopo,
+                          final Function<List<Long>, List<Object[]>> sommeVoti,
+                          final Function<List<Long>, Map<Long, long[]>> aggregati,
+                          final LongConsumer ricalcola) {
+        long dopo = 0;
+        List<Long> ids;
+        do {
+            ids = idsDopo.apply(dopo);
+            if (ids.isEmpty()) {
+                return;
+            }
+            final Map<Long, long[]> memorizzati = aggregati.apply(ids);
+
+            final List<Long> daRicalcolare = new ArrayList<>();
+            for (final Object[] riga : sommeVoti.apply(ids)) {
+                final long id = (Long) riga[0];
+                final long[] memorizzato = memorizzati.get(id);
+                if (memorizzato == null
+                        || memorizzato[0] != ((Number) riga[1]).longValue()
+                        || memorizzato[1] != ((Number) riga[2]).longValue()
+                        || memorizzato[2] != memorizzato[1]) {
+                    daRicalcolare.add(id);
+                }
+            }
+            if (!daRicalcolare.isEmpty() && !leaseService.esegui(lease, () -> daRicalcolare.forEach(ricalcola::accept))) {
+                return;
+            }
+            dopo = ids.get(ids.size() - 1);
+        } while (ids.size() == dimensioneBlocco);
+    }
+}
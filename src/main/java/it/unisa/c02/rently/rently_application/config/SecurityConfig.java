@@ -1,8 +1,13 @@
 package it.unisa.c02.rently.rently_application.config;
 
+import it.unisa.c02.rently.rently_application.commons.psw.PswCoder;
 import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
 import it.unisa.c02.rently.rently_application.security.AuthorizationFilter;
+import it.unisa.c02.rently.rently_application.security.PrincipalCache;
+import it.unisa.c02.rently.rently_application.security.TokenRevocationList;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,13 +17,18 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
@@ -26,10 +36,20 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class SecurityConfig implements WebMvcConfigurer {
 
     private final GestioneAutenticazioneDAO userRepository;
+    private final PrincipalCache principalCache;
+    private final TokenRevocationList revocationList;
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(final PswCoder pswCoder,
+                                           @Value("${password.hash.algoritmo:bcrypt}") final String algoritmo,
+                                           @Value("${password.hash.costo-bcrypt:10}") final int costoBcrypt) {
+        final Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(costoBcrypt));
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        final DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(algoritmo, encoders);
+        // Le password senza prefisso sono quelle salvate in SHA-256 prima dell'introduzione degli hash adattivi
+        encoder.setDefaultPasswordEncoderForMatches(pswCoder);
+        return encoder;
     }
 
     @Bean
@@ -48,15 +68,18 @@ public class SecurityConfig implements WebMvcConfigurer {
     public SecurityFilterChain filterChain(final HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable).addFilterBefore(
                         new AuthorizationFilter(authenticationManager(http.getSharedObject(AuthenticationConfiguration.class)),
-                                this.userRepository), UsernamePasswordAuthenticationFilter.class
+                                this.userRepository, this.principalCache, this.revocationList), UsernamePasswordAuthenticationFilter.class
                 )
                 .authorizeHttpRequests((final var authorizationManagerRequestMatcherRegistry) ->
                         authorizationManagerRequestMatcherRegistry
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()  // Le risposte asincrone (stream della chat) sono già state autorizzate
                                 .requestMatchers("/api/autenticazione/login").permitAll()
                                 .requestMatchers("/api/ricerca/premium").permitAll()
                                 .requestMatchers("/api/ricerca/all").permitAll()
                                 .requestMatchers("/api/annuncio/visualizza-annuncio").permitAll()
                                 .requestMatchers("/api/autenticazione/signup").permitAll()
+                                .requestMatchers("/api/autenticazione/refresh").permitAll()
+                                .requestMatchers("/api/autenticazione/disponibilita").permitAll()
                                 .requestMatchers("/api/valutazione/visualizza-valutazioni-annuncio").permitAll()
                                 .requestMatchers("/api/valutazione/visualizza-valutazioni-utente").permitAll()
                                 .requestMatchers("/api/area-personale/profilo-utente").permitAll()
@@ -0,0 +1,94 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.AggregatoValutazioniUtente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per la somma e il numero delle valutazioni ricevute da un utente.
+ * Le variazioni vengono applicate con aggiornamenti atomici sul database, così che inserimenti concorrenti non si sovrascrivano.
+ */
+@Repository
+public interface GestioneAggregatoValutazioniUtenteDAO extends JpaRepository<AggregatoValutazioniUtente, Long> {
+
+    /**
+     * Aggiunge un voto alla somma, al numero e alla distribuzione dei voti dell'aggregato, creandolo se non esiste.
+     * Deve essere eseguito nella stessa transazione in cui viene salvata la valutazione.
+     *
+     * @param idUtente ID dell'utente valutato.
+     * @param voto Voto della valutazione aggiunta.
+     * @return Numero di righe modificate.
+     */
+    @Modifying
+    @Query(value = "insert into valutazione_utente_aggregato (id_utente, somma, numero, " +
+            "voti_0, voti_1, voti_2, voti_3, " +
+            "voti_4, voti_5, voti_6, voti_7, " +
+            "voti_8, voti_9, voti_10) " +
+            "values (?1, ?2, 1, " +
+            "?2 = 0, ?2 = 1, ?2 = 2, ?2 = 3, " +
+            "?2 = 4, ?2 = 5, ?2 = 6, ?2 = 7, " +
+            "?2 = 8, ?2 = 9, ?2 = 10) " +
+            "on duplicate key update somma = somma + ?2, numero = numero + 1, " +
+            "voti_0 = voti_0 + (?2 = 0), voti_1 = voti_1 + (?2 = 1), voti_2 = voti_2 + (?2 = 2), voti_3 = voti_3 + (?2 = 3), " +
+            "voti_4 = voti_4 + (?2 = 4), voti_5 = voti_5 + (?2 = 5), voti_6 = voti_6 + (?2 = 6), voti_7 = voti_7 + (?2 = 7), " +
+            "voti_8 = voti_8 + (?2 = 8), voti_9 = voti_9 + (?2 = 9), voti_10 = voti_10 + (?2 = 10)", nativeQuery = true)
+    int aggiungiVoto(final long idUtente, final int voto);
+
+    /**
+     * Rimuove un voto dalla somma, dal numero e dalla distribuzione dei voti dell'aggregato.
+     * Deve essere eseguito nella stessa transazione in cui viene eliminata la valutazione.
+     *
+     * @param idUtente ID dell'utente valutato.
+     * @param voto Voto della valutazione eliminata.
+     * @return Numero di righe modificate.
+     */
+    @Modifying
+    @Query(value = "update valutazione_utente_aggregato set somma = somma - ?2, numero = numero - 1, " +
+            "voti_0 = voti_0 - (?2 = 0), voti_1 = voti_1 - (?2 = 1), voti_2 = voti_2 - (?2 = 2), voti_3 = voti_3 - (?2 = 3), " +
+            "voti_4 = voti_4 - (?2 = 4), voti_5 = voti_5 - (?2 = 5), voti_6 = voti_6 - (?2 = 6), voti_7 = voti_7 - (?2 = 7), " +
+            "voti_8 = voti_8 - (?2 = 8), voti_9 = voti_9 - (?2 = 9), voti_10 = voti_10 - (?2 = 10) " +
+            "where id_utente = ?1", nativeQuery = true)
+    int rimuoviVoto(final long idUtente, final int voto);
+
+    /**
+     * Ricalcola somma, numero e distribuzione dei voti dell'aggregato dalle valutazioni presenti, creandolo se non esiste.
+     * Le valutazioni ancora in attesa nel contesto di persistenza vengono scritte prima del ricalcolo.
+     * I voti memorizzati fuori dall'intervallo [0, 10] vengono riportati nell'intervallo, come in 'aggiungiVoto'.
+     *
+     * @param idUtente ID dell'utente valutato.
+     * @return Numero di righe modificate.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into valutazione_utente_aggregato (id_utente, somma, numero, " +
+            "voti_0, voti_1, voti_2, voti_3, " +
+            "voti_4, voti_5, voti_6, voti_7, " +
+            "voti_8, voti_9, voti_10) " +
+            "select ?1, coalesce(sum(v.voto), 0), count(*), " +
+            "coalesce(sum(v.voto = 0), 0), coalesce(sum(v.voto = 1), 0), " +
+            "coalesce(sum(v.voto = 2), 0), coalesce(sum(v.voto = 3), 0), " +
+            "coalesce(sum(v.voto = 4), 0), coalesce(sum(v.voto = 5), 0), " +
+            "coalesce(sum(v.voto = 6), 0), coalesce(sum(v.voto = 7), 0), " +
+            "coalesce(sum(v.voto = 8), 0), coalesce(sum(v.voto = 9), 0), " +
+            "coalesce(sum(v.voto = 10), 0) " +
+            "from (select least(greatest(voto, 0), 10) as voto from valutazione_utente where valutato_utente_id = ?1) v " +
+            "on duplicate key update somma = values(somma), numero = values(numero), " +
+            "voti_0 = values(voti_0), voti_1 = values(voti_1), voti_2 = values(voti_2), voti_3 = values(voti_3), " +
+            "voti_4 = values(voti_4), voti_5 = values(voti_5), voti_6 = values(voti_6), voti_7 = values(voti_7), " +
+            "voti_8 = values(voti_8), voti_9 = values(voti_9), voti_10 = values(voti_10)", nativeQuery = true)
+    int ricalcola(final long idUtente);
+
+    /**
+     * Recupera gli ID degli aggregati con valutazioni il cui utente non ha più valutazioni.
+     *
+     * @return Lista degli ID degli utenti con un aggregato non aggiornato.
+     */
+    @Query(value = "select a.id_utente from valutazione_utente_aggregato a where a.numero <> 0 " +
+            "and not exists (select 1 from valutazione_utente v where v.valutato_utente_id = a.id_utente)", nativeQuery = true)
+    List<Long> findIdOrfani();
+}
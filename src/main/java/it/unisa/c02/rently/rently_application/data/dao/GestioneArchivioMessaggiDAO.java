@@ -0,0 +1,53 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.SegmentoArchivioMessaggi;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per l'archivio dei messaggi.
+ */
+@Repository
+public interface GestioneArchivioMessaggiDAO extends JpaRepository<SegmentoArchivioMessaggi, Long> {
+
+    /**
+     * Recupera i segmenti di una conversazione che contengono messaggi successivi a quello specificato.
+     * I segmenti di una conversazione coprono intervalli di ID disgiunti, per cui l'ordine per ultimo ID coincide
+     * con quello per primo ID e la query è servita interamente dall'indice sull'ultimo ID.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param dopo ID del messaggio dopo il quale cercare.
+     * @param pageable Numero massimo di segmenti da recuperare.
+     * @return Lista dei segmenti ordinati dal meno recente.
+     */
+    List<SegmentoArchivioMessaggi> findByIdUtenteMinoreAndIdUtenteMaggioreAndUltimoIdGreaterThanOrderByUltimoIdAsc(
+            final long idUtenteMinore, final long idUtenteMaggiore, final long dopo, final Pageable pageable);
+
+    /**
+     * Recupera i segmenti di una conversazione che contengono messaggi precedenti a quello specificato.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param prima ID del messaggio prima del quale cercare.
+     * @param pageable Numero massimo di segmenti da recuperare.
+     * @return Lista dei segmenti ordinati dal più recente.
+     */
+    List<SegmentoArchivioMessaggi> findByIdUtenteMinoreAndIdUtenteMaggioreAndPrimoIdLessThanOrderByPrimoIdDesc(
+            final long idUtenteMinore, final long idUtenteMaggiore, final long prima, final Pageable pageable);
+
+    /**
+     * Recupera il segmento di una conversazione che può contenere il messaggio specificato.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param id ID del messaggio.
+     * @return Il segmento con il primo ID più vicino a quello specificato, se presente.
+     */
+    Optional<SegmentoArchivioMessaggi> findFirstByIdUtenteMinoreAndIdUtenteMaggioreAndPrimoIdLessThanEqualOrderByPrimoIdDesc(
+            final long idUtenteMinore, final long idUtenteMaggiore, final long id);
+}
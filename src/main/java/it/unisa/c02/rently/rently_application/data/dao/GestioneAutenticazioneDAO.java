@@ -1,8 +1,14 @@
 package it.unisa.c02.rently.rently_application.data.dao;
 
 import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * DAO che definisce le operazioni di accesso dati per la gestione dell'autenticazione.
@@ -11,13 +17,43 @@ import org.springframework.stereotype.Repository;
 public interface GestioneAutenticazioneDAO extends JpaRepository<Utente, Long> {
 
     /**
-     * Restituisce l'utente associato all'indirizzo email e alla password specificati.
+     * Restituisce l'utente associato all'indirizzo email specificato.
      *
      * @param email Indirizzo email dell'utente.
-     * @param password Password dell'utente.
-     * @return Utente associato all'indirizzo email e alla password.
+     * @return Utente associato all'indirizzo email, null se non esiste.
+     */
+    Utente findByEmail(final String email);
+
+    /**
+     * Sostituisce la password codificata di un utente solo se non è stata modificata nel frattempo.
+     *
+     * @param id ID dell'utente.
+     * @param attuale Password codificata letta al momento dell'accesso.
+     * @param nuova Nuova password codificata.
+     * @return il numero di utenti aggiornati, 0 se la password è stata modificata nel frattempo.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Utente u set u.password = ?3 where u.id = ?1 and u.password = ?2")
+    int aggiornaPassword(final long id, final String attuale, final String nuova);
+
+    /**
+     * Restituisce la lunghezza massima della colonna delle password nello schema del database.
+     *
+     * @return Numero massimo di caratteri della colonna, null se la colonna non è presente.
+     */
+    @Query(value = "select character_maximum_length from information_schema.columns where table_schema = database() " +
+            "and table_name = 'utente' and column_name = 'password'", nativeQuery = true)
+    Long lunghezzaColonnaPassword();
+
+    /**
+     * Allarga la colonna delle password alla lunghezza delle codifiche con prefisso dell'algoritmo,
+     * che l'aggiornamento automatico dello schema non applica alle tabelle esistenti.
      */
-    Utente findByEmailAndPassword(final String email, final String password);
+    @Modifying
+    @Transactional
+    @Query(value = "alter table utente modify password varchar(" + Utente.LUNGHEZZA_PASSWORD + ") not null", nativeQuery = true)
+    void allargaColonnaPassword();
 
     /**
      * Verifica l'esistenza di un utente nel sistema tramite indirizzo email.
@@ -34,4 +70,14 @@ public interface GestioneAutenticazioneDAO extends JpaRepository<Utente, Long> {
      * @return true se esiste un utente con il nome utente specificato, altrimenti false.
      */
     boolean existsByUsername(final String username);
+
+    /**
+     * Restituisce un blocco di ID, username ed email degli utenti, in ordine di ID.
+     *
+     * @param id ID dell'ultimo utente del blocco precedente.
+     * @param pageable Dimensione del blocco.
+     * @return Lista delle terne (ID, username, email) degli utenti con ID maggiore di quello specificato.
+     */
+    @Query("select u.id, u.username, u.email from Utente u where u.id > ?1 order by u.id")
+    List<Object[]> findCredenzialiDopo(final long id, final Pageable pageable);
 }
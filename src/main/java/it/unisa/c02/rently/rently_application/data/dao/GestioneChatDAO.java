@@ -1,11 +1,14 @@
 package it.unisa.c02.rently.rently_application.data.dao;
 
 import it.unisa.c02.rently.rently_application.data.model.Messaggio;
-import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 /**
@@ -15,13 +18,125 @@ import java.util.List;
 public interface GestioneChatDAO extends JpaRepository<Messaggio, Long> {
 
     /**
-     * Recupera la cronologia dei messaggi scambiati tra due utenti specificati.
+     * Recupera la cronologia dei messaggi di una conversazione, dal meno recente.
      *
-     * @param id1 Identificativo del primo utente.
-     * @param id2 Identificativo del secondo utente.
-     * @return Lista di messaggi scambiati tra i due utenti.
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @return Lista dei messaggi scambiati tra i due utenti ordinati per orario di invio.
      */
-    @Query("SELECT m FROM Messaggio m WHERE m.mittente = (?1) AND m.destinatario = (?2) UNION" +
-            " SELECT m FROM Messaggio m WHERE m.mittente = (?2) AND m.destinatario = (?1)")
-    List<Messaggio> getChat(final Utente id1, final Utente id2);
+    @Query("select m from Messaggio m where m.idUtenteMinore = ?1 and m.idUtenteMaggiore = ?2 order by m.orarioInvio, m.id")
+    List<Messaggio> getChat(final long idUtenteMinore, final long idUtenteMaggiore);
+
+    /**
+     * Recupera i messaggi di una conversazione successivi a quello specificato, dal meno recente.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param dopo ID dell'ultimo messaggio già ricevuto.
+     * @param pageable Numero massimo di messaggi da recuperare.
+     * @return Lista dei messaggi con ID maggiore di quello specificato, ordinati per ID crescente.
+     */
+    @Query("select m from Messaggio m where m.idUtenteMinore = ?1 and m.idUtenteMaggiore = ?2 and m.id > ?3 order by m.id asc")
+    List<Messaggio> getChatDopo(final long idUtenteMinore, final long idUtenteMaggiore, final long dopo, final Pageable pageable);
+
+    /**
+     * Recupera i messaggi più recenti di una conversazione, dal più recente.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param pageable Numero massimo di messaggi da recuperare.
+     * @return Lista dei messaggi ordinati per ID decrescente.
+     */
+    @Query("select m from Messaggio m where m.idUtenteMinore = ?1 and m.idUtenteMaggiore = ?2 order by m.id desc")
+    List<Messaggio> getChatUltimi(final long idUtenteMinore, final long idUtenteMaggiore, final Pageable pageable);
+
+    /**
+     * Recupera i messaggi di una conversazione precedenti a quello specificato, dal più recente.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param prima ID del messaggio meno recente già ricevuto.
+     * @param pageable Numero massimo di messaggi da recuperare.
+     * @return Lista dei messaggi con ID minore di quello specificato, ordinati per ID decrescente.
+     */
+    @Query("select m from Messaggio m where m.idUtenteMinore = ?1 and m.idUtenteMaggiore = ?2 and m.id < ?3 order by m.id desc")
+    List<Messaggio> getChatPrima(final long idUtenteMinore, final long idUtenteMaggiore, final long prima, final Pageable pageable);
+
+    /**
+     * Calcola la chiave della conversazione per un blocco di messaggi salvati prima della sua introduzione.
+     *
+     * @param limite Numero massimo di messaggi da aggiornare.
+     * @return Numero di messaggi aggiornati.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "update messaggio set id_utente_minore = least(mittente_utente_id, destinatario_utente_id), " +
+            "id_utente_maggiore = greatest(mittente_utente_id, destinatario_utente_id) " +
+            "where id_utente_minore is null and mittente_utente_id is not null and destinatario_utente_id is not null limit ?1",
+            nativeQuery = true)
+    int impostaChiaviConversazione(final int limite);
+
+    /**
+     * Conta le colonne dell'indice su mittente e destinatario, sostituito da quelli sulla chiave della conversazione.
+     *
+     * @return Numero di colonne dell'indice, 0 se l'indice non è presente.
+     */
+    @Query(value = "select count(*) from information_schema.statistics where table_schema = database() " +
+            "and table_name = 'messaggio' and index_name = 'idx_messaggio_mittente_destinatario'", nativeQuery = true)
+    long contaColonneIndiceMittenteDestinatario();
+
+    /**
+     * Elimina l'indice su mittente e destinatario, che l'aggiornamento automatico dello schema non rimuove.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "drop index idx_messaggio_mittente_destinatario on messaggio", nativeQuery = true)
+    void eliminaIndiceMittenteDestinatario();
+
+    /**
+     * Recupera le conversazioni che contengono messaggi inviati prima della soglia specificata,
+     * successive alla conversazione specificata nell'ordine delle chiavi.
+     *
+     * @param soglia Orario di invio prima del quale un messaggio può essere archiviato.
+     * @param idUtenteMinore Minore tra gli ID degli utenti dell'ultima conversazione già considerata.
+     * @param idUtenteMaggiore Maggiore tra gli ID degli utenti dell'ultima conversazione già considerata.
+     * @param pageable Numero massimo di conversazioni da recuperare.
+     * @return Lista delle chiavi (minore, maggiore) delle conversazioni, in ordine crescente.
+     */
+    @Query("select distinct m.idUtenteMinore, m.idUtenteMaggiore from Messaggio m where m.orarioInvio < ?1 " +
+            "and (m.idUtenteMinore > ?2 or (m.idUtenteMinore = ?2 and m.idUtenteMaggiore > ?3)) " +
+            "order by m.idUtenteMinore, m.idUtenteMaggiore")
+    List<Object[]> findConversazioniDaArchiviare(final Timestamp soglia, final long idUtenteMinore, final long idUtenteMaggiore, final Pageable pageable);
+
+    /**
+     * Recupera l'ID del primo messaggio di una conversazione inviato a partire dalla soglia specificata.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param soglia Orario di invio.
+     * @return ID del primo messaggio non archiviabile, null se tutti i messaggi sono precedenti alla soglia.
+     */
+    @Query("select min(m.id) from Messaggio m where m.idUtenteMinore = ?1 and m.idUtenteMaggiore = ?2 and m.orarioInvio >= ?3")
+    Long findPrimoIdDa(final long idUtenteMinore, final long idUtenteMaggiore, final Timestamp soglia);
+
+    /**
+     * Recupera i messaggi meno recenti di una conversazione con ID minore di quello specificato.
+     *
+     * @param idUtenteMinore Minore tra gli ID dei due utenti della conversazione.
+     * @param idUtenteMaggiore Maggiore tra gli ID dei due utenti della conversazione.
+     * @param limiteId ID fino al quale recuperare i messaggi, escluso.
+     * @param pageable Numero massimo di messaggi da recuperare.
+     * @return Lista dei messaggi ordinati per ID crescente.
+     */
+    @Query("select m from Messaggio m where m.idUtenteMinore = ?1 and m.idUtenteMaggiore = ?2 and m.id < ?3 order by m.id asc")
+    List<Messaggio> findBloccoDaArchiviare(final long idUtenteMinore, final long idUtenteMaggiore, final long limiteId, final Pageable pageable);
+
+    /**
+     * Recupera i messaggi con ID maggiore di quello specificato, dal meno recente.
+     *
+     * @param id ID dopo il quale recuperare i messaggi.
+     * @param pageable Numero massimo di messaggi da recuperare.
+     * @return Lista dei messaggi ordinati per ID crescente.
+     */
+    List<Messaggio> findByIdGreaterThanOrderByIdAsc(final long id, final Pageable pageable);
 }
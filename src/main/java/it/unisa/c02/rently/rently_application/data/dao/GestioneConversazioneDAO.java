@@ -0,0 +1,119 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.Conversazione;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per i riepiloghi delle conversazioni.
+ */
+@Repository
+public interface GestioneConversazioneDAO extends JpaRepository<Conversazione, Long> {
+
+    /**
+     * Registra un nuovo messaggio nel riepilogo della conversazione di un utente, creando il riepilogo se non esiste.
+     * L'ultimo messaggio viene sostituito solo se quello specificato è più recente, così che l'ordine
+     * di esecuzione di inserimenti concorrenti non influisca sul risultato.
+     *
+     * @param idUtente ID dell'utente a cui appartiene il riepilogo.
+     * @param idAltroUtente ID dell'altro partecipante alla conversazione.
+     * @param idMessaggio ID del nuovo messaggio.
+     * @param idMittente ID del mittente del nuovo messaggio.
+     * @param anteprima Anteprima del nuovo messaggio.
+     * @param orarioInvio Orario di invio del nuovo messaggio.
+     * @param nonLetti Incremento del numero di messaggi non letti.
+     * @return Numero di righe modificate.
+     */
+    @Modifying
+    @Query(value = "insert into conversazione (id_utente, id_altro_utente, id_ultimo_messaggio, id_ultimo_mittente, anteprima, orario_ultimo_messaggio, non_letti, id_ultimo_letto, id_ultimo_letto_altro) " +
+            "values (?1, ?2, ?3, ?4, ?5, ?6, ?7, 0, 0) on duplicate key update " +
+            "id_ultimo_mittente = if(values(id_ultimo_messaggio) > id_ultimo_messaggio, values(id_ultimo_mittente), id_ultimo_mittente), " +
+            "anteprima = if(values(id_ultimo_messaggio) > id_ultimo_messaggio, values(anteprima), anteprima), " +
+            "orario_ultimo_messaggio = if(values(id_ultimo_messaggio) > id_ultimo_messaggio, values(orario_ultimo_messaggio), orario_ultimo_messaggio), " +
+            "id_ultimo_messaggio = greatest(id_ultimo_messaggio, values(id_ultimo_messaggio)), " +
+            "non_letti = non_letti + values(non_letti)",
+            nativeQuery = true)
+    int registraMessaggio(final long idUtente, final long idAltroUtente, final long idMessaggio, final long idMittente,
+                          final String anteprima, final Timestamp orarioInvio, final long nonLetti);
+
+    /**
+     * Avanza l'ultimo messaggio letto da un utente in una conversazione, senza superare l'ultimo messaggio,
+     * e ricalcola il numero di messaggi ricevuti non letti. L'ultimo messaggio letto non torna mai indietro,
+     * così che aggiornamenti concorrenti o ricevuti in ordine diverso non influiscano sul risultato.
+     *
+     * @param idUtente ID dell'utente che ha letto i messaggi.
+     * @param idAltroUtente ID dell'altro partecipante alla conversazione.
+     * @param idMessaggio ID dell'ultimo messaggio letto.
+     * @return Numero di righe modificate.
+     */
+    @Modifying
+    @Query(value = "update conversazione c set c.id_ultimo_letto = greatest(c.id_ultimo_letto, least(?3, c.id_ultimo_messaggio)), " +
+            "c.non_letti = (select count(*) from messaggio m where m.id_utente_minore = least(?1, ?2) and m.id_utente_maggiore = greatest(?1, ?2) " +
+            "and m.mittente_utente_id = ?2 and m.id > greatest(c.id_ultimo_letto, least(?3, c.id_ultimo_messaggio))) " +
+            "where c.id_utente = ?1 and c.id_altro_utente = ?2",
+            nativeQuery = true)
+    int segnaLetto(final long idUtente, final long idAltroUtente, final long idMessaggio);
+
+    /**
+     * Avanza, nel riepilogo dell'altro partecipante, l'ultimo messaggio letto da un utente.
+     *
+     * @param idUtente ID dell'utente che ha letto i messaggi.
+     * @param idAltroUtente ID dell'altro partecipante alla conversazione, a cui appartiene il riepilogo.
+     * @param idMessaggio ID dell'ultimo messaggio letto.
+     * @return Numero di righe modificate.
+     */
+    @Modifying
+    @Query(value = "update conversazione set id_ultimo_letto_altro = greatest(id_ultimo_letto_altro, least(?3, id_ultimo_messaggio)) " +
+            "where id_utente = ?2 and id_altro_utente = ?1",
+            nativeQuery = true)
+    int segnaLettoDaAltro(final long idUtente, final long idAltroUtente, final long idMessaggio);
+
+    /**
+     * Recupera il riepilogo della conversazione di un utente con un altro utente.
+     *
+     * @param idUtente ID dell'utente a cui appartiene il riepilogo.
+     * @param idAltroUtente ID dell'altro partecipante alla conversazione.
+     * @return Il riepilogo della conversazione, se presente.
+     */
+    Optional<Conversazione> findByIdUtenteAndIdAltroUtente(final long idUtente, final long idAltroUtente);
+
+    /**
+     * Recupera i riepiloghi delle conversazioni di un utente, dalla conversazione con il messaggio più recente.
+     *
+     * @param idUtente ID dell'utente.
+     * @param pageable Numero massimo di conversazioni da recuperare.
+     * @return Lista dei riepiloghi ordinati per ID dell'ultimo messaggio decrescente.
+     */
+    List<Conversazione> findByIdUtenteOrderByIdUltimoMessaggioDesc(final long idUtente, final Pageable pageable);
+
+    /**
+     * Ricostruisce i riepiloghi delle conversazioni a partire dai messaggi salvati, senza modificare
+     * il numero di messaggi non letti dei riepiloghi già presenti.
+     *
+     * @return Numero di righe modificate.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into conversazione (id_utente, id_altro_utente, id_ultimo_messaggio, id_ultimo_mittente, anteprima, orario_ultimo_messaggio, non_letti, id_ultimo_letto, id_ultimo_letto_altro) " +
+            "select u.id_utente, u.id_altro_utente, m.id, m.mittente_utente_id, left(m.descrizione, 200), m.orario_invio, 0, 0, 0 " +
+            "from (select p.id_utente, p.id_altro_utente, max(p.id) as id_ultimo from (" +
+            "select mittente_utente_id as id_utente, destinatario_utente_id as id_altro_utente, id from messaggio " +
+            "union all select destinatario_utente_id, mittente_utente_id, id from messaggio) p " +
+            "where p.id_utente is not null and p.id_altro_utente is not null group by p.id_utente, p.id_altro_utente) u " +
+            "join messaggio m on m.id = u.id_ultimo " +
+            "on duplicate key update " +
+            "id_ultimo_mittente = if(values(id_ultimo_messaggio) > id_ultimo_messaggio, values(id_ultimo_mittente), id_ultimo_mittente), " +
+            "anteprima = if(values(id_ultimo_messaggio) > id_ultimo_messaggio, values(anteprima), anteprima), " +
+            "orario_ultimo_messaggio = if(values(id_ultimo_messaggio) > id_ultimo_messaggio, values(orario_ultimo_messaggio), orario_ultimo_messaggio), " +
+            "id_ultimo_messaggio = greatest(id_ultimo_messaggio, values(id_ultimo_messaggio))",
+            nativeQuery = true)
+    int ricostruisci();
+}
@@ -0,0 +1,77 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.LacunaProiezione;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per le lacune superate dalle proiezioni del log degli eventi dei noleggi.
+ */
+@Repository
+public interface GestioneLacunaProiezioneDAO extends JpaRepository<LacunaProiezione, Long> {
+
+    /**
+     * Registra un ID mancante superato da una proiezione, se non è già registrato.
+     * Deve essere eseguito nella stessa transazione in cui viene avanzato l'offset della proiezione.
+     *
+     * @param nome Nome della proiezione.
+     * @param idEvento ID dell'evento mancante.
+     * @param superata Istante in cui la lacuna è stata superata.
+     * @return 1 se la lacuna è stata registrata, 0 se era già registrata.
+     */
+    @Modifying
+    @Query(value = "insert ignore into proiezione_lacuna (nome, id_evento, superata) values (?1, ?2, ?3)", nativeQuery = true)
+    int registra(final String nome, final long idEvento, final Timestamp superata);
+
+    /**
+     * Recupera gli ID mancanti superati da una proiezione.
+     *
+     * @param nome Nome della proiezione.
+     * @return Lista degli ID, in ordine crescente.
+     */
+    @Query("select l.idEvento from LacunaProiezione l where l.nome = ?1 order by l.idEvento")
+    List<Long> findIdEventi(final String nome);
+
+    /**
+     * Chiude la lacuna di un evento diventato visibile, così che l'evento venga applicato una sola volta
+     * anche se più nodi lo recuperano contemporaneamente.
+     * Deve essere eseguito nella stessa transazione in cui la proiezione applica l'evento.
+     *
+     * @param nome Nome della proiezione.
+     * @param idEvento ID dell'evento.
+     * @return 1 se la lacuna è stata chiusa, 0 se nel frattempo è stata chiusa da un altro nodo.
+     */
+    @Modifying
+    @Query("delete from LacunaProiezione l where l.nome = ?1 and l.idEvento = ?2")
+    int chiudi(final String nome, final long idEvento);
+
+    /**
+     * Elimina le lacune superate prima dell'istante specificato, i cui ID vengono considerati
+     * appartenenti a transazioni annullate.
+     *
+     * @param nome Nome della proiezione.
+     * @param limite Istante prima del quale le lacune vengono eliminate.
+     * @return Numero di lacune eliminate.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from LacunaProiezione l where l.nome = ?1 and l.superata < ?2")
+    int eliminaScadute(final String nome, final Timestamp limite);
+
+    /**
+     * Elimina tutte le lacune di una proiezione, ad esempio quando il suo stato viene ricostruito.
+     *
+     * @param nome Nome della proiezione.
+     * @return Numero di lacune eliminate.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from LacunaProiezione l where l.nome = ?1")
+    int eliminaTutte(final String nome);
+}
@@ -0,0 +1,93 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per la gestione dei lease dei job schedulati.
+ * Ogni operazione di scrittura viene eseguita in una propria transazione, così che il lease sia visibile
+ * agli altri nodi prima dell'esecuzione del job.
+ */
+@Repository
+public interface GestioneLeaseDAO extends JpaRepository<Lease, String> {
+
+    /**
+     * Acquisisce un lease scaduto, incrementandone il token di fencing.
+     *
+     * @param nome Nome del job a cui è associato il lease.
+     * @param proprietario Identificativo del nodo che acquisisce il lease.
+     * @param adesso Timestamp attuale.
+     * @param scadenza Nuovo timestamp di scadenza del lease.
+     * @return 1 se il lease è stato acquisito, 0 altrimenti.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Lease l set l.proprietario = ?2, l.acquisito = ?3, l.scadenza = ?4, l.token = l.token + 1 where l.nome = ?1 and l.scadenza <= ?3")
+    int acquisisci(final String nome, final String proprietario, final Timestamp adesso, final Timestamp scadenza);
+
+    /**
+     * Crea il lease di un job che non è mai stato eseguito. L'inserimento fallisce con una violazione
+     * della chiave primaria se un altro nodo ha creato il lease nel frattempo.
+     *
+     * @param nome Nome del job a cui è associato il lease.
+     * @param proprietario Identificativo del nodo che acquisisce il lease.
+     * @param adesso Timestamp attuale.
+     * @param scadenza Timestamp di scadenza del lease.
+     * @return 1 se il lease è stato creato.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into scheduler_lease (nome, proprietario, acquisito, scadenza, token) values (?1, ?2, ?3, ?4, 1)", nativeQuery = true)
+    int inserisci(final String nome, final String proprietario, final Timestamp adesso, final Timestamp scadenza);
+
+    /**
+     * Rilascia un lease, impostandone la scadenza, solo se è ancora detenuto con il token specificato.
+     *
+     * @param nome Nome del job a cui è associato il lease.
+     * @param proprietario Identificativo del nodo che detiene il lease.
+     * @param token Token di fencing ottenuto all'acquisizione.
+     * @param scadenza Nuovo timestamp di scadenza del lease.
+     * @return 1 se il lease è stato rilasciato, 0 se nel frattempo è stato acquisito da un altro nodo.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Lease l set l.scadenza = ?4 where l.nome = ?1 and l.proprietario = ?2 and l.token = ?3")
+    int rilascia(final String nome, final String proprietario, final long token, final Timestamp scadenza);
+
+    /**
+     * Verifica che un lease sia ancora detenuto con il token specificato e non sia scaduto.
+     *
+     * @param nome Nome del job a cui è associato il lease.
+     * @param proprietario Identificativo del nodo che detiene il lease.
+     * @param token Token di fencing ottenuto all'acquisizione.
+     * @param adesso Timestamp attuale.
+     * @return true se il lease è ancora valido, altrimenti false.
+     */
+    @Query("select count(l) > 0 from Lease l where l.nome = ?1 and l.proprietario = ?2 and l.token = ?3 and l.scadenza > ?4")
+    boolean isValido(final String nome, final String proprietario, final long token, final Timestamp adesso);
+
+    /**
+     * Recupera e blocca fino al termine della transazione corrente un lease ancora detenuto con il token specificato.
+     * Un'acquisizione concorrente del lease attende il termine della transazione.
+     *
+     * @param nome Nome del job a cui è associato il lease.
+     * @param proprietario Identificativo del nodo che detiene il lease.
+     * @param token Token di fencing ottenuto all'acquisizione.
+     * @param adesso Timestamp attuale.
+     * @return Optional contenente il lease, vuoto se non è più detenuto con il token specificato o è scaduto.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from Lease l where l.nome = ?1 and l.proprietario = ?2 and l.token = ?3 and l.scadenza > ?4")
+    Optional<Lease> blocca(final String nome, final String proprietario, final long token, final Timestamp adesso);
+}
@@ -3,11 +3,14 @@ package it.unisa.c02.rently.rently_application.data.dao;
 import it.unisa.c02.rently.rently_application.data.model.Annuncio;
 import it.unisa.c02.rently.rently_application.data.model.Noleggio;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -36,12 +39,81 @@ public interface GestioneNoleggioDAO extends JpaRepository<Noleggio, Long> {
     List<Noleggio> findByNoleggiatore(final Utente noleggiatore);
 
     /**
-     * Recupera i noleggi in stato 'RICHIESTA' e 'RIFIUTATA'.
+     * Recupera la prima pagina dei noleggi dell'utente che ha preso a noleggio gli oggetti, filtrati per stato e ordinati
+     * dal più recente per data di richiesta e ID.
      *
-     * @return Lista di noleggi in stato 'RICHIESTA'.
+     * @param noleggiante Utente di cui si vogliono ottenere i noleggi.
+     * @param stati Stati dei noleggi da recuperare.
+     * @param pageable Dimensione della pagina.
+     * @return Lista dei noleggi della prima pagina.
      */
-    @Query("select n from Noleggio n where (n.stato = 'RICHIESTA' and n.stato = 'RIFIUTATA')")
-    List<Noleggio> findRichieste();
+    @Query("select n from Noleggio n where n.noleggiante = ?1 and n.stato in ?2 order by n.dataRichiesta desc, n.id desc")
+    List<Noleggio> findPaginaByNoleggiante(final Utente noleggiante, final Collection<Noleggio.EnumStato> stati, final Pageable pageable);
+
+    /**
+     * Recupera la pagina dei noleggi dell'utente che ha preso a noleggio gli oggetti che segue il cursore (dataRichiesta, id),
+     * filtrati per stato e ordinati dal più recente per data di richiesta e ID.
+     *
+     * @param noleggiante Utente di cui si vogliono ottenere i noleggi.
+     * @param stati Stati dei noleggi da recuperare.
+     * @param dataRichiesta Data di richiesta dell'ultimo noleggio della pagina precedente.
+     * @param id ID dell'ultimo noleggio della pagina precedente.
+     * @param pageable Dimensione della pagina.
+     * @return Lista dei noleggi della pagina successiva al cursore.
+     */
+    @Query("select n from Noleggio n where n.noleggiante = ?1 and n.stato in ?2" +
+            " and (n.dataRichiesta < ?3 or (n.dataRichiesta = ?3 and n.id < ?4)) order by n.dataRichiesta desc, n.id desc")
+    List<Noleggio> findPaginaByNoleggianteDopo(final Utente noleggiante, final Collection<Noleggio.EnumStato> stati, final Date dataRichiesta, final long id, final Pageable pageable);
+
+    /**
+     * Recupera la prima pagina dei noleggi dell'utente che ha dato a noleggio gli oggetti, filtrati per stato e ordinati
+     * dal più recente per data di richiesta e ID.
+     *
+     * @param noleggiatore Utente di cui si vogliono ottenere i noleggi.
+     * @param stati Stati dei noleggi da recuperare.
+     * @param pageable Dimensione della pagina.
+     * @return Lista dei noleggi della prima pagina.
+     */
+    @Query("select n from Noleggio n where n.noleggiatore = ?1 and n.stato in ?2 order by n.dataRichiesta desc, n.id desc")
+    List<Noleggio> findPaginaByNoleggiatore(final Utente noleggiatore, final Collection<Noleggio.EnumStato> stati, final Pageable pageable);
+
+    /**
+     * Recupera la pagina dei noleggi dell'utente che ha dato a noleggio gli oggetti che segue il cursore (dataRichiesta, id),
+     * filtrati per stato e ordinati dal più recente per data di richiesta e ID.
+     *
+     * @param noleggiatore Utente di cui si vogliono ottenere i noleggi.
+     * @param stati Stati dei noleggi da recuperare.
+     * @param dataRichiesta Data di richiesta dell'ultimo noleggio della pagina precedente.
+     * @param id ID dell'ultimo noleggio della pagina precedente.
+     * @param pageable Dimensione della pagina.
+     * @return Lista dei noleggi della pagina successiva al cursore.
+     */
+    @Query("select n from Noleggio n where n.noleggiatore = ?1 and n.stato in ?2" +
+            " and (n.dataRichiesta < ?3 or (n.dataRichiesta = ?3 and n.id < ?4)) order by n.dataRichiesta desc, n.id desc")
+    List<Noleggio> findPaginaByNoleggiatoreDopo(final Utente noleggiatore, final Collection<Noleggio.EnumStato> stati, final Date dataRichiesta, final long id, final Pageable pageable);
+
+    /**
+     * Recupera gli ID dei noleggi che si trovano in uno degli stati indicati e la cui data di richiesta
+     * è precedente o uguale alla soglia specificata. La query è una scansione di intervallo
+     * sull'indice composto (stato, dataRichiesta).
+     *
+     * @param stati Stati dei noleggi da recuperare.
+     * @param soglia Data di richiesta massima dei noleggi da recuperare.
+     * @param pageable Dimensione del blocco di ID da recuperare.
+     * @return Lista degli ID dei noleggi scaduti, al più pari alla dimensione del blocco.
+     */
+    @Query("select n.id from Noleggio n where n.stato in ?1 and n.dataRichiesta <= ?2 order by n.dataRichiesta")
+    List<Long> findIdRichiesteScadute(final Collection<Noleggio.EnumStato> stati, final Date soglia, final Pageable pageable);
+
+    /**
+     * Elimina i noleggi identificati dagli ID specificati con un'unica istruzione.
+     *
+     * @param ids ID dei noleggi da eliminare.
+     * @return Numero di noleggi eliminati.
+     */
+    @Modifying
+    @Query("delete from Noleggio n where n.id in ?1")
+    int deleteByIdIn(final Collection<Long> ids);
 
     /**
      * Recupera i noleggi in stato 'RICHIESTA' associati a un determinato noleggiante.
@@ -80,4 +152,13 @@ public interface GestioneNoleggioDAO extends JpaRepository<Noleggio, Long> {
      */
     @Query("SELECT t FROM Noleggio t where (t.stato = 'IN_CORSO') and (t.dataFine <= ?1)")
     List<Noleggio> checkFineNoleggio (final Date dateNow);
+
+    /**
+     * Recupera i valori di tutti i noleggi utili alla costruzione dei riepiloghi,
+     * senza caricare i noleggi e le entità associate.
+     *
+     * @return Lista di righe (ID annuncio, stato, prezzo totale, data di inizio, data di fine).
+     */
+    @Query("select a.id, n.stato, n.prezzoTotale, n.dataInizio, n.dataFine from Noleggio n left join n.annuncio a")
+    List<Object[]> findValoriRiepilogo();
 }
@@ -0,0 +1,54 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.NoleggioEvento;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per il log degli eventi dei noleggi.
+ * Il log è append-only: gli eventi vengono solo inseriti e letti in ordine di ID.
+ */
+@Repository
+public interface GestioneNoleggioEventoDAO extends JpaRepository<NoleggioEvento, Long> {
+
+    /**
+     * Recupera gli eventi successivi a un offset, in ordine di ID.
+     *
+     * @param offset ID dell'ultimo evento già letto.
+     * @param pageable Numero massimo di eventi da recuperare.
+     * @return Lista degli eventi con ID maggiore dell'offset.
+     */
+    List<NoleggioEvento> findByIdGreaterThanOrderByIdAsc(final long offset, final Pageable pageable);
+
+    /**
+     * Recupera gli eventi con gli ID specificati, in ordine di ID.
+     *
+     * @param ids ID degli eventi da recuperare.
+     * @return Lista degli eventi visibili tra quelli specificati.
+     */
+    List<NoleggioEvento> findByIdInOrderByIdAsc(final Collection<Long> ids);
+
+    /**
+     * Costruisce gli eventi di eliminazione dei noleggi specificati a partire dai loro valori attuali,
+     * senza caricare i noleggi e le entità associate.
+     *
+     * @param ids ID dei noleggi da eliminare.
+     * @return Lista degli eventi di eliminazione, senza istante.
+     */
+    @Query("select new it.unisa.c02.rently.rently_application.data.model.NoleggioEvento(n.id, a.id, n.stato, n.prezzoTotale, n.dataInizio, n.dataFine) " +
+            "from Noleggio n left join n.annuncio a where n.id in ?1")
+    List<NoleggioEvento> creaEventiEliminazione(final Collection<Long> ids);
+
+    /**
+     * Recupera l'ID dell'ultimo evento registrato.
+     *
+     * @return ID dell'ultimo evento, 0 se il log è vuoto.
+     */
+    @Query("select coalesce(max(e.id), 0) from NoleggioEvento e")
+    long findUltimoId();
+}
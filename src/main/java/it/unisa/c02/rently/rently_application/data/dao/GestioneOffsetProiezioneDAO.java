@@ -0,0 +1,54 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.OffsetProiezione;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per gli offset delle proiezioni del log degli eventi dei noleggi.
+ */
+@Repository
+public interface GestioneOffsetProiezioneDAO extends JpaRepository<OffsetProiezione, String> {
+
+    /**
+     * Avanza l'offset di una proiezione solo se coincide ancora con quello letto prima dell'elaborazione,
+     * così che lo stesso blocco di eventi non venga applicato due volte da nodi diversi.
+     * Deve essere eseguito nella stessa transazione in cui la proiezione applica il blocco.
+     *
+     * @param nome Nome della proiezione.
+     * @param atteso Offset letto prima dell'elaborazione del blocco.
+     * @param valore Nuovo offset della proiezione.
+     * @return 1 se l'offset è stato avanzato, 0 se nel frattempo è stato modificato.
+     */
+    @Modifying
+    @Query("update OffsetProiezione o set o.valore = ?3 where o.nome = ?1 and o.valore = ?2")
+    int avanza(final String nome, final long atteso, final long valore);
+
+    /**
+     * Crea l'offset di una proiezione mai elaborata. L'inserimento fallisce con una violazione
+     * della chiave primaria se un altro nodo ha creato l'offset nel frattempo.
+     *
+     * @param nome Nome della proiezione.
+     * @param valore Offset iniziale della proiezione.
+     * @return 1 se l'offset è stato creato.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into proiezione_offset (nome, valore) values (?1, ?2)", nativeQuery = true)
+    int inserisci(final String nome, final long valore);
+
+    /**
+     * Imposta l'offset di una proiezione, ad esempio per rielaborare il log da una posizione precedente.
+     *
+     * @param nome Nome della proiezione.
+     * @param valore Nuovo offset della proiezione.
+     * @return 1 se l'offset è stato impostato, 0 se la proiezione non ha ancora un offset.
+     */
+    @Transactional
+    @Modifying
+    @Query("update OffsetProiezione o set o.valore = ?2 where o.nome = ?1")
+    int imposta(final String nome, final long valore);
+}
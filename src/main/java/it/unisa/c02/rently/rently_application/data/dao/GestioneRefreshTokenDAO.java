@@ -0,0 +1,56 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per la gestione dei refresh token.
+ */
+@Repository
+public interface GestioneRefreshTokenDAO extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Restituisce il refresh token con l'hash specificato.
+     *
+     * @param hash Hash SHA-256 del token, in esadecimale.
+     * @return RefreshToken con l'hash specificato, null se non esiste.
+     */
+    RefreshToken findByHash(final String hash);
+
+    /**
+     * Revoca un refresh token solo se non è già stato usato o revocato.
+     *
+     * @param id ID del refresh token.
+     * @return 1 se il token è stato revocato, 0 se era già stato usato o revocato.
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.revocato = true where r.id = ?1 and r.revocato = false")
+    int revoca(final long id);
+
+    /**
+     * Revoca tutti i refresh token ancora validi di un utente.
+     *
+     * @param idUtente ID dell'utente.
+     * @return Numero di refresh token revocati.
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.revocato = true where r.idUtente = ?1 and r.revocato = false")
+    int revocaTutti(final long idUtente);
+
+    /**
+     * Elimina i refresh token scaduti.
+     *
+     * @param adesso Timestamp attuale.
+     * @return Numero di refresh token eliminati.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.scadenza < ?1")
+    int deleteScaduti(final Timestamp adesso);
+}
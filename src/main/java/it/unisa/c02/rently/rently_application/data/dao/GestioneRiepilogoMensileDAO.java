@@ -0,0 +1,47 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.RiepilogoMensile;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per i riepiloghi mensili dei noleggi degli annunci.
+ */
+@Repository
+public interface GestioneRiepilogoMensileDAO extends JpaRepository<RiepilogoMensile, Long> {
+
+    /**
+     * Somma le variazioni specificate al riepilogo di un annuncio in un mese e in uno stato,
+     * creando il riepilogo se non esiste.
+     *
+     * @param idAnnuncio ID dell'annuncio.
+     * @param mese Mese nel formato aaaamm.
+     * @param stato Nome dello stato dei noleggi.
+     * @param numero Variazione del numero di noleggi.
+     * @param giorni Variazione dei giorni occupati.
+     * @param ricavo Variazione del ricavo.
+     * @return Numero di righe modificate.
+     */
+    @Modifying
+    @Query(value = "insert into annuncio_riepilogo_mensile (id_annuncio, mese, stato, numero, giorni, ricavo) values (?1, ?2, ?3, ?4, ?5, ?6) " +
+            "on duplicate key update numero = numero + values(numero), giorni = giorni + values(giorni), ricavo = ricavo + values(ricavo)",
+            nativeQuery = true)
+    int incrementa(final long idAnnuncio, final int mese, final String stato, final long numero, final long giorni, final BigDecimal ricavo);
+
+    /**
+     * Recupera i riepiloghi degli annunci di un utente in un intervallo di mesi.
+     *
+     * @param utente Utente proprietario degli annunci.
+     * @param da Primo mese dell'intervallo, nel formato aaaamm.
+     * @param a Ultimo mese dell'intervallo, nel formato aaaamm.
+     * @return Lista dei riepiloghi, ordinati per annuncio e mese.
+     */
+    @Query("select r from RiepilogoMensile r, Annuncio a where a.id = r.idAnnuncio and a.utente = ?1 and r.mese between ?2 and ?3 order by r.idAnnuncio, r.mese")
+    List<RiepilogoMensile> findByUtenteAndMesi(final Utente utente, final int da, final int a);
+}
@@ -0,0 +1,39 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.TermineMessaggio;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per l'indice di ricerca dei messaggi.
+ */
+@Repository
+public interface GestioneTermineMessaggioDAO extends JpaRepository<TermineMessaggio, Long> {
+
+    /**
+     * Cerca nell'indice di un utente i messaggi che contengono tutti i termini specificati, dal più recente.
+     *
+     * @param idUtente ID dell'utente.
+     * @param termini Termini da cercare.
+     * @param numeroTermini Numero dei termini da cercare.
+     * @param limite Numero massimo di messaggi da recuperare.
+     * @return Lista delle coppie (ID del messaggio, ID dell'altro partecipante) ordinate per ID del messaggio decrescente.
+     */
+    @Query(value = "select id_messaggio, min(id_altro_utente) from messaggio_termine where id_utente = ?1 and termine in (?2) " +
+            "group by id_messaggio having count(*) = ?3 order by id_messaggio desc limit ?4",
+            nativeQuery = true)
+    List<Object[]> cerca(final long idUtente, final Collection<String> termini, final int numeroTermini, final int limite);
+
+    /**
+     * Recupera, tra i messaggi specificati, quelli che hanno almeno un'occorrenza nell'indice.
+     *
+     * @param idMessaggi ID dei messaggi.
+     * @return Lista degli ID dei messaggi già indicizzati.
+     */
+    @Query("select distinct t.idMessaggio from TermineMessaggio t where t.idMessaggio in ?1")
+    List<Long> findIdMessaggiIndicizzati(final Collection<Long> idMessaggi);
+}
@@ -0,0 +1,48 @@
+package it.unisa.c02.rently.rently_application.data.dao;
+
+import it.unisa.c02.rently.rently_application.data.model.TokenRevocato;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * DAO che definisce le operazioni di accesso dati per la lista dei token di accesso revocati.
+ */
+@Repository
+public interface GestioneTokenRevocatoDAO extends JpaRepository<TokenRevocato, String> {
+
+    /**
+     * Restituisce un blocco di revoche non ancora scadute, in ordine di jti.
+     *
+     * @param jti Jti dell'ultima revoca del blocco precedente.
+     * @param adesso Timestamp attuale.
+     * @param pageable Dimensione del blocco.
+     * @return Lista delle revoche con jti maggiore di quello specificato.
+     */
+    List<TokenRevocato> findByJtiGreaterThanAndScadenzaAfterOrderByJtiAsc(final String jti, final Timestamp adesso, final Pageable pageable);
+
+    /**
+     * Restituisce le revoche create a partire dal timestamp specificato.
+     *
+     * @param creazione Timestamp a partire dal quale cercare le revoche.
+     * @return Lista delle revoche create a partire dal timestamp.
+     */
+    List<TokenRevocato> findByCreazioneGreaterThanEqual(final Timestamp creazione);
+
+    /**
+     * Elimina le revoche dei token già scaduti.
+     *
+     * @param adesso Timestamp attuale.
+     * @return Numero di revoche eliminate.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from TokenRevocato t where t.scadenza < ?1")
+    int deleteScaduti(final Timestamp adesso);
+}
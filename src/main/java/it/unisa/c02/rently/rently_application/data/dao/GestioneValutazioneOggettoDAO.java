@@ -1,11 +1,14 @@
 package it.unisa.c02.rently.rently_application.data.dao;
 
+import it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO;
 import it.unisa.c02.rently.rently_application.data.model.Annuncio;
 import it.unisa.c02.rently.rently_application.data.model.ValutazioneOggetto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,15 +25,6 @@ public interface GestioneValutazioneOggettoDAO extends JpaRepository<Valutazione
      */
     List<ValutazioneOggetto> findByAnnuncio(final Annuncio annuncio);
 
-    /**
-     * Calcola la media delle valutazioni di un oggetto identificato da un annuncio.
-     *
-     * @param annuncio Identificativo dell'annuncio associato all'oggetto valutato.
-     * @return Media delle valutazioni dell'oggetto, espresso come valore decimale.
-     */
-    @Query("select AVG(v.voto) from ValutazioneOggetto v where v.annuncio = ?1")
-    double mediaValutazioniOggettoById(final long annuncio);
-
     /**
      * Verifica se esiste una valutazione associata a un annuncio di un noleggio specifico.
      *
@@ -39,4 +33,65 @@ public interface GestioneValutazioneOggettoDAO extends JpaRepository<Valutazione
      */
     @Query("select vo from Noleggio n, ValutazioneOggetto vo where n.id=?1 and n = vo.noleggio and n.annuncio = vo.annuncio and n.noleggiante = vo.valutatore")
     ValutazioneOggetto valutazioneAnnuncioIsPresent(final long idNoleggio);
+
+    /**
+     * Recupera, tra i noleggi specificati, quelli per cui il noleggiante ha già valutato l'annuncio.
+     *
+     * @param idNoleggi Identificativi dei noleggi.
+     * @return Lista degli ID dei noleggi con una valutazione dell'annuncio.
+     */
+    @Query("select n.id from ValutazioneOggetto vo join vo.noleggio n where n.id in ?1 and n.annuncio = vo.annuncio and n.noleggiante = vo.valutatore")
+    List<Long> valutazioniAnnuncioPresentiByNoleggi(final Collection<Long> idNoleggi);
+
+    /**
+     * Recupera gli ID degli annunci valutati successivi a quello specificato, in ordine di ID.
+     * Utilizzato per verificare gli aggregati delle valutazioni a blocchi: la lettura scorre solo le voci dell'indice del blocco.
+     *
+     * @param dopo ID dopo il quale iniziare il blocco.
+     * @param pageable Numero massimo di ID da recuperare.
+     * @return Lista degli ID, ordinati.
+     */
+    @Query("select distinct v.annuncio.id from ValutazioneOggetto v where v.annuncio.id > ?1 order by v.annuncio.id")
+    List<Long> idAnnunciValutatiDopo(final long dopo, final Pageable pageable);
+
+    /**
+     * Calcola somma e numero dei voti degli annunci valutati specificati.
+     *
+     * @param ids ID degli annunci valutati.
+     * @return Lista di righe (ID, somma dei voti riportati nell'intervallo [0, 10], numero di valutazioni), solo per gli ID con almeno una valutazione.
+     */
+    @Query("select v.annuncio.id, sum(least(greatest(v.voto, 0), 10)), count(v) from ValutazioneOggetto v where v.annuncio.id in ?1 group by v.annuncio.id")
+    List<Object[]> sommeVoti(final Collection<Long> ids);
+
+    /**
+     * Calcola la distribuzione dei voti di un annuncio valutato.
+     *
+     * @param id ID dell'annuncio valutato.
+     * @return Lista di righe (voto, numero di valutazioni con quel voto).
+     */
+    @Query("select v.voto, count(v) from ValutazioneOggetto v where v.annuncio.id = ?1 group by v.voto")
+    List<Object[]> distribuzioneVoti(final long id);
+
+    /**
+     * Recupera la prima pagina delle valutazioni di un annuncio, dalla più recente, leggendo solo le colonne del DTO.
+     *
+     * @param id ID dell'annuncio valutato.
+     * @param pageable Numero massimo di valutazioni da recuperare.
+     * @return Lista delle valutazioni ordinate per ID decrescente.
+     */
+    @Query("select new it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO(v.id, v.voto, v.descrizione, v.annuncio.id, vr.id, n.id) " +
+            "from ValutazioneOggetto v left join v.valutatore vr left join v.noleggio n where v.annuncio.id = ?1 order by v.id desc")
+    List<ValutazioneDTO> findPaginaByAnnuncio(final long id, final Pageable pageable);
+
+    /**
+     * Recupera la pagina delle valutazioni di un annuncio successiva a quella terminata con la valutazione specificata.
+     *
+     * @param id ID dell'annuncio valutato.
+     * @param prima ID dell'ultima valutazione della pagina precedente.
+     * @param pageable Numero massimo di valutazioni da recuperare.
+     * @return Lista delle valutazioni con ID minore di quello specificato, ordinate per ID decrescente.
+     */
+    @Query("select new it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO(v.id, v.voto, v.descrizione, v.annuncio.id, vr.id, n.id) " +
+            "from ValutazioneOggetto v left join v.valutatore vr left join v.noleggio n where v.annuncio.id = ?1 and v.id < ?2 order by v.id desc")
+    List<ValutazioneDTO> findPaginaByAnnuncioPrima(final long id, final long prima, final Pageable pageable);
 }
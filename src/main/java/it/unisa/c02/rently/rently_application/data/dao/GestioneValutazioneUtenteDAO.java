@@ -1,11 +1,14 @@
 package it.unisa.c02.rently.rently_application.data.dao;
 
+import it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
 import it.unisa.c02.rently.rently_application.data.model.ValutazioneUtente;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,15 +25,6 @@ public interface GestioneValutazioneUtenteDAO extends JpaRepository<ValutazioneU
      */
     List<ValutazioneUtente> findByValutato(final Utente valutato);
 
-    /**
-     * Calcola la media delle valutazioni di un utente identificato dal suo ID.
-     *
-     * @param valutato Identificativo dell'utente.
-     * @return Media delle valutazioni dell'utente, espresso come valore decimale.
-     */
-    @Query("select AVG(v.voto) from ValutazioneUtente v where v.valutato = ?1")
-    double mediaValutazioniUtenteById(final long valutato);
-
     /**
      * Verifica se esiste una valutazione associata al noleggiante in un noleggio specifico.
      *
@@ -48,4 +42,69 @@ public interface GestioneValutazioneUtenteDAO extends JpaRepository<ValutazioneU
      */
     @Query("select vu from Noleggio n, ValutazioneUtente vu where n.id =?1 and n = vu.noleggio and n.noleggiante = vu.valutatore and  n.noleggiatore = vu.valutato")
     ValutazioneUtente valutazioneNoleggiatoreIsPresent(final long idNoleggio);
+
+    /**
+     * Recupera, per un insieme di noleggi, le valutazioni tra noleggiante e noleggiatore già presenti.
+     * Ogni riga contiene l'ID del noleggio e un flag che vale true se la valutazione è rivolta al noleggiante,
+     * false se è rivolta al noleggiatore.
+     *
+     * @param idNoleggi Identificativi dei noleggi.
+     * @return Lista di coppie (ID del noleggio, valutazione al noleggiante).
+     */
+    @Query("select n.id, case when vu.valutato = n.noleggiante then true else false end from ValutazioneUtente vu join vu.noleggio n" +
+            " where n.id in ?1 and ((n.noleggiante = vu.valutato and n.noleggiatore = vu.valutatore)" +
+            " or (n.noleggiante = vu.valutatore and n.noleggiatore = vu.valutato))")
+    List<Object[]> valutazioniPresentiByNoleggi(final Collection<Long> idNoleggi);
+
+    /**
+     * Recupera gli ID degli utenti valutati successivi a quello specificato, in ordine di ID.
+     * Utilizzato per verificare gli aggregati delle valutazioni a blocchi: la lettura scorre solo le voci dell'indice del blocco.
+     *
+     * @param dopo ID dopo il quale iniziare il blocco.
+     * @param pageable Numero massimo di ID da recuperare.
+     * @return Lista degli ID, ordinati.
+     */
+    @Query("select distinct v.valutato.id from ValutazioneUtente v where v.valutato.id > ?1 order by v.valutato.id")
+    List<Long> idValutatiDopo(final long dopo, final Pageable pageable);
+
+    /**
+     * Calcola somma e numero dei voti degli utenti valutati specificati.
+     *
+     * @param ids ID degli utenti valutati.
+     * @return Lista di righe (ID, somma dei voti riportati nell'intervallo [0, 10], numero di valutazioni), solo per gli ID con almeno una valutazione.
+     */
+    @Query("select v.valutato.id, sum(least(greatest(v.voto, 0), 10)), count(v) from ValutazioneUtente v where v.valutato.id in ?1 group by v.valutato.id")
+    List<Object[]> sommeVoti(final Collection<Long> ids);
+
+    /**
+     * Calcola la distribuzione dei voti di un utente valutato.
+     *
+     * @param id ID dell'utente valutato.
+     * @return Lista di righe (voto, numero di valutazioni con quel voto).
+     */
+    @Query("select v.voto, count(v) from ValutazioneUtente v where v.valutato.id = ?1 group by v.voto")
+    List<Object[]> distribuzioneVoti(final long id);
+
+    /**
+     * Recupera la prima pagina delle valutazioni di un utente, dalla più recente, leggendo solo le colonne del DTO.
+     *
+     * @param id ID dell'utente valutato.
+     * @param pageable Numero massimo di valutazioni da recuperare.
+     * @return Lista delle valutazioni ordinate per ID decrescente.
+     */
+    @Query("select new it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO(v.id, v.voto, v.descrizione, v.valutato.id, vr.id, n.id) " +
+            "from ValutazioneUtente v left join v.valutatore vr left join v.noleggio n where v.valutato.id = ?1 order by v.id desc")
+    List<ValutazioneDTO> findPaginaByValutato(final long id, final Pageable pageable);
+
+    /**
+     * Recupera la pagina delle valutazioni di un utente successiva a quella terminata con la valutazione specificata.
+     *
+     * @param id ID dell'utente valutato.
+     * @param prima ID dell'ultima valutazione della pagina precedente.
+     * @param pageable Numero massimo di valutazioni da recuperare.
+     * @return Lista delle valutazioni con ID minore di quello specificato, ordinate per ID decrescente.
+     */
+    @Query("select new it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO(v.id, v.voto, v.descrizione, v.valutato.id, vr.id, n.id) " +
+            "from ValutazioneUtente v left join v.valutatore vr left join v.noleggio n where v.valutato.id = ?1 and v.id < ?2 order by v.id desc")
+    List<ValutazioneDTO> findPaginaByValutatoPrima(final long id, final long prima, final Pageable pageable);
 }
@@ -0,0 +1,60 @@
+package it.unisa.c02.rently.rently_application.data.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta la posizione di un annuncio nella classifica degli annunci meglio valutati.
+ */
+@Getter
+@Setter
+public class ClassificaAnnuncioDTO {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public ClassificaAnnuncioDTO() {
+
+    }
+
+    /**
+     * Costruttore con informazioni complete.
+     * @param idAnnuncio ID dell'annuncio.
+     * @param categoria Categoria dell'annuncio.
+     * @param punteggio Media bayesiana dei voti, utilizzata per l'ordinamento.
+     * @param media Media dei voti.
+     * @param numero Numero di valutazioni.
+     */
+    public ClassificaAnnuncioDTO(final long idAnnuncio, final String categoria, final double punteggio, final double media, final long numero) {
+        this.idAnnuncio = idAnnuncio;
+        this.categoria = categoria;
+        this.punteggio = punteggio;
+        this.media = media;
+        this.numero = numero;
+    }
+
+    /**
+     * ID dell'annuncio.
+     */
+    private long idAnnuncio;
+
+    /**
+     * Categoria dell'annuncio.
+     */
+    private String categoria;
+
+    /**
+     * Media bayesiana dei voti, utilizzata per l'ordinamento.
+     */
+    private double punteggio;
+
+    /**
+     * Media dei voti.
+     */
+    private double media;
+
+    /**
+     * Numero di valutazioni.
+     */
+    private long numero;
+}
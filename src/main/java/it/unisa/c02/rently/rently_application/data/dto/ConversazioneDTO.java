@@ -0,0 +1,79 @@
+package it.unisa.c02.rently.rently_application.data.dto;
+
+import it.unisa.c02.rently.rently_application.data.model.Conversazione;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta il DTO del riepilogo di una conversazione nella lista delle conversazioni di un utente.
+ */
+@Getter
+@Setter
+public class ConversazioneDTO {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public ConversazioneDTO() {
+        //Costruttore vuoto
+    }
+
+    /**
+     * Rappresenta l'ID dell'altro partecipante alla conversazione.
+     */
+    private long idAltroUtente;
+
+    /**
+     * Rappresenta l'ID dell'ultimo messaggio della conversazione.
+     */
+    private long idUltimoMessaggio;
+
+    /**
+     * Rappresenta l'ID del mittente dell'ultimo messaggio.
+     */
+    private long idUltimoMittente;
+
+    /**
+     * Rappresenta l'inizio del testo dell'ultimo messaggio.
+     */
+    private String anteprima;
+
+    /**
+     * Rappresenta l'orario di invio dell'ultimo messaggio.
+     */
+    private String orarioUltimoMessaggio;
+
+    /**
+     * Rappresenta il numero di messaggi non letti.
+     */
+    private long nonLetti;
+
+    /**
+     * Rappresenta l'ID dell'ultimo messaggio letto dall'utente.
+     */
+    private long idUltimoLetto;
+
+    /**
+     * Rappresenta l'ID dell'ultimo messaggio letto dall'altro partecipante.
+     */
+    private long idUltimoLettoAltro;
+
+    /**
+     * Converte una Conversazione in un ConversazioneDTO.
+     * @param c riepilogo della conversazione da convertire in DTO
+     * @return il DTO convertito dal riepilogo
+     */
+    public ConversazioneDTO convertFromModel(final Conversazione c) {
+        final ConversazioneDTO item = new ConversazioneDTO();
+        item.setIdAltroUtente(c.getIdAltroUtente());
+        item.setIdUltimoMessaggio(c.getIdUltimoMessaggio());
+        item.setIdUltimoMittente(c.getIdUltimoMittente());
+        item.setAnteprima(c.getAnteprima());
+        item.setOrarioUltimoMessaggio(String.valueOf(c.getOrarioUltimoMessaggio()));
+        item.setNonLetti(c.getNonLetti());
+        item.setIdUltimoLetto(c.getIdUltimoLetto());
+        item.setIdUltimoLettoAltro(c.getIdUltimoLettoAltro());
+
+        return item;
+    }
+}
@@ -0,0 +1,46 @@
+package it.unisa.c02.rently.rently_application.data.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta la media e il numero delle valutazioni ricevute da un utente o da un annuncio.
+ */
+@Getter
+@Setter
+public class MediaValutazioniDTO {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public MediaValutazioniDTO() {
+
+    }
+
+    /**
+     * Costruttore con informazioni complete.
+     * @param id ID dell'utente o dell'annuncio valutato.
+     * @param media Media dei voti.
+     * @param numero Numero di valutazioni.
+     */
+    public MediaValutazioniDTO(final long id, final double media, final long numero) {
+        this.id = id;
+        this.media = media;
+        this.numero = numero;
+    }
+
+    /**
+     * ID dell'utente o dell'annuncio valutato.
+     */
+    private long id;
+
+    /**
+     * Media dei voti, 0 se non ci sono valutazioni.
+     */
+    private double media;
+
+    /**
+     * Numero di valutazioni.
+     */
+    private long numero;
+}
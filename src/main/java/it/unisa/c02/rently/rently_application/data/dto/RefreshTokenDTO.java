@@ -0,0 +1,17 @@
+package it.unisa.c02.rently.rently_application.data.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta un DTO del refresh token usato per rinnovare o chiudere una sessione.
+ */
+@Getter
+@Setter
+public class RefreshTokenDTO {
+
+    /**
+     * Rappresenta il refresh token ricevuto all'accesso o all'ultimo rinnovo.
+     */
+    private String refreshToken;
+}
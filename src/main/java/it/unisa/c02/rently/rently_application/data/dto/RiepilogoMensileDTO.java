@@ -0,0 +1,58 @@
+package it.unisa.c02.rently.rently_application.data.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Questa classe rappresenta il riepilogo mensile dei guadagni e dell'occupazione di un annuncio.
+ */
+@Getter
+@Setter
+public class RiepilogoMensileDTO {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public RiepilogoMensileDTO() {
+
+    }
+
+    /**
+     * ID dell'annuncio.
+     */
+    private long idAnnuncio;
+
+    /**
+     * Mese del riepilogo, nel formato aaaa-mm.
+     */
+    private String mese;
+
+    /**
+     * Guadagno del mese, relativo ai noleggi accettati o successivi.
+     */
+    private BigDecimal ricavo = BigDecimal.ZERO;
+
+    /**
+     * Giorni del mese occupati da noleggi accettati o successivi.
+     */
+    private long giorniOccupati;
+
+    /**
+     * Numero di giorni del mese.
+     */
+    private int giorniMese;
+
+    /**
+     * Percentuale dei giorni del mese occupati.
+     */
+    private double occupazione;
+
+    /**
+     * Numero di noleggi che iniziano nel mese, per stato.
+     */
+    private Map<String, Long> noleggiPerStato = new LinkedHashMap<>();
+}
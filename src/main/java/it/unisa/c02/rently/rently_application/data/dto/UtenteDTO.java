@@ -129,4 +129,9 @@ public class UtenteDTO {
      * Rappresenta un token necessario per i servizi di autenticazione.
      */
     private String token;
+
+    /**
+     * Rappresenta il refresh token con cui rinnovare il token di accesso alla sua scadenza.
+     */
+    private String refreshToken;
 }
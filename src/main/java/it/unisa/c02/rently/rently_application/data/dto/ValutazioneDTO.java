@@ -36,6 +36,29 @@ public class ValutazioneDTO {
         this.noleggio = noleggio;
     }
 
+    /**
+     * Costruttore utilizzato dalle query di paginazione, che leggono solo le colonne del DTO.
+     * @param id ID della valutazione.
+     * @param voto Voto assegnato.
+     * @param descrizione Descrizione della valutazione.
+     * @param valutato id dell'utente o dell'annuncio che è stato valutato.
+     * @param valutatore id dell'utente che ha effettuato la valutazione, null se eliminato.
+     * @param noleggio id del noleggio associato, null se eliminato.
+     */
+    public ValutazioneDTO(final long id, final int voto, final String descrizione, final long valutato, final Long valutatore, final Long noleggio) {
+        this.id = id;
+        this.voto = voto;
+        this.descrizione = descrizione;
+        this.valutato = valutato;
+        this.valutatore = valutatore != null ? valutatore : 0;
+        this.noleggio = noleggio != null ? noleggio : 0;
+    }
+
+    /**
+     * Rappresenta l'ID della valutazione.
+     */
+    private long id;
+
     /**
      * Rappresenta il voto assegnato all'utente.
      */
@@ -69,6 +92,7 @@ public class ValutazioneDTO {
      */
     public ValutazioneDTO convertFromValutazioneOggetto(final ValutazioneOggetto vo) {
         final ValutazioneDTO item = new ValutazioneDTO();
+        item.setId(vo.getId());
         item.setDescrizione(vo.getDescrizione());
         item.setVoto(vo.getVoto());
         item.setValutato(vo.getAnnuncio().getId());
@@ -85,6 +109,7 @@ public class ValutazioneDTO {
      */
     public ValutazioneDTO convertFromValutazioneUtente(final ValutazioneUtente vu) {
         final ValutazioneDTO item = new ValutazioneDTO();
+        item.setId(vu.getId());
         item.setDescrizione(vu.getDescrizione());
         item.setVoto(vu.getVoto());
         item.setValutato(vu.getValutato().getId());
@@ -0,0 +1,34 @@
+package it.unisa.c02.rently.rently_application.data.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta le valutazioni già presenti per un noleggio.
+ */
+@Getter
+@Setter
+public class ValutazioniPresentiDTO {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public ValutazioniPresentiDTO() {
+
+    }
+
+    /**
+     * Indica se il noleggiatore ha valutato il noleggiante.
+     */
+    private boolean valutazioneAlNoleggiante;
+
+    /**
+     * Indica se il noleggiante ha valutato il noleggiatore.
+     */
+    private boolean valutazioneAlNoleggiatore;
+
+    /**
+     * Indica se il noleggiante ha valutato l'annuncio.
+     */
+    private boolean valutazioneAnnuncio;
+}
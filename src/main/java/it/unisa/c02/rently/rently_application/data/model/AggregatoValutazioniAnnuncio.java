@@ -0,0 +1,68 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta la somma e il numero delle valutazioni ricevute da un annuncio,
+ * insieme alla distribuzione dei voti, mantenuti a ogni inserimento ed eliminazione di una valutazione
+ * per leggerne media e distribuzione con un accesso per chiave primaria.
+ */
+@Entity
+@Table(name = "valutazione_annuncio_aggregato")
+@Getter
+@Setter
+public class AggregatoValutazioniAnnuncio {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public AggregatoValutazioniAnnuncio() {
+    }
+
+    /**
+     * Rappresenta l'ID dell'annuncio valutato.
+     */
+    @Id
+    private long idAnnuncio;
+
+    /**
+     * Rappresenta la somma dei voti delle valutazioni ricevute dall'annuncio.
+     */
+    @Column(nullable = false)
+    private long somma;
+
+    /**
+     * Rappresenta il numero delle valutazioni ricevute dall'annuncio.
+     */
+    @Column(nullable = false)
+    private long numero;
+
+    /**
+     * Rappresenta la distribuzione dei voti delle valutazioni.
+     */
+    @Embedded
+    private IstogrammaVoti istogramma = new IstogrammaVoti();
+
+    /**
+     * Restituisce la media dei voti.
+     * @return Media dei voti, 0 se non ci sono valutazioni.
+     */
+    public double getMedia() {
+        return numero == 0 ? 0 : (double) somma / numero;
+    }
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto AggregatoValutazioniAnnuncio.
+     * @return Stringa che rappresenta l'oggetto AggregatoValutazioniAnnuncio.
+     */
+    @Override
+    public String toString() {
+        return "AggregatoValutazioniAnnuncio{" +
+                "idAnnuncio=" + idAnnuncio +
+                ", somma=" + somma +
+                ", numero=" + numero +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta la somma e il numero delle valutazioni ricevute da un utente,
+ * insieme alla distribuzione dei voti, mantenuti a ogni inserimento ed eliminazione di una valutazione
+ * per leggerne media e distribuzione con un accesso per chiave primaria.
+ */
+@Entity
+@Table(name = "valutazione_utente_aggregato")
+@Getter
+@Setter
+public class AggregatoValutazioniUtente {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public AggregatoValutazioniUtente() {
+    }
+
+    /**
+     * Rappresenta l'ID dell'utente valutato.
+     */
+    @Id
+    private long idUtente;
+
+    /**
+     * Rappresenta la somma dei voti delle valutazioni ricevute dall'utente.
+     */
+    @Column(nullable = false)
+    private long somma;
+
+    /**
+     * Rappresenta il numero delle valutazioni ricevute dall'utente.
+     */
+    @Column(nullable = false)
+    private long numero;
+
+    /**
+     * Rappresenta la distribuzione dei voti delle valutazioni.
+     */
+    @Embedded
+    private IstogrammaVoti istogramma = new IstogrammaVoti();
+
+    /**
+     * Restituisce la media dei voti.
+     * @return Media dei voti, 0 se non ci sono valutazioni.
+     */
+    public double getMedia() {
+        return numero == 0 ? 0 : (double) somma / numero;
+    }
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto AggregatoValutazioniUtente.
+     * @return Stringa che rappresenta l'oggetto AggregatoValutazioniUtente.
+     */
+    @Override
+    public String toString() {
+        return "AggregatoValutazioniUtente{" +
+                "idUtente=" + idUtente +
+                ", somma=" + somma +
+                ", numero=" + numero +
+                '}';
+    }
+}
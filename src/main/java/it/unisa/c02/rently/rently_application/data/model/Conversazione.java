@@ -0,0 +1,107 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Questa classe rappresenta il riepilogo di una conversazione dal punto di vista di uno dei due partecipanti.
+ * Per ogni coppia di utenti esistono due riepiloghi, aggiornati a ogni nuovo messaggio,
+ * così che la lista delle conversazioni di un utente non richieda la lettura dei messaggi.
+ */
+@Entity
+@Table(name = "conversazione",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversazione_utente_altro", columnNames = {"id_utente", "id_altro_utente"}),
+        indexes = @Index(name = "idx_conversazione_utente_ultimo", columnList = "id_utente, id_ultimo_messaggio"))
+@Getter
+@Setter
+public class Conversazione {
+
+    /**
+     * Lunghezza massima dell'anteprima dell'ultimo messaggio.
+     */
+    public static final int LUNGHEZZA_ANTEPRIMA = 200;
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public Conversazione() {
+    }
+
+    /**
+     * Rappresenta l'ID univoco del riepilogo.
+     */
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    /**
+     * Rappresenta l'ID dell'utente a cui appartiene il riepilogo.
+     */
+    @Column(nullable = false)
+    private long idUtente;
+
+    /**
+     * Rappresenta l'ID dell'altro partecipante alla conversazione.
+     */
+    @Column(nullable = false)
+    private long idAltroUtente;
+
+    /**
+     * Rappresenta l'ID dell'ultimo messaggio della conversazione.
+     */
+    @Column(nullable = false)
+    private long idUltimoMessaggio;
+
+    /**
+     * Rappresenta l'ID del mittente dell'ultimo messaggio della conversazione.
+     */
+    @Column(nullable = false)
+    private long idUltimoMittente;
+
+    /**
+     * Rappresenta l'inizio del testo dell'ultimo messaggio della conversazione.
+     */
+    @Column(length = LUNGHEZZA_ANTEPRIMA, nullable = false)
+    private String anteprima;
+
+    /**
+     * Rappresenta l'orario di invio dell'ultimo messaggio della conversazione.
+     */
+    @Column(nullable = false)
+    private Timestamp orarioUltimoMessaggio;
+
+    /**
+     * Rappresenta il numero di messaggi ricevuti dall'utente e non ancora letti.
+     */
+    @Column(nullable = false)
+    private long nonLetti;
+
+    /**
+     * Rappresenta l'ID dell'ultimo messaggio della conversazione letto dall'utente.
+     */
+    @Column(nullable = false)
+    private long idUltimoLetto;
+
+    /**
+     * Rappresenta l'ID dell'ultimo messaggio della conversazione letto dall'altro partecipante.
+     */
+    @Column(nullable = false)
+    private long idUltimoLettoAltro;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto Conversazione.
+     * @return Stringa che rappresenta l'oggetto Conversazione.
+     */
+    @Override
+    public String toString() {
+        return "Conversazione{" +
+                "idUtente=" + idUtente +
+                ", idAltroUtente=" + idAltroUtente +
+                ", idUltimoMessaggio=" + idUltimoMessaggio +
+                ", nonLetti=" + nonLetti +
+                ", idUltimoLetto=" + idUltimoLetto +
+                '}';
+    }
+}
@@ -0,0 +1,123 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta la distribuzione dei voti da 0 a 10 delle valutazioni ricevute da un utente o da un annuncio.
+ * Ogni voto ha una propria colonna, così che inserimenti ed eliminazioni possano aggiornarla atomicamente sul database.
+ */
+@Embeddable
+@Getter
+@Setter
+public class IstogrammaVoti {
+
+    /**
+     * Voto massimo di una valutazione.
+     */
+    public static final int VOTO_MASSIMO = 10;
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public IstogrammaVoti() {
+    }
+
+    /**
+     * Numero di valutazioni con voto 0.
+     */
+    @Column(name = "voti_0", nullable = false)
+    private int voti0;
+
+    /**
+     * Numero di valutazioni con voto 1.
+     */
+    @Column(name = "voti_1", nullable = false)
+    private int voti1;
+
+    /**
+     * Numero di valutazioni con voto 2.
+     */
+    @Column(name = "voti_2", nullable = false)
+    private int voti2;
+
+    /**
+     * Numero di valutazioni con voto 3.
+     */
+    @Column(name = "voti_3", nullable = false)
+    private int voti3;
+
+    /**
+     * Numero di valutazioni con voto 4.
+     */
+    @Column(name = "voti_4", nullable = false)
+    private int voti4;
+
+    /**
+     * Numero di valutazioni con voto 5.
+     */
+    @Column(name = "voti_5", nullable = false)
+    private int voti5;
+
+    /**
+     * Numero di valutazioni con voto 6.
+     */
+    @Column(name = "voti_6", nullable = false)
+    private int voti6;
+
+    /**
+     * Numero di valutazioni con voto 7.
+     */
+    @Column(name = "voti_7", nullable = false)
+    private int voti7;
+
+    /**
+     * Numero di valutazioni con voto 8.
+     */
+    @Column(name = "voti_8", nullable = false)
+    private int voti8;
+
+    /**
+     * Numero di valutazioni con voto 9.
+     */
+    @Column(name = "voti_9", nullable = false)
+    private int voti9;
+
+    /**
+     * Numero di valutazioni con voto 10.
+     */
+    @Column(name = "voti_10", nullable = false)
+    private int voti10;
+
+    /**
+     * Riporta un voto nell'intervallo [0, VOTO_MASSIMO], così che un voto memorizzato fuori dall'intervallo
+     * contribuisca a somma, numero e distribuzione degli aggregati in modo coerente.
+     * @param voto Voto da riportare nell'intervallo.
+     * @return Voto compreso tra 0 e VOTO_MASSIMO.
+     */
+    public static int limita(final int voto) {
+        return Math.max(0, Math.min(voto, VOTO_MASSIMO));
+    }
+
+    /**
+     * Restituisce la distribuzione dei voti.
+     * @return Array di 11 elementi in cui l'elemento i-esimo è il numero di valutazioni con voto i.
+     */
+    public int[] toArray() {
+        return new int[]{voti0, voti1, voti2, voti3, voti4, voti5, voti6, voti7, voti8, voti9, voti10};
+    }
+
+    /**
+     * Restituisce il numero totale di valutazioni nella distribuzione.
+     * @return Somma dei conteggi di tutti i voti.
+     */
+    public long getTotale() {
+        long totale = 0;
+        for (final int numero : toArray()) {
+            totale += numero;
+        }
+        return totale;
+    }
+}
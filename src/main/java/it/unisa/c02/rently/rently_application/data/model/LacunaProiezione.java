@@ -0,0 +1,63 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Questa classe rappresenta un ID mancante nel log degli eventi dei noleggi che una proiezione ha superato
+ * senza averlo applicato, perché la transazione che lo ha ottenuto non aveva ancora eseguito il commit.
+ * Le lacune vengono memorizzate accanto all'offset, così che vengano ricontrollate anche dopo un riavvio o da un altro nodo.
+ */
+@Entity
+@Table(name = "proiezione_lacuna",
+        uniqueConstraints = @UniqueConstraint(name = "uk_lacuna_nome_evento", columnNames = {"nome", "id_evento"}))
+@Getter
+@Setter
+public class LacunaProiezione {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public LacunaProiezione() {
+    }
+
+    /**
+     * Rappresenta l'ID univoco della lacuna.
+     */
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    /**
+     * Rappresenta il nome della proiezione che ha superato la lacuna.
+     */
+    @Column(length=100, nullable = false)
+    private String nome;
+
+    /**
+     * Rappresenta l'ID dell'evento mancante.
+     */
+    @Column(nullable = false)
+    private long idEvento;
+
+    /**
+     * Rappresenta l'istante in cui la proiezione ha superato la lacuna.
+     */
+    @Column(nullable = false)
+    private Timestamp superata;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto LacunaProiezione.
+     * @return Stringa che rappresenta l'oggetto LacunaProiezione.
+     */
+    @Override
+    public String toString() {
+        return "LacunaProiezione{" +
+                "nome='" + nome + '\'' +
+                ", idEvento=" + idEvento +
+                ", superata=" + superata +
+                '}';
+    }
+}
@@ -0,0 +1,86 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Questa classe rappresenta il lease di un job schedulato, che garantisce che il job venga eseguito
+ * da un solo nodo alla volta.
+ */
+@Entity
+@Table(name = "scheduler_lease")
+@Getter
+@Setter
+public class Lease {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public Lease() {
+    }
+
+    /**
+     * Costruttore per la creazione di un lease con informazioni complete.
+     * @param nome Nome del job a cui è associato il lease.
+     * @param proprietario Identificativo del nodo che detiene il lease.
+     * @param acquisito Timestamp di acquisizione del lease.
+     * @param scadenza Timestamp di scadenza del lease.
+     * @param token Token di fencing del lease.
+     */
+    public Lease(final String nome, final String proprietario, final Timestamp acquisito, final Timestamp scadenza, final long token) {
+        this.nome = nome;
+        this.proprietario = proprietario;
+        this.acquisito = acquisito;
+        this.scadenza = scadenza;
+        this.token = token;
+    }
+
+    /**
+     * Rappresenta il nome univoco del job a cui è associato il lease.
+     */
+    @Id
+    @Column(length=100)
+    private String nome;
+
+    /**
+     * Rappresenta l'identificativo del nodo che detiene o ha detenuto per ultimo il lease.
+     */
+    @Column(length=255, nullable = false)
+    private String proprietario;
+
+    /**
+     * Rappresenta il timestamp dell'ultima acquisizione del lease.
+     */
+    @Column(nullable = false)
+    private Timestamp acquisito;
+
+    /**
+     * Rappresenta il timestamp oltre il quale il lease può essere acquisito da un altro nodo.
+     */
+    @Column(nullable = false)
+    private Timestamp scadenza;
+
+    /**
+     * Rappresenta il token di fencing, incrementato a ogni acquisizione del lease.
+     */
+    @Column(nullable = false)
+    private long token;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto Lease.
+     * @return Stringa che rappresenta l'oggetto Lease.
+     */
+    @Override
+    public String toString() {
+        return "Lease{" +
+                "nome='" + nome + '\'' +
+                ", proprietario='" + proprietario + '\'' +
+                ", acquisito=" + acquisito +
+                ", scadenza=" + scadenza +
+                ", token=" + token +
+                '}';
+    }
+}
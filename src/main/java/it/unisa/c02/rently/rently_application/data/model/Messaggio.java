@@ -1,6 +1,7 @@
 package it.unisa.c02.rently.rently_application.data.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.OnDelete;
@@ -12,6 +13,11 @@ import java.sql.Timestamp;
  * Questa classe rappresenta un messaggio inviato sulla piattaforma.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_messaggio_conversazione_orario", columnList = "id_utente_minore, id_utente_maggiore, orario_invio"),
+        @Index(name = "idx_messaggio_conversazione_id", columnList = "id_utente_minore, id_utente_maggiore, id"),
+        @Index(name = "idx_messaggio_orario", columnList = "orario_invio")
+})
 @Getter
 @Setter
 public class Messaggio {
@@ -70,6 +76,30 @@ public class Messaggio {
     @OnDelete(action = OnDeleteAction.SET_NULL)
     private Utente destinatario;
 
+    /**
+     * Rappresenta il minore tra gli ID dei due utenti della conversazione a cui appartiene il messaggio.
+     * Insieme a idUtenteMaggiore identifica la conversazione indipendentemente dal verso del messaggio.
+     */
+    @Setter(AccessLevel.NONE)
+    private Long idUtenteMinore;
+
+    /**
+     * Rappresenta il maggiore tra gli ID dei due utenti della conversazione a cui appartiene il messaggio.
+     */
+    @Setter(AccessLevel.NONE)
+    private Long idUtenteMaggiore;
+
+    /**
+     * Calcola la chiave della conversazione a partire dal mittente e dal destinatario prima del salvataggio.
+     */
+    @PrePersist
+    private void calcolaChiaveConversazione() {
+        if (mittente != null && destinatario != null) {
+            idUtenteMinore = Math.min(mittente.getId(), destinatario.getId());
+            idUtenteMaggiore = Math.max(mittente.getId(), destinatario.getId());
+        }
+    }
+
     /**
      * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto Messaggio.
      * @return Stringa che rappresenta l'oggetto Messaggio.
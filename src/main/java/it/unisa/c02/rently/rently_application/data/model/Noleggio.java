@@ -2,6 +2,7 @@ package it.unisa.c02.rently.rently_application.data.model;
 
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.OnDelete;
@@ -15,6 +16,11 @@ import java.util.List;
  * Questa classe rappresenta un noleggio sulla piattaforma.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_noleggio_stato_data_richiesta", columnList = "stato, data_richiesta"),
+        @Index(name = "idx_noleggio_noleggiante_data_richiesta", columnList = "noleggiante_utente_id, data_richiesta, noleggio_id"),
+        @Index(name = "idx_noleggio_noleggiatore_data_richiesta", columnList = "noleggiatore_utente_id, data_richiesta, noleggio_id")
+})
 @Getter
 @Setter
 public class Noleggio {
@@ -145,6 +151,35 @@ public class Noleggio {
     @OneToMany(mappedBy="noleggio")
     private List<ValutazioneUtente> valutazioniUtente;
 
+    /**
+     * Rappresenta i valori del noleggio al momento del caricamento o dell'ultimo salvataggio,
+     * utilizzati per registrare le transizioni di stato nel log degli eventi.
+     */
+    @Transient
+    @Setter(AccessLevel.NONE)
+    private Istantanea caricato;
+
+    /**
+     * Memorizza i valori attuali del noleggio come valori caricati.
+     */
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void memorizzaCaricato() {
+        this.caricato = new Istantanea(stato, prezzoTotale, dataInizio, dataFine, annuncio != null ? annuncio.getId() : null);
+    }
+
+    /**
+     * Valori di un noleggio in un dato momento.
+     * @param stato Stato del noleggio.
+     * @param prezzoTotale Prezzo totale del noleggio.
+     * @param dataInizio Data di inizio del noleggio.
+     * @param dataFine Data di fine del noleggio.
+     * @param idAnnuncio ID dell'annuncio associato al noleggio.
+     */
+    public record Istantanea(EnumStato stato, BigDecimal prezzoTotale, Date dataInizio, Date dataFine, Long idAnnuncio) {
+    }
+
     /**
      * Enumerazione dei possibili tipi di stato.
      */
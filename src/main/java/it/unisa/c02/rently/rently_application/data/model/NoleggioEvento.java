@@ -0,0 +1,172 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+/**
+ * Questa classe rappresenta un evento del log append-only delle transizioni dei noleggi.
+ * Ogni evento contiene i valori del noleggio prima e dopo la transizione: i valori precedenti sono assenti
+ * per la creazione di un noleggio, quelli nuovi sono assenti per la sua eliminazione.
+ * L'ID dell'evento ne rappresenta la posizione (offset) nel log.
+ */
+@Entity
+@Immutable
+@Table(name = "noleggio_event")
+@Getter
+@Setter
+public class NoleggioEvento {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public NoleggioEvento() {
+    }
+
+    /**
+     * Costruttore per la creazione di un evento a partire dai valori del noleggio prima e dopo la transizione.
+     * @param idNoleggio ID del noleggio.
+     * @param precedente Valori del noleggio prima della transizione, null per la creazione.
+     * @param nuovo Valori del noleggio dopo la transizione, null per l'eliminazione.
+     * @param istante Istante della transizione.
+     */
+    public NoleggioEvento(final long idNoleggio, final Noleggio.Istantanea precedente, final Noleggio.Istantanea nuovo, final Timestamp istante) {
+        this.idNoleggio = idNoleggio;
+        if (precedente != null) {
+            this.statoPrecedente = precedente.stato();
+            this.prezzoTotalePrecedente = precedente.prezzoTotale();
+            this.dataInizioPrecedente = precedente.dataInizio();
+            this.dataFinePrecedente = precedente.dataFine();
+            this.idAnnuncioPrecedente = precedente.idAnnuncio();
+        }
+        if (nuovo != null) {
+            this.stato = nuovo.stato();
+            this.prezzoTotale = nuovo.prezzoTotale();
+            this.dataInizio = nuovo.dataInizio();
+            this.dataFine = nuovo.dataFine();
+            this.idAnnuncio = nuovo.idAnnuncio();
+        }
+        this.istante = istante;
+    }
+
+    /**
+     * Costruttore per la creazione di un evento di eliminazione, utilizzato dalle query di proiezione.
+     * @param idNoleggio ID del noleggio eliminato.
+     * @param idAnnuncio ID dell'annuncio associato al noleggio eliminato.
+     * @param stato Stato del noleggio eliminato.
+     * @param prezzoTotale Prezzo totale del noleggio eliminato.
+     * @param dataInizio Data di inizio del noleggio eliminato.
+     * @param dataFine Data di fine del noleggio eliminato.
+     */
+    public NoleggioEvento(final long idNoleggio, final Long idAnnuncio, final Noleggio.EnumStato stato, final BigDecimal prezzoTotale, final Date dataInizio, final Date dataFine) {
+        this(idNoleggio, new Noleggio.Istantanea(stato, prezzoTotale, dataInizio, dataFine, idAnnuncio), null, null);
+    }
+
+    /**
+     * Rappresenta l'ID univoco dell'evento, crescente nell'ordine di inserimento.
+     */
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    /**
+     * Rappresenta l'ID del noleggio a cui si riferisce l'evento.
+     */
+    @Column(nullable = false)
+    private long idNoleggio;
+
+    /**
+     * Rappresenta lo stato del noleggio prima della transizione.
+     */
+    @Enumerated(EnumType.STRING)
+    private Noleggio.EnumStato statoPrecedente;
+
+    /**
+     * Rappresenta il prezzo totale del noleggio prima della transizione.
+     */
+    private BigDecimal prezzoTotalePrecedente;
+
+    /**
+     * Rappresenta la data di inizio del noleggio prima della transizione.
+     */
+    private Date dataInizioPrecedente;
+
+    /**
+     * Rappresenta la data di fine del noleggio prima della transizione.
+     */
+    private Date dataFinePrecedente;
+
+    /**
+     * Rappresenta l'ID dell'annuncio associato al noleggio prima della transizione.
+     */
+    private Long idAnnuncioPrecedente;
+
+    /**
+     * Rappresenta lo stato del noleggio dopo la transizione.
+     */
+    @Enumerated(EnumType.STRING)
+    private Noleggio.EnumStato stato;
+
+    /**
+     * Rappresenta il prezzo totale del noleggio dopo la transizione.
+     */
+    private BigDecimal prezzoTotale;
+
+    /**
+     * Rappresenta la data di inizio del noleggio dopo la transizione.
+     */
+    private Date dataInizio;
+
+    /**
+     * Rappresenta la data di fine del noleggio dopo la transizione.
+     */
+    private Date dataFine;
+
+    /**
+     * Rappresenta l'ID dell'annuncio associato al noleggio dopo la transizione.
+     */
+    private Long idAnnuncio;
+
+    /**
+     * Rappresenta l'istante in cui è avvenuta la transizione.
+     */
+    @Column(nullable = false)
+    private Timestamp istante;
+
+    /**
+     * Restituisce i valori del noleggio prima della transizione.
+     * @return Valori precedenti, null se l'evento rappresenta la creazione del noleggio.
+     */
+    public Noleggio.Istantanea getPrecedente() {
+        return statoPrecedente == null ? null
+                : new Noleggio.Istantanea(statoPrecedente, prezzoTotalePrecedente, dataInizioPrecedente, dataFinePrecedente, idAnnuncioPrecedente);
+    }
+
+    /**
+     * Restituisce i valori del noleggio dopo la transizione.
+     * @return Valori nuovi, null se l'evento rappresenta l'eliminazione del noleggio.
+     */
+    public Noleggio.Istantanea getNuovo() {
+        return stato == null ? null
+                : new Noleggio.Istantanea(stato, prezzoTotale, dataInizio, dataFine, idAnnuncio);
+    }
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto NoleggioEvento.
+     * @return Stringa che rappresenta l'oggetto NoleggioEvento.
+     */
+    @Override
+    public String toString() {
+        return "NoleggioEvento{" +
+                "id=" + id +
+                ", idNoleggio=" + idNoleggio +
+                ", statoPrecedente=" + statoPrecedente +
+                ", stato=" + stato +
+                ", istante=" + istante +
+                '}';
+    }
+}
@@ -0,0 +1,57 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta la posizione raggiunta da una proiezione nel log degli eventi dei noleggi,
+ * cioè l'ID dell'ultimo evento applicato alla proiezione.
+ */
+@Entity
+@Table(name = "proiezione_offset")
+@Getter
+@Setter
+public class OffsetProiezione {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public OffsetProiezione() {
+    }
+
+    /**
+     * Costruttore per la creazione di un offset con informazioni complete.
+     * @param nome Nome della proiezione.
+     * @param valore ID dell'ultimo evento applicato alla proiezione.
+     */
+    public OffsetProiezione(final String nome, final long valore) {
+        this.nome = nome;
+        this.valore = valore;
+    }
+
+    /**
+     * Rappresenta il nome univoco della proiezione.
+     */
+    @Id
+    @Column(length=100)
+    private String nome;
+
+    /**
+     * Rappresenta l'ID dell'ultimo evento applicato alla proiezione.
+     */
+    @Column(nullable = false)
+    private long valore;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto OffsetProiezione.
+     * @return Stringa che rappresenta l'oggetto OffsetProiezione.
+     */
+    @Override
+    public String toString() {
+        return "OffsetProiezione{" +
+                "nome='" + nome + '\'' +
+                ", valore=" + valore +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Questa classe rappresenta un refresh token, con cui un utente ottiene un nuovo token di accesso
+ * senza inserire nuovamente le credenziali. Del token viene salvato solo l'hash.
+ * Ogni refresh token può essere usato una sola volta: l'uso lo revoca e ne emette uno nuovo.
+ */
+@Entity
+@Table(name = "refresh_token", indexes = @Index(name = "idx_refresh_token_utente", columnList = "idUtente"))
+@Getter
+@Setter
+public class RefreshToken {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public RefreshToken() {
+    }
+
+    /**
+     * Costruttore per la creazione di un nuovo refresh token.
+     * @param hash Hash SHA-256 del token, in esadecimale.
+     * @param idUtente ID dell'utente a cui appartiene il token.
+     * @param scadenza Timestamp di scadenza del token.
+     */
+    public RefreshToken(final String hash, final long idUtente, final Timestamp scadenza) {
+        this.hash = hash;
+        this.idUtente = idUtente;
+        this.scadenza = scadenza;
+    }
+
+    /**
+     * Rappresenta l'ID univoco del refresh token.
+     */
+    @Id @GeneratedValue(strategy = GenerationType.AUTO)
+    private long id;
+
+    /**
+     * Rappresenta l'hash SHA-256 del token, in esadecimale.
+     */
+    @Column(length = 64, unique = true, nullable = false)
+    private String hash;
+
+    /**
+     * Rappresenta l'ID dell'utente a cui appartiene il token.
+     */
+    @Column(nullable = false)
+    private long idUtente;
+
+    /**
+     * Rappresenta il timestamp di scadenza del token.
+     */
+    @Column(nullable = false)
+    private Timestamp scadenza;
+
+    /**
+     * Indica se il token è stato usato o revocato.
+     */
+    @Column(nullable = false)
+    private boolean revocato;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto RefreshToken.
+     * @return Stringa che rappresenta l'oggetto RefreshToken.
+     */
+    @Override
+    public String toString() {
+        return "RefreshToken{" +
+                "id=" + id +
+                ", idUtente=" + idUtente +
+                ", scadenza=" + scadenza +
+                ", revocato=" + revocato +
+                '}';
+    }
+}
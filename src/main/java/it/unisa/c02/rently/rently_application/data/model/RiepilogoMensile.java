@@ -0,0 +1,84 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Questa classe rappresenta il riepilogo mensile dei noleggi di un annuncio in un determinato stato.
+ * Il riepilogo viene aggiornato in modo incrementale a ogni transizione dei noleggi.
+ */
+@Entity
+@Table(name = "annuncio_riepilogo_mensile",
+        uniqueConstraints = @UniqueConstraint(name = "uk_riepilogo_annuncio_mese_stato", columnNames = {"id_annuncio", "mese", "stato"}))
+@Getter
+@Setter
+public class RiepilogoMensile {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public RiepilogoMensile() {
+    }
+
+    /**
+     * Rappresenta l'ID univoco del riepilogo.
+     */
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    /**
+     * Rappresenta l'ID dell'annuncio a cui si riferisce il riepilogo.
+     */
+    @Column(nullable = false)
+    private long idAnnuncio;
+
+    /**
+     * Rappresenta il mese a cui si riferisce il riepilogo, nel formato aaaamm.
+     */
+    @Column(nullable = false)
+    private int mese;
+
+    /**
+     * Rappresenta lo stato dei noleggi a cui si riferisce il riepilogo.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Noleggio.EnumStato stato;
+
+    /**
+     * Rappresenta il numero di noleggi che iniziano nel mese.
+     */
+    @Column(nullable = false)
+    private long numero;
+
+    /**
+     * Rappresenta il numero di giorni del mese coperti dai noleggi.
+     */
+    @Column(nullable = false)
+    private long giorni;
+
+    /**
+     * Rappresenta la quota del prezzo totale dei noleggi relativa ai giorni del mese.
+     */
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal ricavo;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto RiepilogoMensile.
+     * @return Stringa che rappresenta l'oggetto RiepilogoMensile.
+     */
+    @Override
+    public String toString() {
+        return "RiepilogoMensile{" +
+                "idAnnuncio=" + idAnnuncio +
+                ", mese=" + mese +
+                ", stato=" + stato +
+                ", numero=" + numero +
+                ", giorni=" + giorni +
+                ", ricavo=" + ricavo +
+                '}';
+    }
+}
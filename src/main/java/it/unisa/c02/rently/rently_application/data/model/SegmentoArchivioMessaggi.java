@@ -0,0 +1,85 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta un segmento dell'archivio dei messaggi di una conversazione.
+ * Ogni segmento contiene, compressi, messaggi con ID consecutivi della conversazione rimossi dalla tabella
+ * dei messaggi perché meno recenti della soglia di archiviazione. I segmenti non vengono mai modificati.
+ */
+@Entity
+@Table(name = "messaggio_archivio",
+        indexes = {
+                @Index(name = "idx_messaggio_archivio_conversazione", columnList = "id_utente_minore, id_utente_maggiore, primo_id"),
+                @Index(name = "idx_messaggio_archivio_conversazione_ultimo", columnList = "id_utente_minore, id_utente_maggiore, ultimo_id")
+        })
+@Getter
+@Setter
+public class SegmentoArchivioMessaggi {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public SegmentoArchivioMessaggi() {
+    }
+
+    /**
+     * Rappresenta l'ID univoco del segmento.
+     */
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    /**
+     * Rappresenta il minore tra gli ID dei due utenti della conversazione.
+     */
+    @Column(nullable = false)
+    private long idUtenteMinore;
+
+    /**
+     * Rappresenta il maggiore tra gli ID dei due utenti della conversazione.
+     */
+    @Column(nullable = false)
+    private long idUtenteMaggiore;
+
+    /**
+     * Rappresenta l'ID del primo messaggio del segmento.
+     */
+    @Column(nullable = false)
+    private long primoId;
+
+    /**
+     * Rappresenta l'ID dell'ultimo messaggio del segmento.
+     */
+    @Column(nullable = false)
+    private long ultimoId;
+
+    /**
+     * Rappresenta il numero di messaggi del segmento.
+     */
+    @Column(nullable = false)
+    private int numero;
+
+    /**
+     * Rappresenta i messaggi del segmento, serializzati e compressi.
+     */
+    @Lob
+    @Column(nullable = false, columnDefinition = "mediumblob")
+    private byte[] contenuto;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto SegmentoArchivioMessaggi.
+     * @return Stringa che rappresenta l'oggetto SegmentoArchivioMessaggi.
+     */
+    @Override
+    public String toString() {
+        return "SegmentoArchivioMessaggi{" +
+                "idUtenteMinore=" + idUtenteMinore +
+                ", idUtenteMaggiore=" + idUtenteMaggiore +
+                ", primoId=" + primoId +
+                ", ultimoId=" + ultimoId +
+                ", numero=" + numero +
+                '}';
+    }
+}
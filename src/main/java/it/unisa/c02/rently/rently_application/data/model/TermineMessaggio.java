@@ -0,0 +1,88 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Questa classe rappresenta un'occorrenza di un termine in un messaggio, nell'indice di ricerca di un utente.
+ * Ogni messaggio viene indicizzato sia per il mittente sia per il destinatario, così che la ricerca
+ * di un utente legga solo le proprie occorrenze.
+ */
+@Entity
+@Table(name = "messaggio_termine",
+        uniqueConstraints = @UniqueConstraint(name = "uk_messaggio_termine_utente", columnNames = {"id_utente", "termine", "id_messaggio"}),
+        indexes = @Index(name = "idx_messaggio_termine_messaggio", columnList = "id_messaggio"))
+@Getter
+@Setter
+public class TermineMessaggio {
+
+    /**
+     * Lunghezza massima di un termine indicizzato.
+     */
+    public static final int LUNGHEZZA_MASSIMA = 64;
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public TermineMessaggio() {
+    }
+
+    /**
+     * Costruttore per la creazione di una nuova occorrenza.
+     * @param idUtente ID dell'utente a cui appartiene l'indice.
+     * @param termine Termine indicizzato.
+     * @param idMessaggio ID del messaggio che contiene il termine.
+     * @param idAltroUtente ID dell'altro partecipante alla conversazione del messaggio.
+     */
+    public TermineMessaggio(final long idUtente, final String termine, final long idMessaggio, final long idAltroUtente) {
+        this.idUtente = idUtente;
+        this.termine = termine;
+        this.idMessaggio = idMessaggio;
+        this.idAltroUtente = idAltroUtente;
+    }
+
+    /**
+     * Rappresenta l'ID univoco dell'occorrenza.
+     */
+    @Id @GeneratedValue(strategy = GenerationType.AUTO)
+    private long id;
+
+    /**
+     * Rappresenta l'ID dell'utente a cui appartiene l'indice.
+     */
+    @Column(nullable = false)
+    private long idUtente;
+
+    /**
+     * Rappresenta il termine indicizzato, in minuscolo e senza accenti.
+     */
+    @Column(length = LUNGHEZZA_MASSIMA, nullable = false)
+    private String termine;
+
+    /**
+     * Rappresenta l'ID del messaggio che contiene il termine.
+     */
+    @Column(nullable = false)
+    private long idMessaggio;
+
+    /**
+     * Rappresenta l'ID dell'altro partecipante alla conversazione del messaggio,
+     * usato per recuperare il messaggio dall'archivio.
+     */
+    @Column(nullable = false)
+    private long idAltroUtente;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto TermineMessaggio.
+     * @return Stringa che rappresenta l'oggetto TermineMessaggio.
+     */
+    @Override
+    public String toString() {
+        return "TermineMessaggio{" +
+                "idUtente=" + idUtente +
+                ", termine='" + termine + '\'' +
+                ", idMessaggio=" + idMessaggio +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package it.unisa.c02.rently.rently_application.data.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Questa classe rappresenta un token di accesso revocato prima della sua scadenza.
+ * La revoca viene conservata solo fino alla scadenza del token, dopo la quale il token non è comunque più valido.
+ */
+@Entity
+@Table(name = "token_revocato", indexes = @Index(name = "idx_token_revocato_creazione", columnList = "creazione"))
+@Getter
+@Setter
+public class TokenRevocato {
+
+    /**
+     * Costruttore senza argomenti.
+     */
+    public TokenRevocato() {
+    }
+
+    /**
+     * Costruttore per la creazione di una revoca con informazioni complete.
+     * @param jti Identificativo univoco del token revocato.
+     * @param creazione Timestamp della revoca.
+     * @param scadenza Timestamp di scadenza del token revocato.
+     */
+    public TokenRevocato(final String jti, final Timestamp creazione, final Timestamp scadenza) {
+        this.jti = jti;
+        this.creazione = creazione;
+        this.scadenza = scadenza;
+    }
+
+    /**
+     * Rappresenta l'identificativo univoco del token revocato (claim "jti").
+     */
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    /**
+     * Rappresenta il timestamp della revoca.
+     */
+    @Column(nullable = false)
+    private Timestamp creazione;
+
+    /**
+     * Rappresenta il timestamp di scadenza del token revocato.
+     */
+    @Column(nullable = false)
+    private Timestamp scadenza;
+
+    /**
+     * Override del metodo toString per ottenere una rappresentazione testuale dell'oggetto TokenRevocato.
+     * @return Stringa che rappresenta l'oggetto TokenRevocato.
+     */
+    @Override
+    public String toString() {
+        return "TokenRevocato{" +
+                "jti='" + jti + '\'' +
+                ", creazione=" + creazione +
+                ", scadenza=" + scadenza +
+                '}';
+    }
+}
@@ -1,5 +1,6 @@
 package it.unisa.c02.rently.rently_application.data.model;
 
+import it.unisa.c02.rently.rently_application.security.InvalidazionePrincipal;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,10 +11,16 @@ import java.util.List;
  * Questa classe rappresenta un utente registrato alla piattaforma.
  */
 @Entity
+@EntityListeners(InvalidazionePrincipal.class)
 @Getter
 @Setter
 public class Utente {
 
+    /**
+     * Lunghezza massima della password codificata, comprensiva del prefisso dell'algoritmo.
+     */
+    public static final int LUNGHEZZA_PASSWORD = 128;
+
     /**
      * Costruttore senza argomenti.
      */
@@ -92,7 +99,7 @@ public class Utente {
     /**
      * Rappresenta la password di un utente registrato.
      */
-    @Column(length=64, nullable = false)
+    @Column(length=LUNGHEZZA_PASSWORD, nullable = false)
     private String password;
 
     /**
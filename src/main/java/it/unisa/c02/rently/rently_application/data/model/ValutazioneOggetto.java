@@ -10,6 +10,7 @@ import org.hibernate.annotations.OnDeleteAction;
  * Questa classe rappresenta la valutazione di un oggetto di un annuncio pubblicato sulla piattaforma.
  */
 @Entity
+@Table(indexes = @Index(name = "idx_valutazione_oggetto_annuncio_id", columnList = "annuncio_annuncio_id, id"))
 @Getter
 @Setter
 public class ValutazioneOggetto {
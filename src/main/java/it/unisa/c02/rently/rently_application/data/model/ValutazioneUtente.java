@@ -10,6 +10,7 @@ import org.hibernate.annotations.OnDeleteAction;
  * Questa classe rappresenta la valutazione di un utente che ha concluso un noleggio sulla piattaforma.
  */
 @Entity
+@Table(indexes = @Index(name = "idx_valutazione_utente_valutato_id", columnList = "valutato_utente_id, id"))
 @Getter
 @Setter
 public class ValutazioneUtente {
@@ -1,7 +1,7 @@
 package it.unisa.c02.rently.rently_application;
 
 import it.unisa.c02.rently.rently_application.business.gestioneChat.service.GestioneChatService;
-import it.unisa.c02.rently.rently_application.commons.psw.PswCoder;
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordService;
 import it.unisa.c02.rently.rently_application.data.dao.*;
 import it.unisa.c02.rently.rently_application.data.model.*;
 import lombok.RequiredArgsConstructor;
@@ -21,7 +21,7 @@ public class databasePopulator implements CommandLineRunner {
     private final GestioneValutazioneOggettoDAO valutazioneOggettoService;
     private final GestioneNoleggioDAO noleggioService;
     private final GestioneAutenticazioneDAO utenteService;
-    private final PswCoder pswCoder;
+    private final PasswordService passwordService;
     private final GestioneChatDAO chatService;
 
 
@@ -32,21 +32,21 @@ public class databasePopulator implements CommandLineRunner {
         // Aggiunta degli Utenti
 
 
-        final Utente user1 =new Utente(1,"user1", "Mario", "Rossi", "mario.rossi@email.com", pswCoder.codificaPassword("password123"), false);
-        final Utente user2 =new Utente(2,"user2", "Luca", "Bianchi", "luca.bianchi@email.com", pswCoder.codificaPassword("securePass"), false);
-        final Utente user3 =new Utente(3,"user3", "Laura", "Verdi", "laura.verdi@email.com", pswCoder.codificaPassword("pass123"), false);
-        final Utente user4 =new Utente(4,"user4", "Alessia", "Neri", "alessia.neri@email.com", pswCoder.codificaPassword("alessia_pass"), false);
-        final Utente user5 =new Utente(5,"user5", "Giovanni", "Rosa", "giovanni.rosa@email.com", pswCoder.codificaPassword("rosa123"), false);
-        final Utente user6 =new Utente(6,"user6", "Francesca", "Giallo", "francesca.giallo@email.com", pswCoder.codificaPassword("fran_pass"), false);
-        final Utente user7 =new Utente(7,"user7", "Marco", "Arancio", "marco.arancio@email.com", pswCoder.codificaPassword("marco_pass"), false);
-        final Utente user8 =new Utente(8,"user8", "Elena", "Blu", "elena.blu@email.com", pswCoder.codificaPassword("elena_secure"), false);
-        final Utente user9 =new Utente(9,"user9", "Davide", "Marrone", "davide.marrone@email.com", pswCoder.codificaPassword("marrone_pass"), false);
-        final Utente user10 =new Utente(10,"user10", "Giulia", "Rosa", "giulia.rosa@email.com", pswCoder.codificaPassword("giulia_secure"), false);
-        final Utente user11 =new Utente(11,"user11", "Riccardo", "Azzurro", "riccardo.azzurro@email.com", pswCoder.codificaPassword("azzurro_pass"), false);
-        final Utente user12 =new Utente(12,"user12", "Cristina", "Verde", "cristina.verde@email.com", pswCoder.codificaPassword("cristina123"), false);
-        final Utente user13 =new Utente(13,"user13", "Paolo", "Viola", "paolo.viola@email.com", pswCoder.codificaPassword("paolo_pass"), true);
-        final Utente user14 =new Utente(14,"user14", "Simona", "Rosa", "simona.rosa@email.com", pswCoder.codificaPassword("simona_secure"), true);
-        final Utente user15 =new Utente(15,"user15", "Federico", "Giallo", "federico.giallo@email.com", pswCoder.codificaPassword("fede_pass"), true);
+        final Utente user1 =new Utente(1,"user1", "Mario", "Rossi", "mario.rossi@email.com", passwordService.codifica("password123"), false);
+        final Utente user2 =new Utente(2,"user2", "Luca", "Bianchi", "luca.bianchi@email.com", passwordService.codifica("securePass"), false);
+        final Utente user3 =new Utente(3,"user3", "Laura", "Verdi", "laura.verdi@email.com", passwordService.codifica("pass123"), false);
+        final Utente user4 =new Utente(4,"user4", "Alessia", "Neri", "alessia.neri@email.com", passwordService.codifica("alessia_pass"), false);
+        final Utente user5 =new Utente(5,"user5", "Giovanni", "Rosa", "giovanni.rosa@email.com", passwordService.codifica("rosa123"), false);
+        final Utente user6 =new Utente(6,"user6", "Francesca", "Giallo", "francesca.giallo@email.com", passwordService.codifica("fran_pass"), false);
+        final Utente user7 =new Utente(7,"user7", "Marco", "Arancio", "marco.arancio@email.com", passwordService.codifica("marco_pass"), false);
+        final Utente user8 =new Utente(8,"user8", "Elena", "Blu", "elena.blu@email.com", passwordService.codifica("elena_secure"), false);
+        final Utente user9 =new Utente(9,"user9", "Davide", "Marrone", "davide.marrone@email.com", passwordService.codifica("marrone_pass"), false);
+        final Utente user10 =new Utente(10,"user10", "Giulia", "Rosa", "giulia.rosa@email.com", passwordService.codifica("giulia_secure"), false);
+        final Utente user11 =new Utente(11,"user11", "Riccardo", "Azzurro", "riccardo.azzurro@email.com", passwordService.codifica("azzurro_pass"), false);
+        final Utente user12 =new Utente(12,"user12", "Cristina", "Verde", "cristina.verde@email.com", passwordService.codifica("cristina123"), false);
+        final Utente user13 =new Utente(13,"user13", "Paolo", "Viola", "paolo.viola@email.com", passwordService.codifica("paolo_pass"), true);
+        final Utente user14 =new Utente(14,"user14", "Simona", "Rosa", "simona.rosa@email.com", passwordService.codifica("simona_secure"), true);
+        final Utente user15 =new Utente(15,"user15", "Federico", "Giallo", "federico.giallo@email.com", passwordService.codifica("fede_pass"), true);
 
         this.utenteService.save(user1);
         this.utenteService.save(user2);
@@ -1,8 +1,8 @@
 package it.unisa.c02.rently.rently_application.security;
 
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
 import it.unisa.c02.rently.rently_application.data.dto.UtenteDTO;
 import jakarta.servlet.FilterChain;
@@ -23,12 +23,19 @@ import java.util.stream.Collectors;
 
 public class AuthorizationFilter extends BasicAuthenticationFilter {
 
+    public static final String STREAM_PATH = "/api/chat/stream";
+
     private final GestioneAutenticazioneDAO userRepository;
+    private final PrincipalCache principalCache;
+    private final TokenRevocationList revocationList;
     private final ObjectMapper mapper;
 
-    public AuthorizationFilter(final AuthenticationManager authenticationManager, final GestioneAutenticazioneDAO userRepository) {
+    public AuthorizationFilter(final AuthenticationManager authenticationManager, final GestioneAutenticazioneDAO userRepository,
+                               final PrincipalCache principalCache, final TokenRevocationList revocationList) {
         super(authenticationManager);
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.revocationList = revocationList;
         this.mapper = new ObjectMapper();
     }
 
@@ -36,14 +43,16 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
     protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain chain) throws IOException, ServletException {
 
         final String header = request.getHeader(JwtProvider.headerParam);
-        if (header != null) {
-            final DecodedJWT decoded = JwtProvider.verifyJwt(header);
-            final ObjectNode userNode = this.mapper.readValue(decoded.getClaim("user").asString(), ObjectNode.class);
-            final UtenteDTO user = this.mapper.convertValue(userNode, UtenteDTO.class);
-            this.userRepository.findById(user.getId()).ifPresent((final var entity) -> {
+        final String ticket = header == null && STREAM_PATH.equals(request.getServletPath()) ? request.getParameter("ticket") : null;
+        if (header != null || ticket != null) {
+            // EventSource non consente di impostare header: lo stream della chat si apre con un ticket di breve durata,
+            // che compare nei log di accesso al posto del token di accesso e non è accettato dagli altri endpoint
+            final UtentePrincipal principal = leggi(header, ticket);
+            if (principal != null && !this.revocationList.isRevocato(principal.idToken())
+                    && !this.revocationList.isRevocatoUtente(principal.id(), principal.emissione())) {
 
                 final UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        user.getEmail(), new ArrayList<>(), new ArrayList<>()
+                        principal, new ArrayList<>(), new ArrayList<>()
                 );
 
                 authentication.setDetails(
@@ -52,11 +61,71 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            });
+            }
         }
         else {
             ;
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UtentePrincipal leggi(final String header, final String ticket) throws IOException {
+        try {
+            return ticket != null ? autenticaTicket(ticket) : autentica(header);
+        } catch (final JWTVerificationException ex) {
+            // Token scaduto, malformato o con firma non valida: la richiesta prosegue senza autenticazione,
+            // così che gli endpoint pubblici come il login e il rinnovo della sessione restino raggiungibili
+            return null;
+        }
+    }
+
+    private UtentePrincipal autentica(final String header) throws IOException {
+        final UtentePrincipal principal = this.principalCache.get(header);
+        if (principal != null) {
+            return principal;
+        }
+        final DecodedJWT decoded = JwtProvider.verifyJwt(header);
+        final UtentePrincipal letto = leggiPrincipal(decoded);
+        if (letto == null || !this.userRepository.existsById(letto.id())) {
+            return null;
+        }
+        this.principalCache.put(header, letto, decoded.getExpiresAt());
+        return letto;
+    }
+
+    private UtentePrincipal autenticaTicket(final String ticket) {
+        final UtentePrincipal letto = leggiTicket(JwtProvider.verifyJwt(ticket));
+        return letto != null && this.userRepository.existsById(letto.id()) ? letto : null;
+    }
+
+    private UtentePrincipal leggiTicket(final DecodedJWT decoded) {
+        if (!JwtProvider.AMBITO_STREAM.equals(decoded.getClaim(JwtProvider.CLAIM_AMBITO).asString())) {
+            return null;
+        }
+        final Long idUtente = decoded.getClaim(JwtProvider.CLAIM_ID_UTENTE).asLong();
+        return idUtente != null ? new UtentePrincipal(idUtente, decoded.getSubject(), decoded.getId(), emissione(decoded)) : null;
+    }
+
+    private UtentePrincipal leggiPrincipal(final DecodedJWT decoded) throws IOException {
+        // I ticket dello stream valgono solo come parametro dello stream
+        if (!decoded.getClaim(JwtProvider.CLAIM_AMBITO).isNull()) {
+            return null;
+        }
+        // Formato compatto: le claim sono già decodificate insieme al token, senza ulteriori parsing JSON
+        if (!decoded.getClaim(JwtProvider.CLAIM_VERSIONE).isNull()) {
+            final Long idUtente = decoded.getClaim(JwtProvider.CLAIM_ID_UTENTE).asLong();
+            return idUtente != null ? new UtentePrincipal(idUtente, decoded.getSubject(), decoded.getId(), emissione(decoded)) : null;
+        }
+        // Token emessi prima del formato compatto, con l'utente serializzato nella claim "user"
+        final String user = decoded.getClaim(JwtProvider.CLAIM_USER).asString();
+        if (user == null || !JwtProvider.accettaClaimUser) {
+            return null;
+        }
+        final UtenteDTO dto = this.mapper.readValue(user, UtenteDTO.class);
+        return new UtentePrincipal(dto.getId(), dto.getEmail(), decoded.getId(), emissione(decoded));
+    }
+
+    private static long emissione(final DecodedJWT decoded) {
+        return decoded.getIssuedAt() != null ? decoded.getIssuedAt().getTime() : 0;
+    }
+}
@@ -0,0 +1,69 @@
+package it.unisa.c02.rently.rently_application.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro di Bloom su stringhe, sicuro per l'uso concorrente.
+ * Una risposta negativa di contiene è esatta; una risposta positiva va confermata,
+ * perché può essere un falso positivo con la probabilità scelta alla creazione.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bit;
+
+    private final long numeroBit;
+
+    private final int numeroHash;
+
+    public BloomFilter(final int capacita, final double probabilitaFalsiPositivi) {
+        final double ln2 = Math.log(2);
+        final long ottimo = (long) Math.ceil(-Math.max(1, capacita) * Math.log(probabilitaFalsiPositivi) / (ln2 * ln2));
+        final int parole = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (ottimo + 63) / 64));
+        this.bit = new AtomicLongArray(parole);
+        this.numeroBit = (long) parole * 64;
+        this.numeroHash = (int) Math.max(1, Math.round((double) numeroBit / Math.max(1, capacita) * ln2));
+    }
+
+    public void aggiungi(final String valore) {
+        final long hash = hash(valore);
+        final long h1 = hash;
+        final long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < numeroHash; i++) {
+            final long indice = Math.floorMod(h1 + i * h2, numeroBit);
+            final long maschera = 1L << indice;
+            final int parola = (int) (indice >>> 6);
+            long attuale = bit.get(parola);
+            while ((attuale & maschera) == 0 && !bit.compareAndSet(parola, attuale, attuale | maschera)) {
+                attuale = bit.get(parola);
+            }
+        }
+    }
+
+    public boolean contiene(final String valore) {
+        final long hash = hash(valore);
+        final long h1 = hash;
+        final long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < numeroHash; i++) {
+            final long indice = Math.floorMod(h1 + i * h2, numeroBit);
+            if ((bit.get((int) (indice >>> 6)) & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a a 64 bit seguito dal finalizzatore di MurmurHash3, per distribuire anche i bit alti
+    private static long hash(final String valore) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < valore.length(); i++) {
+            h ^= valore.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
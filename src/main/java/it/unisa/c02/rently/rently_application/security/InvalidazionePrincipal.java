@@ -0,0 +1,33 @@
+package it.unisa.c02.rently.rently_application.security;
+
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Invalida le voci della cache dei principal di un utente eliminato, qualunque sia il punto in cui viene eliminato.
+ * L'invalidazione è ripetuta dopo il commit, perché fino ad allora una richiesta concorrente vede ancora l'utente.
+ */
+@Component
+@RequiredArgsConstructor
+public class InvalidazionePrincipal {
+
+    private final PrincipalCache principalCache;
+
+    @PostRemove
+    public void utenteEliminato(final Utente utente) {
+        final long idUtente = utente.getId();
+        principalCache.invalida(idUtente);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    principalCache.invalida(idUtente);
+                }
+            });
+        }
+    }
+}
@@ -2,15 +2,26 @@ package it.unisa.c02.rently.rently_application.security;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 
 @Component
@@ -18,33 +29,172 @@ public class JwtProvider {
 
 
     public static final String ISSUER = "demo-api-app";
-    public static String secret;
+
+    // Claim del formato compatto: id dell'utente e versione del formato. Il flag premium non viene incluso:
+    // può cambiare durante la validità del token e va letto dai dati dell'utente
+    public static final String CLAIM_ID_UTENTE = "uid";
+    public static final String CLAIM_VERSIONE = "ver";
+    public static final int VERSIONE_CLAIM = 2;
+
+    // Claim dei ticket dello stream della chat: ambito di validità del token
+    public static final String CLAIM_AMBITO = "scp";
+    public static final String AMBITO_STREAM = "stream";
+
+    // Claim del formato precedente, con l'utente serializzato in JSON
+    public static final String CLAIM_USER = "user";
     public static String prefix;
     public static String headerParam;
+    public static Duration durataAccesso = Duration.ofMinutes(15);
+    public static Duration durataTicketStream = Duration.ofSeconds(30);
+    public static boolean accettaClaimUser = true;
+
+    // Durata dei token con la claim "user", emessi prima dei token di accesso a breve durata
+    public static final Duration DURATA_TOKEN_CLAIM_USER = Duration.ofDays(1);
+
+    /**
+     * Chiave aggiuntiva accettata in verifica: una chiave precedente ancora valida per i token già emessi,
+     * oppure una chiave successiva distribuita prima di diventare la chiave di firma.
+     * Se validaFino è null la chiave non scade.
+     */
+    public record ChiaveVerifica(String kid, String secret, Instant validaFino) {
+    }
+
+    private record Chiave(String kid, Algorithm algorithm, JWTVerifier verifier, Instant validaFino) {
+
+        boolean isValida(final Instant ora) {
+            return validaFino == null || ora.isBefore(validaFino);
+        }
+    }
+
+    private record Portachiavi(Chiave firma, Map<String, Chiave> chiavi) {
+    }
+
+    private static volatile Portachiavi portachiavi;
 
     @Autowired
     public JwtProvider(final Environment env) {
-        JwtProvider.secret = env.getProperty("security.secret");
+        final String secret = env.getProperty("security.secret");
+        final String kid = env.getProperty("security.kid");
         JwtProvider.prefix = env.getProperty("security.prefix");
         JwtProvider.headerParam = env.getProperty("security.param");
-        if (JwtProvider.secret == null || JwtProvider.prefix == null || JwtProvider.headerParam == null) {
+        JwtProvider.durataAccesso = Duration.ofMillis(env.getProperty("security.token.durata-accesso", Long.class, 900000L));
+        JwtProvider.durataTicketStream = Duration.ofMillis(env.getProperty("security.token.durata-ticket-stream", Long.class, 30000L));
+        JwtProvider.accettaClaimUser = env.getProperty("security.token.accetta-claim-user", Boolean.class, true);
+        if (secret == null || kid == null || JwtProvider.prefix == null || JwtProvider.headerParam == null) {
             throw new BeanInitializationException("Cannot assign security properties. Check application.yml file.");
         }
+        final List<ChiaveVerifica> chiaviVerifica = Binder.get(env)
+                .bind("security.chiavi-verifica", Bindable.listOf(ChiaveVerifica.class))
+                .orElse(List.of());
+        try {
+            configura(kid, secret, chiaviVerifica);
+        } catch (final IllegalArgumentException ex) {
+            throw new BeanInitializationException("Invalid security keyring: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Costruisce una sola volta algoritmi e verificatori di tutte le chiavi e li pubblica in blocco.
+     *
+     * @param kid identificativo della chiave di firma.
+     * @param secret segreto della chiave di firma.
+     * @param chiaviVerifica chiavi accettate solo in verifica.
+     */
+    public static void configura(final String kid, final String secret, final List<ChiaveVerifica> chiaviVerifica) {
+        final Chiave firma = crea(kid, secret, null);
+        final Map<String, Chiave> chiavi = new LinkedHashMap<>();
+        chiavi.put(kid, firma);
+        for (final ChiaveVerifica chiave : chiaviVerifica) {
+            if (chiavi.putIfAbsent(chiave.kid(), crea(chiave.kid(), chiave.secret(), chiave.validaFino())) != null) {
+                throw new IllegalArgumentException("duplicate kid " + chiave.kid());
+            }
+        }
+        JwtProvider.portachiavi = new Portachiavi(firma, Collections.unmodifiableMap(chiavi));
+    }
+
+    /**
+     * Durata massima di un token di accesso accettato: finché sono accettati i token con la claim "user",
+     * anche quella dei token emessi prima dei token di accesso a breve durata.
+     */
+    public static Duration durataMassimaAccettata() {
+        if (accettaClaimUser && DURATA_TOKEN_CLAIM_USER.compareTo(durataAccesso) > 0) {
+            return DURATA_TOKEN_CLAIM_USER;
+        }
+        return durataAccesso;
+    }
+
+    public static String createJwt(final String subject, final long idUtente) {
+        final Chiave firma = JwtProvider.portachiavi.firma();
+        return builder(firma, subject, UUID.randomUUID().toString(), durataAccesso)
+                .withClaim(CLAIM_ID_UTENTE, idUtente)
+                .withClaim(CLAIM_VERSIONE, VERSIONE_CLAIM)
+                .sign(firma.algorithm());
+    }
+
+    /**
+     * Crea il ticket di breve durata con cui aprire lo stream della chat, che viaggia nell'URL perché EventSource
+     * non consente di impostare header. Il ticket è accettato solo sullo stream e conserva l'id del token di accesso
+     * da cui è stato richiesto, così che la revoca di quest'ultimo valga anche per il ticket.
+     */
+    public static String createTicketStream(final String subject, final long idUtente, final String idToken) {
+        final Chiave firma = JwtProvider.portachiavi.firma();
+        return builder(firma, subject, idToken, durataTicketStream)
+                .withClaim(CLAIM_ID_UTENTE, idUtente)
+                .withClaim(CLAIM_VERSIONE, VERSIONE_CLAIM)
+                .withClaim(CLAIM_AMBITO, AMBITO_STREAM)
+                .sign(firma.algorithm());
     }
 
     public static String createJwt(final String subject, final Map<String, Object> payloadClaims) {
-        final JWTCreator.Builder builder = JWT.create().withSubject(subject).withIssuer(ISSUER);
-        final DateTime now = DateTime.now();
-        builder.withIssuedAt(now.toDate()).withExpiresAt(now.plusDays(1).toDate());
+        final Chiave firma = JwtProvider.portachiavi.firma();
+        final JWTCreator.Builder builder = builder(firma, subject, UUID.randomUUID().toString(), durataAccesso);
 
 
         for (final Map.Entry<String, Object> entry : payloadClaims.entrySet()) {
             builder.withClaim(entry.getKey(), entry.getValue().toString());
         }
-        return builder.sign(Algorithm.HMAC256(JwtProvider.secret));
+        return builder.sign(firma.algorithm());
     }
 
     public static DecodedJWT verifyJwt(final String jwt) {
-        return JWT.require(Algorithm.HMAC256(JwtProvider.secret)).build().verify(jwt);
+        final Portachiavi chiavi = JwtProvider.portachiavi;
+        final DecodedJWT decoded = JWT.decode(jwt);
+        final Instant ora = Instant.now();
+
+        if (decoded.getKeyId() != null) {
+            final Chiave chiave = chiavi.chiavi().get(decoded.getKeyId());
+            if (chiave == null || !chiave.isValida(ora)) {
+                throw new JWTVerificationException("Unknown or expired key id " + decoded.getKeyId());
+            }
+            return chiave.verifier().verify(decoded);
+        }
+
+        // Token emessi prima dell'introduzione del kid: si provano le chiavi valide, a partire da quella di firma
+        SignatureVerificationException errore = null;
+        for (final Chiave chiave : chiavi.chiavi().values()) {
+            if (chiave.isValida(ora)) {
+                try {
+                    return chiave.verifier().verify(decoded);
+                } catch (final SignatureVerificationException ex) {
+                    errore = ex;
+                }
+            }
+        }
+        throw errore;
+    }
+
+    private static JWTCreator.Builder builder(final Chiave firma, final String subject, final String id, final Duration durata) {
+        final JWTCreator.Builder builder = JWT.create().withKeyId(firma.kid()).withJWTId(id)
+                .withSubject(subject).withIssuer(ISSUER);
+        final DateTime now = DateTime.now();
+        return builder.withIssuedAt(now.toDate()).withExpiresAt(now.plus(durata.toMillis()).toDate());
+    }
+
+    private static Chiave crea(final String kid, final String secret, final Instant validaFino) {
+        if (kid == null || kid.isBlank() || secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("missing kid or secret");
+        }
+        final Algorithm algorithm = Algorithm.HMAC256(secret);
+        return new Chiave(kid, algorithm, JWT.require(algorithm).build(), validaFino);
     }
-}
\ No newline at end of file
+}
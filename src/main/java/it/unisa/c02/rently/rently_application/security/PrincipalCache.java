@@ -0,0 +1,101 @@
+package it.unisa.c02.rently.rently_application.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache limitata dei principal autenticati, indicizzata per hash del token.
+ * Una richiesta con un token già visto entro la durata della voce non ripete la verifica della firma,
+ * la lettura delle claim e la ricerca dell'utente nel database.
+ * Le voci di un utente vanno invalidate quando l'utente viene modificato o eliminato; la durata limitata
+ * delle voci copre le modifiche eseguite su altri nodi.
+ */
+@Component
+public class PrincipalCache {
+
+    private record Voce(UtentePrincipal principal, long scadenza) {
+    }
+
+    private final Map<String, Voce> voci = new ConcurrentHashMap<>();
+
+    private final int dimensioneMassima;
+
+    private final long durataMs;
+
+    public PrincipalCache(@Value("${security.cache.dimensione-massima:10000}") final int dimensioneMassima,
+                          @Value("${security.cache.durata:300000}") final long durataMs) {
+        this.dimensioneMassima = dimensioneMassima;
+        this.durataMs = durataMs;
+    }
+
+    public UtentePrincipal get(final String token) {
+        final String chiave = hash(token);
+        final Voce voce = voci.get(chiave);
+        if (voce == null) {
+            return null;
+        }
+        if (voce.scadenza() <= System.currentTimeMillis()) {
+            voci.remove(chiave, voce);
+            return null;
+        }
+        return voce.principal();
+    }
+
+    public void put(final String token, final UtentePrincipal principal, final Date scadenzaToken) {
+        final long ora = System.currentTimeMillis();
+        long scadenza = ora + durataMs;
+        if (scadenzaToken != null) {
+            scadenza = Math.min(scadenza, scadenzaToken.getTime());
+        }
+        if (scadenza <= ora) {
+            return;
+        }
+        if (voci.size() >= dimensioneMassima) {
+            libera(ora);
+        }
+        voci.put(hash(token), new Voce(principal, scadenza));
+    }
+
+    public void invalida(final long idUtente) {
+        voci.values().removeIf((final var voce) -> voce.principal().id() == idUtente);
+    }
+
+    public void invalidaToken(final String idToken) {
+        if (idToken != null) {
+            voci.values().removeIf((final var voce) -> idToken.equals(voce.principal().idToken()));
+        }
+    }
+
+    public void invalidaTutto() {
+        voci.clear();
+    }
+
+    private void libera(final long ora) {
+        voci.values().removeIf((final var voce) -> voce.scadenza() <= ora);
+        // Se tutte le voci sono ancora valide ne viene rimossa una parte arbitraria
+        final Iterator<Voce> iterator = voci.values().iterator();
+        int daRimuovere = voci.size() - dimensioneMassima + Math.max(1, dimensioneMassima / 10);
+        while (daRimuovere-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static String hash(final String token) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package it.unisa.c02.rently.rently_application.security;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneTokenRevocatoDAO;
+import it.unisa.c02.rently.rently_application.data.model.TokenRevocato;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lista dei token di accesso revocati, controllata a ogni richiesta autenticata.
+ * I jti revocati sono caricati in un filtro di Bloom in memoria: per quasi tutte le richieste il controllo
+ * si risolve nel filtro senza accessi al database, che viene interrogato solo per confermare una risposta positiva.
+ * Le revoche eseguite da altri nodi vengono lette periodicamente; il filtro viene ricostruito per eliminare
+ * le revoche dei token ormai scaduti.
+ * Tutti i token di un utente si revocano insieme salvando l'istante della revoca, con jti PREFISSO_UTENTE seguito
+ * dall'id dell'utente: sono revocati i token emessi fino a quell'istante, anche quelli di cui il jti non è noto.
+ */
+@Component
+public class TokenRevocationList {
+
+    public static final String PREFISSO_UTENTE = "utente:";
+
+    private static final int DIMENSIONE_BLOCCO = 1000;
+
+    // Le revoche vengono rilette con questo margine, per includere quelle di transazioni confermate in ritardo
+    private static final long MARGINE_LETTURA_MS = 60000;
+
+    private final GestioneTokenRevocatoDAO tokenRevocatoDAO;
+
+    private final int capacita;
+
+    private final double probabilitaFalsiPositivi;
+
+    // Revoche confermate, con la scadenza del token in millisecondi
+    private final Map<String, Long> confermate = new ConcurrentHashMap<>();
+
+    // Revoche di tutti i token di un utente, con l'istante della revoca in millisecondi
+    private final Map<Long, Long> revocheUtente = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filtro;
+
+    private volatile long ultimaLettura;
+
+    public TokenRevocationList(final GestioneTokenRevocatoDAO tokenRevocatoDAO,
+                               @Value("${security.revoche.capacita:100000}") final int capacita,
+                               @Value("${security.revoche.probabilita-falsi-positivi:0.01}") final double probabilitaFalsiPositivi) {
+        this.tokenRevocatoDAO = tokenRevocatoDAO;
+        this.capacita = capacita;
+        this.probabilitaFalsiPositivi = probabilitaFalsiPositivi;
+    }
+
+    public void revoca(final String jti, final Instant scadenza) {
+        if (jti == null) {
+            return;
+        }
+        tokenRevocatoDAO.save(new TokenRevocato(jti, Timestamp.from(Instant.now()), Timestamp.from(scadenza)));
+        confermate.put(jti, scadenza.toEpochMilli());
+        final BloomFilter attuale = this.filtro;
+        if (attuale != null) {
+            attuale.aggiungi(jti);
+        }
+    }
+
+    public void revocaUtente(final long idUtente) {
+        final Instant adesso = Instant.now();
+        tokenRevocatoDAO.save(new TokenRevocato(PREFISSO_UTENTE + idUtente, Timestamp.from(adesso),
+                Timestamp.from(adesso.plus(JwtProvider.durataMassimaAccettata()))));
+        revocheUtente.merge(idUtente, adesso.toEpochMilli(), Math::max);
+    }
+
+    public boolean isRevocatoUtente(final long idUtente, final long emissione) {
+        // L'emissione del token è al secondo: un token emesso nello stesso secondo della revoca è considerato revocato
+        final Long revoca = revocheUtente.get(idUtente);
+        return revoca != null && emissione <= revoca;
+    }
+
+    public boolean isRevocato(final String jti) {
+        if (jti == null) {
+            return false;
+        }
+        final BloomFilter attuale = this.filtro;
+        if (attuale != null && !attuale.contiene(jti)) {
+            return false;
+        }
+        final Long scadenza = confermate.get(jti);
+        if (scadenza != null) {
+            return true;
+        }
+        // Falso positivo del filtro oppure filtro non ancora caricato: conferma esatta sul database
+        return tokenRevocatoDAO.findById(jti).map((final var revoca) -> {
+            confermate.put(jti, revoca.getScadenza().getTime());
+            return true;
+        }).orElse(false);
+    }
+
+    @Scheduled(initialDelayString = "${security.revoche.intervallo-aggiornamento:5000}",
+            fixedDelayString = "${security.revoche.intervallo-aggiornamento:5000}")
+    public synchronized void aggiorna() {
+        final BloomFilter attuale = this.filtro;
+        if (attuale == null) {
+            return;
+        }
+        final long inizio = System.currentTimeMillis();
+        try {
+            final List<TokenRevocato> revoche = tokenRevocatoDAO.findByCreazioneGreaterThanEqual(
+                    new Timestamp(ultimaLettura - MARGINE_LETTURA_MS));
+            for (final TokenRevocato revoca : revoche) {
+                registra(attuale, revoca);
+            }
+            ultimaLettura = inizio;
+        } catch (final Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${security.revoche.intervallo-ricostruzione:3600000}",
+            fixedDelayString = "${security.revoche.intervallo-ricostruzione:3600000}")
+    public synchronized void ricostruisci() {
+        final long inizio = System.currentTimeMillis();
+        try {
+            final Timestamp adesso = new Timestamp(inizio);
+            final int dimensione = (int) Math.min(Integer.MAX_VALUE, Math.max(capacita, 2 * tokenRevocatoDAO.count()));
+            final BloomFilter nuovo = new BloomFilter(dimensione, probabilitaFalsiPositivi);
+            String dopo = "";
+            List<TokenRevocato> blocco;
+            do {
+                blocco = tokenRevocatoDAO.findByJtiGreaterThanAndScadenzaAfterOrderByJtiAsc(dopo, adesso, PageRequest.of(0, DIMENSIONE_BLOCCO));
+                for (final TokenRevocato revoca : blocco) {
+                    registra(nuovo, revoca);
+                }
+                if (!blocco.isEmpty()) {
+                    dopo = blocco.get(blocco.size() - 1).getJti();
+                }
+            } while (blocco.size() == DIMENSIONE_BLOCCO);
+
+            confermate.values().removeIf((final var scadenza) -> scadenza < inizio);
+            // La revoca resta finché può essere accettato un token emesso prima di essa, compresi quelli con la claim "user"
+            final long durataMassima = JwtProvider.durataMassimaAccettata().toMillis();
+            revocheUtente.values().removeIf((final var revoca) -> revoca + durataMassima < inizio);
+            ultimaLettura = inizio;
+            this.filtro = nuovo;
+            // Le revoche locali eseguite durante la ricostruzione potrebbero essere state aggiunte solo al filtro precedente
+            for (final String jti : confermate.keySet()) {
+                nuovo.aggiungi(jti);
+            }
+        } catch (final Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void registra(final BloomFilter destinazione, final TokenRevocato revoca) {
+        final String jti = revoca.getJti();
+        if (!jti.startsWith(PREFISSO_UTENTE)) {
+            destinazione.aggiungi(jti);
+            return;
+        }
+        try {
+            revocheUtente.merge(Long.parseLong(jti.substring(PREFISSO_UTENTE.length())),
+                    revoca.getCreazione().getTime(), Math::max);
+        } catch (final NumberFormatException ex) {
+            // Jti con il prefisso delle revoche per utente ma senza un id valido: non corrisponde a nessun utente
+        }
+    }
+}
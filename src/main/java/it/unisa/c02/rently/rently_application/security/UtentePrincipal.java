@@ -0,0 +1,18 @@
+package it.unisa.c02.rently.rently_application.security;
+
+public record UtentePrincipal(long id, String email, String idToken, long emissione) {
+
+    // Senza l'istante di emissione il principal è considerato emesso prima di qualsiasi revoca dell'utente
+    public UtentePrincipal(final long id, final String email, final String idToken) {
+        this(id, email, idToken, 0);
+    }
+
+    public UtentePrincipal(final long id, final String email) {
+        this(id, email, null);
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -0,0 +1,216 @@
+package it.unisa.c02.rently.rently_application.autenticazione;
+
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.controller.GestioneAutenticazioneController;
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.FiltroCredenziali;
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.GestioneAutenticazioneService;
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.LimiteDisponibilita;
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordService;
+import it.unisa.c02.rently.rently_application.commons.services.responseService.ResponseServiceImpl;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica i filtri delle credenziali registrate, la chiave dei valori rispetto alla collation della tabella degli utenti
+ * e il limite alle verifiche di disponibilità.
+ */
+public class FiltroCredenzialiTests {
+
+    private final GestioneAutenticazioneDAO autenticazioneDAO = mock(GestioneAutenticazioneDAO.class);
+    private final FiltroCredenziali filtro = new FiltroCredenziali(autenticazioneDAO, 1000, 0.01);
+
+    private static Object[] credenziali(final long id, final String username, final String email) {
+        return new Object[]{id, username, email};
+    }
+
+    private static Utente utente(final String username, final String email) {
+        final Utente utente = new Utente();
+        utente.setUsername(username);
+        utente.setEmail(email);
+        return utente;
+    }
+
+    @Test
+    void testPrimaDelCaricamentoVerificaSulDatabase() {
+        given(autenticazioneDAO.existsByUsername("mario")).willReturn(true);
+
+        assertTrue(filtro.isUsernameRegistrato("mario"));
+        assertFalse(filtro.isEmailRegistrata("mario@rently.it"));
+        verify(autenticazioneDAO).existsByEmail("mario@rently.it");
+    }
+
+    @Test
+    void testValoreNonRegistratoSenzaDatabase() {
+        given(autenticazioneDAO.findCredenzialiDopo(eq(0L), any(Pageable.class)))
+                .willReturn(List.<Object[]>of(credenziali(1, "mario", "mario@rently.it")));
+        filtro.ricostruisci();
+
+        assertFalse(filtro.isUsernameRegistrato("luigi"));
+        assertFalse(filtro.isEmailRegistrata("luigi@rently.it"));
+        verify(autenticazioneDAO, never()).existsByUsername(anyString());
+        verify(autenticazioneDAO, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void testValoreRegistratoConfermatoSulDatabase() {
+        given(autenticazioneDAO.findCredenzialiDopo(eq(0L), any(Pageable.class)))
+                .willReturn(List.<Object[]>of(credenziali(1, "Mario", "Mario@Rently.it")));
+        given(autenticazioneDAO.existsByUsername("MARIO")).willReturn(true);
+        given(autenticazioneDAO.existsByEmail("mario@rently.it")).willReturn(true);
+        filtro.ricostruisci();
+
+        assertTrue(filtro.isUsernameRegistrato("MARIO"));
+        assertTrue(filtro.isEmailRegistrata("mario@rently.it"));
+    }
+
+    @Test
+    void testRicostruzioneLeggeTuttiIBlocchi() {
+        final List<Object[]> primo = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            primo.add(credenziali(i, "utente" + i, "utente" + i + "@rently.it"));
+        }
+        given(autenticazioneDAO.findCredenzialiDopo(eq(0L), any(Pageable.class))).willReturn(primo);
+        given(autenticazioneDAO.findCredenzialiDopo(eq(5000L), any(Pageable.class)))
+                .willReturn(List.<Object[]>of(credenziali(5001, "ultimo", "ultimo@rently.it")));
+        given(autenticazioneDAO.existsByUsername("ultimo")).willReturn(true);
+        filtro.ricostruisci();
+
+        assertTrue(filtro.isUsernameRegistrato("ultimo"));
+        verify(autenticazioneDAO).existsByUsername("ultimo");
+    }
+
+    @Test
+    void testUtenteAggiuntoDopoIlCaricamento() {
+        filtro.ricostruisci();
+        filtro.aggiungi(utente("luigi", "luigi@rently.it"));
+        given(autenticazioneDAO.existsByUsername("luigi")).willReturn(true);
+
+        assertTrue(filtro.isUsernameRegistrato("luigi"));
+        verify(autenticazioneDAO).existsByUsername("luigi");
+    }
+
+    @Test
+    void testUtenteAggiuntoDuranteLaRicostruzione() {
+        filtro.ricostruisci();
+        // Utente registrato su questo nodo mentre la ricostruzione legge la tabella, dopo il blocco che lo avrebbe incluso
+        given(autenticazioneDAO.findCredenzialiDopo(eq(0L), any(Pageable.class))).willAnswer((final var invocation) -> {
+            filtro.aggiungi(utente("luigi", "luigi@rently.it"));
+            return List.<Object[]>of(credenziali(1, "mario", "mario@rently.it"));
+        });
+        filtro.ricostruisci();
+        given(autenticazioneDAO.existsByUsername("luigi")).willReturn(true);
+        given(autenticazioneDAO.existsByEmail("luigi@rently.it")).willReturn(true);
+
+        assertTrue(filtro.isUsernameRegistrato("luigi"));
+        assertTrue(filtro.isEmailRegistrata("luigi@rently.it"));
+    }
+
+    @Test
+    void testRicostruzioneFallitaMantieneIFiltriPrecedenti() {
+        given(autenticazioneDAO.findCredenzialiDopo(eq(0L), any(Pageable.class)))
+                .willReturn(List.<Object[]>of(credenziali(1, "mario", "mario@rently.it")));
+        filtro.ricostruisci();
+        given(autenticazioneDAO.findCredenzialiDopo(anyLong(), any(Pageable.class)))
+                .willThrow(new IllegalStateException("database non disponibile"));
+        filtro.ricostruisci();
+        given(autenticazioneDAO.existsByUsername("mario")).willReturn(true);
+
+        assertTrue(filtro.isUsernameRegistrato("mario"));
+        assertFalse(filtro.isUsernameRegistrato("luigi"));
+        verify(autenticazioneDAO, never()).existsByUsername("luigi");
+    }
+
+    @Test
+    void testChiaveUgualePerValoriUgualiNellaCollation() {
+        assertEquals(FiltroCredenziali.normalizza("mario"), FiltroCredenziali.normalizza("MaRiO"));
+        assertEquals(FiltroCredenziali.normalizza("mario"), FiltroCredenziali.normalizza("Màrìo"));
+        assertEquals(FiltroCredenziali.normalizza("mario"), FiltroCredenziali.normalizza("mario  "));
+        assertEquals(FiltroCredenziali.normalizza("mario"), FiltroCredenziali.normalizza("ma\u200Brio"));
+        assertEquals(FiltroCredenziali.normalizza("mario"), FiltroCredenziali.normalizza("ｍａｒｉｏ"));
+        assertEquals(FiltroCredenziali.normalizza("ismail"), FiltroCredenziali.normalizza("İsmail"));
+        assertEquals(FiltroCredenziali.normalizza("office"), FiltroCredenziali.normalizza("oﬃce"));
+        assertEquals(FiltroCredenziali.normalizza("aesir"), FiltroCredenziali.normalizza("Æsir"));
+    }
+
+    @Test
+    void testChiaveDellaEsszettInTutteLeCollation() {
+        // "ß" vale "ss" in utf8mb4_0900_ai_ci e utf8mb4_unicode_ci, "s" in utf8mb4_general_ci
+        assertEquals(FiltroCredenziali.normalizza("strasse"), FiltroCredenziali.normalizza("straße"));
+        assertEquals(FiltroCredenziali.normalizza("strase"), FiltroCredenziali.normalizza("straße"));
+        assertEquals(FiltroCredenziali.normalizza("strasse"), FiltroCredenziali.normalizza("STRASSE"));
+    }
+
+    @Test
+    void testEsszettRegistrataNonRisultaDisponibile() {
+        given(autenticazioneDAO.findCredenzialiDopo(eq(0L), any(Pageable.class)))
+                .willReturn(List.<Object[]>of(credenziali(1, "strasse", "strasse@rently.it")));
+        given(autenticazioneDAO.existsByUsername("straße")).willReturn(true);
+        filtro.ricostruisci();
+
+        assertTrue(filtro.isUsernameRegistrato("straße"));
+    }
+
+    @Test
+    void testChiaviDiverseRestanoDiverse() {
+        assertNotEquals(FiltroCredenziali.normalizza("mario"), FiltroCredenziali.normalizza("maria"));
+        assertNotEquals(FiltroCredenziali.normalizza("mario"), FiltroCredenziali.normalizza("mario1"));
+        assertEquals("", FiltroCredenziali.normalizza(null));
+    }
+
+    @Test
+    void testLimiteDisponibilitaPerIndirizzo() {
+        final LimiteDisponibilita limite = new LimiteDisponibilita(3, 60000);
+
+        assertTrue(limite.consenti("10.0.0.1"));
+        assertTrue(limite.consenti("10.0.0.1"));
+        assertTrue(limite.consenti("10.0.0.1"));
+        assertFalse(limite.consenti("10.0.0.1"));
+        assertTrue(limite.consenti("10.0.0.2"));
+    }
+
+    @Test
+    void testLimiteDisponibilitaRipristinatoAllaNuovaFinestra() throws InterruptedException {
+        final LimiteDisponibilita limite = new LimiteDisponibilita(1, 50);
+
+        assertTrue(limite.consenti("10.0.0.1"));
+        assertFalse(limite.consenti("10.0.0.1"));
+        Thread.sleep(60);
+        limite.pulisci();
+        assertTrue(limite.consenti("10.0.0.1"));
+    }
+
+    @Test
+    void testDisponibilitaLimitataSeparatamentePerOgniClient() {
+        final GestioneAutenticazioneController controller = new GestioneAutenticazioneController(new ResponseServiceImpl(),
+                mock(GestioneAutenticazioneService.class), mock(PasswordService.class), new LimiteDisponibilita(2, 60000));
+        final MockHttpServletRequest primo = new MockHttpServletRequest();
+        primo.setRemoteAddr("203.0.113.1");
+        final MockHttpServletRequest secondo = new MockHttpServletRequest();
+        secondo.setRemoteAddr("203.0.113.2");
+
+        assertEquals(HttpStatus.CREATED, controller.disponibilita("mario", null, primo).getStatusCode());
+        assertEquals(HttpStatus.CREATED, controller.disponibilita("mario", null, primo).getStatusCode());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, controller.disponibilita("mario", null, primo).getStatusCode());
+        // Un altro client non condivide il limite del primo
+        assertEquals(HttpStatus.CREATED, controller.disponibilita("mario", null, secondo).getStatusCode());
+    }
+}
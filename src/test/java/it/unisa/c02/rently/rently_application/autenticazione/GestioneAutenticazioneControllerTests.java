@@ -2,6 +2,7 @@ package it.unisa.c02.rently.rently_application.autenticazione;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.GestioneAutenticazioneService;
+import it.unisa.c02.rently.rently_application.data.dto.RefreshTokenDTO;
 import it.unisa.c02.rently.rently_application.data.dto.UtenteDTO;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
 import org.junit.jupiter.api.Test;
@@ -17,7 +18,9 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -95,4 +98,51 @@ public class GestioneAutenticazioneControllerTests {
                 .andExpect(jsonPath("$.message", is("I dati inseriti non sono validi")));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRefresh() throws Exception {
+
+        final RefreshTokenDTO refreshTokenDTO = new RefreshTokenDTO();
+        refreshTokenDTO.setRefreshToken("refresh-precedente");
+
+        final Utente mockUtente = new Utente(1,"user1", "Mario", "Rossi", "mario.rossi@email.com", "password123", false);
+        given(autenticazioneService.usaRefreshToken("refresh-precedente")).willReturn(mockUtente);
+        given(autenticazioneService.creaRefreshToken(any(Utente.class))).willReturn("refresh-nuovo");
+
+        mockMvc.perform(post("/api/autenticazione/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshTokenDTO)))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.username", is(mockUtente.getUsername())))
+                .andExpect(jsonPath("$.refreshToken", is("refresh-nuovo")));
+    }
+
+    @Test
+    void testRefreshReturnServerError() throws Exception {
+
+        final RefreshTokenDTO refreshTokenDTO = new RefreshTokenDTO();
+        refreshTokenDTO.setRefreshToken("refresh-gia-usato");
+
+        given(autenticazioneService.usaRefreshToken("refresh-gia-usato")).willReturn(null);
+
+        mockMvc.perform(post("/api/autenticazione/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshTokenDTO)))
+                .andExpect(status().is5xxServerError())
+                .andExpect(jsonPath("$.message", is("Sessione scaduta")));
+    }
+
+    @Test
+    void testDisponibilita() throws Exception {
+
+        given(autenticazioneService.checkUsername("user1")).willReturn(true);
+        given(autenticazioneService.checkEmail("nuovo.utente@email.com")).willReturn(false);
+
+        mockMvc.perform(get("/api/autenticazione/disponibilita")
+                        .param("username", "user1")
+                        .param("email", "nuovo.utente@email.com"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.username", is(false)))
+                .andExpect(jsonPath("$.email", is(true)));
+    }
+}
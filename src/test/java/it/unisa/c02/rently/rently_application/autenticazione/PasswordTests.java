@@ -0,0 +1,187 @@
+package it.unisa.c02.rently.rently_application.autenticazione;
+
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.FiltroCredenziali;
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.GestioneAutenticazioneServiceImpl;
+import it.unisa.c02.rently.rently_application.commons.psw.PswCoder;
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordService;
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordServiceImpl;
+import it.unisa.c02.rently.rently_application.config.SecurityConfig;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneRefreshTokenDAO;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import it.unisa.c02.rently.rently_application.security.PrincipalCache;
+import it.unisa.c02.rently.rently_application.security.TokenRevocationList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifica la compatibilità con le password SHA-256, la verifica a tempo costante per gli utenti inesistenti
+ * e la ricodifica delle password al primo accesso.
+ */
+public class PasswordTests {
+
+    /**
+     * Codifica SHA-256 di "password".
+     */
+    private static final String SHA_PASSWORD = "5e884898da28047151d0e56f8dc6292773603d0d6aabbdd62a11ef721d1542d8";
+
+    private PasswordServiceImpl passwordService;
+
+    @BeforeEach
+    void setUp() {
+        final SecurityConfig config = new SecurityConfig(mock(GestioneAutenticazioneDAO.class),
+                mock(PrincipalCache.class), mock(TokenRevocationList.class));
+        passwordService = new PasswordServiceImpl(config.passwordEncoder(new PswCoder(), "bcrypt", 4), 1, 8, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordService.chiudi();
+    }
+
+    private static Utente utente(final String password) {
+        final Utente utente = new Utente("mario", "Mario", "Rossi", "mario@rently.it", password, false);
+        utente.setId(7);
+        return utente;
+    }
+
+    private static GestioneAutenticazioneServiceImpl servizio(final GestioneAutenticazioneDAO dao,
+                                                              final PasswordService passwordService) {
+        return new GestioneAutenticazioneServiceImpl(dao, passwordService, mock(GestioneRefreshTokenDAO.class),
+                mock(FiltroCredenziali.class), mock(TokenRevocationList.class), mock(PrincipalCache.class));
+    }
+
+    @Test
+    void testPswCoderVerificaCodificaSha256() {
+        final PswCoder coder = new PswCoder();
+
+        assertEquals(SHA_PASSWORD, coder.encode("password"));
+        assertTrue(coder.matches("password", SHA_PASSWORD));
+        assertFalse(coder.matches("Password", SHA_PASSWORD));
+        assertFalse(coder.matches("password", SHA_PASSWORD.toUpperCase()));
+        assertFalse(coder.matches("password", null));
+        assertFalse(coder.matches(null, SHA_PASSWORD));
+    }
+
+    @Test
+    void testCodificaSha256SenzaPrefissoVerificataERicodificata() {
+        assertTrue(passwordService.verifica("password", SHA_PASSWORD));
+        assertFalse(passwordService.verifica("sbagliata", SHA_PASSWORD));
+        assertTrue(passwordService.richiedeAggiornamento(SHA_PASSWORD));
+    }
+
+    @Test
+    void testNuovaCodificaBcryptNonRichiedeAggiornamento() {
+        final String codifica = passwordService.codifica("password");
+
+        assertTrue(codifica.startsWith("{bcrypt}"));
+        assertTrue(codifica.length() <= Utente.LUNGHEZZA_PASSWORD);
+        assertTrue(passwordService.verifica("password", codifica));
+        assertFalse(passwordService.richiedeAggiornamento(codifica));
+    }
+
+    @Test
+    void testUtenteInesistenteVerificaComunqueUnaCodifica() {
+        final PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode("password-fittizia")).thenReturn("{bcrypt}fittizia");
+        final PasswordServiceImpl servizio = new PasswordServiceImpl(encoder, 1, 8, 5000);
+        try {
+            assertFalse(servizio.verifica("password", null));
+            verify(encoder, times(1)).matches("password", "{bcrypt}fittizia");
+        } finally {
+            servizio.chiudi();
+        }
+    }
+
+    @Test
+    void testLoginEmailInesistenteVerificaLaCodificaFittizia() {
+        final GestioneAutenticazioneDAO dao = mock(GestioneAutenticazioneDAO.class);
+        final PasswordService mockPassword = mock(PasswordService.class);
+
+        assertNull(servizio(dao, mockPassword).login("nessuno@rently.it", "password"));
+        verify(mockPassword).verifica("password", null);
+        verify(dao, never()).aggiornaPassword(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void testLoginConCodificaSha256AggiornaConConfronto() {
+        final GestioneAutenticazioneDAO dao = mock(GestioneAutenticazioneDAO.class);
+        final Utente utente = utente(SHA_PASSWORD);
+        when(dao.findByEmail("mario@rently.it")).thenReturn(utente);
+
+        assertSame(utente, servizio(dao, passwordService).login("mario@rently.it", "password"));
+        verify(dao, timeout(5000)).aggiornaPassword(eq(7L), eq(SHA_PASSWORD), startsWith("{bcrypt}"));
+    }
+
+    @Test
+    void testLoginConCodificaAggiornataNonRicodifica() {
+        final GestioneAutenticazioneDAO dao = mock(GestioneAutenticazioneDAO.class);
+        final String codifica = passwordService.codifica("password");
+        when(dao.findByEmail("mario@rently.it")).thenReturn(utente(codifica));
+        final PasswordService spia = spy(passwordService);
+
+        servizio(dao, spia).login("mario@rently.it", "password");
+        verify(spia, never()).codificaAsync(anyString());
+        verify(dao, never()).aggiornaPassword(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void testColonnaStrettaVieneAllargata() {
+        final GestioneAutenticazioneDAO dao = mock(GestioneAutenticazioneDAO.class);
+        when(dao.lunghezzaColonnaPassword()).thenReturn(64L);
+
+        servizio(dao, passwordService).verificaColonnaPassword();
+        verify(dao).allargaColonnaPassword();
+    }
+
+    @Test
+    void testColonnaAdeguataNonVieneModificata() {
+        final GestioneAutenticazioneDAO dao = mock(GestioneAutenticazioneDAO.class);
+        when(dao.lunghezzaColonnaPassword()).thenReturn((long) Utente.LUNGHEZZA_PASSWORD);
+
+        servizio(dao, passwordService).verificaColonnaPassword();
+        verify(dao, never()).allargaColonnaPassword();
+    }
+
+    @Test
+    void testColonnaStrettaNonAllargabileSospendeLaRicodifica() {
+        final GestioneAutenticazioneDAO dao = mock(GestioneAutenticazioneDAO.class);
+        final PasswordService mockPassword = mock(PasswordService.class);
+        when(dao.lunghezzaColonnaPassword()).thenReturn(64L);
+        doThrow(new DataAccessResourceFailureException("alter negato")).when(dao).allargaColonnaPassword();
+        when(dao.findByEmail("mario@rently.it")).thenReturn(utente(SHA_PASSWORD));
+        when(mockPassword.verifica("password", SHA_PASSWORD)).thenReturn(true);
+        when(mockPassword.richiedeAggiornamento(SHA_PASSWORD)).thenReturn(true);
+        when(mockPassword.codificaAsync("password"))
+                .thenReturn(CompletableFuture.completedFuture("{bcrypt}" + "x".repeat(60)));
+
+        final GestioneAutenticazioneServiceImpl servizio = servizio(dao, mockPassword);
+        servizio.verificaColonnaPassword();
+        servizio.login("mario@rently.it", "password");
+
+        verify(dao, never()).aggiornaPassword(anyLong(), anyString(), anyString());
+    }
+}
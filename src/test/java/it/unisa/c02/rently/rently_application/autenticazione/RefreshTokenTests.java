@@ -0,0 +1,113 @@
+package it.unisa.c02.rently.rently_application.autenticazione;
+
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.FiltroCredenziali;
+import it.unisa.c02.rently.rently_application.business.gestioneAutenticazione.service.GestioneAutenticazioneServiceImpl;
+import it.unisa.c02.rently.rently_application.commons.services.passwordService.PasswordService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneRefreshTokenDAO;
+import it.unisa.c02.rently.rently_application.data.model.RefreshToken;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import it.unisa.c02.rently.rently_application.security.PrincipalCache;
+import it.unisa.c02.rently.rently_application.security.TokenRevocationList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica la rotazione dei refresh token e la chiusura delle sessioni quando un refresh token viene riusato.
+ */
+public class RefreshTokenTests {
+
+    private final GestioneAutenticazioneDAO autenticazioneDAO = mock(GestioneAutenticazioneDAO.class);
+    private final GestioneRefreshTokenDAO refreshTokenDAO = mock(GestioneRefreshTokenDAO.class);
+    private final TokenRevocationList revocationList = mock(TokenRevocationList.class);
+    private final PrincipalCache principalCache = mock(PrincipalCache.class);
+    private final GestioneAutenticazioneServiceImpl servizio = new GestioneAutenticazioneServiceImpl(autenticazioneDAO,
+            mock(PasswordService.class), refreshTokenDAO, mock(FiltroCredenziali.class), revocationList, principalCache);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(servizio, "durataRefresh", 2592000000L);
+    }
+
+    private String salva(final Utente utente) {
+        final String refreshToken = servizio.creaRefreshToken(utente);
+        final ArgumentCaptor<RefreshToken> salvato = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenDAO).save(salvato.capture());
+        final RefreshToken token = salvato.getValue();
+        token.setId(3);
+        given(refreshTokenDAO.findByHash(token.getHash())).willReturn(token);
+        return refreshToken;
+    }
+
+    private static Utente utente() {
+        return new Utente(7, "mario", "Mario", "Rossi", "mario@rently.it", "password", false);
+    }
+
+    @Test
+    void testRefreshTokenSalvatoSoloComeHash() {
+        final Utente utente = utente();
+        final String refreshToken = salva(utente);
+
+        final ArgumentCaptor<RefreshToken> salvato = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenDAO).save(salvato.capture());
+        assertNotEquals(refreshToken, salvato.getValue().getHash());
+    }
+
+    @Test
+    void testRefreshTokenValidoRestituisceLUtente() {
+        final Utente utente = utente();
+        final String refreshToken = salva(utente);
+        given(refreshTokenDAO.revoca(3)).willReturn(1);
+        given(autenticazioneDAO.findById(7L)).willReturn(Optional.of(utente));
+
+        assertSame(utente, servizio.usaRefreshToken(refreshToken));
+        verify(refreshTokenDAO, never()).revocaTutti(anyLong());
+        verify(revocationList, never()).revocaUtente(anyLong());
+    }
+
+    @Test
+    void testRefreshTokenRiusatoRevocaTutteLeSessioni() {
+        final String refreshToken = salva(utente());
+        given(refreshTokenDAO.revoca(3)).willReturn(0);
+
+        assertNull(servizio.usaRefreshToken(refreshToken));
+        verify(refreshTokenDAO).revocaTutti(7);
+        verify(revocationList).revocaUtente(7);
+        verify(principalCache).invalida(7);
+    }
+
+    @Test
+    void testRefreshTokenScadutoNonRevocaLeSessioni() {
+        final String refreshToken = salva(utente());
+        given(refreshTokenDAO.findByHash(anyString())).willReturn(
+                new RefreshToken("hash", 7, new Timestamp(System.currentTimeMillis() - 1000)));
+
+        assertNull(servizio.usaRefreshToken(refreshToken));
+        verify(refreshTokenDAO, never()).revoca(anyLong());
+        verify(revocationList, never()).revocaUtente(anyLong());
+    }
+
+    @Test
+    void testRevocaSessioniRevocaRefreshEAccesso() {
+        servizio.revocaSessioni(7);
+
+        verify(refreshTokenDAO).revocaTutti(7);
+        verify(revocationList).revocaUtente(7);
+        verify(principalCache).invalida(7);
+    }
+}
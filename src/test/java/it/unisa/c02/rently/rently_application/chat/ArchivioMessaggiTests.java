@@ -0,0 +1,180 @@
+package it.unisa.c02.rently.rently_application.chat;
+
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ArchivioMessaggi;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.IndiceRicercaMessaggi;
+import it.unisa.c02.rently.rently_application.commons.services.chatService.ChatService;
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneArchivioMessaggiDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneOffsetProiezioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import it.unisa.c02.rently.rently_application.data.model.SegmentoArchivioMessaggi;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica l'archiviazione dei messaggi meno recenti e la lettura dei segmenti compressi dell'archivio.
+ */
+public class ArchivioMessaggiTests {
+
+    private final GestioneChatDAO chatDAO = mock(GestioneChatDAO.class);
+    private final GestioneArchivioMessaggiDAO archivioDAO = mock(GestioneArchivioMessaggiDAO.class);
+    private final ArchivioMessaggi archivio = new ArchivioMessaggi(chatDAO, archivioDAO);
+
+    private final ArchivioMessaggi archivioMock = mock(ArchivioMessaggi.class);
+    private final LeaseService leaseService = mock(LeaseService.class);
+    private final ChatService chatService = new ChatService(chatDAO, mock(GestioneOffsetProiezioneDAO.class),
+            mock(IndiceRicercaMessaggi.class), archivioMock, leaseService);
+    private final Lease lease = new Lease();
+
+    private final Utente mario = utente(3);
+    private final Utente luca = utente(8);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(chatService, "giorniArchiviazione", 365);
+        ReflectionTestUtils.setField(chatService, "dimensioneSegmento", 500);
+        given(leaseService.acquisisci(eq("archiviaMessaggi"), any())).willReturn(Optional.of(lease));
+        given(leaseService.esegui(eq(lease), any(Supplier.class)))
+                .willAnswer((final var invocazione) -> Optional.of(invocazione.getArgument(1, Supplier.class).get()));
+    }
+
+    private static Utente utente(final long id) {
+        final Utente utente = new Utente();
+        utente.setId(id);
+        return utente;
+    }
+
+    private static Messaggio messaggio(final long id, final String testo, final Utente mittente, final Utente destinatario) {
+        final Messaggio messaggio = new Messaggio(testo, new Timestamp(1700000000000L + id), mittente, destinatario);
+        messaggio.setId(id);
+        return messaggio;
+    }
+
+    private SegmentoArchivioMessaggi archivia(final List<Messaggio> blocco) {
+        given(chatDAO.findBloccoDaArchiviare(eq(3L), eq(8L), eq(100L), any())).willReturn(blocco);
+        assertEquals(blocco.size(), archivio.archiviaBlocco(3, 8, 100, 500));
+        final ArgumentCaptor<SegmentoArchivioMessaggi> segmento = ArgumentCaptor.forClass(SegmentoArchivioMessaggi.class);
+        verify(archivioDAO).save(segmento.capture());
+        return segmento.getValue();
+    }
+
+    @Test
+    void testSegmentoRiletto() {
+
+        final SegmentoArchivioMessaggi segmento = archivia(List.of(
+                messaggio(10, "Ciao, è disponibile?", mario, luca),
+                messaggio(11, "Sì, fino a venerdì 😀", luca, mario),
+                messaggio(14, "Perfetto", mario, luca)));
+
+        assertEquals(10, segmento.getPrimoId());
+        assertEquals(14, segmento.getUltimoId());
+        assertEquals(3, segmento.getNumero());
+        verify(chatDAO).deleteAllByIdInBatch(List.of(10L, 11L, 14L));
+
+        given(archivioDAO.findByIdUtenteMinoreAndIdUtenteMaggioreAndUltimoIdGreaterThanOrderByUltimoIdAsc(eq(3L), eq(8L), anyLong(), any()))
+                .willReturn(List.of(segmento));
+        final List<Messaggio> letti = archivio.leggiDopo(luca, mario, 10, 10);
+
+        assertEquals(2, letti.size());
+        assertEquals(11, letti.get(0).getId());
+        assertEquals("Sì, fino a venerdì 😀", letti.get(0).getDescrizione());
+        assertEquals(new Timestamp(1700000000011L), letti.get(0).getOrarioInvio());
+        assertSame(luca, letti.get(0).getMittente());
+        assertSame(mario, letti.get(0).getDestinatario());
+        assertEquals(14, letti.get(1).getId());
+    }
+
+    @Test
+    void testLetturaAllIndietroESingola() {
+
+        final SegmentoArchivioMessaggi segmento = archivia(List.of(
+                messaggio(10, "uno", mario, luca),
+                messaggio(11, "due", luca, mario),
+                messaggio(14, "tre", mario, luca)));
+
+        given(archivioDAO.findByIdUtenteMinoreAndIdUtenteMaggioreAndPrimoIdLessThanOrderByPrimoIdDesc(eq(3L), eq(8L), anyLong(), any()))
+                .willReturn(List.of(segmento));
+        given(archivioDAO.findFirstByIdUtenteMinoreAndIdUtenteMaggioreAndPrimoIdLessThanEqualOrderByPrimoIdDesc(eq(3L), eq(8L), anyLong()))
+                .willReturn(Optional.of(segmento));
+
+        final List<Messaggio> precedenti = archivio.leggiPrima(mario, luca, 14, 10);
+        assertEquals(List.of(11L, 10L), precedenti.stream().map(Messaggio::getId).toList());
+        assertEquals("due", archivio.leggi(mario, luca, 11).orElseThrow().getDescrizione());
+        assertEquals(Optional.empty(), archivio.leggi(mario, luca, 12));
+    }
+
+    @Test
+    void testUtenteEliminatoRestaNull() {
+
+        final SegmentoArchivioMessaggi segmento = archivia(List.of(messaggio(10, "uno", null, luca)));
+
+        given(archivioDAO.findByIdUtenteMinoreAndIdUtenteMaggioreAndUltimoIdGreaterThanOrderByUltimoIdAsc(eq(3L), eq(8L), anyLong(), any()))
+                .willReturn(List.of(segmento));
+
+        final Messaggio letto = archivio.leggiDopo(mario, luca, 0, 10).get(0);
+        assertNull(letto.getMittente());
+        assertSame(luca, letto.getDestinatario());
+    }
+
+    @Test
+    void testArchiviazioneABlocchiFinoAlPrimoMessaggioRecente() {
+
+        given(chatDAO.findConversazioniDaArchiviare(any(), eq(0L), eq(0L), any())).willReturn(List.<Object[]>of(new Object[]{3L, 8L}));
+        given(chatDAO.findPrimoIdDa(eq(3L), eq(8L), any())).willReturn(1200L);
+        given(archivioMock.archiviaBlocco(3, 8, 1200, 500)).willReturn(500, 500, 37);
+
+        chatService.archiviaMessaggi();
+
+        verify(archivioMock, times(3)).archiviaBlocco(3, 8, 1200, 500);
+        verify(leaseService).rilascia(lease, Duration.ofHours(1));
+    }
+
+    @Test
+    void testConversazioneInteramenteDaArchiviare() {
+
+        given(chatDAO.findConversazioniDaArchiviare(any(), eq(0L), eq(0L), any())).willReturn(List.<Object[]>of(new Object[]{3L, 8L}));
+        given(chatDAO.findPrimoIdDa(eq(3L), eq(8L), any())).willReturn(null);
+
+        chatService.archiviaMessaggi();
+
+        verify(archivioMock, times(1)).archiviaBlocco(3, 8, Long.MAX_VALUE, 500);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testArchiviazioneInterrottaSenzaLease() {
+
+        given(chatDAO.findConversazioniDaArchiviare(any(), eq(0L), eq(0L), any()))
+                .willReturn(List.<Object[]>of(new Object[]{3L, 8L}, new Object[]{4L, 9L}));
+        given(leaseService.esegui(eq(lease), any(Supplier.class))).willReturn(Optional.empty());
+
+        chatService.archiviaMessaggi();
+
+        verify(chatDAO, never()).findPrimoIdDa(eq(4L), eq(9L), any());
+        verify(leaseService).rilascia(lease, Duration.ofHours(1));
+    }
+}
@@ -0,0 +1,87 @@
+package it.unisa.c02.rently.rently_application.chat;
+
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ChatNotificheServiceImpl;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica che la consegna dei messaggi sullo stream della chat non blocchi il chiamante.
+ */
+public class ChatNotificheTests {
+
+    private final ChatNotificheServiceImpl service = new ChatNotificheServiceImpl(1, 100);
+
+    @AfterEach
+    void tearDown() {
+        service.chiudi();
+    }
+
+    @SuppressWarnings("unchecked")
+    private SseEmitter connetti(final long idUtente) {
+        final SseEmitter emitter = mock(SseEmitter.class);
+        final Map<Long, List<SseEmitter>> connessioni = (Map<Long, List<SseEmitter>>) ReflectionTestUtils.getField(service, "connessioni");
+        connessioni.computeIfAbsent(idUtente, (final var id) -> new CopyOnWriteArrayList<>()).add(emitter);
+        return emitter;
+    }
+
+    private static Messaggio messaggio(final long id, final long idMittente, final long idDestinatario) {
+        final Utente mittente = new Utente();
+        mittente.setId(idMittente);
+        final Utente destinatario = new Utente();
+        destinatario.setId(idDestinatario);
+        final Messaggio messaggio = new Messaggio();
+        messaggio.setId(id);
+        messaggio.setMittente(mittente);
+        messaggio.setDestinatario(destinatario);
+        return messaggio;
+    }
+
+    @Test
+    void testNotificaNonAttendeLeConnessioniLente() throws Exception {
+
+        final CountDownLatch sblocca = new CountDownLatch(1);
+        final SseEmitter lento = connetti(2);
+        doAnswer((final var invocazione) -> {
+            sblocca.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(lento).send(any(SseEmitter.SseEventBuilder.class));
+
+        final long inizio = System.nanoTime();
+        service.notifica(messaggio(1, 1, 2));
+        service.notifica(messaggio(2, 1, 2));
+        final long durata = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inizio);
+        sblocca.countDown();
+
+        assertTrue(durata < 1000, "notifica ha atteso l'invio: " + durata + " ms");
+        verify(lento, timeout(2000).times(2)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void testNotificaRaggiungeMittenteEDestinatario() throws Exception {
+
+        final SseEmitter mittente = connetti(1);
+        final SseEmitter destinatario = connetti(2);
+
+        service.notifica(messaggio(1, 1, 2));
+
+        verify(mittente, timeout(2000).times(1)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(destinatario, timeout(2000).times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+}
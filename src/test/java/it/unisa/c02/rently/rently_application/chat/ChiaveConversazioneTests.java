@@ -0,0 +1,132 @@
+package it.unisa.c02.rently.rently_application.chat;
+
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ArchivioMessaggi;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.CodaMessaggi;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.GestioneChatServiceImpl;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.IndiceRicercaMessaggi;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.RicevuteLettura;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneConversazioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica il calcolo della chiave della conversazione dei messaggi e il suo completamento per i messaggi già salvati.
+ */
+public class ChiaveConversazioneTests {
+
+    private final GestioneChatDAO chatDAO = mock(GestioneChatDAO.class);
+    private final GestioneConversazioneDAO conversazioneDAO = mock(GestioneConversazioneDAO.class);
+    private final GestioneChatServiceImpl service = new GestioneChatServiceImpl(chatDAO, conversazioneDAO,
+            mock(CodaMessaggi.class), mock(ArchivioMessaggi.class), mock(IndiceRicercaMessaggi.class), mock(RicevuteLettura.class));
+
+    private static Messaggio messaggio(final Utente mittente, final Utente destinatario) {
+        final Messaggio messaggio = new Messaggio("Ciao", Timestamp.valueOf("2024-01-21 12:34:56"), mittente, destinatario);
+        ReflectionTestUtils.invokeMethod(messaggio, "calcolaChiaveConversazione");
+        return messaggio;
+    }
+
+    private static Utente utente(final long id) {
+        final Utente utente = new Utente();
+        utente.setId(id);
+        return utente;
+    }
+
+    @Test
+    void testChiaveIndipendenteDalVerso() {
+
+        final Messaggio andata = messaggio(utente(9), utente(4));
+        final Messaggio ritorno = messaggio(utente(4), utente(9));
+
+        assertEquals(4L, andata.getIdUtenteMinore());
+        assertEquals(9L, andata.getIdUtenteMaggiore());
+        assertEquals(andata.getIdUtenteMinore(), ritorno.getIdUtenteMinore());
+        assertEquals(andata.getIdUtenteMaggiore(), ritorno.getIdUtenteMaggiore());
+    }
+
+    @Test
+    void testChiaveConSeStessi() {
+
+        final Messaggio messaggio = messaggio(utente(3), utente(3));
+
+        assertEquals(3L, messaggio.getIdUtenteMinore());
+        assertEquals(3L, messaggio.getIdUtenteMaggiore());
+    }
+
+    @Test
+    void testChiaveAssenteSenzaPartecipanti() {
+
+        final Messaggio messaggio = messaggio(utente(3), null);
+
+        assertNull(messaggio.getIdUtenteMinore());
+        assertNull(messaggio.getIdUtenteMaggiore());
+    }
+
+    @Test
+    void testCompletamentoABlocchiFinoAlBloccoIncompleto() {
+
+        given(chatDAO.impostaChiaviConversazione(5000)).willReturn(5000, 5000, 12);
+
+        service.inizializzaConversazioni();
+
+        verify(chatDAO, times(3)).impostaChiaviConversazione(5000);
+    }
+
+    @Test
+    void testCompletamentoSenzaMessaggiDaAggiornare() {
+
+        given(chatDAO.impostaChiaviConversazione(5000)).willReturn(0);
+
+        service.inizializzaConversazioni();
+
+        verify(chatDAO, times(1)).impostaChiaviConversazione(5000);
+    }
+
+    @Test
+    void testEliminaIlVecchioIndice() {
+
+        given(chatDAO.contaColonneIndiceMittenteDestinatario()).willReturn(3L);
+
+        service.inizializzaConversazioni();
+
+        verify(chatDAO, times(1)).eliminaIndiceMittenteDestinatario();
+    }
+
+    @Test
+    void testVecchioIndiceGiaEliminato() {
+
+        given(chatDAO.contaColonneIndiceMittenteDestinatario()).willReturn(0L);
+
+        service.inizializzaConversazioni();
+
+        verify(chatDAO, never()).eliminaIndiceMittenteDestinatario();
+    }
+
+    @Test
+    void testVecchioIndiceNecessarioAllaChiaveEsterna() {
+
+        given(chatDAO.contaColonneIndiceMittenteDestinatario()).willReturn(3L);
+        willThrow(new InvalidDataAccessResourceUsageException("needed in a foreign key constraint"))
+                .given(chatDAO).eliminaIndiceMittenteDestinatario();
+        given(chatDAO.count()).willReturn(10L);
+
+        service.inizializzaConversazioni();
+
+        // L'avvio prosegue con la ricostruzione dei riepiloghi
+        verify(conversazioneDAO, times(1)).ricostruisci();
+    }
+}
@@ -0,0 +1,184 @@
+package it.unisa.c02.rently.rently_application.chat;
+
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ChatNotificheService;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.CodaMessaggi;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.IndiceRicercaMessaggi;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneConversazioneDAO;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica il salvataggio a gruppi dei messaggi della chat, il salvataggio singolo in caso di errore
+ * e lo svuotamento della coda all'arresto.
+ */
+public class CodaMessaggiTests {
+
+    private final GestioneChatDAO chatDAO = mock(GestioneChatDAO.class);
+    private final GestioneConversazioneDAO conversazioneDAO = mock(GestioneConversazioneDAO.class);
+    private final ChatNotificheService chatNotificheService = mock(ChatNotificheService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AtomicLong ultimoId = new AtomicLong();
+    private CodaMessaggi coda;
+
+    @BeforeEach
+    void setUp() {
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        given(chatDAO.saveAll(anyIterable())).willAnswer((final var invocazione) -> {
+            final List<Messaggio> messaggi = new ArrayList<>();
+            invocazione.<Iterable<Messaggio>>getArgument(0).forEach(messaggi::add);
+            if (messaggi.stream().anyMatch((final var m) -> m.getDescrizione().equals("errore"))) {
+                throw new IllegalStateException("messaggio non valido");
+            }
+            messaggi.forEach((final var m) -> m.setId(ultimoId.incrementAndGet()));
+            return messaggi;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        coda.arresta();
+    }
+
+    private void avvia(final long finestraMs) {
+        coda = new CodaMessaggi(chatDAO, conversazioneDAO, chatNotificheService, mock(IndiceRicercaMessaggi.class),
+                transactionManager, finestraMs, 100, 100);
+        coda.avvia();
+    }
+
+    private static Messaggio messaggio(final String testo, final long idMittente, final long idDestinatario) {
+        final Utente mittente = new Utente();
+        mittente.setId(idMittente);
+        final Utente destinatario = new Utente();
+        destinatario.setId(idDestinatario);
+        return new Messaggio(testo, Timestamp.valueOf("2024-01-21 12:34:56"), mittente, destinatario);
+    }
+
+    @Test
+    void testMessaggiDellaFinestraSalvatiInUnGruppo() {
+
+        avvia(300);
+
+        final CompletableFuture<Messaggio> primo = coda.accoda(messaggio("uno", 1, 2));
+        final CompletableFuture<Messaggio> secondo = coda.accoda(messaggio("due", 2, 1));
+        final CompletableFuture<Messaggio> terzo = coda.accoda(messaggio("tre", 1, 2));
+
+        assertEquals(1, primo.join().getId());
+        assertEquals(2, secondo.join().getId());
+        assertEquals(3, terzo.join().getId());
+        verify(chatDAO, times(1)).saveAll(anyIterable());
+        verify(transactionManager, times(1)).commit(any());
+        verify(chatNotificheService, times(3)).notifica(any(Messaggio.class));
+    }
+
+    @Test
+    void testRiepiloghiAggiornatiInOrdineDiChiave() {
+
+        avvia(300);
+
+        coda.accoda(messaggio("a", 5, 2));
+        coda.accoda(messaggio("b", 1, 3));
+        coda.accoda(messaggio("c", 1, 3)).join();
+
+        // Un solo aggiornamento per riepilogo, sempre nello stesso ordine, con l'ultimo messaggio del gruppo
+        final InOrder ordine = inOrder(conversazioneDAO);
+        ordine.verify(conversazioneDAO).registraMessaggio(eq(1L), eq(3L), eq(3L), eq(1L), anyString(), any(), eq(0L));
+        ordine.verify(conversazioneDAO).registraMessaggio(eq(2L), eq(5L), eq(1L), eq(5L), anyString(), any(), eq(1L));
+        ordine.verify(conversazioneDAO).registraMessaggio(eq(3L), eq(1L), eq(3L), eq(1L), anyString(), any(), eq(2L));
+        ordine.verify(conversazioneDAO).registraMessaggio(eq(5L), eq(2L), eq(1L), eq(5L), anyString(), any(), eq(0L));
+        ordine.verifyNoMoreInteractions();
+    }
+
+    @Test
+    void testGruppoFallitoSalvatoUnMessaggioAllaVolta() {
+
+        avvia(300);
+
+        final CompletableFuture<Messaggio> primo = coda.accoda(messaggio("uno", 1, 2));
+        final CompletableFuture<Messaggio> errato = coda.accoda(messaggio("errore", 1, 2));
+        final CompletableFuture<Messaggio> terzo = coda.accoda(messaggio("tre", 1, 2));
+
+        assertEquals("uno", primo.join().getDescrizione());
+        assertEquals("tre", terzo.join().getDescrizione());
+        final CompletionException ex = assertThrows(CompletionException.class, errato::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        // Il gruppo e poi ciascuno dei tre messaggi
+        verify(chatDAO, times(4)).saveAll(anyIterable());
+        verify(chatNotificheService, times(2)).notifica(any(Messaggio.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMessaggioScadutoInCodaNonVieneSalvato() throws Exception {
+
+        final CountDownLatch inSalvataggio = new CountDownLatch(1);
+        final CountDownLatch sblocca = new CountDownLatch(1);
+        given(chatDAO.saveAll(anyIterable())).willAnswer((final var invocazione) -> {
+            inSalvataggio.countDown();
+            sblocca.await(5, TimeUnit.SECONDS);
+            final List<Messaggio> messaggi = new ArrayList<>();
+            invocazione.<Iterable<Messaggio>>getArgument(0).forEach(messaggi::add);
+            return messaggi;
+        });
+        avvia(0);
+
+        final CompletableFuture<Messaggio> primo = coda.accoda(messaggio("uno", 1, 2));
+        assertTrue(inSalvataggio.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<Messaggio> scaduto = coda.accoda(messaggio("due", 1, 2));
+        scaduto.completeExceptionally(new TimeoutException());
+        sblocca.countDown();
+
+        primo.join();
+        final ArgumentCaptor<Iterable<Messaggio>> salvati = ArgumentCaptor.forClass(Iterable.class);
+        verify(chatDAO, after(300).times(1)).saveAll(salvati.capture());
+        assertEquals("uno", salvati.getValue().iterator().next().getDescrizione());
+    }
+
+    @Test
+    void testArrestoSalvaIMessaggiInCoda() {
+
+        avvia(300);
+
+        final CompletableFuture<Messaggio> primo = coda.accoda(messaggio("uno", 1, 2));
+        final CompletableFuture<Messaggio> secondo = coda.accoda(messaggio("due", 2, 1));
+        coda.arresta();
+
+        assertTrue(primo.isDone() && !primo.isCompletedExceptionally());
+        assertTrue(secondo.isDone() && !secondo.isCompletedExceptionally());
+        final CompletionException ex = assertThrows(CompletionException.class, () -> coda.accoda(messaggio("tre", 1, 2)).join());
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+    }
+}
@@ -2,25 +2,37 @@ package it.unisa.c02.rently.rently_application.chat;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.unisa.c02.rently.rently_application.business.gestioneAreaPersonale.service.GestioneAreaPersonaleService;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ChatNotificheService;
 import it.unisa.c02.rently.rently_application.business.gestioneChat.service.GestioneChatService;
 import it.unisa.c02.rently.rently_application.data.dto.MessaggioDTO;
+import it.unisa.c02.rently.rently_application.data.model.Conversazione;
 import it.unisa.c02.rently.rently_application.data.model.Messaggio;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
+import it.unisa.c02.rently.rently_application.security.UtentePrincipal;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -38,6 +50,9 @@ public class GestioneChatControllerTests {
     @MockBean
     private GestioneChatService chatService;
 
+    @MockBean
+    private ChatNotificheService chatNotificheService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -128,5 +143,127 @@ public class GestioneChatControllerTests {
                 .andExpect(jsonPath("$.message", is("Il contenuto del messaggio è sbagliato")));
 
     }
-}
 
+    private static UsernamePasswordAuthenticationToken autenticazione(final long idUtente) {
+        return new UsernamePasswordAuthenticationToken(
+                new UtentePrincipal(idUtente, "utente" + idUtente + "@email.com"), null, new ArrayList<>());
+    }
+
+    @Test
+    void testStream() throws Exception {
+
+        final UsernamePasswordAuthenticationToken autenticazione = new UsernamePasswordAuthenticationToken(
+                new UtentePrincipal(1, "mario.rossi@email.com"), null, new ArrayList<>());
+        given(chatNotificheService.registra(1)).willReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/chat/stream")
+                        .with(authentication(autenticazione)))
+                .andExpect(request().asyncStarted());
+
+        verify(chatNotificheService, times(1)).registra(1);
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    void testGetChatDopo() throws Exception {
+
+        final MessaggioDTO messaggioDTO = new MessaggioDTO();
+        messaggioDTO.setMittente(1);
+        messaggioDTO.setDestinatario(2);
+
+        final Utente mockUtente1 = new Utente(1,"user1", "Mario", "Rossi", "mario.rossi@email.com", "password123", false);
+        final Utente mockUtente2 = new Utente(2,"user2", "Luca", "Bianchi", "luca.bianchi@email.com", "securePass", false);
+        given(areaPersonaleService.getDatiPrivati(1)).willReturn(mockUtente1);
+        given(areaPersonaleService.getDatiPrivati(2)).willReturn(mockUtente2);
+
+        final Messaggio mockMessaggio = new Messaggio("Nuovo messaggio", Timestamp.valueOf("2024-01-21 12:35:00"), mockUtente2, mockUtente1);
+        mockMessaggio.setId(11);
+        given(chatService.getChatDopo(mockUtente2, mockUtente1, 10, 100)).willReturn(List.of(mockMessaggio));
+
+        mockMvc.perform(post("/api/chat/visualizza-chat")
+                        .param("dopo", "10")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(messaggioDTO)))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].id", is(11)))
+                .andExpect(jsonPath("$[0].descrizione", is("Nuovo messaggio")));
+
+        verify(chatService, times(0)).getChat(any(Utente.class), any(Utente.class));
+    }
+
+    @Test
+    void testGetConversazioni() throws Exception {
+
+        final Conversazione conversazione = new Conversazione();
+        conversazione.setIdUtente(1);
+        conversazione.setIdAltroUtente(2);
+        conversazione.setIdUltimoMessaggio(11);
+        conversazione.setIdUltimoMittente(2);
+        conversazione.setAnteprima("Nuovo messaggio");
+        conversazione.setOrarioUltimoMessaggio(Timestamp.valueOf("2024-01-21 12:35:00"));
+        conversazione.setNonLetti(3);
+        given(chatService.getConversazioni(1, 50)).willReturn(List.of(conversazione));
+
+        // L'id passato come parametro viene ignorato: le conversazioni sono quelle dell'utente autenticato
+        mockMvc.perform(get("/api/chat/conversazioni")
+                        .param("idUtente", "2")
+                        .with(authentication(autenticazione(1))))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].idAltroUtente", is(2)))
+                .andExpect(jsonPath("$[0].anteprima", is("Nuovo messaggio")))
+                .andExpect(jsonPath("$[0].nonLetti", is(3)));
+    }
+
+    @Test
+    void testSegnaLetta() throws Exception {
+
+        mockMvc.perform(post("/api/chat/segna-letta")
+                        .param("idAltroUtente", "2")
+                        .param("idMessaggio", "11")
+                        .with(authentication(autenticazione(1))))
+                .andExpect(status().is2xxSuccessful());
+
+        verify(chatService, times(1)).segnaLetta(1, 2, 11L);
+    }
+
+    @Test
+    void testCercaMessaggi() throws Exception {
+
+        final Utente mockUtente1 = new Utente(1,"user1", "Mario", "Rossi", "mario.rossi@email.com", "password123", false);
+        final Utente mockUtente2 = new Utente(2,"user2", "Luca", "Bianchi", "luca.bianchi@email.com", "securePass", false);
+        given(areaPersonaleService.getDatiPrivati(1)).willReturn(mockUtente1);
+
+        final Messaggio mockMessaggio = new Messaggio("Ci vediamo in Via Roma per il ritiro", Timestamp.valueOf("2024-01-21 12:35:00"), mockUtente2, mockUtente1);
+        mockMessaggio.setId(7);
+        given(chatService.cercaMessaggi(mockUtente1, "via roma", 20)).willReturn(List.of(mockMessaggio));
+
+        mockMvc.perform(get("/api/chat/cerca")
+                        .param("testo", "via roma")
+                        .with(authentication(autenticazione(1))))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].id", is(7)))
+                .andExpect(jsonPath("$[0].mittente", is(2)));
+    }
+
+    @Test
+    void testGetConversazioneStatoLettura() throws Exception {
+
+        final Conversazione conversazione = new Conversazione();
+        conversazione.setIdUtente(1);
+        conversazione.setIdAltroUtente(2);
+        conversazione.setIdUltimoMessaggio(11);
+        conversazione.setIdUltimoMittente(1);
+        conversazione.setAnteprima("Ci vediamo domani");
+        conversazione.setOrarioUltimoMessaggio(Timestamp.valueOf("2024-01-21 12:35:00"));
+        conversazione.setIdUltimoLetto(10);
+        conversazione.setIdUltimoLettoAltro(11);
+        given(chatService.getConversazione(1, 2)).willReturn(Optional.of(conversazione));
+
+        mockMvc.perform(get("/api/chat/conversazione")
+                        .param("idAltroUtente", "2")
+                        .with(authentication(autenticazione(1))))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.idUltimoLetto", is(10)))
+                .andExpect(jsonPath("$.idUltimoLettoAltro", is(11)));
+    }
+}
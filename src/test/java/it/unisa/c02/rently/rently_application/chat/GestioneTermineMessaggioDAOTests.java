@@ -0,0 +1,74 @@
+package it.unisa.c02.rently.rently_application.chat;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneTermineMessaggioDAO;
+import it.unisa.c02.rently.rently_application.data.model.TermineMessaggio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica sul database la query di ricerca dell'indice dei messaggi: un messaggio è restituito solo se contiene
+ * tutti i termini cercati, solo all'utente a cui appartiene l'occorrenza, dal più recente.
+ */
+@SpringBootTest
+@Transactional
+public class GestioneTermineMessaggioDAOTests {
+
+    @Autowired
+    private GestioneTermineMessaggioDAO termineDAO;
+
+    @BeforeEach
+    void setUp() {
+        termineDAO.saveAll(List.of(
+                new TermineMessaggio(1, "bici", 100, 2),
+                new TermineMessaggio(1, "rossa", 100, 2),
+                new TermineMessaggio(1, "bici", 101, 2),
+                new TermineMessaggio(1, "blu", 101, 2),
+                new TermineMessaggio(1, "bici", 102, 3),
+                new TermineMessaggio(1, "rossa", 102, 3),
+                new TermineMessaggio(2, "bici", 103, 1),
+                new TermineMessaggio(2, "rossa", 103, 1)));
+        termineDAO.flush();
+    }
+
+    private static List<Long> ids(final List<Object[]> risultati) {
+        return risultati.stream().map((final var r) -> ((Number) r[0]).longValue()).toList();
+    }
+
+    @Test
+    void testTuttiITermini() {
+
+        final List<Object[]> risultati = termineDAO.cerca(1, List.of("bici", "rossa"), 2, 10);
+
+        assertEquals(List.of(102L, 100L), ids(risultati));
+        assertEquals(3L, ((Number) risultati.get(0)[1]).longValue());
+        assertEquals(2L, ((Number) risultati.get(1)[1]).longValue());
+    }
+
+    @Test
+    void testUnSoloTermine() {
+        assertEquals(List.of(102L, 101L, 100L), ids(termineDAO.cerca(1, List.of("bici"), 1, 10)));
+    }
+
+    @Test
+    void testLimite() {
+        assertEquals(List.of(102L), ids(termineDAO.cerca(1, List.of("bici"), 1, 1)));
+    }
+
+    @Test
+    void testTermineAssente() {
+        assertTrue(termineDAO.cerca(1, List.of("bici", "verde"), 2, 10).isEmpty());
+    }
+
+    @Test
+    void testMessaggiIndicizzati() {
+        assertEquals(List.of(100L, 103L), termineDAO.findIdMessaggiIndicizzati(List.of(100L, 103L, 999L)).stream().sorted().toList());
+    }
+}
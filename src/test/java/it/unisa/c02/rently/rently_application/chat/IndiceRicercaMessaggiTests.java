@@ -0,0 +1,111 @@
+package it.unisa.c02.rently.rently_application.chat;
+
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ArchivioMessaggi;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.IndiceRicercaMessaggi;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneChatDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneTermineMessaggioDAO;
+import it.unisa.c02.rently.rently_application.data.model.Messaggio;
+import it.unisa.c02.rently.rently_application.data.model.TermineMessaggio;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica la normalizzazione dei termini dell'indice di ricerca dei messaggi e l'indicizzazione dei messaggi.
+ */
+public class IndiceRicercaMessaggiTests {
+
+    private final GestioneTermineMessaggioDAO termineDAO = mock(GestioneTermineMessaggioDAO.class);
+    private final IndiceRicercaMessaggi indice = new IndiceRicercaMessaggi(termineDAO, mock(GestioneChatDAO.class), mock(ArchivioMessaggi.class));
+
+    private static Messaggio messaggio(final long id, final String testo, final long idMittente, final long idDestinatario) {
+        final Utente mittente = new Utente();
+        mittente.setId(idMittente);
+        final Utente destinatario = new Utente();
+        destinatario.setId(idDestinatario);
+        final Messaggio messaggio = new Messaggio(testo, Timestamp.valueOf("2024-01-21 12:34:56"), mittente, destinatario);
+        messaggio.setId(id);
+        return messaggio;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TermineMessaggio> salvati() {
+        final ArgumentCaptor<List<TermineMessaggio>> occorrenze = ArgumentCaptor.forClass(List.class);
+        verify(termineDAO).saveAll(occorrenze.capture());
+        return occorrenze.getValue();
+    }
+
+    @Test
+    void testTerminiMinuscoliESenzaAccenti() {
+        assertEquals(List.of("perche", "citta", "caffe"), new ArrayList<>(IndiceRicercaMessaggi.termini("Perché CITTÀ? Caffè!")));
+    }
+
+    @Test
+    void testTerminiSeparatiDaPunteggiaturaESpazi() {
+        assertEquals(List.of("via", "roma", "12", "ritiro", "alle", "ore", "18"),
+                new ArrayList<>(IndiceRicercaMessaggi.termini("Via Roma, 12 - ritiro alle... ore 18:")));
+    }
+
+    @Test
+    void testTerminiDistintiNellOrdineDiComparsa() {
+        assertEquals(List.of("bici", "rossa", "blu"), new ArrayList<>(IndiceRicercaMessaggi.termini("bici rossa, BICI blu, bici")));
+    }
+
+    @Test
+    void testTerminiTroppoCortiOTroppoLunghiEsclusi() {
+        final String lungo = "a".repeat(TermineMessaggio.LUNGHEZZA_MASSIMA + 1);
+        final String massimo = "b".repeat(TermineMessaggio.LUNGHEZZA_MASSIMA);
+        assertEquals(List.of("ok", massimo), new ArrayList<>(IndiceRicercaMessaggi.termini("e ok " + lungo + " " + massimo)));
+    }
+
+    @Test
+    void testTerminiDiTestoVuoto() {
+        assertTrue(IndiceRicercaMessaggi.termini(null).isEmpty());
+        assertTrue(IndiceRicercaMessaggi.termini(" ,.;!? ").isEmpty());
+    }
+
+    @Test
+    void testIndicizzaPerMittenteEDestinatario() {
+
+        indice.indicizza(List.of(messaggio(5, "Bici rossa", 1, 2), messaggio(6, "Promemoria", 3, 3)));
+
+        final List<TermineMessaggio> occorrenze = salvati();
+        assertEquals(5, occorrenze.size());
+        assertEquals(2, occorrenze.stream().filter((final var t) -> t.getIdMessaggio() == 5 && t.getIdUtente() == 1 && t.getIdAltroUtente() == 2).count());
+        assertEquals(2, occorrenze.stream().filter((final var t) -> t.getIdMessaggio() == 5 && t.getIdUtente() == 2 && t.getIdAltroUtente() == 1).count());
+        // Un messaggio a se stessi viene indicizzato una sola volta
+        assertEquals(1, occorrenze.stream().filter((final var t) -> t.getIdMessaggio() == 6).count());
+    }
+
+    @Test
+    void testIndicizzaSoloIMessaggiMancanti() {
+
+        given(termineDAO.findIdMessaggiIndicizzati(List.of(5L, 6L, 7L))).willReturn(List.of(6L));
+
+        final int indicizzati = indice.indicizzaMancanti(List.of(
+                messaggio(5, "uno", 1, 2), messaggio(6, "due", 1, 2), messaggio(7, "tre", 1, 2)));
+
+        assertEquals(2, indicizzati);
+        assertTrue(salvati().stream().noneMatch((final var t) -> t.getIdMessaggio() == 6));
+    }
+
+    @Test
+    void testRicercaLimitataAiPrimiDieciTermini() {
+
+        indice.cerca(new Utente(), "uno due tre quattro cinque sei sette otto nove dieci undici", 20);
+
+        verify(termineDAO).cerca(eq(0L), eq(List.of("uno", "due", "tre", "quattro", "cinque", "sei", "sette", "otto", "nove", "dieci")),
+                eq(10), eq(20));
+    }
+}
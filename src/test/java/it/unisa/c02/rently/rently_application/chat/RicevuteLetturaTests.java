@@ -0,0 +1,122 @@
+package it.unisa.c02.rently.rently_application.chat;
+
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.ChatNotificheService;
+import it.unisa.c02.rently.rently_application.business.gestioneChat.service.RicevuteLettura;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneConversazioneDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Verifica la raccolta delle ricevute di lettura in memoria e il loro salvataggio a gruppi.
+ */
+public class RicevuteLetturaTests {
+
+    private final GestioneConversazioneDAO conversazioneDAO = mock(GestioneConversazioneDAO.class);
+    private final ChatNotificheService chatNotificheService = mock(ChatNotificheService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final RicevuteLettura ricevute = new RicevuteLettura(conversazioneDAO, chatNotificheService, transactionManager);
+
+    @BeforeEach
+    void setUp() {
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void testLettureDellaStessaConversazioneUnite() {
+
+        ricevute.registra(1, 2, 10);
+        ricevute.registra(1, 2, 15);
+        ricevute.registra(1, 2, 12);
+
+        ricevute.salva();
+
+        // Una sola scrittura per conversazione, con l'ID più alto letto
+        verify(conversazioneDAO, times(1)).segnaLetto(anyLong(), anyLong(), anyLong());
+        verify(conversazioneDAO).segnaLetto(1, 2, 15);
+        verify(conversazioneDAO).segnaLettoDaAltro(1, 2, 15);
+        verify(chatNotificheService).notificaLettura(2, 1, 15);
+    }
+
+    @Test
+    void testLettureDiConversazioniDiverseSalvateInsieme() {
+
+        ricevute.registra(1, 2, 10);
+        ricevute.registra(2, 1, 11);
+        ricevute.registra(3, 1, 7);
+
+        ricevute.salva();
+
+        verify(transactionManager, times(1)).commit(any());
+        verify(conversazioneDAO).segnaLetto(1, 2, 10);
+        verify(conversazioneDAO).segnaLetto(2, 1, 11);
+        verify(conversazioneDAO).segnaLetto(3, 1, 7);
+    }
+
+    @Test
+    void testSalvataggioFallitoRiproposto() {
+
+        given(conversazioneDAO.segnaLetto(1, 2, 10)).willThrow(new QueryTimeoutException("timeout"));
+        ricevute.registra(1, 2, 10);
+
+        assertThrows(QueryTimeoutException.class, ricevute::salva);
+        verify(chatNotificheService, never()).notificaLettura(anyLong(), anyLong(), anyLong());
+
+        // Una lettura più recente registrata dopo il fallimento viene unita a quella reinserita
+        willReturn(1).given(conversazioneDAO).segnaLetto(1, 2, 10);
+        ricevute.registra(1, 2, 14);
+        ricevute.salva();
+
+        verify(conversazioneDAO).segnaLetto(1, 2, 14);
+        verify(chatNotificheService).notificaLettura(2, 1, 14);
+    }
+
+    @Test
+    void testSalvataggioFallitoNonPerdeLetturaPiuAlta() {
+
+        given(conversazioneDAO.segnaLetto(1, 2, 20)).willThrow(new QueryTimeoutException("timeout"));
+        ricevute.registra(1, 2, 20);
+
+        assertThrows(QueryTimeoutException.class, ricevute::salva);
+
+        // La lettura reinserita resta la più alta anche se nel frattempo ne arriva una meno recente
+        ricevute.registra(1, 2, 18);
+        willReturn(1).given(conversazioneDAO).segnaLetto(1, 2, 20);
+        ricevute.salva();
+
+        verify(conversazioneDAO, never()).segnaLetto(1, 2, 18);
+        verify(chatNotificheService).notificaLettura(2, 1, 20);
+    }
+
+    @Test
+    void testArrestoSalvaLeLettureInAttesa() {
+
+        ricevute.registra(1, 2, 10);
+
+        ricevute.arresta();
+
+        verify(conversazioneDAO).segnaLetto(1, 2, 10);
+        verify(chatNotificheService).notificaLettura(2, 1, 10);
+    }
+
+    @Test
+    void testNessunaLetturaNessunaTransazione() {
+
+        ricevute.salva();
+
+        verifyNoInteractions(transactionManager, conversazioneDAO);
+    }
+}
@@ -0,0 +1,117 @@
+package it.unisa.c02.rently.rently_application.lease;
+
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseServiceImpl;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneLeaseDAO;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica acquisizione, fencing e rilascio dei lease con un DAO simulato.
+ */
+public class LeaseServiceImplTests {
+
+    private final GestioneLeaseDAO leaseDAO = mock(GestioneLeaseDAO.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final LeaseServiceImpl leaseService = new LeaseServiceImpl(leaseDAO, transactionManager, "nodo-a");
+
+    private static Lease lease(final String proprietario, final long token) {
+        final long adesso = System.currentTimeMillis();
+        return new Lease("job", proprietario, new Timestamp(adesso), new Timestamp(adesso + 60000), token);
+    }
+
+    @Test
+    void testAcquisizioneDiUnLeaseScaduto() {
+
+        given(leaseDAO.acquisisci(eq("job"), eq("nodo-a"), any(), any())).willReturn(1);
+        given(leaseDAO.findById("job")).willReturn(Optional.of(lease("nodo-a", 4)));
+
+        final Optional<Lease> acquisito = leaseService.acquisisci("job", Duration.ofMinutes(1));
+
+        assertTrue(acquisito.isPresent());
+        assertEquals(4, acquisito.get().getToken());
+        verify(leaseDAO, never()).inserisci(any(), any(), any(), any());
+    }
+
+    @Test
+    void testPrimaAcquisizioneCreaIlLease() {
+
+        given(leaseDAO.acquisisci(eq("job"), eq("nodo-a"), any(), any())).willReturn(0);
+        given(leaseDAO.existsById("job")).willReturn(false);
+        given(leaseDAO.findById("job")).willReturn(Optional.of(lease("nodo-a", 1)));
+
+        assertTrue(leaseService.acquisisci("job", Duration.ofMinutes(1)).isPresent());
+        verify(leaseDAO).inserisci(eq("job"), eq("nodo-a"), any(), any());
+    }
+
+    @Test
+    void testLeaseDetenutoDaUnAltroNodo() {
+
+        given(leaseDAO.acquisisci(eq("job"), eq("nodo-a"), any(), any())).willReturn(0);
+        given(leaseDAO.existsById("job")).willReturn(true);
+
+        assertFalse(leaseService.acquisisci("job", Duration.ofMinutes(1)).isPresent());
+        verify(leaseDAO, never()).inserisci(any(), any(), any(), any());
+    }
+
+    @Test
+    void testCreazioneConcorrenteDelLease() {
+
+        given(leaseDAO.acquisisci(eq("job"), eq("nodo-a"), any(), any())).willReturn(0);
+        given(leaseDAO.existsById("job")).willReturn(false);
+        given(leaseDAO.inserisci(eq("job"), eq("nodo-a"), any(), any())).willThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertFalse(leaseService.acquisisci("job", Duration.ofMinutes(1)).isPresent());
+    }
+
+    @Test
+    void testEseguiConLeaseValido() {
+
+        final Lease lease = lease("nodo-a", 3);
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        given(leaseDAO.blocca(eq("job"), eq("nodo-a"), eq(3L), any())).willReturn(Optional.of(lease));
+
+        assertEquals(Optional.of(7), leaseService.esegui(lease, () -> 7));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testEseguiConTokenSuperatoNonScrive() {
+
+        final Lease lease = lease("nodo-a", 3);
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        given(leaseDAO.blocca(eq("job"), eq("nodo-a"), anyLong(), any())).willReturn(Optional.empty());
+
+        final AtomicBoolean eseguito = new AtomicBoolean();
+        assertFalse(leaseService.esegui(lease, () -> eseguito.set(true)));
+        assertFalse(eseguito.get());
+    }
+
+    @Test
+    void testRilascioConDurataMinima() {
+
+        final Lease lease = new Lease("job", "nodo-a", new Timestamp(System.currentTimeMillis()), new Timestamp(0), 5);
+
+        leaseService.rilascia(lease, Duration.ofMinutes(10));
+
+        verify(leaseDAO).rilascia("job", "nodo-a", 5, new Timestamp(lease.getAcquisito().getTime() + Duration.ofMinutes(10).toMillis()));
+    }
+}
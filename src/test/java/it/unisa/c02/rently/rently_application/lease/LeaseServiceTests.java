@@ -0,0 +1,123 @@
+package it.unisa.c02.rently.rently_application.lease;
+
+import it.unisa.c02.rently.rently_application.RentlyApplication;
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Avvia due contesti applicativi sulla stessa base di dati, che simulano due nodi del backend,
+ * e verifica che il lease non sia mai detenuto da entrambi e che il token di fencing cresca a ogni subentro.
+ */
+public class LeaseServiceTests {
+
+    private static ConfigurableApplicationContext nodoA;
+    private static ConfigurableApplicationContext nodoB;
+
+    @BeforeAll
+    static void avviaNodi() {
+        nodoA = avviaNodo("nodo-a");
+        nodoB = avviaNodo("nodo-b");
+    }
+
+    @AfterAll
+    static void arrestaNodi() {
+        nodoA.close();
+        nodoB.close();
+    }
+
+    private static ConfigurableApplicationContext avviaNodo(final String nome) {
+        return new SpringApplicationBuilder(RentlyApplication.class)
+                .properties("server.port=0", "scheduler.lease.nodo=" + nome)
+                .run();
+    }
+
+    @Test
+    void testLeaseAcquisitoDaUnSoloNodo() {
+
+        final String job = "job-" + UUID.randomUUID();
+        final LeaseService leaseA = nodoA.getBean(LeaseService.class);
+        final LeaseService leaseB = nodoB.getBean(LeaseService.class);
+
+        final Optional<Lease> acquisitoA = leaseA.acquisisci(job, Duration.ofMinutes(1));
+        final Optional<Lease> acquisitoB = leaseB.acquisisci(job, Duration.ofMinutes(1));
+
+        assertTrue(acquisitoA.isPresent());
+        assertFalse(acquisitoB.isPresent());
+        assertTrue(leaseA.isValido(acquisitoA.get()));
+    }
+
+    @Test
+    void testAcquisizioneContemporaneaDaUnSoloNodo() throws Exception {
+
+        final LeaseService leaseA = nodoA.getBean(LeaseService.class);
+        final LeaseService leaseB = nodoB.getBean(LeaseService.class);
+
+        for (int i = 0; i < 20; i++) {
+            final String job = "job-" + UUID.randomUUID();
+            final CountDownLatch partenza = new CountDownLatch(1);
+            final CompletableFuture<Optional<Lease>> acquisitoA = CompletableFuture.supplyAsync(() -> {
+                attendi(partenza);
+                return leaseA.acquisisci(job, Duration.ofMinutes(1));
+            });
+            final CompletableFuture<Optional<Lease>> acquisitoB = CompletableFuture.supplyAsync(() -> {
+                attendi(partenza);
+                return leaseB.acquisisci(job, Duration.ofMinutes(1));
+            });
+            partenza.countDown();
+
+            // Sia la creazione sia l'acquisizione di un lease esistente devono escludere l'altro nodo
+            assertNotEquals(acquisitoA.get().isPresent(), acquisitoB.get().isPresent(), "Iterazione " + i);
+        }
+    }
+
+    @Test
+    void testSubentroDopoLaScadenzaConNuovoToken() throws InterruptedException {
+
+        final String job = "job-" + UUID.randomUUID();
+        final LeaseService leaseA = nodoA.getBean(LeaseService.class);
+        final LeaseService leaseB = nodoB.getBean(LeaseService.class);
+
+        final Lease acquisitoA = leaseA.acquisisci(job, Duration.ofMillis(200)).orElseThrow();
+        Thread.sleep(400);
+        final Lease acquisitoB = leaseB.acquisisci(job, Duration.ofMinutes(1)).orElseThrow();
+
+        assertEquals(acquisitoA.getToken() + 1, acquisitoB.getToken());
+        assertFalse(leaseA.isValido(acquisitoA));
+        assertTrue(leaseB.isValido(acquisitoB));
+
+        // Le scritture del nodo che ha perso il lease non vengono eseguite
+        final AtomicBoolean eseguitoA = new AtomicBoolean();
+        assertFalse(leaseA.esegui(acquisitoA, () -> eseguitoA.set(true)));
+        assertFalse(eseguitoA.get());
+        assertTrue(leaseB.esegui(acquisitoB, () -> { }));
+
+        // Il rilascio con un token superato non deve liberare il lease del nuovo proprietario.
+        leaseA.rilascia(acquisitoA, Duration.ZERO);
+        assertTrue(leaseB.isValido(acquisitoB));
+    }
+
+    private static void attendi(final CountDownLatch partenza) {
+        try {
+            partenza.await();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
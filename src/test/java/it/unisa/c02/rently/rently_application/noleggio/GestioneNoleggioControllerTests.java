@@ -2,6 +2,9 @@ package it.unisa.c02.rently.rently_application.noleggio;
 
 import it.unisa.c02.rently.rently_application.business.gestioneAreaPersonale.service.GestioneAreaPersonaleService;
 import it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service.GestioneNoleggioService;
+import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.GestioneValutazioneService;
+import it.unisa.c02.rently.rently_application.data.dto.RiepilogoMensileDTO;
+import it.unisa.c02.rently.rently_application.data.dto.ValutazioniPresentiDTO;
 import it.unisa.c02.rently.rently_application.data.model.Annuncio;
 import it.unisa.c02.rently.rently_application.data.model.Noleggio;
 import it.unisa.c02.rently.rently_application.data.model.Utente;
@@ -17,15 +20,22 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 
 @SpringBootTest
@@ -41,6 +51,9 @@ public class GestioneNoleggioControllerTests {
     @MockBean
     private GestioneNoleggioService noleggioService;
 
+    @MockBean
+    private GestioneValutazioneService valutazioneService;
+
     @Test
     @WithMockUser(username = "user1", roles = {"USER"})
     public void testGetRichiesteByNoleggiante() {
@@ -85,4 +98,111 @@ public class GestioneNoleggioControllerTests {
                 .andExpect(status().is5xxServerError());
     }
 
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    public void testGetNoleggiByNoleggianteValutazioniInBlocco() throws Exception {
+
+        final Utente mockUtente1 = new Utente(1, "user1", "Mario", "Rossi", "mario.rossi@email.com", "password123", false);
+        final Utente mockUtente2 = new Utente(2, "user2", "Luca", "Bianchi", "luca.bianchi@email.com", "securePass", false);
+        final Annuncio mockAnnuncio1 = new Annuncio(1, "Smartphone Samsung", "Via Roma", "Milan", "20121", "Telefono in ottime condizioni", new BigDecimal("30.00"), "img1.jpg", Annuncio.EnumCategoria.ELETTRONICA, Annuncio.EnumCondizione.OTTIMA, Date.valueOf("2024-10-05"), mockUtente2, null, null);
+
+        given(areaPersonaleService.getDatiPrivati(1)).willReturn(mockUtente1);
+
+        final Noleggio mockNoleggio1 = new Noleggio(1, Noleggio.EnumStato.CONCLUSO, new BigDecimal("100.00"), Date.valueOf("2024-02-01"), Date.valueOf("2024-02-07"), Date.valueOf("2024-01-28"), mockUtente1, mockUtente2, mockAnnuncio1);
+        final Noleggio mockNoleggio2 = new Noleggio(2, Noleggio.EnumStato.CONCLUSO, new BigDecimal("200.00"), Date.valueOf("2024-02-10"), Date.valueOf("2024-02-15"), Date.valueOf("2024-02-07"), mockUtente1, mockUtente2, mockAnnuncio1);
+
+        final List<Noleggio> list = new ArrayList<>();
+        list.add(mockNoleggio1);
+        list.add(mockNoleggio2);
+        given(noleggioService.getNoleggiByNoleggiante(any(Utente.class))).willReturn(list);
+
+        final ValutazioniPresentiDTO tutte = new ValutazioniPresentiDTO();
+        tutte.setValutazioneAlNoleggiante(true);
+        tutte.setValutazioneAlNoleggiatore(true);
+        tutte.setValutazioneAnnuncio(true);
+        final Map<Long, ValutazioniPresentiDTO> presenti = new HashMap<>();
+        presenti.put(1L, tutte);
+        presenti.put(2L, new ValutazioniPresentiDTO());
+        given(valutazioneService.valutazioniPresentiByNoleggi(anyCollection())).willReturn(presenti);
+
+        mockMvc.perform(get("/api/noleggio/noleggiante")
+                        .param("idUtente", "1"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].stato", is("CONCLUSOCONVALUTAZIONE")))
+                .andExpect(jsonPath("$[1].stato", is("CONCLUSO")));
+
+        verify(valutazioneService, times(1)).valutazioniPresentiByNoleggi(anyCollection());
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    public void testGetRichiesteByNoleggiantePaginate() throws Exception {
+
+        final Utente mockUtente1 = new Utente(1, "user1", "Mario", "Rossi", "mario.rossi@email.com", "password123", false);
+        final Utente mockUtente2 = new Utente(2, "user2", "Luca", "Bianchi", "luca.bianchi@email.com", "securePass", false);
+        final Annuncio mockAnnuncio1 = new Annuncio(1, "Smartphone Samsung", "Via Roma", "Milan", "20121", "Telefono in ottime condizioni", new BigDecimal("30.00"), "img1.jpg", Annuncio.EnumCategoria.ELETTRONICA, Annuncio.EnumCondizione.OTTIMA, Date.valueOf("2024-10-05"), mockUtente2, null, null);
+
+        given(areaPersonaleService.getDatiPrivati(1)).willReturn(mockUtente1);
+
+        final Noleggio mockNoleggio = new Noleggio(4, Noleggio.EnumStato.ACCETTATA, new BigDecimal("100.00"), Date.valueOf("2024-02-01"), Date.valueOf("2024-02-07"), Date.valueOf("2024-01-20"), mockUtente1, mockUtente2, mockAnnuncio1);
+        final List<Noleggio> list = new ArrayList<>();
+        list.add(mockNoleggio);
+
+        given(noleggioService.getRichiesteByNoleggiante(any(Utente.class), eq(Date.valueOf("2024-01-28")), eq(5L), eq(1))).willReturn(list);
+
+        mockMvc.perform(get("/api/noleggio/richieste/noleggiante")
+                        .param("idUtente", "1")
+                        .param("limite", "1")
+                        .param("dataRichiesta", "2024-01-28")
+                        .param("idNoleggio", "5"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].id", is(4)))
+                .andExpect(jsonPath("$[0].stato", is("ACCETTATA")));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    public void testGetRichiesteByNoleggianteDataNonValida() throws Exception {
+
+        mockMvc.perform(get("/api/noleggio/richieste/noleggiante")
+                        .param("idUtente", "1")
+                        .param("limite", "1")
+                        .param("dataRichiesta", "28-01-2024")
+                        .param("idNoleggio", "5"))
+                .andExpect(status().isBadRequest());
+
+        verify(noleggioService, times(0)).getRichiesteByNoleggiante(any(Utente.class), any(), any(), eq(1));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    public void testGetRiepiloghiMensili() throws Exception {
+
+        final Utente mockUtente1 = new Utente(1, "user1", "Mario", "Rossi", "mario.rossi@email.com", "password123", false);
+
+        given(areaPersonaleService.getDatiPrivati(1)).willReturn(mockUtente1);
+
+        final RiepilogoMensileDTO riepilogo = new RiepilogoMensileDTO();
+        riepilogo.setIdAnnuncio(1);
+        riepilogo.setMese("2024-02");
+        riepilogo.setRicavo(new BigDecimal("100.00"));
+        riepilogo.setGiorniOccupati(7);
+        riepilogo.setGiorniMese(29);
+        riepilogo.setOccupazione(7 * 100.0 / 29);
+        riepilogo.getNoleggiPerStato().put("CONCLUSO", 1L);
+        final List<RiepilogoMensileDTO> list = new ArrayList<>();
+        list.add(riepilogo);
+
+        given(noleggioService.getRiepiloghiMensili(any(Utente.class), eq(YearMonth.of(2024, 1)), eq(YearMonth.of(2024, 3)))).willReturn(list);
+
+        mockMvc.perform(get("/api/noleggio/riepilogo-mensile")
+                        .param("idUtente", "1")
+                        .param("da", "2024-01")
+                        .param("a", "2024-03"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].mese", is("2024-02")))
+                .andExpect(jsonPath("$[0].giorniOccupati", is(7)))
+                .andExpect(jsonPath("$[0].noleggiPerStato.CONCLUSO", is(1)));
+    }
+
 }
@@ -0,0 +1,269 @@
+package it.unisa.c02.rently.rently_application.noleggio;
+
+import it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service.RiepilogoMensileProiezione;
+import it.unisa.c02.rently.rently_application.commons.services.eventoService.NoleggioEventoDispatcher;
+import it.unisa.c02.rently.rently_application.commons.services.eventoService.NoleggioProiezione;
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneLacunaProiezioneDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneNoleggioDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneNoleggioEventoDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneOffsetProiezioneDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneRiepilogoMensileDAO;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import it.unisa.c02.rently.rently_application.data.model.Noleggio;
+import it.unisa.c02.rently.rently_application.data.model.NoleggioEvento;
+import it.unisa.c02.rently.rently_application.data.model.OffsetProiezione;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica l'applicazione degli eventi alle proiezioni e la gestione delle lacune negli ID.
+ */
+public class NoleggioEventoDispatcherTests {
+
+    private static final long ATTESA_LACUNA = 5000;
+
+    private final GestioneNoleggioEventoDAO eventoDAO = mock(GestioneNoleggioEventoDAO.class);
+    private final GestioneOffsetProiezioneDAO offsetDAO = mock(GestioneOffsetProiezioneDAO.class);
+    private final GestioneLacunaProiezioneDAO lacunaDAO = mock(GestioneLacunaProiezioneDAO.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final NoleggioProiezione proiezione = mock(NoleggioProiezione.class);
+    private final LeaseService leaseService = mock(LeaseService.class);
+    private NoleggioEventoDispatcher dispatcher;
+
+    @BeforeEach
+    void creaDispatcher() {
+        given(proiezione.getNome()).willReturn("test");
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        given(offsetDAO.avanza(eq("test"), anyLong(), anyLong())).willReturn(1);
+
+        dispatcher = dispatcher(proiezione);
+    }
+
+    @SuppressWarnings("unchecked")
+    private NoleggioEventoDispatcher dispatcher(final NoleggioProiezione registrata) {
+        final ObjectProvider<NoleggioProiezione> proiezioni = mock(ObjectProvider.class);
+        given(proiezioni.orderedStream()).willAnswer((final var invocazione) -> Stream.of(registrata));
+        return new NoleggioEventoDispatcher(eventoDAO, offsetDAO, lacunaDAO, proiezioni, leaseService, transactionManager, 10, ATTESA_LACUNA, 3600000);
+    }
+
+    @AfterEach
+    void arrestaDispatcher() {
+        dispatcher.arresta();
+    }
+
+    private static NoleggioEvento evento(final long id, final long istante) {
+        final NoleggioEvento evento = new NoleggioEvento(id, null, null, new Timestamp(istante));
+        evento.setId(id);
+        return evento;
+    }
+
+    @Test
+    void testEventiContiguiApplicatiInUnBlocco() {
+
+        final long adesso = System.currentTimeMillis();
+        final List<NoleggioEvento> eventi = List.of(evento(1, adesso), evento(2, adesso));
+        given(offsetDAO.findById("test")).willReturn(Optional.of(new OffsetProiezione("test", 0)));
+        given(eventoDAO.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).willReturn(eventi);
+
+        dispatcher.notifica();
+
+        verify(proiezione, timeout(2000)).applica(eventi);
+        verify(offsetDAO).avanza("test", 0, 2);
+    }
+
+    @Test
+    void testLacunaRecenteSospendeIlBlocco() {
+
+        final long adesso = System.currentTimeMillis();
+        final NoleggioEvento primo = evento(1, adesso);
+        given(offsetDAO.findById("test")).willReturn(Optional.of(new OffsetProiezione("test", 0)));
+        given(eventoDAO.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).willReturn(List.of(primo, evento(3, adesso)));
+
+        dispatcher.notifica();
+
+        verify(proiezione, timeout(2000)).applica(List.of(primo));
+        verify(offsetDAO).avanza("test", 0, 1);
+        verify(offsetDAO, never()).avanza("test", 0, 3);
+    }
+
+    @Test
+    void testLacunaSuperataVieneRicontrollata() {
+
+        final long passato = System.currentTimeMillis() - 2 * ATTESA_LACUNA;
+        final List<NoleggioEvento> eventi = List.of(evento(1, passato), evento(3, passato));
+        final NoleggioEvento tardivo = evento(2, passato);
+        given(offsetDAO.findById("test")).willReturn(
+                Optional.of(new OffsetProiezione("test", 0)),
+                Optional.of(new OffsetProiezione("test", 3)));
+        given(eventoDAO.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).willReturn(eventi);
+        given(eventoDAO.findByIdInOrderByIdAsc(List.of(2L))).willReturn(List.of(tardivo));
+
+        dispatcher.notifica();
+        verify(proiezione, timeout(2000)).applica(eventi);
+        verify(offsetDAO).avanza("test", 0, 3);
+        verify(lacunaDAO).registra(eq("test"), eq(2L), any());
+
+        // La lacuna viene letta dal database, come farebbe un altro nodo o questo nodo dopo un riavvio
+        given(lacunaDAO.findIdEventi("test")).willReturn(List.of(2L));
+        given(lacunaDAO.chiudi("test", 2)).willReturn(1);
+        dispatcher.notifica();
+        verify(proiezione, timeout(2000)).applica(List.of(tardivo));
+    }
+
+    @Test
+    void testLacunaChiusaDaUnAltroNodoNonVieneRiapplicata() {
+
+        final long passato = System.currentTimeMillis() - 2 * ATTESA_LACUNA;
+        given(offsetDAO.findById("test")).willReturn(Optional.of(new OffsetProiezione("test", 3)));
+        given(lacunaDAO.findIdEventi("test")).willReturn(List.of(2L));
+        given(eventoDAO.findByIdInOrderByIdAsc(List.of(2L))).willReturn(List.of(evento(2, passato)));
+        given(lacunaDAO.chiudi("test", 2)).willReturn(0);
+
+        dispatcher.notifica();
+
+        verify(lacunaDAO, timeout(2000)).chiudi("test", 2);
+        verify(eventoDAO, timeout(2000)).findByIdGreaterThanOrderByIdAsc(eq(3L), any());
+        verify(proiezione, never()).applica(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testInizializzazioneSottoLease() {
+
+        final long adesso = System.currentTimeMillis();
+        final Lease lease = new Lease("inizializza-test", "nodo", new Timestamp(adesso), new Timestamp(adesso + 60000), 1);
+        given(offsetDAO.findById("test")).willReturn(Optional.empty());
+        given(leaseService.acquisisci(eq("inizializza-test"), any())).willReturn(Optional.of(lease));
+        given(leaseService.esegui(eq(lease), any(Supplier.class)))
+                .willAnswer((final var invocazione) -> Optional.of(invocazione.getArgument(1, Supplier.class).get()));
+        given(proiezione.inizializza()).willReturn(7L);
+
+        dispatcher.notifica();
+
+        verify(offsetDAO, timeout(2000)).inserisci("test", 7);
+        verify(leaseService, timeout(2000)).rilascia(eq(lease), any());
+        verify(eventoDAO, timeout(2000)).findByIdGreaterThanOrderByIdAsc(eq(7L), any());
+    }
+
+    @Test
+    void testInizializzazioneRimandataSeIlLeaseEDetenuto() {
+
+        given(offsetDAO.findById("test")).willReturn(Optional.empty());
+        given(leaseService.acquisisci(eq("inizializza-test"), any())).willReturn(Optional.empty());
+
+        dispatcher.notifica();
+
+        verify(leaseService, timeout(2000)).acquisisci(eq("inizializza-test"), any());
+        verify(proiezione, after(200).never()).inizializza();
+        verify(offsetDAO, never()).inserisci(any(), anyLong());
+        verify(eventoDAO, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+    }
+
+    @Test
+    void testReplayRicostruisceIRiepiloghiSenzaContareDueVolte() {
+
+        final Map<String, BigDecimal[]> riepiloghi = new HashMap<>();
+        final GestioneRiepilogoMensileDAO riepilogoDAO = mock(GestioneRiepilogoMensileDAO.class);
+        given(riepilogoDAO.incrementa(anyLong(), anyInt(), anyString(), anyLong(), anyLong(), any())).willAnswer((final var invocazione) -> {
+            final BigDecimal[] totali = riepiloghi.computeIfAbsent(invocazione.getArgument(0) + "/" + invocazione.getArgument(1) + "/" + invocazione.getArgument(2),
+                    (final var k) -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO});
+            totali[0] = totali[0].add(BigDecimal.valueOf(invocazione.getArgument(3, Long.class)));
+            totali[1] = totali[1].add(BigDecimal.valueOf(invocazione.getArgument(4, Long.class)));
+            totali[2] = totali[2].add(invocazione.getArgument(5, BigDecimal.class));
+            return 1;
+        });
+        willAnswer((final var invocazione) -> {
+            riepiloghi.clear();
+            return null;
+        }).given(riepilogoDAO).deleteAllInBatch();
+        final GestioneNoleggioDAO noleggioDAO = mock(GestioneNoleggioDAO.class);
+        final RiepilogoMensileProiezione riepilogo = new RiepilogoMensileProiezione(riepilogoDAO, noleggioDAO, eventoDAO);
+        final NoleggioEventoDispatcher replay = dispatcher(riepilogo);
+
+        final Noleggio.Istantanea richiesta = new Noleggio.Istantanea(Noleggio.EnumStato.RICHIESTA, new BigDecimal("100.00"),
+                Date.valueOf("2024-01-25"), Date.valueOf("2024-02-04"), 5L);
+        final Noleggio.Istantanea accettata = new Noleggio.Istantanea(Noleggio.EnumStato.ACCETTATA, new BigDecimal("100.00"),
+                Date.valueOf("2024-01-25"), Date.valueOf("2024-02-04"), 5L);
+        riepilogo.applica(List.of(new NoleggioEvento(1, null, richiesta, new Timestamp(0)), new NoleggioEvento(1, richiesta, accettata, new Timestamp(0))));
+        final Map<String, String> prima = totali(riepiloghi);
+
+        final long adesso = System.currentTimeMillis();
+        final Lease lease = new Lease("inizializza-riepilogoMensile", "nodo", new Timestamp(adesso), new Timestamp(adesso + 60000), 1);
+        given(leaseService.acquisisci(eq("inizializza-riepilogoMensile"), any())).willReturn(Optional.of(lease));
+        given(leaseService.esegui(eq(lease), any(Runnable.class))).willAnswer((final var invocazione) -> {
+            invocazione.getArgument(1, Runnable.class).run();
+            return true;
+        });
+        given(noleggioDAO.findValoriRiepilogo()).willReturn(List.<Object[]>of(new Object[]{5L, accettata.stato(),
+                accettata.prezzoTotale(), accettata.dataInizio(), accettata.dataFine()}));
+        given(eventoDAO.findUltimoId()).willReturn(2L);
+        given(offsetDAO.imposta("riepilogoMensile", 2)).willReturn(1);
+        given(offsetDAO.findById("riepilogoMensile")).willReturn(Optional.of(new OffsetProiezione("riepilogoMensile", 2)));
+
+        try {
+            assertTrue(replay.replay("riepilogoMensile"));
+        } finally {
+            replay.arresta();
+        }
+
+        assertEquals(prima, totali(riepiloghi));
+        verify(lacunaDAO).eliminaTutte("riepilogoMensile");
+        verify(offsetDAO).imposta("riepilogoMensile", 2);
+        verify(leaseService).rilascia(eq(lease), any());
+    }
+
+    @Test
+    void testReplayRimandatoSeIlLeaseEDetenuto() {
+
+        given(leaseService.acquisisci(eq("inizializza-test"), any())).willReturn(Optional.empty());
+
+        assertFalse(dispatcher.replay("test"));
+        assertFalse(dispatcher.replay("inesistente"));
+        verify(proiezione, never()).inizializza();
+        verify(offsetDAO, never()).imposta(any(), anyLong());
+    }
+
+    /**
+     * Restituisce i totali non nulli dei riepiloghi, in una forma confrontabile.
+     */
+    private static Map<String, String> totali(final Map<String, BigDecimal[]> riepiloghi) {
+        final Map<String, String> totali = new HashMap<>();
+        riepiloghi.forEach((final var chiave, final var valori) -> {
+            if (valori[0].signum() != 0 || valori[1].signum() != 0 || valori[2].signum() != 0) {
+                totali.put(chiave, valori[0] + "/" + valori[1] + "/" + valori[2].setScale(2));
+            }
+        });
+        return totali;
+    }
+}
@@ -0,0 +1,125 @@
+package it.unisa.c02.rently.rently_application.noleggio;
+
+import it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service.GestioneNoleggioService;
+import it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service.GestioneNoleggioServiceImpl;
+import it.unisa.c02.rently.rently_application.commons.services.eventoService.NoleggioEventoService;
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.commons.services.noleggioService.NoleggioService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneNoleggioDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneRiepilogoMensileDAO;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import it.unisa.c02.rently.rently_application.data.model.Noleggio;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica l'eliminazione a blocchi delle richieste di noleggio scadute.
+ */
+public class RichiesteScaduteTests {
+
+    private final GestioneNoleggioDAO noleggioDAO = mock(GestioneNoleggioDAO.class);
+    private final NoleggioEventoService eventoService = mock(NoleggioEventoService.class);
+    private final GestioneNoleggioServiceImpl service =
+            new GestioneNoleggioServiceImpl(noleggioDAO, eventoService, mock(GestioneRiepilogoMensileDAO.class));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDeleteRichiesteScaduteEliminaIlBlocco() {
+
+        final Date soglia = Date.valueOf("2024-01-10");
+        final List<Long> ids = List.of(3L, 5L, 8L);
+        given(noleggioDAO.findIdRichiesteScadute(any(), eq(soglia), any())).willReturn(ids);
+        given(noleggioDAO.deleteByIdIn(ids)).willReturn(3);
+
+        assertEquals(3, service.deleteRichiesteScadute(soglia, 3));
+
+        final var stati = ArgumentCaptor.forClass(Collection.class);
+        final var pagina = ArgumentCaptor.forClass(Pageable.class);
+        verify(noleggioDAO).findIdRichiesteScadute(stati.capture(), eq(soglia), pagina.capture());
+        assertEquals(EnumSet.of(Noleggio.EnumStato.RICHIESTA, Noleggio.EnumStato.RIFIUTATA), EnumSet.copyOf(stati.getValue()));
+        assertEquals(0, pagina.getValue().getPageNumber());
+        assertEquals(3, pagina.getValue().getPageSize());
+        verify(eventoService).registraEliminazioni(ids);
+        verify(noleggioDAO).deleteByIdIn(ids);
+    }
+
+    @Test
+    void testDeleteRichiesteScaduteSenzaRichieste() {
+
+        final Date soglia = Date.valueOf("2024-01-10");
+        given(noleggioDAO.findIdRichiesteScadute(any(), eq(soglia), any())).willReturn(List.of());
+
+        assertEquals(0, service.deleteRichiesteScadute(soglia, 100));
+
+        verify(eventoService, never()).registraEliminazioni(any());
+        verify(noleggioDAO, never()).deleteByIdIn(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCheckRichiestaNoleggioProcedeFinoAlBloccoIncompleto() throws InterruptedException {
+
+        final GestioneNoleggioService noleggioService = mock(GestioneNoleggioService.class);
+        final LeaseService leaseService = mock(LeaseService.class);
+        final Lease lease = new Lease("checkRichiestaNoleggio", "nodo", new Timestamp(System.currentTimeMillis()), new Timestamp(System.currentTimeMillis() + 60000), 1);
+        given(leaseService.acquisisci(eq("checkRichiestaNoleggio"), any())).willReturn(Optional.of(lease));
+        given(leaseService.esegui(eq(lease), any(Supplier.class)))
+                .willAnswer((final var invocazione) -> Optional.of(invocazione.getArgument(1, Supplier.class).get()));
+        given(noleggioService.deleteRichiesteScadute(any(), anyInt())).willReturn(2, 2, 1);
+
+        final NoleggioService job = new NoleggioService(noleggioService, leaseService);
+        ReflectionTestUtils.setField(job, "giorniScadenza", 7);
+        ReflectionTestUtils.setField(job, "dimensioneBlocco", 2);
+        job.checkRichiestaNoleggio();
+
+        final var soglia = ArgumentCaptor.forClass(Date.class);
+        verify(noleggioService, times(3)).deleteRichiesteScadute(soglia.capture(), eq(2));
+        final long attesa = System.currentTimeMillis() - Duration.ofDays(7).toMillis();
+        assertTrue(Math.abs(soglia.getValue().getTime() - attesa) < Duration.ofMinutes(1).toMillis());
+        verify(leaseService).rilascia(eq(lease), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCheckRichiestaNoleggioSiFermaSeIlLeaseScade() throws InterruptedException {
+
+        final GestioneNoleggioService noleggioService = mock(GestioneNoleggioService.class);
+        final LeaseService leaseService = mock(LeaseService.class);
+        final Lease lease = new Lease("checkRichiestaNoleggio", "nodo", new Timestamp(System.currentTimeMillis()), new Timestamp(System.currentTimeMillis() + 60000), 1);
+        given(leaseService.acquisisci(eq("checkRichiestaNoleggio"), any())).willReturn(Optional.of(lease));
+        given(leaseService.esegui(eq(lease), any(Supplier.class)))
+                .willAnswer((final var invocazione) -> Optional.of(invocazione.getArgument(1, Supplier.class).get()))
+                .willReturn(Optional.empty());
+        given(noleggioService.deleteRichiesteScadute(any(), anyInt())).willReturn(2);
+
+        final NoleggioService job = new NoleggioService(noleggioService, leaseService);
+        ReflectionTestUtils.setField(job, "giorniScadenza", 7);
+        ReflectionTestUtils.setField(job, "dimensioneBlocco", 2);
+        job.checkRichiestaNoleggio();
+
+        verify(noleggioService, times(1)).deleteRichiesteScadute(any(), anyInt());
+        verify(leaseService).rilascia(eq(lease), any());
+    }
+}
@@ -0,0 +1,238 @@
+package it.unisa.c02.rently.rently_application.security;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifica l'autenticazione delle richieste tramite il token di accesso e tramite il ticket dello stream della chat.
+ */
+public class AuthorizationFilterTests {
+
+    private final GestioneAutenticazioneDAO userRepository = mock(GestioneAutenticazioneDAO.class);
+    private final TokenRevocationList revocationList = mock(TokenRevocationList.class);
+    private final AuthorizationFilter filter = new AuthorizationFilter(mock(AuthenticationManager.class), userRepository,
+            new PrincipalCache(100, 60000), revocationList);
+
+    @BeforeEach
+    void setUp() {
+        JwtProvider.configura("1", "segreto-di-prova", List.of());
+        JwtProvider.headerParam = "Authorization";
+        given(userRepository.existsById(anyLong())).willReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        JwtProvider.accettaClaimUser = true;
+        JwtProvider.durataAccesso = Duration.ofMinutes(15);
+    }
+
+    private Authentication filtra(final MockHttpServletRequest request) throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private Authentication filtraHeader(final String token) throws Exception {
+        final MockHttpServletRequest request = richiesta("/api/chat/conversazioni");
+        request.addHeader("Authorization", token);
+        return filtra(request);
+    }
+
+    private static String tokenClaimUser() {
+        // Formato precedente: l'utente serializzato in JSON nella claim "user", senza claim "ver" e "uid"
+        return JwtProvider.createJwt("mario@rently.it", Map.of(JwtProvider.CLAIM_USER,
+                "{\"id\":7,\"username\":\"mario\",\"email\":\"mario@rently.it\",\"premium\":false}"));
+    }
+
+    private static MockHttpServletRequest richiesta(final String path) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    @Test
+    void testTicketAutenticaLoStream() throws Exception {
+
+        final MockHttpServletRequest request = richiesta(AuthorizationFilter.STREAM_PATH);
+        request.setParameter("ticket", JwtProvider.createTicketStream("mario@rently.it", 7, "jti-accesso"));
+
+        final Authentication autenticazione = filtra(request);
+
+        assertNotNull(autenticazione);
+        final UtentePrincipal principal = (UtentePrincipal) autenticazione.getPrincipal();
+        assertEquals(7, principal.id());
+        // La revoca del token di accesso da cui è stato richiesto vale anche per il ticket
+        assertEquals("jti-accesso", principal.idToken());
+    }
+
+    @Test
+    void testTicketDiUnTokenRevocatoNonAutentica() throws Exception {
+
+        given(revocationList.isRevocato("jti-accesso")).willReturn(true);
+        final MockHttpServletRequest request = richiesta(AuthorizationFilter.STREAM_PATH);
+        request.setParameter("ticket", JwtProvider.createTicketStream("mario@rently.it", 7, "jti-accesso"));
+
+        assertNull(filtra(request));
+    }
+
+    @Test
+    void testTicketNonValeComeTokenDiAccesso() throws Exception {
+
+        final MockHttpServletRequest request = richiesta("/api/chat/conversazioni");
+        request.addHeader("Authorization", JwtProvider.createTicketStream("mario@rently.it", 7, "jti-accesso"));
+
+        assertNull(filtra(request));
+    }
+
+    @Test
+    void testTokenDiAccessoNonAccettatoNellUrl() throws Exception {
+
+        final MockHttpServletRequest request = richiesta(AuthorizationFilter.STREAM_PATH);
+        request.setParameter("token", JwtProvider.createJwt("mario@rently.it", 7));
+        request.setParameter("ticket", JwtProvider.createJwt("mario@rently.it", 7));
+
+        assertNull(filtra(request));
+    }
+
+    @Test
+    void testTokenDiAccessoNellHeaderAutenticaLoStream() throws Exception {
+
+        final MockHttpServletRequest request = richiesta(AuthorizationFilter.STREAM_PATH);
+        request.addHeader("Authorization", JwtProvider.createJwt("mario@rently.it", 7));
+
+        assertNotNull(filtra(request));
+    }
+
+    @Test
+    void testTokenCompattoAutentica() throws Exception {
+
+        final String token = JwtProvider.createJwt("mario@rently.it", 7);
+
+        final Authentication autenticazione = filtraHeader(token);
+
+        assertNotNull(autenticazione);
+        final UtentePrincipal principal = (UtentePrincipal) autenticazione.getPrincipal();
+        assertEquals(7, principal.id());
+        assertEquals("mario@rently.it", principal.email());
+        assertEquals(JwtProvider.verifyJwt(token).getId(), principal.idToken());
+        assertEquals(JwtProvider.verifyJwt(token).getIssuedAt().getTime(), principal.emissione());
+    }
+
+    @Test
+    void testTokenCompattoSenzaIdUtenteNonAutentica() throws Exception {
+
+        final String token = JwtProvider.createJwt("mario@rently.it",
+                Map.of(JwtProvider.CLAIM_VERSIONE, JwtProvider.VERSIONE_CLAIM));
+
+        assertNull(filtraHeader(token));
+    }
+
+    @Test
+    void testTokenConClaimUserAutenticaSeAccettato() throws Exception {
+
+        JwtProvider.accettaClaimUser = true;
+
+        final Authentication autenticazione = filtraHeader(tokenClaimUser());
+
+        assertNotNull(autenticazione);
+        final UtentePrincipal principal = (UtentePrincipal) autenticazione.getPrincipal();
+        assertEquals(7, principal.id());
+        assertEquals("mario@rently.it", principal.email());
+        assertTrue(principal.emissione() > 0);
+    }
+
+    @Test
+    void testTokenConClaimUserRifiutatoSeNonAccettato() throws Exception {
+
+        JwtProvider.accettaClaimUser = false;
+
+        assertNull(filtraHeader(tokenClaimUser()));
+        // Il formato compatto resta accettato
+        assertNotNull(filtraHeader(JwtProvider.createJwt("mario@rently.it", 7)));
+    }
+
+    @Test
+    void testTokenSenzaClaimUtenteNonAutentica() throws Exception {
+
+        assertNull(filtraHeader(JwtProvider.createJwt("mario@rently.it", Map.of("altro", "valore"))));
+    }
+
+    private MockFilterChain filtraPubblico(final String path, final String token) throws Exception {
+        final MockHttpServletRequest request = richiesta(path);
+        request.addHeader("Authorization", token);
+        final MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return chain;
+    }
+
+    private static String manomesso(final String token) {
+        final int firma = token.lastIndexOf('.') + 1;
+        return token.substring(0, firma) + (token.charAt(firma) == 'A' ? 'B' : 'A') + token.substring(firma + 1);
+    }
+
+    @Test
+    void testTokenScadutoProsegueSenzaAutenticazione() throws Exception {
+
+        JwtProvider.durataAccesso = Duration.ofMinutes(-1);
+        final String scaduto = JwtProvider.createJwt("mario@rently.it", 7);
+
+        final MockFilterChain chain = filtraPubblico("/api/autenticazione/refresh", scaduto);
+
+        // Il client con un token scaduto raggiunge comunque il rinnovo della sessione
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testTokenManomessoProsegueSenzaAutenticazione() throws Exception {
+
+        final String token = manomesso(JwtProvider.createJwt("mario@rently.it", 7));
+
+        final MockFilterChain chain = filtraPubblico("/api/autenticazione/login", token);
+
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testTokenMalformatoProsegueSenzaAutenticazione() throws Exception {
+
+        final MockFilterChain chain = filtraPubblico("/api/autenticazione/login", "non-un-jwt");
+
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testTicketManomessoNonAutenticaLoStream() throws Exception {
+
+        final MockHttpServletRequest request = richiesta(AuthorizationFilter.STREAM_PATH);
+        request.setParameter("ticket", manomesso(JwtProvider.createTicketStream("mario@rently.it", 7, "jti-accesso")));
+        final MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
@@ -0,0 +1,103 @@
+package it.unisa.c02.rently.rently_application.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifica la firma dei token con la chiave corrente e la verifica con le chiavi del portachiavi durante una rotazione.
+ */
+public class JwtProviderTests {
+
+    private static final String SEGRETO = "segreto-corrente";
+    private static final String SEGRETO_PRECEDENTE = "segreto-precedente";
+
+    @AfterEach
+    void tearDown() {
+        JwtProvider.configura("1", SEGRETO, List.of());
+    }
+
+    private static String firma(final String kid, final String segreto) {
+        final var builder = JWT.create().withSubject("mario@rently.it").withIssuer(JwtProvider.ISSUER)
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60000))
+                .withClaim(JwtProvider.CLAIM_ID_UTENTE, 7L)
+                .withClaim(JwtProvider.CLAIM_VERSIONE, JwtProvider.VERSIONE_CLAIM);
+        return (kid != null ? builder.withKeyId(kid) : builder).sign(Algorithm.HMAC256(segreto));
+    }
+
+    @Test
+    void testTokenFirmatoConLaChiaveCorrente() {
+
+        JwtProvider.configura("2", SEGRETO, List.of(new JwtProvider.ChiaveVerifica("1", SEGRETO_PRECEDENTE, null)));
+
+        final String token = JwtProvider.createJwt("mario@rently.it", 7);
+
+        assertEquals("2", JWT.decode(token).getKeyId());
+        assertEquals(7L, JwtProvider.verifyJwt(token).getClaim(JwtProvider.CLAIM_ID_UTENTE).asLong());
+    }
+
+    @Test
+    void testKidSelezionaLaChiaveDiVerifica() {
+
+        JwtProvider.configura("2", SEGRETO, List.of(new JwtProvider.ChiaveVerifica("1", SEGRETO_PRECEDENTE, null)));
+
+        assertEquals("1", JwtProvider.verifyJwt(firma("1", SEGRETO_PRECEDENTE)).getKeyId());
+        // Il kid vincola la chiave: un token firmato con un'altra chiave non viene accettato
+        assertThrows(SignatureVerificationException.class, () -> JwtProvider.verifyJwt(firma("1", SEGRETO)));
+    }
+
+    @Test
+    void testKidSconosciutoRifiutato() {
+
+        JwtProvider.configura("2", SEGRETO, List.of());
+
+        assertThrows(JWTVerificationException.class, () -> JwtProvider.verifyJwt(firma("9", SEGRETO)));
+    }
+
+    @Test
+    void testTokenSenzaKidVerificatoConTutteLeChiavi() {
+
+        JwtProvider.configura("2", SEGRETO, List.of(new JwtProvider.ChiaveVerifica("1", SEGRETO_PRECEDENTE, null)));
+
+        assertEquals(7L, JwtProvider.verifyJwt(firma(null, SEGRETO)).getClaim(JwtProvider.CLAIM_ID_UTENTE).asLong());
+        assertEquals(7L, JwtProvider.verifyJwt(firma(null, SEGRETO_PRECEDENTE)).getClaim(JwtProvider.CLAIM_ID_UTENTE).asLong());
+        assertThrows(SignatureVerificationException.class, () -> JwtProvider.verifyJwt(firma(null, "segreto-sconosciuto")));
+    }
+
+    @Test
+    void testChiavePrecedenteValidaFinoAllaScadenza() {
+
+        JwtProvider.configura("2", SEGRETO, List.of(
+                new JwtProvider.ChiaveVerifica("1", SEGRETO_PRECEDENTE, Instant.now().plusSeconds(60))));
+
+        assertEquals("1", JwtProvider.verifyJwt(firma("1", SEGRETO_PRECEDENTE)).getKeyId());
+    }
+
+    @Test
+    void testChiavePrecedenteScaduta() {
+
+        JwtProvider.configura("2", SEGRETO, List.of(
+                new JwtProvider.ChiaveVerifica("1", SEGRETO_PRECEDENTE, Instant.now().minusSeconds(1))));
+
+        assertThrows(JWTVerificationException.class, () -> JwtProvider.verifyJwt(firma("1", SEGRETO_PRECEDENTE)));
+        // Anche i token senza kid non vengono più verificati con la chiave scaduta
+        assertThrows(SignatureVerificationException.class, () -> JwtProvider.verifyJwt(firma(null, SEGRETO_PRECEDENTE)));
+    }
+
+    @Test
+    void testKidDuplicatoRifiutato() {
+
+        assertThrows(IllegalArgumentException.class, () -> JwtProvider.configura("1", SEGRETO,
+                List.of(new JwtProvider.ChiaveVerifica("1", SEGRETO_PRECEDENTE, null))));
+    }
+}
@@ -0,0 +1,153 @@
+package it.unisa.c02.rently.rently_application.security;
+
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica la durata, l'eliminazione e l'invalidazione delle voci della cache dei principal.
+ */
+public class PrincipalCacheTests {
+
+    private static final long FUTURO = System.currentTimeMillis() + 3600000;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static UtentePrincipal principal(final long id, final String idToken) {
+        return new UtentePrincipal(id, "utente" + id + "@rently.it", idToken);
+    }
+
+    private static int presenti(final PrincipalCache cache, final int numero) {
+        int presenti = 0;
+        for (int i = 0; i < numero; i++) {
+            if (cache.get("token-" + i) != null) {
+                presenti++;
+            }
+        }
+        return presenti;
+    }
+
+    @Test
+    void testVoceScadeConLaDurataDellaCache() throws Exception {
+
+        final PrincipalCache cache = new PrincipalCache(100, 50);
+        cache.put("token", principal(1, "a"), new Date(FUTURO));
+
+        assertNotNull(cache.get("token"));
+        Thread.sleep(100);
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void testVoceScadeConIlToken() throws Exception {
+
+        final PrincipalCache cache = new PrincipalCache(100, 60000);
+        cache.put("token", principal(1, "a"), new Date(System.currentTimeMillis() + 50));
+
+        assertNotNull(cache.get("token"));
+        Thread.sleep(100);
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void testTokenScadutoNonMemorizzato() {
+
+        final PrincipalCache cache = new PrincipalCache(100, 60000);
+        cache.put("token", principal(1, "a"), new Date(System.currentTimeMillis() - 1000));
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void testCachePienaEliminaPrimaLeVociScadute() throws Exception {
+
+        final PrincipalCache cache = new PrincipalCache(10, 60000);
+        for (int i = 0; i < 5; i++) {
+            cache.put("token-" + i, principal(i, "a" + i), new Date(System.currentTimeMillis() + 50));
+        }
+        for (int i = 5; i < 10; i++) {
+            cache.put("token-" + i, principal(i, "a" + i), new Date(FUTURO));
+        }
+        Thread.sleep(100);
+
+        cache.put("token-10", principal(10, "a10"), new Date(FUTURO));
+
+        // Le voci scadute bastano a fare spazio: quelle ancora valide restano tutte
+        assertEquals(6, presenti(cache, 11));
+    }
+
+    @Test
+    void testCachePienaDiVociValideRestaLimitata() {
+
+        final PrincipalCache cache = new PrincipalCache(10, 60000);
+        for (int i = 0; i < 50; i++) {
+            cache.put("token-" + i, principal(i, "a" + i), new Date(FUTURO));
+        }
+
+        final int presenti = presenti(cache, 50);
+        assertTrue(presenti <= 10 && presenti > 0, "voci presenti: " + presenti);
+        assertNotNull(cache.get("token-49"));
+    }
+
+    @Test
+    void testInvalidaUtente() {
+
+        final PrincipalCache cache = new PrincipalCache(100, 60000);
+        cache.put("token-0", principal(1, "a"), new Date(FUTURO));
+        cache.put("token-1", principal(1, "b"), new Date(FUTURO));
+        cache.put("token-2", principal(2, "c"), new Date(FUTURO));
+
+        cache.invalida(1);
+
+        assertNull(cache.get("token-0"));
+        assertNull(cache.get("token-1"));
+        assertNotNull(cache.get("token-2"));
+    }
+
+    @Test
+    void testInvalidaToken() {
+
+        final PrincipalCache cache = new PrincipalCache(100, 60000);
+        cache.put("token-0", principal(1, "a"), new Date(FUTURO));
+        cache.put("token-1", principal(1, "b"), new Date(FUTURO));
+
+        cache.invalidaToken("a");
+
+        assertNull(cache.get("token-0"));
+        assertNotNull(cache.get("token-1"));
+    }
+
+    @Test
+    void testUtenteEliminatoInvalidatoAncheDopoIlCommit() {
+
+        final PrincipalCache cache = new PrincipalCache(100, 60000);
+        final InvalidazionePrincipal listener = new InvalidazionePrincipal(cache);
+        final Utente utente = new Utente();
+        utente.setId(1);
+        cache.put("token-0", principal(1, "a"), new Date(FUTURO));
+
+        TransactionSynchronizationManager.initSynchronization();
+        listener.utenteEliminato(utente);
+        assertNull(cache.get("token-0"));
+
+        // Una richiesta concorrente vede ancora l'utente e lo rimette in cache prima del commit
+        cache.put("token-0", principal(1, "a"), new Date(FUTURO));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertNull(cache.get("token-0"));
+    }
+}
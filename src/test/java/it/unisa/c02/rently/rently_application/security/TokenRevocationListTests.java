@@ -0,0 +1,245 @@
+package it.unisa.c02.rently.rently_application.security;
+
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAutenticazioneDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneTokenRevocatoDAO;
+import it.unisa.c02.rently.rently_application.data.model.TokenRevocato;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica il filtro di Bloom, la lettura periodica delle revoche e il controllo delle revoche
+ * anche per i principal già presenti nella cache.
+ */
+public class TokenRevocationListTests {
+
+    private final GestioneTokenRevocatoDAO tokenRevocatoDAO = mock(GestioneTokenRevocatoDAO.class);
+    private final TokenRevocationList revocationList = new TokenRevocationList(tokenRevocatoDAO, 1000, 0.01);
+
+    @BeforeEach
+    void setUp() {
+        JwtProvider.configura("1", "segreto-di-prova", List.of());
+        JwtProvider.headerParam = "Authorization";
+        given(tokenRevocatoDAO.findByJtiGreaterThanAndScadenzaAfterOrderByJtiAsc(anyString(), any(), any())).willReturn(List.of());
+        given(tokenRevocatoDAO.findByCreazioneGreaterThanEqual(any())).willReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        JwtProvider.accettaClaimUser = true;
+    }
+
+    private static TokenRevocato revoca(final String jti, final long creazione) {
+        return new TokenRevocato(jti, new Timestamp(creazione), new Timestamp(creazione + 900000));
+    }
+
+    @Test
+    void testBloomFilterSenzaFalsiNegativi() {
+        final BloomFilter filtro = new BloomFilter(10000, 0.01);
+        final String[] aggiunti = new String[10000];
+        for (int i = 0; i < aggiunti.length; i++) {
+            aggiunti[i] = UUID.randomUUID().toString();
+            filtro.aggiungi(aggiunti[i]);
+        }
+
+        for (final String jti : aggiunti) {
+            assertTrue(filtro.contiene(jti));
+        }
+        int falsiPositivi = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filtro.contiene(UUID.randomUUID().toString())) {
+                falsiPositivi++;
+            }
+        }
+        // Probabilità attesa dell'1%, con ampio margine per la casualità dei jti
+        assertTrue(falsiPositivi < 300, "Falsi positivi: " + falsiPositivi);
+    }
+
+    @Test
+    void testBloomFilterOltreLaCapacitaSenzaFalsiNegativi() {
+        final BloomFilter filtro = new BloomFilter(10, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filtro.aggiungi("jti-" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filtro.contiene("jti-" + i));
+        }
+    }
+
+    @Test
+    void testRevocaLocaleVistaSenzaDatabase() {
+        revocationList.ricostruisci();
+        revocationList.revoca("jti-revocato", Instant.now().plusSeconds(900));
+
+        assertTrue(revocationList.isRevocato("jti-revocato"));
+        assertFalse(revocationList.isRevocato("jti-valido"));
+        verify(tokenRevocatoDAO, never()).findById(anyString());
+    }
+
+    @Test
+    void testAggiornaRileggeConMargine() {
+        revocationList.ricostruisci();
+        final long primaDellaLettura = System.currentTimeMillis();
+        revocationList.aggiorna();
+        final long dopoLaLettura = System.currentTimeMillis();
+        revocationList.aggiorna();
+
+        final ArgumentCaptor<Timestamp> da = ArgumentCaptor.forClass(Timestamp.class);
+        verify(tokenRevocatoDAO, times(2)).findByCreazioneGreaterThanEqual(da.capture());
+        final long seconda = da.getAllValues().get(1).getTime();
+        // La seconda lettura riparte da un minuto prima dell'inizio della precedente
+        assertTrue(seconda >= primaDellaLettura - 60000 && seconda <= dopoLaLettura - 60000);
+    }
+
+    @Test
+    void testAggiornaLeggeLeRevocheConfermateInRitardo() {
+        revocationList.ricostruisci();
+        revocationList.aggiorna();
+        // Revoca di un altro nodo con la creazione precedente all'ultima lettura, confermata dopo la lettura
+        final long creazione = System.currentTimeMillis() - 30000;
+        given(tokenRevocatoDAO.findByCreazioneGreaterThanEqual(any())).willReturn(List.of(revoca("jti-ritardo", creazione)));
+        given(tokenRevocatoDAO.findById("jti-ritardo")).willReturn(Optional.of(revoca("jti-ritardo", creazione)));
+        revocationList.aggiorna();
+
+        assertTrue(revocationList.isRevocato("jti-ritardo"));
+    }
+
+    @Test
+    void testAggiornaFallitoRiparteDallaStessaLettura() {
+        revocationList.ricostruisci();
+        revocationList.aggiorna();
+        given(tokenRevocatoDAO.findByCreazioneGreaterThanEqual(any()))
+                .willThrow(new DataAccessResourceFailureException("database non disponibile"))
+                .willReturn(List.of());
+        revocationList.aggiorna();
+        revocationList.aggiorna();
+
+        final ArgumentCaptor<Timestamp> da = ArgumentCaptor.forClass(Timestamp.class);
+        verify(tokenRevocatoDAO, times(3)).findByCreazioneGreaterThanEqual(da.capture());
+        assertEquals(da.getAllValues().get(1), da.getAllValues().get(2));
+    }
+
+    @Test
+    void testRevocaUtenteRevocaITokenEmessiPrima() {
+        revocationList.ricostruisci();
+        final long emissione = System.currentTimeMillis() - 1000;
+        revocationList.revocaUtente(7);
+
+        assertTrue(revocationList.isRevocatoUtente(7, emissione));
+        assertFalse(revocationList.isRevocatoUtente(7, System.currentTimeMillis() + 1000));
+        assertFalse(revocationList.isRevocatoUtente(8, emissione));
+    }
+
+    @Test
+    void testRevocaUtenteDiUnAltroNodoLettaDaAggiorna() {
+        revocationList.ricostruisci();
+        final long creazione = System.currentTimeMillis();
+        given(tokenRevocatoDAO.findByCreazioneGreaterThanEqual(any()))
+                .willReturn(List.of(revoca(TokenRevocationList.PREFISSO_UTENTE + 7, creazione)));
+        revocationList.aggiorna();
+
+        assertTrue(revocationList.isRevocatoUtente(7, creazione - 1000));
+        assertFalse(revocationList.isRevocatoUtente(7, creazione + 1000));
+    }
+
+    @Test
+    void testRevocaUtenteConservataPerITokenConClaimUser() {
+        revocationList.ricostruisci();
+        final long emissione = System.currentTimeMillis() - 1000;
+        revocationList.revocaUtente(7);
+
+        final ArgumentCaptor<TokenRevocato> salvata = ArgumentCaptor.forClass(TokenRevocato.class);
+        verify(tokenRevocatoDAO).save(salvata.capture());
+        assertTrue(salvata.getValue().getScadenza().getTime()
+                >= System.currentTimeMillis() + JwtProvider.DURATA_TOKEN_CLAIM_USER.toMillis() - 60000);
+        // Dopo la ricostruzione la revoca resta, perché un token con la claim "user" emesso prima può essere ancora valido
+        revocationList.ricostruisci();
+        assertTrue(revocationList.isRevocatoUtente(7, emissione));
+    }
+
+    @Test
+    void testRevocaUtenteScadutaEliminataAllaRicostruzione() {
+        JwtProvider.accettaClaimUser = false;
+        revocationList.ricostruisci();
+        final long creazione = System.currentTimeMillis() - JwtProvider.durataAccesso.toMillis() - 60000;
+        given(tokenRevocatoDAO.findByCreazioneGreaterThanEqual(any()))
+                .willReturn(List.of(revoca(TokenRevocationList.PREFISSO_UTENTE + 7, creazione)));
+        revocationList.aggiorna();
+        assertTrue(revocationList.isRevocatoUtente(7, creazione - 1000));
+
+        revocationList.ricostruisci();
+
+        assertFalse(revocationList.isRevocatoUtente(7, creazione - 1000));
+    }
+
+    @Test
+    void testRevocaVistaAncheConPrincipalInCache() throws Exception {
+        final GestioneAutenticazioneDAO userRepository = mock(GestioneAutenticazioneDAO.class);
+        given(userRepository.existsById(anyLong())).willReturn(true);
+        final AuthorizationFilter filter = new AuthorizationFilter(mock(AuthenticationManager.class), userRepository,
+                new PrincipalCache(100, 60000), revocationList);
+        revocationList.ricostruisci();
+        final String token = JwtProvider.createJwt("mario@rently.it", 7);
+
+        assertNotNull(filtra(filter, token));
+        revocationList.revoca(JwtProvider.verifyJwt(token).getId(), Instant.now().plusSeconds(900));
+
+        assertNull(filtra(filter, token));
+        // La seconda richiesta usa il principal in cache, senza rileggere l'utente
+        verify(userRepository, times(1)).existsById(7L);
+    }
+
+    @Test
+    void testRevocaUtenteVistaAncheConPrincipalInCache() throws Exception {
+        final GestioneAutenticazioneDAO userRepository = mock(GestioneAutenticazioneDAO.class);
+        given(userRepository.existsById(anyLong())).willReturn(true);
+        final AuthorizationFilter filter = new AuthorizationFilter(mock(AuthenticationManager.class), userRepository,
+                new PrincipalCache(100, 60000), revocationList);
+        revocationList.ricostruisci();
+        final String token = JwtProvider.createJwt("mario@rently.it", 7);
+
+        assertNotNull(filtra(filter, token));
+        revocationList.revocaUtente(7);
+
+        assertNull(filtra(filter, token));
+        verify(userRepository, times(1)).existsById(7L);
+    }
+
+    private static Authentication filtra(final AuthorizationFilter filter, final String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/chat/conversazioni");
+        request.setServletPath("/api/chat/conversazioni");
+        request.addHeader("Authorization", token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
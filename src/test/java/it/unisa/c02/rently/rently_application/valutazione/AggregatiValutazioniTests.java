@@ -0,0 +1,183 @@
+package it.unisa.c02.rently.rently_application.valutazione;
+
+import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.ClassificaAnnunciService;
+import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.GestioneValutazioneServiceImpl;
+import it.unisa.c02.rently.rently_application.commons.services.leaseService.LeaseService;
+import it.unisa.c02.rently.rently_application.commons.services.valutazioneService.ValutazioneService;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAggregatoValutazioniAnnuncioDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAggregatoValutazioniUtenteDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneValutazioneOggettoDAO;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneValutazioneUtenteDAO;
+import it.unisa.c02.rently.rently_application.data.dto.MediaValutazioniDTO;
+import it.unisa.c02.rently.rently_application.data.model.AggregatoValutazioniUtente;
+import it.unisa.c02.rently.rently_application.data.model.Lease;
+import it.unisa.c02.rently.rently_application.data.model.Utente;
+import it.unisa.c02.rently.rently_application.data.model.ValutazioneUtente;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifica la lettura, l'aggiornamento e la verifica periodica degli aggregati delle valutazioni.
+ */
+public class AggregatiValutazioniTests {
+
+    private final GestioneValutazioneUtenteDAO valutazioneUtenteDAO = mock(GestioneValutazioneUtenteDAO.class);
+    private final GestioneValutazioneOggettoDAO valutazioneOggettoDAO = mock(GestioneValutazioneOggettoDAO.class);
+    private final GestioneAggregatoValutazioniUtenteDAO aggregatoUtenteDAO = mock(GestioneAggregatoValutazioniUtenteDAO.class);
+    private final GestioneAggregatoValutazioniAnnuncioDAO aggregatoAnnuncioDAO = mock(GestioneAggregatoValutazioniAnnuncioDAO.class);
+    private final GestioneValutazioneServiceImpl service = new GestioneValutazioneServiceImpl(
+            valutazioneUtenteDAO, valutazioneOggettoDAO, aggregatoUtenteDAO, aggregatoAnnuncioDAO, mock(ClassificaAnnunciService.class));
+
+    private static Utente utente(final long id) {
+        return new Utente(id, "user" + id, "Mario", "Rossi", "user" + id + "@email.com", "password", false);
+    }
+
+    private static AggregatoValutazioniUtente aggregato(final long id, final long somma, final long numero, final int votiOtto) {
+        final AggregatoValutazioniUtente aggregato = new AggregatoValutazioniUtente();
+        aggregato.setIdUtente(id);
+        aggregato.setSomma(somma);
+        aggregato.setNumero(numero);
+        aggregato.getIstogramma().setVoti8(votiOtto);
+        return aggregato;
+    }
+
+    @Test
+    void testMediaSenzaAggregatoCalcolataSenzaScritture() {
+
+        given(aggregatoUtenteDAO.findById(5L)).willReturn(Optional.empty());
+        given(valutazioneUtenteDAO.sommeVoti(List.of(5L))).willReturn(List.<Object[]>of(new Object[]{5L, 24L, 3L}));
+
+        assertEquals(8.0, service.mediaValutazioniUtenteByUtente(utente(5)));
+        verify(aggregatoUtenteDAO, never()).ricalcola(anyLong());
+    }
+
+    @Test
+    void testIstogrammaSenzaAggregatoCalcolatoSenzaScritture() {
+
+        given(aggregatoUtenteDAO.findById(5L)).willReturn(Optional.empty());
+        given(valutazioneUtenteDAO.distribuzioneVoti(5L)).willReturn(List.of(new Object[]{8, 2L}, new Object[]{3, 1L}));
+
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0, 0, 0, 0, 2, 0, 0}, service.istogrammaValutazioniByUtente(5));
+        verify(aggregatoUtenteDAO, never()).ricalcola(anyLong());
+    }
+
+    @Test
+    void testIstogrammaRiportaNellIntervalloIVotiNonValidi() {
+
+        given(aggregatoUtenteDAO.findById(5L)).willReturn(Optional.empty());
+        given(valutazioneUtenteDAO.distribuzioneVoti(5L)).willReturn(List.of(new Object[]{10, 1L}, new Object[]{12, 2L}, new Object[]{-1, 1L}));
+
+        assertArrayEquals(new int[]{1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 3}, service.istogrammaValutazioniByUtente(5));
+    }
+
+    @Test
+    void testAggregatoAggiornatoConIlVotoNellIntervallo() {
+
+        final ValutazioneUtente valutazione = new ValutazioneUtente(14, "Fuori scala", utente(5), utente(6), null);
+        valutazione.setId(9);
+        given(valutazioneUtenteDAO.save(valutazione)).willReturn(valutazione);
+        given(valutazioneUtenteDAO.findById(9L)).willReturn(Optional.of(valutazione));
+
+        service.addValutazioneUtente(valutazione);
+        service.deleteValutazioneUtente(valutazione);
+
+        verify(aggregatoUtenteDAO).aggiungiVoto(5L, 10);
+        verify(aggregatoUtenteDAO).rimuoviVoto(5L, 10);
+    }
+
+    @Test
+    void testMediaDaAggregato() {
+
+        given(aggregatoUtenteDAO.findById(5L)).willReturn(Optional.of(aggregato(5, 16, 2, 2)));
+
+        assertEquals(8.0, service.mediaValutazioniUtenteByUtente(utente(5)));
+        verify(valutazioneUtenteDAO, never()).sommeVoti(any());
+    }
+
+    @Test
+    void testMedieInBloccoCompletanoGliAggregatiMancanti() {
+
+        given(aggregatoUtenteDAO.findAllById(List.of(1L, 2L, 3L, 1L))).willReturn(List.of(aggregato(1, 16, 2, 2)));
+        given(valutazioneUtenteDAO.sommeVoti(Set.of(2L, 3L))).willReturn(List.<Object[]>of(new Object[]{2L, 9L, 1L}));
+
+        final List<MediaValutazioniDTO> medie = service.medieValutazioniByUtenti(List.of(1L, 2L, 3L, 1L));
+
+        assertEquals(3, medie.size());
+        assertEquals(8.0, medie.get(0).getMedia());
+        assertEquals(9.0, medie.get(1).getMedia());
+        assertEquals(1, medie.get(1).getNumero());
+        assertEquals(3, medie.get(2).getId());
+        assertEquals(0, medie.get(2).getNumero());
+        verify(aggregatoUtenteDAO, never()).ricalcola(anyLong());
+    }
+
+    @Test
+    void testMedieInBloccoSenzaAggregatiMancanti() {
+
+        given(aggregatoUtenteDAO.findAllById(List.of(1L))).willReturn(List.of(aggregato(1, 16, 2, 2)));
+
+        assertEquals(8.0, service.medieValutazioniByUtenti(List.of(1L)).get(0).getMedia());
+        verify(valutazioneUtenteDAO, never()).sommeVoti(any());
+    }
+
+    @Test
+    void testValutazioneAggiornaLAggregatoConUnUpsert() {
+
+        final ValutazioneUtente valutazione = new ValutazioneUtente(8, "Ottimo", utente(5), utente(6), null);
+        given(valutazioneUtenteDAO.save(valutazione)).willReturn(valutazione);
+
+        service.addValutazioneUtente(valutazione);
+
+        // L'aggregato mancante viene creato dallo stesso inserimento atomico, senza una verifica preliminare
+        verify(aggregatoUtenteDAO).aggiungiVoto(5L, 8);
+        verify(aggregatoUtenteDAO, never()).existsById(anyLong());
+        verify(aggregatoUtenteDAO, never()).ricalcola(anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVerificaRicalcolaSoloGliAggregatiNonAllineati() {
+
+        final LeaseService leaseService = mock(LeaseService.class);
+        final Lease lease = new Lease("verificaAggregatiValutazioni", "nodo", new Timestamp(0), new Timestamp(Long.MAX_VALUE), 1);
+        given(leaseService.acquisisci(eq("verificaAggregatiValutazioni"), any())).willReturn(Optional.of(lease));
+        given(leaseService.esegui(eq(lease), any(Runnable.class))).willAnswer((final var invocazione) -> {
+            invocazione.getArgument(1, Runnable.class).run();
+            return true;
+        });
+
+        // Primo blocco completo (1, 2), secondo blocco incompleto (3): l'utente 4 non è mai letto.
+        given(valutazioneUtenteDAO.idValutatiDopo(eq(0L), any())).willReturn(List.of(1L, 2L));
+        given(valutazioneUtenteDAO.idValutatiDopo(eq(2L), any())).willReturn(List.of(3L));
+        given(valutazioneUtenteDAO.sommeVoti(List.of(1L, 2L))).willReturn(List.of(new Object[]{1L, 16L, 2L}, new Object[]{2L, 9L, 1L}));
+        given(valutazioneUtenteDAO.sommeVoti(List.of(3L))).willReturn(List.<Object[]>of(new Object[]{3L, 7L, 1L}));
+        final List<AggregatoValutazioniUtente> primo = new ArrayList<>(List.of(aggregato(1, 16, 2, 2), aggregato(2, 8, 1, 1)));
+        given(aggregatoUtenteDAO.findAllById(List.of(1L, 2L))).willReturn(primo);
+        given(aggregatoUtenteDAO.findAllById(List.of(3L))).willReturn(List.of());
+
+        final ValutazioneService job = new ValutazioneService(valutazioneUtenteDAO, valutazioneOggettoDAO, aggregatoUtenteDAO, aggregatoAnnuncioDAO, leaseService);
+        ReflectionTestUtils.setField(job, "dimensioneBlocco", 2);
+        job.verificaAggregati();
+
+        verify(aggregatoUtenteDAO, never()).ricalcola(1L);
+        verify(aggregatoUtenteDAO).ricalcola(2L);
+        verify(aggregatoUtenteDAO).ricalcola(3L);
+        verify(valutazioneUtenteDAO, never()).idValutatiDopo(eq(3L), any());
+    }
+}
@@ -0,0 +1,79 @@
+package it.unisa.c02.rently.rently_application.valutazione;
+
+import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.ClassificaAnnunciServiceImpl;
+import it.unisa.c02.rently.rently_application.data.dao.GestioneAggregatoValutazioniAnnuncioDAO;
+import it.unisa.c02.rently.rently_application.data.dto.ClassificaAnnuncioDTO;
+import it.unisa.c02.rently.rently_application.data.model.AggregatoValutazioniAnnuncio;
+import it.unisa.c02.rently.rently_application.data.model.Annuncio;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifica gli aggiornamenti della classifica degli annunci, anche durante una ricostruzione.
+ */
+public class ClassificaAnnunciTests {
+
+    private final GestioneAggregatoValutazioniAnnuncioDAO aggregatoDAO = mock(GestioneAggregatoValutazioniAnnuncioDAO.class);
+    private final ClassificaAnnunciServiceImpl service = new ClassificaAnnunciServiceImpl(aggregatoDAO, 0);
+
+    private static AggregatoValutazioniAnnuncio aggregato(final long id, final long somma, final long numero) {
+        final AggregatoValutazioniAnnuncio aggregato = new AggregatoValutazioniAnnuncio();
+        aggregato.setIdAnnuncio(id);
+        aggregato.setSomma(somma);
+        aggregato.setNumero(numero);
+        return aggregato;
+    }
+
+    @Test
+    void testRicostruzioneOrdinaPerPunteggio() {
+
+        given(aggregatoDAO.findClassifica()).willReturn(List.of(
+                new Object[]{1L, 14L, 2L, Annuncio.EnumCategoria.ELETTRONICA},
+                new Object[]{2L, 18L, 2L, Annuncio.EnumCategoria.ELETTRONICA}));
+
+        service.ricostruisci();
+
+        final List<ClassificaAnnuncioDTO> migliori = service.getMigliori(Annuncio.EnumCategoria.ELETTRONICA, 10);
+        assertEquals(2, migliori.size());
+        assertEquals(2, migliori.get(0).getIdAnnuncio());
+        assertEquals(1, migliori.get(1).getIdAnnuncio());
+    }
+
+    @Test
+    void testAggiornamentoDuranteLaRicostruzioneNonVienePerso() {
+
+        given(aggregatoDAO.findById(1L)).willReturn(Optional.of(aggregato(1, 30, 3)));
+        // La ricostruzione legge il valore precedente all'aggiornamento, che avviene prima della sostituzione.
+        given(aggregatoDAO.findClassifica()).willAnswer((final var invocazione) -> {
+            service.aggiorna(1L, Annuncio.EnumCategoria.ELETTRONICA);
+            return List.<Object[]>of(new Object[]{1L, 14L, 2L, Annuncio.EnumCategoria.ELETTRONICA});
+        });
+
+        service.ricostruisci();
+
+        final List<ClassificaAnnuncioDTO> migliori = service.getMigliori(null, 10);
+        assertEquals(1, migliori.size());
+        assertEquals(3, migliori.get(0).getNumero());
+        assertEquals(10.0, migliori.get(0).getMedia());
+    }
+
+    @Test
+    void testAggiornamentoRimuoveGliAnnunciSenzaValutazioni() {
+
+        given(aggregatoDAO.findClassifica()).willReturn(List.<Object[]>of(new Object[]{1L, 14L, 2L, Annuncio.EnumCategoria.ELETTRONICA}));
+        given(aggregatoDAO.findById(1L)).willReturn(Optional.of(aggregato(1, 0, 0)));
+        service.ricostruisci();
+
+        service.aggiorna(1L, Annuncio.EnumCategoria.ELETTRONICA);
+
+        assertTrue(service.getMigliori(null, 10).isEmpty());
+        assertTrue(service.getMigliori(Annuncio.EnumCategoria.ELETTRONICA, 10).isEmpty());
+    }
+}
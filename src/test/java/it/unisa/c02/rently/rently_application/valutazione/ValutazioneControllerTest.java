@@ -2,7 +2,10 @@ package it.unisa.c02.rently.rently_application.valutazione;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.unisa.c02.rently.rently_application.business.gestioneNoleggio.service.GestioneNoleggioService;
+import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.ClassificaAnnunciService;
 import it.unisa.c02.rently.rently_application.business.gestioneValutazione.service.GestioneValutazioneService;
+import it.unisa.c02.rently.rently_application.data.dto.ClassificaAnnuncioDTO;
+import it.unisa.c02.rently.rently_application.data.dto.MediaValutazioniDTO;
 import it.unisa.c02.rently.rently_application.data.dto.ValutazioneDTO;
 import it.unisa.c02.rently.rently_application.data.model.Annuncio;
 import it.unisa.c02.rently.rently_application.data.model.Noleggio;
@@ -21,10 +24,13 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -51,6 +57,9 @@ public class ValutazioneControllerTest {
     @MockBean
     private GestioneNoleggioService noleggioService;
 
+    @MockBean
+    private ClassificaAnnunciService classificaService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -164,4 +173,73 @@ public class ValutazioneControllerTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    void testVisualizzaMedieValutazioniAnnunci() throws Exception {
+
+        final List<MediaValutazioniDTO> medie = new ArrayList<>();
+        medie.add(new MediaValutazioniDTO(1, 7.5, 2));
+        medie.add(new MediaValutazioniDTO(3, 0, 0));
+
+        given(valutazioneService.medieValutazioniByAnnunci(List.of(1L, 3L))).willReturn(medie);
+
+        mockMvc.perform(get("/api/valutazione/visualizza-medie-valutazioni-annunci")
+                        .param("ids", "1,3"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].media", is(7.5)))
+                .andExpect(jsonPath("$[1].id", is(3)))
+                .andExpect(jsonPath("$[1].numero", is(0)));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    void testVisualizzaValutazioniUtentePaginate() throws Exception {
+
+        final List<ValutazioneDTO> valutazioni = new ArrayList<>();
+        valutazioni.add(new ValutazioneDTO(41, 9, "Puntuale e disponibile.", 2, 1L, 7L));
+
+        given(valutazioneService.findPaginaByUtente(2, 42L, 1)).willReturn(valutazioni);
+
+        mockMvc.perform(get("/api/valutazione/visualizza-valutazioni-utente")
+                        .param("valutato", "2")
+                        .param("limite", "1")
+                        .param("idValutazione", "42"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].id", is(41)))
+                .andExpect(jsonPath("$[0].voto", is(9)));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    void testVisualizzaIstogrammaValutazioniUtente() throws Exception {
+
+        final Utente mockUtente2 = new Utente(2, "user2", "Luca", "Bianchi", "luca.bianchi@email.com", "securePass", false);
+        given(areaPersonaleService.getDatiPrivati(2)).willReturn(mockUtente2);
+        given(valutazioneService.istogrammaValutazioniByUtente(2)).willReturn(new int[]{0, 0, 0, 0, 0, 0, 1, 0, 3, 0, 2});
+
+        mockMvc.perform(get("/api/valutazione/visualizza-istogramma-valutazioni-utente")
+                        .param("valutato", "2"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.length()", is(11)))
+                .andExpect(jsonPath("$[8]", is(3)));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = {"USER"})
+    void testVisualizzaAnnunciMiglioriPerCategoria() throws Exception {
+
+        final List<ClassificaAnnuncioDTO> classifica = new ArrayList<>();
+        classifica.add(new ClassificaAnnuncioDTO(4, "ELETTRONICA", 9.2, 9.5, 200));
+        classifica.add(new ClassificaAnnuncioDTO(1, "ELETTRONICA", 6.8, 10, 1));
+
+        given(classificaService.getMigliori(Annuncio.EnumCategoria.ELETTRONICA, 2)).willReturn(classifica);
+
+        mockMvc.perform(get("/api/valutazione/annunci-migliori")
+                        .param("categoria", "ELETTRONICA")
+                        .param("limite", "2"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$[0].idAnnuncio", is(4)))
+                .andExpect(jsonPath("$[1].numero", is(1)));
+    }
+
+}